@@ -266,7 +266,7 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
    * @return The compressor to use on this client.
    */
   private static CompressionCodec getCompressor(final Configuration conf) {
-    String className = conf.get("hbase.client.rpc.compressor", null);
+    String className = conf.get(COMPRESSOR_CLASS, null);
     if (className == null || className.isEmpty()) {
       return null;
     }
@@ -402,8 +402,16 @@ public abstract class AbstractRpcClient<T extends RpcConnection> implements RpcC
     final MetricsConnection.CallStats cs = MetricsConnection.newCallStats();
     cs.setStartTime(EnvironmentEdgeManager.currentTime());
     final AtomicInteger counter = concurrentCounterCache.getUnchecked(addr);
+    int timeout = hrc.getCallTimeout();
+    int priority = hrc.getPriority();
+    // Calls made by a server while it runs a call may inherit its priority and deadline.
+    InheritedRpcContext inherited = InheritedRpcContext.get();
+    if (inherited != null) {
+      timeout = inherited.inheritTimeout(timeout);
+      priority = inherited.inheritPriority(priority);
+    }
     Call call = new Call(nextCallId(), md, param, hrc.cellScanner(), returnType,
-        hrc.getCallTimeout(), hrc.getPriority(), new RpcCallback<Call>() {
+        timeout, priority, new RpcCallback<Call>() {
           @Override
           public void run(Call call) {
             counter.decrementAndGet();
@@ -99,6 +99,20 @@ class IPCUtil {
     return totalSize;
   }
 
+  /**
+   * The timeout to pass to the server is what is left of the call timeout once the call is
+   * written, calls may wait in the connection for a while before that. This lets the server drop
+   * calls the client has already given up on.
+   */
+  static int getRemainingTimeout(Call call) {
+    if (call.timeout <= 0) {
+      return call.timeout;
+    }
+    long elapsed = EnvironmentEdgeManager.currentTime() - call.getStartTime();
+    // Never pass 0, that would mean no timeout at all.
+    return (int) Math.max(1, call.timeout - elapsed);
+  }
+
   static RequestHeader buildRequestHeader(Call call, CellBlockMeta cellBlockMeta) {
     RequestHeader.Builder builder = RequestHeader.newBuilder();
     builder.setCallId(call.id);
@@ -115,7 +129,7 @@ class IPCUtil {
     if (call.priority != HConstants.PRIORITY_UNSET) {
       builder.setPriority(call.priority);
     }
-    builder.setTimeout(call.timeout);
+    builder.setTimeout(getRemainingTimeout(call));
 
     return builder.build();
   }
@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * The priority and the deadline of the call a server thread is running, which the calls the
+ * thread makes to other servers inherit. A downstream call gets at least the priority of the
+ * call it serves, so that it is not queued behind the normal calls of the other server while
+ * holding up a high priority one, and at most the time the client of the call it serves has
+ * left, so that the other server can drop it once that client has given up.
+ * <p>
+ * The server sets the context of a thread before it runs a call, and clears it after.
+ */
+@InterfaceAudience.Private
+public final class InheritedRpcContext {
+  private static final ThreadLocal<InheritedRpcContext> CURRENT = new ThreadLocal<>();
+
+  private final int priority;
+  private final long deadline;
+
+  private InheritedRpcContext(int priority, long deadline) {
+    this.priority = priority;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Makes the calls of the current thread inherit the given priority and deadline.
+   * @param priority the priority of the call being served, or {@link HConstants#PRIORITY_UNSET}
+   * @param deadline the time, in milliseconds since the epoch, the client of the call being served
+   *          gives up at, or {@link Long#MAX_VALUE} for none
+   */
+  public static void set(int priority, long deadline) {
+    CURRENT.set(new InheritedRpcContext(priority, deadline));
+  }
+
+  /**
+   * Stops the calls of the current thread from inheriting a priority and a deadline.
+   */
+  public static void clear() {
+    CURRENT.remove();
+  }
+
+  /**
+   * @return the context of the current thread, or null if its calls inherit nothing
+   */
+  static InheritedRpcContext get() {
+    return CURRENT.get();
+  }
+
+  /**
+   * @return the higher of the given priority and the inherited one. A priority that is not above
+   *         normal is not inherited, as it would keep the other server from working out the
+   *         priority of a call on its own.
+   */
+  int inheritPriority(int priority) {
+    if (this.priority <= HConstants.NORMAL_QOS) {
+      return priority;
+    }
+    return priority == HConstants.PRIORITY_UNSET ? this.priority
+        : Math.max(priority, this.priority);
+  }
+
+  /**
+   * @return the lower of the given timeout and the time left until the inherited deadline, in
+   *         milliseconds
+   */
+  int inheritTimeout(int timeout) {
+    if (deadline == Long.MAX_VALUE) {
+      return timeout;
+    }
+    // Never less than 1, 0 would mean no timeout at all.
+    long remaining = Math.max(1, deadline - System.currentTimeMillis());
+    return timeout > 0 ? (int) Math.min(timeout, remaining)
+        : (int) Math.min(Integer.MAX_VALUE, remaining);
+  }
+}
@@ -40,6 +40,8 @@ public interface RpcClient extends Closeable {
   boolean IPC_CLIENT_FALLBACK_TO_SIMPLE_AUTH_ALLOWED_DEFAULT = false;
   String SPECIFIC_WRITE_THREAD = "hbase.ipc.client.specificThreadForWriting";
   String DEFAULT_CODEC_CLASS = "hbase.client.default.rpc.codec";
+  /** The compression codec class the cell blocks of the requests are compressed with, if any */
+  String COMPRESSOR_CLASS = "hbase.client.rpc.compressor";
 
   String SOCKET_TIMEOUT_CONNECT = "hbase.ipc.client.socket.timeout.connect";
   /**
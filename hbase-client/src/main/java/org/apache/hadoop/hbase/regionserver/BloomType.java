@@ -34,5 +34,16 @@ public enum BloomType {
   /**
    * Bloom enabled with Table row &amp; column (family+qualifier) as Key
    */
-  ROWCOL
+  ROWCOL,
+  /**
+   * Bloom enabled with a fixed length prefix of the Table row as Key. The length is set with
+   * the RowPrefixBloomFilter.prefix_length column family configuration.
+   */
+  ROWPREFIX_FIXED_LENGTH,
+  /**
+   * Bloom enabled with the Table row up to and including the first occurrence of a delimiter as
+   * Key, or the whole row if it does not contain the delimiter. The delimiter is set with the
+   * RowPrefixDelimitedBloomFilter.delimiter column family configuration.
+   */
+  ROWPREFIX_DELIMITED
 }
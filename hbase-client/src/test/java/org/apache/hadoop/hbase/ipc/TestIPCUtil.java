@@ -18,15 +18,19 @@
 package org.apache.hadoop.hbase.ipc;
 
 import static org.apache.hadoop.hbase.ipc.IPCUtil.wrapException;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.SocketTimeoutException;
 
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.MetricsConnection;
 import org.apache.hadoop.hbase.exceptions.ConnectionClosingException;
 import org.apache.hadoop.hbase.testclassification.ClientTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
@@ -45,4 +49,25 @@ public class TestIPCUtil {
       wrapException(address, new CallTimeoutException("Test AbstractRpcClient#wrapException"))
           .getCause() instanceof CallTimeoutException);
   }
+
+  @Test
+  public void testRemainingTimeout() {
+    final long[] now = { 1000 };
+    EnvironmentEdgeManager.injectEdge(() -> now[0]);
+    try {
+      Call call = new Call(1, null, null, null, null, 500, HConstants.NORMAL_QOS, null,
+          MetricsConnection.newCallStats());
+      Call noTimeoutCall = new Call(2, null, null, null, null, 0, HConstants.NORMAL_QOS, null,
+          MetricsConnection.newCallStats());
+      assertEquals(500, IPCUtil.getRemainingTimeout(call));
+      now[0] += 200;
+      assertEquals(300, IPCUtil.getRemainingTimeout(call));
+      assertEquals(0, IPCUtil.getRemainingTimeout(noTimeoutCall));
+      // A call that is already late still has a timeout.
+      now[0] += 1000;
+      assertEquals(1, IPCUtil.getRemainingTimeout(call));
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
 }
@@ -62,6 +62,13 @@ public class ByteBufferKeyOnlyKeyValue extends ByteBufferCell {
     this.rowLen = ByteBufferUtils.toShort(this.buf, this.offset);
   }
 
+  public void clear() {
+    rowLen = -1;
+    buf = null;
+    offset = 0;
+    length = 0;
+  }
+
   @Override
   public byte[] getRowArray() {
     if (this.buf.hasArray()) {
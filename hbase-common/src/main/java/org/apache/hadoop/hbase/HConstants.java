@@ -1186,6 +1186,13 @@ public final class HConstants {
   /** Configuration key for setting replication codec class name */
   public static final String REPLICATION_CODEC_CONF_KEY = "hbase.replication.rpc.codec";
 
+  /**
+   * Configuration key for the compression of the cell blocks shipped to replication peers, one of
+   * the compression algorithm names such as lz4 or zstd
+   */
+  public static final String REPLICATION_COMPRESSION_CONF_KEY =
+      "hbase.replication.rpc.compression";
+
   /** Maximum number of threads used by the replication source for shipping edits to the sinks */
   public static final String REPLICATION_SOURCE_MAXTHREADS_KEY =
       "hbase.replication.source.maxthreads";
@@ -437,6 +437,15 @@ public final class Compression {
     return ret;
   }
 
+  /**
+   * @return the class name of the codec of the given compression algorithm, null for
+   *         {@link Algorithm#NONE}
+   */
+  public static String getCodecClassName(Algorithm algorithm, Configuration conf) {
+    CompressionCodec codec = algorithm.getCodec(conf);
+    return codec == null ? null : codec.getClass().getName();
+  }
+
   /**
    * Decompresses data from the given stream using the configured compression
    * algorithm. It will throw an exception if the dest buffer does not have
@@ -0,0 +1,234 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.hadoop.hbase.io.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Trains and applies preset dictionaries for block compression. A dictionary is
+ * built once per file from a sample of its first data blocks and then primes
+ * the deflate window of every following block, so that small blocks holding
+ * repetitive values (JSON, protobuf) compress far better than they would on
+ * their own.
+ * <p>
+ * Blocks compressed with a dictionary are written in the zlib format, which
+ * records that a preset dictionary is required. Plain {@link Compression.Algorithm#GZ}
+ * blocks are written in the gzip format and always start with {@link #GZIP_MAGIC}, so
+ * a reader can tell the two apart block by block.
+ */
+@InterfaceAudience.Private
+public final class CompressionDictionary {
+
+  /** Largest useful dictionary; deflate cannot look further back than its 32KB window. */
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+  /** The first two bytes of every gzip stream. */
+  public static final byte[] GZIP_MAGIC = new byte[] { (byte) 0x1f, (byte) 0x8b };
+
+  /** Length of the substrings whose frequency decides what goes in the dictionary. */
+  private static final int KMER_LENGTH = 8;
+
+  /** Sample data is cut into segments of this size; whole segments are picked. */
+  private static final int SEGMENT_SIZE = 64;
+
+  private static final int FREQUENCY_TABLE_BITS = 20;
+
+  private static final int BUFFER_SIZE = 4 * 1024;
+
+  private CompressionDictionary() {
+  }
+
+  /**
+   * Builds a dictionary out of the given samples. Segments of the samples are scored
+   * by how often their substrings recur across all samples and picked greedily, best
+   * last, since deflate encodes short match distances more cheaply.
+   * @param samples uncompressed block contents to learn from
+   * @param maxSize upper bound on the dictionary size
+   * @return the dictionary, or null if the samples hold no repeated content
+   */
+  public static byte[] train(List<byte[]> samples, int maxSize) {
+    maxSize = Math.min(maxSize, MAX_DICTIONARY_SIZE);
+    if (maxSize < SEGMENT_SIZE) {
+      return null;
+    }
+    int[] frequencies = new int[1 << FREQUENCY_TABLE_BITS];
+    for (byte[] sample : samples) {
+      for (int i = 0; i + KMER_LENGTH <= sample.length; i++) {
+        frequencies[kmerHash(sample, i)]++;
+      }
+    }
+
+    PriorityQueue<Segment> queue = new PriorityQueue<>();
+    for (byte[] sample : samples) {
+      for (int start = 0; start + KMER_LENGTH <= sample.length; start += SEGMENT_SIZE) {
+        Segment segment =
+            new Segment(sample, start, Math.min(SEGMENT_SIZE, sample.length - start));
+        segment.score = segment.score(frequencies);
+        if (segment.score > 0) {
+          queue.add(segment);
+        }
+      }
+    }
+
+    List<Segment> picked = new ArrayList<>();
+    int size = 0;
+    while (!queue.isEmpty() && size < maxSize) {
+      Segment best = queue.poll();
+      // Scores only go down as k-mers get covered, so re-check lazily against the new head.
+      long score = best.score(frequencies);
+      if (score <= 0) {
+        continue;
+      }
+      if (score < best.score && !queue.isEmpty() && score < queue.peek().score) {
+        best.score = score;
+        queue.add(best);
+        continue;
+      }
+      int length = Math.min(best.length, maxSize - size);
+      picked.add(new Segment(best.data, best.offset, length));
+      size += length;
+      // Content already in the dictionary gains nothing from being added twice.
+      for (int i = best.offset; i + KMER_LENGTH <= best.offset + best.length; i++) {
+        frequencies[kmerHash(best.data, i)] = 0;
+      }
+    }
+    if (picked.isEmpty()) {
+      return null;
+    }
+
+    Collections.reverse(picked);
+    byte[] dictionary = new byte[size];
+    int pos = 0;
+    for (Segment segment : picked) {
+      System.arraycopy(segment.data, segment.offset, dictionary, pos, segment.length);
+      pos += segment.length;
+    }
+    return dictionary;
+  }
+
+  /**
+   * Compresses the given bytes in the zlib format, primed with the dictionary.
+   * @param deflater deflater to use; it is reset first so it can be reused between blocks
+   */
+  public static void compress(Deflater deflater, byte[] dictionary, byte[] src, int offset,
+      int length, OutputStream out) throws IOException {
+    deflater.reset();
+    deflater.setDictionary(dictionary);
+    deflater.setInput(src, offset, length);
+    deflater.finish();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    while (!deflater.finished()) {
+      int n = deflater.deflate(buffer);
+      out.write(buffer, 0, n);
+    }
+  }
+
+  /**
+   * Decompresses a block written by
+   * {@link #compress(Deflater, byte[], byte[], int, int, OutputStream)}.
+   * @param inflater inflater to use; it is reset first so it can be reused between blocks
+   * @param in stream holding exactly <code>compressedSize</code> bytes of block data
+   */
+  public static void decompress(Inflater inflater, byte[] dictionary, InputStream in,
+      int compressedSize, byte[] dest, int destOffset, int uncompressedSize) throws IOException {
+    byte[] compressed = new byte[compressedSize];
+    IOUtils.readFully(in, compressed);
+    inflater.reset();
+    inflater.setInput(compressed);
+    int pos = 0;
+    try {
+      while (pos < uncompressedSize && !inflater.finished()) {
+        int n = inflater.inflate(dest, destOffset + pos, uncompressedSize - pos);
+        if (n == 0) {
+          if (!inflater.needsDictionary()) {
+            break;
+          }
+          inflater.setDictionary(dictionary);
+        }
+        pos += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Failed to decompress block with preset dictionary", e);
+    } catch (IllegalArgumentException e) {
+      // Thrown by setDictionary when the block was written with a different dictionary.
+      throw new IOException("Block was not compressed with this file's dictionary", e);
+    }
+    if (pos != uncompressedSize) {
+      throw new IOException("Expected " + uncompressedSize + " decompressed bytes but got "
+          + pos);
+    }
+  }
+
+  /**
+   * @return true if the two bytes at the given offset start a gzip stream
+   */
+  public static boolean isGzipMagic(byte[] b, int offset) {
+    return b[offset] == GZIP_MAGIC[0] && b[offset + 1] == GZIP_MAGIC[1];
+  }
+
+  private static int kmerHash(byte[] b, int offset) {
+    long h = 0;
+    for (int i = 0; i < KMER_LENGTH; i++) {
+      h = (h << 8) | (b[offset + i] & 0xff);
+    }
+    h *= 0x9E3779B97F4A7C15L;
+    return (int) (h >>> (64 - FREQUENCY_TABLE_BITS));
+  }
+
+  private static final class Segment implements Comparable<Segment> {
+    final byte[] data;
+    final int offset;
+    final int length;
+    long score;
+
+    Segment(byte[] data, int offset, int length) {
+      this.data = data;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /** Sum of the frequencies of the repeated k-mers starting in this segment. */
+    long score(int[] frequencies) {
+      long total = 0;
+      for (int i = offset; i + KMER_LENGTH <= offset + length; i++) {
+        int f = frequencies[kmerHash(data, i)];
+        if (f > 1) {
+          total += f;
+        }
+      }
+      return total;
+    }
+
+    @Override
+    public int compareTo(Segment other) {
+      // Highest score first.
+      return Long.compare(other.score, score);
+    }
+  }
+}
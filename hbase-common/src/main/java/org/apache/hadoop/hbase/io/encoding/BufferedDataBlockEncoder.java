@@ -798,6 +798,11 @@ abstract class BufferedDataBlockEncoder extends AbstractDataBlockEncoder {
       previous.invalidate();
     }
 
+    @Override
+    public boolean isAtLastPosition() {
+      return !currentBuffer.hasRemaining();
+    }
+
     @Override
     public boolean next() {
       if (!currentBuffer.hasRemaining()) {
@@ -170,6 +170,14 @@ public interface DataBlockEncoder {
      */
     boolean next();
 
+    /**
+     * @return true if the current position is the last one in the block, so that {@link #next()}
+     *         would return false. Seekers that cannot tell cheaply return false.
+     */
+    default boolean isAtLastPosition() {
+      return false;
+    }
+
     /**
      * Moves the seeker position within the current block to:
      * <ul>
@@ -19,12 +19,15 @@ package org.apache.hadoop.hbase.io.encoding;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Inflater;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.io.ByteBuffInputStream;
 import org.apache.hadoop.hbase.io.TagCompressionContext;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.compress.CompressionDictionary;
 import org.apache.hadoop.hbase.io.crypto.Cipher;
 import org.apache.hadoop.hbase.io.crypto.Decryptor;
 import org.apache.hadoop.hbase.io.crypto.Encryption;
@@ -44,7 +47,9 @@ public class HFileBlockDefaultDecodingContext implements
     HFileBlockDecodingContext {
   private final HFileContext fileContext;
   private TagCompressionContext tagCompressionContext;
-  
+  /** Preset dictionary some of the file's blocks were compressed with, or null */
+  private volatile byte[] compressionDictionary;
+
   public HFileBlockDefaultDecodingContext(HFileContext fileContext) {
     this.fileContext = fileContext;
   }
@@ -88,7 +93,30 @@ public class HFileBlockDefaultDecodingContext implements
 
       Compression.Algorithm compression = fileContext.getCompression();
       assert blockBufferWithoutHeader.hasArray();
-      if (compression != Compression.Algorithm.NONE) {
+      if (compressionDictionary != null && compression == Compression.Algorithm.GZ
+          && onDiskSizeWithoutHeader >= CompressionDictionary.GZIP_MAGIC.length) {
+        // Blocks written before the dictionary was trained are plain gzip streams.
+        PushbackInputStream pushbackInputStream =
+            new PushbackInputStream(dataInputStream, CompressionDictionary.GZIP_MAGIC.length);
+        byte[] magic = new byte[CompressionDictionary.GZIP_MAGIC.length];
+        IOUtils.readFully(pushbackInputStream, magic);
+        pushbackInputStream.unread(magic);
+        dataInputStream = pushbackInputStream;
+        if (CompressionDictionary.isGzipMagic(magic, 0)) {
+          Compression.decompress(blockBufferWithoutHeader.array(),
+              blockBufferWithoutHeader.arrayOffset(), dataInputStream, onDiskSizeWithoutHeader,
+              uncompressedSizeWithoutHeader, compression);
+        } else {
+          Inflater inflater = new Inflater();
+          try {
+            CompressionDictionary.decompress(inflater, compressionDictionary, dataInputStream,
+                onDiskSizeWithoutHeader, blockBufferWithoutHeader.array(),
+                blockBufferWithoutHeader.arrayOffset(), uncompressedSizeWithoutHeader);
+          } finally {
+            inflater.end();
+          }
+        }
+      } else if (compression != Compression.Algorithm.NONE) {
         Compression.decompress(blockBufferWithoutHeader.array(),
             blockBufferWithoutHeader.arrayOffset(), dataInputStream, onDiskSizeWithoutHeader,
             uncompressedSizeWithoutHeader, compression);
@@ -102,6 +130,14 @@ public class HFileBlockDefaultDecodingContext implements
     }
   }
 
+  /**
+   * Sets the preset dictionary used to decompress blocks that were compressed with one.
+   * @param dictionary the dictionary stored in the file, or null if it has none
+   */
+  public void setCompressionDictionary(byte[] dictionary) {
+    this.compressionDictionary = dictionary;
+  }
+
   @Override
   public HFileContext getHFileContext() {
     return this.fileContext;
@@ -23,11 +23,13 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.SecureRandom;
+import java.util.zip.Deflater;
 
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
 import org.apache.hadoop.hbase.io.TagCompressionContext;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.compress.CompressionDictionary;
 import org.apache.hadoop.hbase.io.crypto.Cipher;
 import org.apache.hadoop.hbase.io.crypto.Encryption;
 import org.apache.hadoop.hbase.io.crypto.Encryptor;
@@ -62,6 +64,10 @@ public class HFileBlockDefaultEncodingContext implements
   private CompressionOutputStream compressionStream;
   /** Underlying stream to write compressed bytes to */
   private ByteArrayOutputStream compressedByteStream;
+  /** Preset dictionary to prime compression with, or null if there is none */
+  private byte[] compressionDictionary;
+  /** Deflater used instead of the compression stream once a dictionary is set */
+  private Deflater dictionaryDeflater;
 
   private HFileContext fileContext;
   private TagCompressionContext tagCompressionContext;
@@ -156,11 +162,8 @@ public class HFileBlockDefaultEncodingContext implements
       // Run any compression before encryption
       if (fileContext.getCompression() != Compression.Algorithm.NONE) {
         compressedByteStream.reset();
-        compressionStream.resetState();
-        compressionStream.write(uncompressedBytesWithHeaderBuffer,
+        compress(uncompressedBytesWithHeaderBuffer,
             headerBytes.length + uncompressedBytesWithHeaderOffset, uncompressedBytesWithHeaderLength - headerBytes.length);
-        compressionStream.flush();
-        compressionStream.finish();
         byte[] plaintext = compressedByteStream.toByteArray();
         plaintextLength = plaintext.length;
         in = new ByteArrayInputStream(plaintext);
@@ -203,12 +206,9 @@ public class HFileBlockDefaultEncodingContext implements
       if (this.fileContext.getCompression() != NONE) {
         compressedByteStream.reset();
         compressedByteStream.write(headerBytes);
-        compressionStream.resetState();
-        compressionStream.write(uncompressedBytesWithHeaderBuffer,
+        compress(uncompressedBytesWithHeaderBuffer,
           headerBytes.length + uncompressedBytesWithHeaderOffset, uncompressedBytesWithHeaderLength
               - headerBytes.length);
-        compressionStream.flush();
-        compressionStream.finish();
         return new Bytes(compressedByteStream.getBuffer(), 0, compressedByteStream.size());
       } else {
         return null;
@@ -216,6 +216,37 @@ public class HFileBlockDefaultEncodingContext implements
     }
   }
 
+  /**
+   * Compresses the data section into {@link #compressedByteStream}, using the preset
+   * dictionary when one has been set.
+   */
+  private void compress(byte[] data, int offset, int length) throws IOException {
+    if (compressionDictionary != null) {
+      if (dictionaryDeflater == null) {
+        dictionaryDeflater = new Deflater();
+      }
+      CompressionDictionary.compress(dictionaryDeflater, compressionDictionary, data, offset,
+        length, compressedByteStream);
+      return;
+    }
+    compressionStream.resetState();
+    compressionStream.write(data, offset, length);
+    compressionStream.flush();
+    compressionStream.finish();
+  }
+
+  /**
+   * Sets the preset dictionary used to compress all following blocks. Only honored for
+   * {@link Compression.Algorithm#GZ}, whose deflate format supports preset dictionaries.
+   * @param dictionary the dictionary, or null to go back to plain compression
+   */
+  public void setCompressionDictionary(byte[] dictionary) {
+    if (fileContext.getCompression() != Compression.Algorithm.GZ) {
+      return;
+    }
+    this.compressionDictionary = dictionary;
+  }
+
   @Override
   public BlockType getBlockType() {
     return blockType;
@@ -231,6 +262,10 @@ public class HFileBlockDefaultEncodingContext implements
       this.fileContext.getCompression().returnCompressor(compressor);
       compressor = null;
     }
+    if (dictionaryDeflater != null) {
+      dictionaryDeflater.end();
+      dictionaryDeflater = null;
+    }
   }
 
   @Override
@@ -112,6 +112,11 @@ public class RowIndexSeekerV1 extends AbstractEncodedSeeker {
     decodeFirst();
   }
 
+  @Override
+  public boolean isAtLastPosition() {
+    return !currentBuffer.hasRemaining();
+  }
+
   @Override
   public boolean next() {
     if (!currentBuffer.hasRemaining()) {
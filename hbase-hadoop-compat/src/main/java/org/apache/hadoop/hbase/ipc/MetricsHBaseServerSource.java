@@ -47,6 +47,12 @@ public interface MetricsHBaseServerSource extends ExceptionTrackingSource {
   String RESPONSE_SIZE_DESC = "Response size in bytes.";
   String QUEUE_CALL_TIME_NAME = "queueCallTime";
   String QUEUE_CALL_TIME_DESC = "Queue Call Time.";
+  String GENERAL_QUEUE_CALL_TIME_NAME = "generalQueueCallTime";
+  String GENERAL_QUEUE_CALL_TIME_DESC = "Queue Call Time of normal priority calls.";
+  String PRIORITY_QUEUE_CALL_TIME_NAME = "priorityQueueCallTime";
+  String PRIORITY_QUEUE_CALL_TIME_DESC = "Queue Call Time of high priority calls.";
+  String REPLICATION_QUEUE_CALL_TIME_NAME = "replicationQueueCallTime";
+  String REPLICATION_QUEUE_CALL_TIME_DESC = "Queue Call Time of replication calls.";
   String PROCESS_CALL_TIME_NAME = "processCallTime";
   String PROCESS_CALL_TIME_DESC = "Processing call time.";
   String TOTAL_CALL_TIME_NAME = "totalCallTime";
@@ -54,6 +60,9 @@ public interface MetricsHBaseServerSource extends ExceptionTrackingSource {
   String QUEUE_SIZE_NAME = "queueSize";
   String QUEUE_SIZE_DESC = "Number of bytes in the call queues; request has been read and " +
     "parsed and is waiting to run or is currently being executed.";
+  String RESPONSE_MEMORY_SIZE_NAME = "responseMemorySize";
+  String RESPONSE_MEMORY_SIZE_DESC = "Number of bytes reserved by responses that are being " +
+    "built or are waiting to be sent back to the client.";
   String GENERAL_QUEUE_NAME = "numCallsInGeneralQueue";
   String GENERAL_QUEUE_DESC = "Number of calls in the general call queue; " +
     "parsed requests waiting in scheduler to be executed";
@@ -87,6 +96,9 @@ public interface MetricsHBaseServerSource extends ExceptionTrackingSource {
   String NUM_LIFO_MODE_SWITCHES_NAME = "numLifoModeSwitches";
   String NUM_LIFO_MODE_SWITCHES_DESC = "Total number of calls in general queue which " +
     "were served from the tail of the queue";
+  String NUM_EXPIRED_CALLS_DROPPED_NAME = "numExpiredCallsDropped";
+  String NUM_EXPIRED_CALLS_DROPPED_DESC = "Total number of calls which were dropped because " +
+    "their deadline had passed by the time a handler got to them";
 
   void authorizationSuccess();
 
@@ -108,6 +120,14 @@ public interface MetricsHBaseServerSource extends ExceptionTrackingSource {
 
   void dequeuedCall(int qTime);
 
+  void dequeuedGeneralCall(int qTime);
+
+  void dequeuedPriorityCall(int qTime);
+
+  void dequeuedReplicationCall(int qTime);
+
+  void droppedExpiredCall();
+
   void processedCall(int processingTime);
 
   void queuedAndProcessedCall(int totalTime);
@@ -22,6 +22,8 @@ package org.apache.hadoop.hbase.ipc;
 public interface MetricsHBaseServerWrapper {
   long getTotalQueueSize();
 
+  long getResponseMemorySize();
+
   int getGeneralQueueLength();
 
   int getReplicationQueueLength();
@@ -49,5 +49,15 @@ public interface MetricsMasterProcSource extends BaseSource {
   String NUM_MASTER_WALS_NAME = "numMasterWALs";
 
   String NUM_MASTER_WALS_DESC = "Number of master WAL files";
+  String NUM_PROCEDURE_WORKERS_NAME = "numProcedureWorkers";
+  String NUM_PROCEDURE_WORKERS_DESC =
+      "Number of procedure workers, including the ones added for stuck workers";
+  String NUM_ACTIVE_PROCEDURE_WORKERS_NAME = "numActiveProcedureWorkers";
+  String NUM_ACTIVE_PROCEDURE_WORKERS_DESC = "Number of procedure workers running a procedure";
+  String NUM_STUCK_PROCEDURE_WORKERS_NAME = "numStuckProcedureWorkers";
+  String NUM_STUCK_PROCEDURE_WORKERS_DESC =
+      "Number of procedure workers running the same procedure for too long";
+  String NUM_QUEUED_PROCEDURES_NAME = "numQueuedProcedures";
+  String NUM_QUEUED_PROCEDURES_DESC = "Number of procedures waiting for a procedure worker";
 
 }
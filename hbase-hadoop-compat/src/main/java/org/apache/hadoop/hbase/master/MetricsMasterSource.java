@@ -63,6 +63,8 @@ public interface MetricsMasterSource extends BaseSource {
   String MERGE_PLAN_COUNT_NAME = "mergePlanCount";
 
   String CLUSTER_REQUESTS_NAME = "clusterRequests";
+  String MAJOR_COMPACTIONS_PLANNED_NAME = "majorCompactionsPlanned";
+  String MAJOR_COMPACTIONS_EXECUTED_NAME = "majorCompactionsExecuted";
   String MASTER_ACTIVE_TIME_DESC = "Master Active Time";
   String MASTER_START_TIME_DESC = "Master Start Time";
   String MASTER_FINISHED_INITIALIZATION_TIME_DESC = "Timestamp when Master has finished initializing";
@@ -77,6 +79,10 @@ public interface MetricsMasterSource extends BaseSource {
   String IS_ACTIVE_MASTER_DESC = "Is Active Master";
   String SPLIT_PLAN_COUNT_DESC = "Number of Region Split Plans executed";
   String MERGE_PLAN_COUNT_DESC = "Number of Region Merge Plans executed";
+  String MAJOR_COMPACTIONS_PLANNED_DESC =
+      "Number of major compactions the master requested in low traffic windows";
+  String MAJOR_COMPACTIONS_EXECUTED_DESC =
+      "Number of major compactions requested by the master that the regions reported done";
 
   String SERVER_CRASH_METRIC_PREFIX = "serverCrash";
 
@@ -87,6 +93,16 @@ public interface MetricsMasterSource extends BaseSource {
    */
   void incRequests(final long inc);
 
+  /**
+   * Increment the number of major compactions the master requested.
+   */
+  void incMajorCompactionsPlanned();
+
+  /**
+   * Increment the number of major compactions requested by the master that completed.
+   */
+  void incMajorCompactionsExecuted();
+
   /**
    * @return {@link OperationMetrics} containing common metrics for server crash operation
    */
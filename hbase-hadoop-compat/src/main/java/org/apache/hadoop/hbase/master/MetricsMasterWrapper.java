@@ -115,6 +115,26 @@ public interface MetricsMasterWrapper {
    */
   long getNumWALFiles();
 
+  /**
+   * Get the number of procedure workers.
+   */
+  int getNumProcedureWorkers();
+
+  /**
+   * Get the number of procedure workers running a procedure.
+   */
+  int getNumActiveProcedureWorkers();
+
+  /**
+   * Get the number of procedure workers running the same procedure for too long.
+   */
+  int getNumStuckProcedureWorkers();
+
+  /**
+   * Get the number of procedures waiting for a procedure worker.
+   */
+  int getNumQueuedProcedures();
+
   /**
    * Get the number of region split plans executed.
    */
@@ -218,6 +218,22 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
    */
   void updateCompactionOutputSize(boolean isMajor, long bytes);
 
+  /**
+   * Update the histograms of the throughput a throttled flush achieved and of the time the
+   * throughput controller made it sleep
+   * @param bytesPerSecond the average throughput of the flush
+   * @param sleepTime the total time the flush slept, in milliseconds
+   */
+  void updateFlushThroughput(long bytesPerSecond, long sleepTime);
+
+  /**
+   * Update the histograms of the throughput a throttled compaction achieved and of the time the
+   * throughput controller made it sleep
+   * @param bytesPerSecond the average throughput of the compaction
+   * @param sleepTime the total time the compaction slept, in milliseconds
+   */
+  void updateCompactionThroughput(long bytesPerSecond, long sleepTime);
+
   // Strings used for exporting to metrics system.
   String REGION_COUNT = "regionCount";
   String REGION_COUNT_DESC = "Number of regions";
@@ -364,6 +380,14 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String L2_CACHE_HIT_RATIO_DESC = "L2 cache hit ratio.";
   String L2_CACHE_MISS_RATIO = "l2CacheMissRatio";
   String L2_CACHE_MISS_RATIO_DESC = "L2 cache miss ratio.";
+  String INDEX_CACHE_HIT_COUNT = "indexCacheHitCount";
+  String INDEX_CACHE_HIT_COUNT_DESC = "Index and bloom block cache hit count.";
+  String INDEX_CACHE_MISS_COUNT = "indexCacheMissCount";
+  String INDEX_CACHE_MISS_COUNT_DESC = "Index and bloom block cache miss count.";
+  String INDEX_CACHE_HIT_RATIO = "indexCacheHitRatio";
+  String INDEX_CACHE_HIT_RATIO_DESC = "Index and bloom block cache hit ratio.";
+  String INDEX_CACHE_EVICTED_COUNT = "indexCacheEvictedCount";
+  String INDEX_CACHE_EVICTED_COUNT_DESC = "Index and bloom block cache evicted count.";
   String RS_START_TIME_NAME = "regionServerStartTime";
   String ZOOKEEPER_QUORUM_NAME = "zookeeperQuorum";
   String SERVER_NAME_NAME = "serverName";
@@ -524,6 +548,19 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String MAJOR_COMPACTED_OUTPUT_BYTES_DESC
     = "Total number of bytes that is output from compaction, major only";
 
+  String FLUSH_THROUGHPUT = "flushThroughput";
+  String FLUSH_THROUGHPUT_DESC
+    = "Histogram for the average bytes per second written by a throttled flush";
+  String FLUSH_THROTTLE_TIME = "flushThrottleTime";
+  String FLUSH_THROTTLE_TIME_DESC
+    = "Histogram for the time in millis a flush slept in the throughput controller";
+  String COMPACTION_THROUGHPUT = "compactionThroughput";
+  String COMPACTION_THROUGHPUT_DESC
+    = "Histogram for the average bytes per second written by a throttled compaction";
+  String COMPACTION_THROTTLE_TIME = "compactionThrottleTime";
+  String COMPACTION_THROTTLE_TIME_DESC
+    = "Histogram for the time in millis a compaction slept in the throughput controller";
+
   String RPC_GET_REQUEST_COUNT = "rpcGetRequestCount";
   String RPC_GET_REQUEST_COUNT_DESC = "Number of rpc get requests this region server has answered.";
   String RPC_SCAN_REQUEST_COUNT = "rpcScanRequestCount";
@@ -309,6 +309,26 @@ public interface MetricsRegionServerWrapper {
    */
   public double getL2CacheMissRatio();
 
+  /**
+   * Hit count of the block cache for index and bloom blocks.
+   */
+  public long getIndexCacheHitCount();
+
+  /**
+   * Miss count of the block cache for index and bloom blocks.
+   */
+  public long getIndexCacheMissCount();
+
+  /**
+   * Hit ratio of the block cache for index and bloom blocks.
+   */
+  public double getIndexCacheHitRatio();
+
+  /**
+   * Number of blocks evicted from the block cache for index and bloom blocks.
+   */
+  public long getIndexCacheEvictedCount();
+
   /**
    * Force a re-computation of the metrics.
    */
@@ -94,6 +94,12 @@ public interface MetricsRegionWrapper {
    */
   long getNumReferenceFiles();
 
+  /**
+   * @return Bytes written by compactions per byte flushed, over all stores of this region.
+   *         Note that this metric is updated periodically.
+   */
+  double getWriteAmplification();
+
   /**
    * Get the total number of mutations that have been issued against this region.
    */
@@ -49,6 +49,10 @@ public interface MetricsReplicationSourceSource extends BaseSource {
   public static final String SOURCE_REPEATED_LOG_FILE_BYTES = "source.repeatedLogFileBytes";
   public static final String SOURCE_COMPLETED_LOGS = "source.completedLogs";
   public static final String SOURCE_COMPLETED_RECOVERY_QUEUES = "source.completedRecoverQueues";
+  public static final String SOURCE_IN_FLIGHT_BATCHES = "source.inFlightBatches";
+  public static final String SOURCE_LAG_BYTES = "source.lagBytes";
+  public static final String SOURCE_BATCH_SIZE_CAPACITY = "source.batchSizeCapacity";
+  public static final String SOURCE_IN_FLIGHT_BATCHES_LIMIT = "source.inFlightBatchesLimit";
 
   void setLastShippedAge(long age);
   void incrSizeOfLogQueue(int size);
@@ -72,4 +76,14 @@ public interface MetricsReplicationSourceSource extends BaseSource {
   void incrRepeatedFileBytes(final long bytes);
   void incrCompletedWAL();
   void incrCompletedRecoveryQueue();
+  void incrInFlightBatches(int batches);
+  void decrInFlightBatches(int batches);
+  int getInFlightBatches();
+  void incrLagBytes(long bytes);
+  void decrLagBytes(long bytes);
+  long getLagBytes();
+  void setBatchSizeCapacity(long bytes);
+  long getBatchSizeCapacity();
+  void setInFlightBatchesLimit(int batches);
+  int getInFlightBatchesLimit();
 }
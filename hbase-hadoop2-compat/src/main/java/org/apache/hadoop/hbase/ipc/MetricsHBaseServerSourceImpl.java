@@ -41,9 +41,12 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
   private final MutableFastCounter authenticationFallbacks;
   private final MutableFastCounter sentBytes;
   private final MutableFastCounter receivedBytes;
-
+  private final MutableFastCounter expiredCallsDropped;
 
   private MetricHistogram queueCallTime;
+  private MetricHistogram generalQueueCallTime;
+  private MetricHistogram priorityQueueCallTime;
+  private MetricHistogram replicationQueueCallTime;
   private MetricHistogram processCallTime;
   private MetricHistogram totalCallTime;
   private MetricHistogram requestSize;
@@ -71,8 +74,16 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
         SENT_BYTES_DESC, 0L);
     this.receivedBytes = this.getMetricsRegistry().newCounter(RECEIVED_BYTES_NAME,
         RECEIVED_BYTES_DESC, 0L);
+    this.expiredCallsDropped = this.getMetricsRegistry().newCounter(
+        NUM_EXPIRED_CALLS_DROPPED_NAME, NUM_EXPIRED_CALLS_DROPPED_DESC, 0L);
     this.queueCallTime = this.getMetricsRegistry().newTimeHistogram(QUEUE_CALL_TIME_NAME,
         QUEUE_CALL_TIME_DESC);
+    this.generalQueueCallTime = this.getMetricsRegistry().newTimeHistogram(
+        GENERAL_QUEUE_CALL_TIME_NAME, GENERAL_QUEUE_CALL_TIME_DESC);
+    this.priorityQueueCallTime = this.getMetricsRegistry().newTimeHistogram(
+        PRIORITY_QUEUE_CALL_TIME_NAME, PRIORITY_QUEUE_CALL_TIME_DESC);
+    this.replicationQueueCallTime = this.getMetricsRegistry().newTimeHistogram(
+        REPLICATION_QUEUE_CALL_TIME_NAME, REPLICATION_QUEUE_CALL_TIME_DESC);
     this.processCallTime = this.getMetricsRegistry().newTimeHistogram(PROCESS_CALL_TIME_NAME,
         PROCESS_CALL_TIME_DESC);
     this.totalCallTime = this.getMetricsRegistry().newTimeHistogram(TOTAL_CALL_TIME_NAME,
@@ -129,6 +140,26 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
     queueCallTime.add(qTime);
   }
 
+  @Override
+  public void dequeuedGeneralCall(int qTime) {
+    generalQueueCallTime.add(qTime);
+  }
+
+  @Override
+  public void dequeuedPriorityCall(int qTime) {
+    priorityQueueCallTime.add(qTime);
+  }
+
+  @Override
+  public void dequeuedReplicationCall(int qTime) {
+    replicationQueueCallTime.add(qTime);
+  }
+
+  @Override
+  public void droppedExpiredCall() {
+    expiredCallsDropped.incr();
+  }
+
   @Override
   public void processedCall(int processingTime) {
     processCallTime.add(processingTime);
@@ -145,6 +176,8 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
 
     if (wrapper != null) {
       mrb.addGauge(Interns.info(QUEUE_SIZE_NAME, QUEUE_SIZE_DESC), wrapper.getTotalQueueSize())
+          .addGauge(Interns.info(RESPONSE_MEMORY_SIZE_NAME, RESPONSE_MEMORY_SIZE_DESC),
+              wrapper.getResponseMemorySize())
           .addGauge(Interns.info(GENERAL_QUEUE_NAME, GENERAL_QUEUE_DESC),
               wrapper.getGeneralQueueLength())
           .addGauge(Interns.info(REPLICATION_QUEUE_NAME,
@@ -66,7 +66,15 @@ public class MetricsMasterProcSourceImpl
     if (masterWrapper != null) {
       metricsRecordBuilder
           .addGauge(Interns.info(NUM_MASTER_WALS_NAME, NUM_MASTER_WALS_DESC),
-              masterWrapper.getNumWALFiles());
+              masterWrapper.getNumWALFiles())
+          .addGauge(Interns.info(NUM_PROCEDURE_WORKERS_NAME, NUM_PROCEDURE_WORKERS_DESC),
+              masterWrapper.getNumProcedureWorkers())
+          .addGauge(Interns.info(NUM_ACTIVE_PROCEDURE_WORKERS_NAME,
+              NUM_ACTIVE_PROCEDURE_WORKERS_DESC), masterWrapper.getNumActiveProcedureWorkers())
+          .addGauge(Interns.info(NUM_STUCK_PROCEDURE_WORKERS_NAME,
+              NUM_STUCK_PROCEDURE_WORKERS_DESC), masterWrapper.getNumStuckProcedureWorkers())
+          .addGauge(Interns.info(NUM_QUEUED_PROCEDURES_NAME, NUM_QUEUED_PROCEDURES_DESC),
+              masterWrapper.getNumQueuedProcedures());
     }
 
     metricsRegistry.snapshot(metricsRecordBuilder, all);
@@ -37,6 +37,8 @@ public class MetricsMasterSourceImpl
 
   private final MetricsMasterWrapper masterWrapper;
   private MutableFastCounter clusterRequestsCounter;
+  private MutableFastCounter majorCompactionsPlannedCounter;
+  private MutableFastCounter majorCompactionsExecutedCounter;
 
   private OperationMetrics serverCrashMetrics;
 
@@ -62,6 +64,10 @@ public class MetricsMasterSourceImpl
   public void init() {
     super.init();
     clusterRequestsCounter = metricsRegistry.newCounter(CLUSTER_REQUESTS_NAME, "", 0l);
+    majorCompactionsPlannedCounter = metricsRegistry.newCounter(MAJOR_COMPACTIONS_PLANNED_NAME,
+      MAJOR_COMPACTIONS_PLANNED_DESC, 0L);
+    majorCompactionsExecutedCounter = metricsRegistry.newCounter(MAJOR_COMPACTIONS_EXECUTED_NAME,
+      MAJOR_COMPACTIONS_EXECUTED_DESC, 0L);
 
     /**
      * NOTE: Please refer to HBASE-9774 and HBASE-14282. Based on these two issues, HBase is
@@ -76,6 +82,16 @@ public class MetricsMasterSourceImpl
     this.clusterRequestsCounter.incr(inc);
   }
 
+  @Override
+  public void incMajorCompactionsPlanned() {
+    majorCompactionsPlannedCounter.incr();
+  }
+
+  @Override
+  public void incMajorCompactionsExecuted() {
+    majorCompactionsExecutedCounter.incr();
+  }
+
   @Override
   public void getMetrics(MetricsCollector metricsCollector, boolean all) {
 
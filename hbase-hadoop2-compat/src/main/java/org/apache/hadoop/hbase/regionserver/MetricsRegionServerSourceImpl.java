@@ -83,6 +83,12 @@ public class MetricsRegionServerSourceImpl
   private final MutableFastCounter majorCompactedInputBytes;
   private final MutableFastCounter majorCompactedOutputBytes;
 
+  // throughput controller metrics
+  private final MetricHistogram flushThroughputHisto;
+  private final MetricHistogram flushThrottleTimeHisto;
+  private final MetricHistogram compactionThroughputHisto;
+  private final MetricHistogram compactionThrottleTimeHisto;
+
   // pause monitor metrics
   private final MutableFastCounter infoPauseThresholdExceeded;
   private final MutableFastCounter warnPauseThresholdExceeded;
@@ -165,6 +171,15 @@ public class MetricsRegionServerSourceImpl
     majorCompactedOutputBytes = getMetricsRegistry()
         .newCounter(MAJOR_COMPACTED_OUTPUT_BYTES, MAJOR_COMPACTED_OUTPUT_BYTES_DESC, 0L);
 
+    flushThroughputHisto = getMetricsRegistry()
+        .newSizeHistogram(FLUSH_THROUGHPUT, FLUSH_THROUGHPUT_DESC);
+    flushThrottleTimeHisto = getMetricsRegistry()
+        .newTimeHistogram(FLUSH_THROTTLE_TIME, FLUSH_THROTTLE_TIME_DESC);
+    compactionThroughputHisto = getMetricsRegistry()
+        .newSizeHistogram(COMPACTION_THROUGHPUT, COMPACTION_THROUGHPUT_DESC);
+    compactionThrottleTimeHisto = getMetricsRegistry()
+        .newTimeHistogram(COMPACTION_THROTTLE_TIME, COMPACTION_THROTTLE_TIME_DESC);
+
     splitTimeHisto = getMetricsRegistry().newTimeHistogram(SPLIT_KEY);
     splitRequest = getMetricsRegistry().newCounter(SPLIT_REQUEST_KEY, SPLIT_REQUEST_DESC, 0L);
     splitSuccess = getMetricsRegistry().newCounter(SPLIT_SUCCESS_KEY, SPLIT_SUCCESS_DESC, 0L);
@@ -319,6 +334,18 @@ public class MetricsRegionServerSourceImpl
     }
   }
 
+  @Override
+  public void updateFlushThroughput(long bytesPerSecond, long sleepTime) {
+    flushThroughputHisto.add(bytesPerSecond);
+    flushThrottleTimeHisto.add(sleepTime);
+  }
+
+  @Override
+  public void updateCompactionThroughput(long bytesPerSecond, long sleepTime) {
+    compactionThroughputHisto.add(bytesPerSecond);
+    compactionThrottleTimeHisto.add(sleepTime);
+  }
+
   /**
    * Yes this is a get function that doesn't return anything.  Thanks Hadoop for breaking all
    * expectations of java programmers.  Instead of returning anything Hadoop metrics expects
@@ -476,6 +503,14 @@ public class MetricsRegionServerSourceImpl
                   rsWrap.getL2CacheHitRatio())
           .addGauge(Interns.info(L2_CACHE_MISS_RATIO, L2_CACHE_MISS_RATIO_DESC),
                   rsWrap.getL2CacheMissRatio())
+          .addGauge(Interns.info(INDEX_CACHE_HIT_COUNT, INDEX_CACHE_HIT_COUNT_DESC),
+                  rsWrap.getIndexCacheHitCount())
+          .addGauge(Interns.info(INDEX_CACHE_MISS_COUNT, INDEX_CACHE_MISS_COUNT_DESC),
+                  rsWrap.getIndexCacheMissCount())
+          .addGauge(Interns.info(INDEX_CACHE_HIT_RATIO, INDEX_CACHE_HIT_RATIO_DESC),
+                  rsWrap.getIndexCacheHitRatio())
+          .addGauge(Interns.info(INDEX_CACHE_EVICTED_COUNT, INDEX_CACHE_EVICTED_COUNT_DESC),
+                  rsWrap.getIndexCacheEvictedCount())
           .addCounter(Interns.info(UPDATES_BLOCKED_TIME, UPDATES_BLOCKED_DESC),
               rsWrap.getUpdatesBlockedTime())
           .addCounter(Interns.info(FLUSHED_CELLS, FLUSHED_CELLS_DESC),
@@ -233,6 +233,10 @@ public class MetricsRegionSourceImpl implements MetricsRegionSource {
         regionNamePrefix + MetricsRegionServerSource.NUM_REFERENCE_FILES,
         MetricsRegionServerSource.NUM_REFERENCE_FILES_DESC),
         this.regionWrapper.getNumReferenceFiles());
+      mrb.addGauge(Interns.info(
+        regionNamePrefix + MetricsRegionSource.WRITE_AMPLIFICATION,
+        MetricsRegionSource.WRITE_AMPLIFICATION_DESC),
+        this.regionWrapper.getWriteAmplification());
       mrb.addGauge(Interns.info(
               regionNamePrefix + MetricsRegionServerSource.STOREFILE_SIZE,
               MetricsRegionServerSource.STOREFILE_SIZE_DESC),
@@ -46,6 +46,8 @@ public class MetricsReplicationGlobalSourceSource implements MetricsReplicationS
   private final MutableFastCounter repeatedFileBytes;
   private final MutableFastCounter completedWAL;
   private final MutableFastCounter completedRecoveryQueue;
+  private final MutableGaugeLong inFlightBatchesGauge;
+  private final MutableGaugeLong lagBytesGauge;
 
   public MetricsReplicationGlobalSourceSource(MetricsReplicationSourceImpl rms) {
     this.rms = rms;
@@ -80,6 +82,8 @@ public class MetricsReplicationGlobalSourceSource implements MetricsReplicationS
     repeatedFileBytes = rms.getMetricsRegistry().getCounter(SOURCE_REPEATED_LOG_FILE_BYTES, 0L);
     completedWAL = rms.getMetricsRegistry().getCounter(SOURCE_COMPLETED_LOGS, 0L);
     completedRecoveryQueue = rms.getMetricsRegistry().getCounter(SOURCE_COMPLETED_RECOVERY_QUEUES, 0L);
+    inFlightBatchesGauge = rms.getMetricsRegistry().getGauge(SOURCE_IN_FLIGHT_BATCHES, 0L);
+    lagBytesGauge = rms.getMetricsRegistry().getGauge(SOURCE_LAG_BYTES, 0L);
   }
 
   @Override public void setLastShippedAge(long age) {
@@ -162,6 +166,57 @@ public class MetricsReplicationGlobalSourceSource implements MetricsReplicationS
     return (int)sizeOfLogQueueGauge.value();
   }
 
+  @Override
+  public void incrInFlightBatches(int batches) {
+    inFlightBatchesGauge.incr(batches);
+  }
+
+  @Override
+  public void decrInFlightBatches(int batches) {
+    inFlightBatchesGauge.decr(batches);
+  }
+
+  @Override
+  public int getInFlightBatches() {
+    return (int) inFlightBatchesGauge.value();
+  }
+
+  @Override
+  public void incrLagBytes(long bytes) {
+    lagBytesGauge.incr(bytes);
+  }
+
+  @Override
+  public void decrLagBytes(long bytes) {
+    lagBytesGauge.decr(bytes);
+  }
+
+  @Override
+  public long getLagBytes() {
+    return lagBytesGauge.value();
+  }
+
+  // The batch size capacity and in flight batches limit are tuned for every source on its own, and
+  // only reported per source.
+
+  @Override
+  public void setBatchSizeCapacity(long bytes) {
+  }
+
+  @Override
+  public long getBatchSizeCapacity() {
+    return 0;
+  }
+
+  @Override
+  public void setInFlightBatchesLimit(int batches) {
+  }
+
+  @Override
+  public int getInFlightBatchesLimit() {
+    return 0;
+  }
+
   @Override
   public void incrUnknownFileLengthForClosedWAL() {
     unknownFileLengthForClosedWAL.incr(1L);
@@ -67,6 +67,16 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
   private final MutableFastCounter completedWAL;
   private final MutableFastCounter completedRecoveryQueue;
 
+  private final String inFlightBatchesKey;
+  private final String lagBytesKey;
+  private final MutableGaugeLong inFlightBatchesGauge;
+  private final MutableGaugeLong lagBytesGauge;
+
+  private final String batchSizeCapacityKey;
+  private final String inFlightBatchesLimitKey;
+  private final MutableGaugeLong batchSizeCapacityGauge;
+  private final MutableGaugeLong inFlightBatchesLimitGauge;
+
   public MetricsReplicationSourceSourceImpl(MetricsReplicationSourceImpl rms, String id) {
     this.rms = rms;
     this.id = id;
@@ -125,6 +135,18 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
 
     completedRecoveryKey = this.keyPrefix + "completedRecoverQueues";
     completedRecoveryQueue = rms.getMetricsRegistry().getCounter(completedRecoveryKey, 0L);
+
+    inFlightBatchesKey = this.keyPrefix + "inFlightBatches";
+    inFlightBatchesGauge = rms.getMetricsRegistry().getGauge(inFlightBatchesKey, 0L);
+
+    lagBytesKey = this.keyPrefix + "lagBytes";
+    lagBytesGauge = rms.getMetricsRegistry().getGauge(lagBytesKey, 0L);
+
+    batchSizeCapacityKey = this.keyPrefix + "batchSizeCapacity";
+    batchSizeCapacityGauge = rms.getMetricsRegistry().getGauge(batchSizeCapacityKey, 0L);
+
+    inFlightBatchesLimitKey = this.keyPrefix + "inFlightBatchesLimit";
+    inFlightBatchesLimitGauge = rms.getMetricsRegistry().getGauge(inFlightBatchesLimitKey, 0L);
   }
 
   @Override public void setLastShippedAge(long age) {
@@ -190,6 +212,10 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
     rms.removeMetric(repeatedBytesKey);
     rms.removeMetric(completedLogsKey);
     rms.removeMetric(completedRecoveryKey);
+    rms.removeMetric(inFlightBatchesKey);
+    rms.removeMetric(lagBytesKey);
+    rms.removeMetric(batchSizeCapacityKey);
+    rms.removeMetric(inFlightBatchesLimitKey);
   }
 
   @Override
@@ -217,6 +243,56 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
     return (int)sizeOfLogQueueGauge.value();
   }
 
+  @Override
+  public void incrInFlightBatches(int batches) {
+    inFlightBatchesGauge.incr(batches);
+  }
+
+  @Override
+  public void decrInFlightBatches(int batches) {
+    inFlightBatchesGauge.decr(batches);
+  }
+
+  @Override
+  public int getInFlightBatches() {
+    return (int) inFlightBatchesGauge.value();
+  }
+
+  @Override
+  public void incrLagBytes(long bytes) {
+    lagBytesGauge.incr(bytes);
+  }
+
+  @Override
+  public void decrLagBytes(long bytes) {
+    lagBytesGauge.decr(bytes);
+  }
+
+  @Override
+  public long getLagBytes() {
+    return lagBytesGauge.value();
+  }
+
+  @Override
+  public void setBatchSizeCapacity(long bytes) {
+    batchSizeCapacityGauge.set(bytes);
+  }
+
+  @Override
+  public long getBatchSizeCapacity() {
+    return batchSizeCapacityGauge.value();
+  }
+
+  @Override
+  public void setInFlightBatchesLimit(int batches) {
+    inFlightBatchesLimitGauge.set(batches);
+  }
+
+  @Override
+  public int getInFlightBatchesLimit() {
+    return (int) inFlightBatchesLimitGauge.value();
+  }
+
   @Override
   public void incrUnknownFileLengthForClosedWAL() {
     unknownFileLengthForClosedWAL.incr(1L);
@@ -131,6 +131,11 @@ public class TestMetricsRegionSourceImpl {
       return 0;
     }
 
+    @Override
+    public double getWriteAmplification() {
+      return 0;
+    }
+
     @Override
     public long getWriteRequestCount() {
       return 0;
@@ -38,6 +38,8 @@ import java.util.stream.Stream;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.DelayQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -80,9 +82,21 @@ public class ProcedureExecutor<TEnvironment> {
   public static final String CHECK_OWNER_SET_CONF_KEY = "hbase.procedure.check.owner.set";
   private static final boolean DEFAULT_CHECK_OWNER_SET = false;
 
+  /**
+   * How long the workers added to compensate for stuck ones may stay idle before they exit.
+   * The core workers never exit.
+   */
   public static final String WORKER_KEEP_ALIVE_TIME_CONF_KEY =
       "hbase.procedure.worker.keep.alive.time.msec";
-  private static final long DEFAULT_WORKER_KEEP_ALIVE_TIME = Long.MAX_VALUE;
+  private static final long DEFAULT_WORKER_KEEP_ALIVE_TIME = 60000; // 1min
+
+  /**
+   * The maximum number of workers, including the ones added to compensate for stuck workers.
+   * 0 means no limit.
+   */
+  public static final String WORKER_MAX_POOL_SIZE_CONF_KEY =
+      "hbase.procedure.worker.max.pool.size";
+  private static final int DEFAULT_WORKER_MAX_POOL_SIZE = 0;
 
   Testing testing = null;
   public static class Testing {
@@ -219,12 +233,15 @@ public class ProcedureExecutor<TEnvironment> {
           if (debugEnabled) {
             LOG.debug("Evict completed " + proc);
           }
+          // Removed with the procedure lock held, so that it is not force updated once deleted
+          synchronized (proc) {
+            it.remove();
+          }
           batchIds[batchCount++] = entry.getKey();
           if (batchCount == batchIds.length) {
             store.delete(batchIds, 0, batchCount);
             batchCount = 0;
           }
-          it.remove();
 
           final NonceKey nonceKey = proc.getNonceKey();
           if (nonceKey != null) {
@@ -258,6 +275,13 @@ public class ProcedureExecutor<TEnvironment> {
    */
   private final ConcurrentHashMap<Long, Procedure> procedures = new ConcurrentHashMap<>();
 
+  /**
+   * Number of workers executing a procedure of each tree, keyed by the Root-ProcID.
+   * A worker is added holding the lock of the RootProcedureState of the tree,
+   * see {@link #forceUpdateProcedures(long[])}.
+   */
+  private final ConcurrentHashMap<Long, Integer> executingTrees = new ConcurrentHashMap<>();
+
   /**
    * Helper map to lookup whether the procedure already issued from the same client.
    * This map contains every root procedure.
@@ -270,7 +294,11 @@ public class ProcedureExecutor<TEnvironment> {
   private ThreadGroup threadGroup;
   private CopyOnWriteArrayList<WorkerThread> workerThreads;
   private TimeoutExecutorThread timeoutExecutor;
+  private ExecutorService forceUpdateExecutor;
   private int corePoolSize;
+  private volatile int maxPoolSize = Integer.MAX_VALUE;
+  // the number of workers running the same procedure for too long, updated by the WorkerMonitor
+  private volatile int stuckWorkerCount = 0;
 
   private volatile long keepAliveTime = Long.MAX_VALUE;
 
@@ -288,6 +316,26 @@ public class ProcedureExecutor<TEnvironment> {
 
   private final boolean checkOwnerSet;
 
+  /**
+   * Writes out again the procedures the store asks for, so that it can remove its old logs.
+   * The store notifies while holding its lock, so the updates are done in another thread.
+   */
+  private final ProcedureStore.ProcedureStoreListener storeListener =
+      new ProcedureStore.ProcedureStoreListener() {
+    @Override
+    public void postSync() {
+    }
+
+    @Override
+    public void abortProcess() {
+    }
+
+    @Override
+    public void forceUpdate(long[] procIds) {
+      forceUpdateExecutor.execute(() -> forceUpdateProcedures(procIds));
+    }
+  };
+
   public ProcedureExecutor(final Configuration conf, final TEnvironment environment,
       final ProcedureStore store) {
     this(conf, environment, store, new SimpleProcedureScheduler());
@@ -517,6 +565,11 @@ public class ProcedureExecutor<TEnvironment> {
     // Create the timeout executor
     timeoutExecutor = new TimeoutExecutorThread(threadGroup);
 
+    // Create the thread writing out again the procedures holding old store logs
+    forceUpdateExecutor =
+        Executors.newSingleThreadExecutor(Threads.newDaemonThreadFactory("ProcExecForceUpdate"));
+    store.registerListener(storeListener);
+
     // Create the workers
     workerId.set(0);
     workerThreads = new CopyOnWriteArrayList<>();
@@ -569,6 +622,8 @@ public class ProcedureExecutor<TEnvironment> {
     }
 
     LOG.info("Stopping");
+    store.unregisterListener(storeListener);
+    forceUpdateExecutor.shutdownNow();
     scheduler.stop();
     timeoutExecutor.sendStopSignal();
   }
@@ -581,6 +636,14 @@ public class ProcedureExecutor<TEnvironment> {
     timeoutExecutor.awaitTermination();
     timeoutExecutor = null;
 
+    // stop the force update thread
+    try {
+      forceUpdateExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    forceUpdateExecutor = null;
+
     // stop the worker threads
     for (WorkerThread worker: workerThreads) {
       worker.awaitTermination();
@@ -606,10 +669,125 @@ public class ProcedureExecutor<TEnvironment> {
     lastProcId.set(-1);
   }
 
+  /**
+   * Writes out again the state of the given procedures, so that they no longer hold the old logs
+   * of the store. The procedures being executed are skipped, their worker writes them anyway once
+   * done with them, and writing them here could race with it.
+   * <p>Each procedure is written holding its lock. A waiting procedure only becomes runnable
+   * through its synchronized state setters, and a procedure is only removed from the executor
+   * maps, before being deleted from the store, through {@link #removeProcedure(long)} or under its
+   * lock as well. So the state written here is never older than the one the workers write after
+   * it, and a deleted procedure is never written again.
+   * <p>A runnable procedure, e.g. one parked in the scheduler waiting for a lock, may be executed
+   * or rolled back by any worker executing a procedure of its tree. So it is written only if no
+   * worker is executing its tree, holding the lock of the RootProcedureState of the tree, which
+   * the workers take before starting, see {@link #startExecution(Procedure)}.
+   */
+  private void forceUpdateProcedures(final long[] procIds) {
+    int count = 0;
+    for (long procId: procIds) {
+      if (!isRunning()) {
+        return;
+      }
+      Procedure<?> proc = getTrackedProcedure(procId);
+      if (proc != null && forceUpdateProcedure(procId, proc)) {
+        count++;
+      }
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Force updated " + count + " of " + procIds.length + " procedures");
+    }
+  }
+
+  private boolean forceUpdateProcedure(final long procId, final Procedure<?> proc) {
+    synchronized (proc) {
+      // Check again with the lock held, the procedure may have been woken up or removed
+      if (getTrackedProcedure(procId) != proc) {
+        return false;
+      }
+      if (proc.isWaiting() || proc.isFinished()) {
+        store.update(proc);
+        return true;
+      }
+      if (!proc.isRunnable()) {
+        return false;
+      }
+    }
+
+    final Long rootProcId = getRootProcedureId(proc);
+    final RootProcedureState procStack = rootProcId != null ? rollbackStack.get(rootProcId) : null;
+    if (procStack == null) {
+      return false;
+    }
+    synchronized (procStack) {
+      if (executingTrees.containsKey(rootProcId)) {
+        return false;
+      }
+      synchronized (proc) {
+        if (getTrackedProcedure(procId) != proc || !proc.isRunnable()) {
+          return false;
+        }
+        store.update(proc);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Marks the tree of the procedure as being executed by a worker, so that its runnable
+   * procedures are not force updated, see {@link #forceUpdateProcedures(long[])}.
+   * @return the Root-ProcID of the procedure, to pass to {@link #endExecution(Long)}
+   */
+  private Long startExecution(final Procedure proc) {
+    final Long rootProcId = getRootProcedureId(proc);
+    if (rootProcId == null) {
+      return null;
+    }
+    final RootProcedureState procStack = rollbackStack.get(rootProcId);
+    if (procStack == null) {
+      executingTrees.merge(rootProcId, 1, Integer::sum);
+    } else {
+      synchronized (procStack) {
+        executingTrees.merge(rootProcId, 1, Integer::sum);
+      }
+    }
+    return rootProcId;
+  }
+
+  private void endExecution(final Long rootProcId) {
+    if (rootProcId != null) {
+      executingTrees.computeIfPresent(rootProcId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+  }
+
+  private Procedure<?> getTrackedProcedure(final long procId) {
+    Procedure<?> proc = procedures.get(procId);
+    if (proc == null) {
+      CompletedProcedureRetainer retainer = completed.get(procId);
+      proc = retainer != null ? retainer.getProcedure() : null;
+    }
+    return proc;
+  }
+
+  /**
+   * Removes a procedure from the running ones. Call it before the procedure is deleted from the
+   * store, see {@link #forceUpdateProcedures(long[])}.
+   */
+  private void removeProcedure(final long procId) {
+    final Procedure<?> proc = procedures.get(procId);
+    if (proc != null) {
+      synchronized (proc) {
+        procedures.remove(procId, proc);
+      }
+    }
+  }
+
   public void refreshConfiguration(final Configuration conf) {
     this.conf = conf;
     setKeepAliveTime(conf.getLong(WORKER_KEEP_ALIVE_TIME_CONF_KEY,
         DEFAULT_WORKER_KEEP_ALIVE_TIME), TimeUnit.MILLISECONDS);
+    int maxSize = conf.getInt(WORKER_MAX_POOL_SIZE_CONF_KEY, DEFAULT_WORKER_MAX_POOL_SIZE);
+    this.maxPoolSize = maxSize > 0 ? maxSize : Integer.MAX_VALUE;
   }
 
   // ==========================================================================
@@ -637,6 +815,21 @@ public class ProcedureExecutor<TEnvironment> {
     return activeExecutorCount.get();
   }
 
+  /**
+   * @return the number of workers which were running the same procedure for longer than the
+   *         stuck threshold at the last check.
+   */
+  public int getStuckWorkerCount() {
+    return stuckWorkerCount;
+  }
+
+  /**
+   * @return the number of procedures waiting in the scheduler for a worker.
+   */
+  public int getQueuedProcedureCount() {
+    return scheduler.size();
+  }
+
   public TEnvironment getEnvironment() {
     return this.environment;
   }
@@ -1240,7 +1433,10 @@ public class ProcedureExecutor<TEnvironment> {
         break;
       }
 
-      if (proc.isSuccess()) {
+      // If the procedure went back to the scheduler, or is waiting for the lock, another worker
+      // may already be executing it, so it is not ours to finalize. A failed stack must still be
+      // rolled back from here, the lock may be held by the root procedure waiting for it.
+      if (lockState == LockState.LOCK_ACQUIRED && proc.isSuccess()) {
         // update metrics on finishing the procedure
         proc.updateMetricsOnFinish(getEnvironment(), proc.elapsedTime(), true);
         LOG.info("Finished " + proc + " in " + StringUtils.humanTimeDiff(proc.elapsedTime()));
@@ -1379,11 +1575,14 @@ public class ProcedureExecutor<TEnvironment> {
       proc.updateMetricsOnFinish(getEnvironment(), proc.elapsedTime(), false);
 
       if (proc.hasParent()) {
+        removeProcedure(proc.getProcId());
         store.delete(proc.getProcId());
-        procedures.remove(proc.getProcId());
       } else {
         final long[] childProcIds = rollbackStack.get(proc.getProcId()).getSubprocedureIds();
         if (childProcIds != null) {
+          for (int i = 0; i < childProcIds.length; ++i) {
+            removeProcedure(childProcIds[i]);
+          }
           store.delete(proc, childProcIds);
         } else {
           store.update(proc);
@@ -1632,10 +1831,10 @@ public class ProcedureExecutor<TEnvironment> {
         // remove child procedures
         final long[] childProcIds = procStack.getSubprocedureIds();
         if (childProcIds != null) {
-          store.delete(procedure, childProcIds);
           for (int i = 0; i < childProcIds.length; ++i) {
-            procedures.remove(childProcIds[i]);
+            removeProcedure(childProcIds[i]);
           }
+          store.delete(procedure, childProcIds);
         } else {
           store.update(procedure);
         }
@@ -1727,12 +1926,14 @@ public class ProcedureExecutor<TEnvironment> {
                 " runningCount=" + runningCount + ", activeCount=" + activeCount);
           }
           executionStartTime.set(EnvironmentEdgeManager.currentTime());
+          final Long rootProcId = startExecution(this.activeProcedure);
           try {
             executeProcedure(this.activeProcedure);
           } catch (AssertionError e) {
             LOG.info("ASSERT pid=" + this.activeProcedure.getProcId(), e);
             throw e;
           } finally {
+            endExecution(rootProcId);
             activeCount = activeExecutorCount.decrementAndGet();
             runningCount = store.setRunningProcedureCount(activeCount);
             if (LOG.isTraceEnabled()) {
@@ -1767,7 +1968,13 @@ public class ProcedureExecutor<TEnvironment> {
 
     private boolean keepAlive(final long lastUpdate) {
       if (workerThreads.size() <= corePoolSize) return true;
-      return (EnvironmentEdgeManager.currentTime() - lastUpdate) < keepAliveTime;
+      if ((EnvironmentEdgeManager.currentTime() - lastUpdate) < keepAliveTime) return true;
+      // several idle workers may time out at once, only shrink down to the core pool size
+      synchronized (workerThreads) {
+        if (workerThreads.size() <= corePoolSize) return true;
+        workerThreads.remove(this);
+        return false;
+      }
     }
   }
 
@@ -1978,6 +2185,7 @@ public class ProcedureExecutor<TEnvironment> {
         LOG.warn("Worker stuck " + worker +
             " run time " + StringUtils.humanTimeDiff(worker.getCurrentRunTime()));
       }
+      stuckWorkerCount = stuckCount;
       return stuckCount;
     }
 
@@ -1985,15 +2193,23 @@ public class ProcedureExecutor<TEnvironment> {
       // nothing to do if there are no runnable tasks
       if (stuckCount < 1 || !scheduler.hasRunnables()) return;
 
-      // add a new thread if the worker stuck percentage exceed the threshold limit
-      // and every handler is active.
+      // add new threads if the worker stuck percentage exceed the threshold limit
+      // and every handler is active: one for each stuck worker not compensated yet,
+      // but no more than the procedures waiting and the max pool size.
       final float stuckPerc = ((float)stuckCount) / workerThreads.size();
       if (stuckPerc >= addWorkerStuckPercentage &&
           activeExecutorCount.get() == workerThreads.size()) {
-        final WorkerThread worker = new WorkerThread(threadGroup);
-        workerThreads.add(worker);
-        worker.start();
-        LOG.debug("Added new worker thread " + worker);
+        int count = Math.min(corePoolSize + stuckCount - workerThreads.size(), scheduler.size());
+        count = Math.min(Math.max(1, count), maxPoolSize - workerThreads.size());
+        for (int i = 0; i < count; ++i) {
+          final WorkerThread worker = new WorkerThread(threadGroup);
+          workerThreads.add(worker);
+          worker.start();
+          LOG.debug("Added new worker thread " + worker);
+        }
+        if (count <= 0 && LOG.isDebugEnabled()) {
+          LOG.debug("All the workers are busy but the pool is at its max size " + maxPoolSize);
+        }
       }
     }
 
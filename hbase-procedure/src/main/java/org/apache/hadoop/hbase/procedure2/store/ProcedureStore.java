@@ -47,6 +47,16 @@ public interface ProcedureStore {
      * the main process should abort.
      */
     void abortProcess();
+
+    /**
+     * triggered when the store wants the given procedures written out again, so that the old
+     * logs holding their last state can be removed.
+     * the main process should call update() for the ones still running, from another thread
+     * since the store may be holding its lock while notifying.
+     * @param procIds the ids of the procedures to write out again
+     */
+    default void forceUpdate(long[] procIds) {
+    }
   }
 
   /**
@@ -70,4 +70,12 @@ public abstract class ProcedureStoreBase implements ProcedureStore {
       }
     }
   }
+
+  protected void sendForceUpdateSignal(final long[] procIds) {
+    if (!this.listeners.isEmpty()) {
+      for (ProcedureStoreListener listener : this.listeners) {
+        listener.forceUpdate(procIds);
+      }
+    }
+  }
 }
@@ -19,8 +19,10 @@
 package org.apache.hadoop.hbase.procedure2.store;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -390,6 +392,23 @@ public class ProcedureStoreTracker {
       return maxProcId;
     }
 
+    /**
+     * Adds the ids of the procedures which are not deleted to the given list.
+     */
+    public void getActiveProcIds(final List<Long> procIds) {
+      for (int i = 0; i < deleted.length; ++i) {
+        if (deleted[i] == WORD_MASK) {
+          continue;
+        }
+        long baseProcId = start + ((long) i << ADDRESS_BITS_PER_WORD);
+        for (int j = 0; j < BITS_PER_WORD; ++j) {
+          if ((deleted[i] & (1L << j)) == 0) {
+            procIds.add(baseProcId + j);
+          }
+        }
+      }
+    }
+
     // ========================================================================
     //  Bitmap Helpers
     // ========================================================================
@@ -615,6 +634,17 @@ public class ProcedureStoreTracker {
     return entry == null ? 0 : entry.getValue().getActiveMinProcId();
   }
 
+  /**
+   * @return the ids of all the procedures which are not deleted.
+   */
+  public long[] getAllActiveProcIds() {
+    List<Long> procIds = new ArrayList<>();
+    for (Map.Entry<Long, BitSetNode> entry : map.entrySet()) {
+      entry.getValue().getActiveProcIds(procIds);
+    }
+    return procIds.stream().mapToLong(Long::longValue).toArray();
+  }
+
   public void setKeepDeletes(boolean keepDeletes) {
     this.keepDeletes = keepDeletes;
     // If not to keep deletes, remove the BitSetNodes which are empty (i.e. contains ids of deleted
@@ -0,0 +1,410 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hbase.procedure2.store.wal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.yetus.audience.InterfaceStability;
+import org.apache.hadoop.hbase.procedure2.Procedure;
+import org.apache.hadoop.hbase.procedure2.store.ProcedureStoreBase;
+import org.apache.hadoop.hbase.util.Threads;
+
+import org.apache.hadoop.hbase.shaded.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * ProcedureStore spreading the procedures over several {@link WALProcedureStore}s, each with its
+ * own logs and sync thread, so that the updates of different procedures are synced in parallel.
+ * <p>
+ * A procedure is kept in the shard of its root procedure, so that the procedures of a tree are
+ * always written, cleaned up and loaded together. New root procedures are spread over the shards
+ * by id. The shard of the live child procedures is remembered, so that a child deleted by id,
+ * like a rolled back one, is deleted from the shard of its tree. The first shard uses the logs of the store directory itself, so a store written by a
+ * single {@link WALProcedureStore} is loaded as is. The other shards use the
+ * {@value #SHARD_DIR_PREFIX}&lt;index&gt; sub directories. Procedures loaded from another shard
+ * than the one of their id, because the number of shards changed, stay in the shard they were
+ * loaded from until they are deleted. The number of shards can be raised between restarts, but
+ * not lowered while the removed shards still hold procedures. Every shard rolls and removes its
+ * logs of completed procedures on its own.
+ * </p>
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public class ShardedProcedureStore extends ProcedureStoreBase {
+  private static final Log LOG = LogFactory.getLog(ShardedProcedureStore.class);
+
+  public static final String SHARDS_CONF_KEY = "hbase.procedure.store.wal.shards";
+  public static final int DEFAULT_SHARDS = 1;
+
+  public static final String SHARD_DIR_PREFIX = "shard-";
+
+  private final FileSystem fs;
+  private final Path walDir;
+  private final WALProcedureStore[] shards;
+  // The shard of the procedures, root or child, kept in another shard than the one of their id
+  private final ConcurrentHashMap<Long, Integer> relocatedProcs = new ConcurrentHashMap<>();
+
+  public ShardedProcedureStore(final Configuration conf, final FileSystem fs, final Path walDir,
+      final Path walArchiveDir, final WALProcedureStore.LeaseRecovery leaseRecovery,
+      final int numShards) {
+    this.fs = fs;
+    this.walDir = walDir;
+    this.shards = new WALProcedureStore[numShards];
+    ProcedureStoreListener shardListener = new ProcedureStoreListener() {
+      @Override
+      public void postSync() {
+        sendPostSyncSignal();
+      }
+
+      @Override
+      public void abortProcess() {
+        sendAbortProcessSignal();
+      }
+
+      @Override
+      public void forceUpdate(long[] procIds) {
+        sendForceUpdateSignal(procIds);
+      }
+    };
+    for (int i = 0; i < numShards; ++i) {
+      Path shardDir = i == 0 ? walDir : new Path(walDir, SHARD_DIR_PREFIX + i);
+      Path shardArchiveDir = walArchiveDir == null || i == 0 ? walArchiveDir
+          : new Path(walArchiveDir, SHARD_DIR_PREFIX + i);
+      shards[i] = new WALProcedureStore(conf, fs, shardDir, shardArchiveDir, leaseRecovery);
+      shards[i].registerListener(shardListener);
+    }
+  }
+
+  /**
+   * @return the stores of the shards, the first one using the logs of the store directory
+   */
+  public List<WALProcedureStore> getShards() {
+    return Collections.unmodifiableList(Arrays.asList(shards));
+  }
+
+  @VisibleForTesting
+  WALProcedureStore getShard(final Procedure proc) {
+    return shards[getShardIndex(proc)];
+  }
+
+  private int getShardIndex(final Procedure proc) {
+    return getShardIndex(getRootProcId(proc));
+  }
+
+  private static long getRootProcId(final Procedure proc) {
+    long rootProcId = proc.getRootProcId();
+    return rootProcId != Procedure.NO_PROC_ID ? rootProcId : proc.getProcId();
+  }
+
+  private WALProcedureStore getShard(final long procId) {
+    return shards[getShardIndex(procId)];
+  }
+
+  private int getShardIndex(final long procId) {
+    Integer index = relocatedProcs.isEmpty() ? null : relocatedProcs.get(procId);
+    return index != null ? index : getHashedShardIndex(procId);
+  }
+
+  private int getHashedShardIndex(final long procId) {
+    return (int) (procId % shards.length);
+  }
+
+  @Override
+  public void start(int numThreads) throws IOException {
+    if (!setRunning(true)) {
+      return;
+    }
+    for (WALProcedureStore shard : shards) {
+      shard.start(numThreads);
+    }
+  }
+
+  @Override
+  public void stop(boolean abort) {
+    if (!setRunning(false)) {
+      return;
+    }
+    for (WALProcedureStore shard : shards) {
+      shard.stop(abort);
+    }
+  }
+
+  @Override
+  public int getNumThreads() {
+    return shards[0].getNumThreads();
+  }
+
+  @Override
+  public int setRunningProcedureCount(int count) {
+    int runningCount = 0;
+    for (WALProcedureStore shard : shards) {
+      runningCount = shard.setRunningProcedureCount(count);
+    }
+    return runningCount;
+  }
+
+  @Override
+  public void recoverLease() throws IOException {
+    checkNoProceduresInRemovedShards();
+    for (WALProcedureStore shard : shards) {
+      shard.recoverLease();
+    }
+  }
+
+  private void checkNoProceduresInRemovedShards() throws IOException {
+    if (!fs.exists(walDir)) {
+      return;
+    }
+    for (FileStatus status : fs.listStatus(walDir)) {
+      String name = status.getPath().getName();
+      if (!status.isDirectory() || !name.startsWith(SHARD_DIR_PREFIX)) {
+        continue;
+      }
+      int index;
+      try {
+        index = Integer.parseInt(name.substring(SHARD_DIR_PREFIX.length()));
+      } catch (NumberFormatException e) {
+        continue;
+      }
+      if (index >= shards.length) {
+        for (FileStatus log : fs.listStatus(status.getPath())) {
+          if (log.getPath().getName().startsWith(WALProcedureStore.LOG_PREFIX)) {
+            throw new IOException("Procedure store shard " + status.getPath()
+                + " still has logs, but only " + shards.length + " shards are configured");
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads the shards in parallel. The loader is handed the procedures of one shard at a time, and
+   * the highest procedure id of all shards once all are loaded.
+   */
+  @Override
+  public void load(final ProcedureLoader loader) throws IOException {
+    final AtomicLong maxProcId = new AtomicLong(0);
+    relocatedProcs.clear();
+    ExecutorService pool = Executors.newFixedThreadPool(shards.length,
+      Threads.newDaemonThreadFactory("ProcedureStoreShardLoader"));
+    try {
+      List<Future<Void>> futures = new ArrayList<>(shards.length);
+      for (int i = 0; i < shards.length; ++i) {
+        final ProcedureLoader shardLoader = new ShardLoader(loader, i, maxProcId);
+        final WALProcedureStore shard = shards[i];
+        futures.add(pool.submit(() -> {
+          shard.load(shardLoader);
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    LOG.info("Loaded " + shards.length + " procedure store shards, max pid=" + maxProcId.get()
+        + ", relocated procedures=" + relocatedProcs.size());
+    loader.setMaxProcId(maxProcId.get());
+  }
+
+  /**
+   * Hands the procedures of a shard to the store loader, one shard at a time, and remembers the
+   * trees found in another shard than the one of their root id, and the shard of the children.
+   */
+  private final class ShardLoader implements ProcedureLoader {
+    private final ProcedureLoader loader;
+    private final int shardIndex;
+    private final AtomicLong maxProcId;
+
+    ShardLoader(final ProcedureLoader loader, final int shardIndex, final AtomicLong maxProcId) {
+      this.loader = loader;
+      this.shardIndex = shardIndex;
+      this.maxProcId = maxProcId;
+    }
+
+    @Override
+    public void setMaxProcId(long procId) {
+      maxProcId.accumulateAndGet(procId, Math::max);
+    }
+
+    @Override
+    public void load(final ProcedureIterator procIter) throws IOException {
+      synchronized (loader) {
+        loader.load(new ProcedureIterator() {
+          @Override
+          public void reset() {
+            procIter.reset();
+          }
+
+          @Override
+          public boolean hasNext() {
+            return procIter.hasNext();
+          }
+
+          @Override
+          public boolean isNextFinished() {
+            return procIter.isNextFinished();
+          }
+
+          @Override
+          public void skipNext() {
+            procIter.skipNext();
+          }
+
+          @Override
+          public Procedure next() throws IOException {
+            Procedure proc = procIter.next();
+            long rootProcId = getRootProcId(proc);
+            if (getHashedShardIndex(rootProcId) != shardIndex) {
+              relocatedProcs.put(rootProcId, shardIndex);
+            }
+            if (proc.hasParent()) {
+              addChild(proc.getProcId(), shardIndex);
+            }
+            return proc;
+          }
+        });
+      }
+    }
+
+    @Override
+    public void handleCorrupted(ProcedureIterator procIter) throws IOException {
+      synchronized (loader) {
+        loader.handleCorrupted(procIter);
+      }
+    }
+  }
+
+  @Override
+  public void insert(Procedure proc, Procedure[] subprocs) {
+    if (subprocs != null && shards.length > 1) {
+      int shardIndex = getShardIndex(proc);
+      for (Procedure subproc : subprocs) {
+        addChild(subproc.getProcId(), shardIndex);
+      }
+    }
+    getShard(proc).insert(proc, subprocs);
+  }
+
+  /**
+   * Remembers the shard of a child procedure if its id maps to another one, so that it can be
+   * deleted by id.
+   */
+  private void addChild(final long procId, final int shardIndex) {
+    if (getHashedShardIndex(procId) != shardIndex) {
+      relocatedProcs.put(procId, shardIndex);
+    }
+  }
+
+  @Override
+  public void insert(Procedure[] procs) {
+    if (shards.length == 1) {
+      shards[0].insert(procs);
+      return;
+    }
+    List<List<Procedure>> procsPerShard = new ArrayList<>(shards.length);
+    for (int i = 0; i < shards.length; ++i) {
+      procsPerShard.add(new ArrayList<>());
+    }
+    for (Procedure proc : procs) {
+      procsPerShard.get(getHashedShardIndex(proc.getProcId())).add(proc);
+    }
+    for (int i = 0; i < shards.length; ++i) {
+      List<Procedure> shardProcs = procsPerShard.get(i);
+      if (!shardProcs.isEmpty()) {
+        shards[i].insert(shardProcs.toArray(new Procedure[shardProcs.size()]));
+      }
+    }
+  }
+
+  @Override
+  public void update(Procedure proc) {
+    getShard(proc).update(proc);
+  }
+
+  /**
+   * Deletes a root procedure, or a child procedure that was rolled back, from the shard of its
+   * tree.
+   */
+  @Override
+  public void delete(long procId) {
+    getShard(procId).delete(procId);
+    relocatedProcs.remove(procId);
+  }
+
+  @Override
+  public void delete(Procedure parentProc, long[] subProcIds) {
+    getShard(parentProc).delete(parentProc, subProcIds);
+    if (!relocatedProcs.isEmpty()) {
+      for (long subProcId : subProcIds) {
+        relocatedProcs.remove(subProcId);
+      }
+    }
+  }
+
+  /**
+   * Deletes root procedures, the only ones deleted by id.
+   */
+  @Override
+  public void delete(long[] procIds, int offset, int count) {
+    if (shards.length == 1) {
+      shards[0].delete(procIds, offset, count);
+      return;
+    }
+    long[][] procIdsPerShard = new long[shards.length][count];
+    int[] countPerShard = new int[shards.length];
+    for (int i = offset; i < offset + count; ++i) {
+      int shard = getShardIndex(procIds[i]);
+      procIdsPerShard[shard][countPerShard[shard]++] = procIds[i];
+    }
+    for (int i = 0; i < shards.length; ++i) {
+      shards[i].delete(procIdsPerShard[i], 0, countPerShard[i]);
+    }
+    if (!relocatedProcs.isEmpty()) {
+      for (int i = offset; i < offset + count; ++i) {
+        relocatedProcs.remove(procIds[i]);
+      }
+    }
+  }
+}
@@ -109,6 +109,15 @@ public class WALProcedureStore extends ProcedureStoreBase {
   public static final String ROLL_THRESHOLD_CONF_KEY = "hbase.procedure.store.wal.roll.threshold";
   private static final long DEFAULT_ROLL_THRESHOLD = 32 * 1024 * 1024; // 32M
 
+  /**
+   * Once there are more logs than this, the procedures still holding the oldest log are asked to
+   * write out their state again in the current log, so the old logs can be removed and a restart
+   * only has to replay the recent ones. 0 disables it.
+   */
+  public static final String CHECKPOINT_LOG_COUNT_CONF_KEY =
+      "hbase.procedure.store.wal.checkpoint.log.count";
+  private static final int DEFAULT_CHECKPOINT_LOG_COUNT = 0;
+
   public static final String STORE_WAL_SYNC_STATS_COUNT =
       "hbase.procedure.store.wal.sync.stats.count";
   private static final int DEFAULT_SYNC_STATS_COUNT = 10;
@@ -153,6 +162,11 @@ public class WALProcedureStore extends ProcedureStoreBase {
   private long rollThreshold;
   private boolean useHsync;
   private int syncWaitMsec;
+  private int checkpointLogCount;
+  // the id of the oldest log we last asked to rewrite the procedures of
+  private long checkpointLogId = -1;
+  // the number of logs we were holding when we last asked
+  private int checkpointLogsHeld = 0;
 
   // Variables used for UI display
   private CircularFifoQueue syncMetricsQueue;
@@ -227,6 +241,7 @@ public class WALProcedureStore extends ProcedureStoreBase {
     periodicRollMsec = conf.getInt(PERIODIC_ROLL_CONF_KEY, DEFAULT_PERIODIC_ROLL);
     syncWaitMsec = conf.getInt(SYNC_WAIT_MSEC_CONF_KEY, DEFAULT_SYNC_WAIT_MSEC);
     useHsync = conf.getBoolean(USE_HSYNC_CONF_KEY, DEFAULT_USE_HSYNC);
+    checkpointLogCount = conf.getInt(CHECKPOINT_LOG_COUNT_CONF_KEY, DEFAULT_CHECKPOINT_LOG_COUNT);
 
     // WebUI
     syncMetricsQueue = new CircularFifoQueue(
@@ -1069,8 +1084,22 @@ public class WALProcedureStore extends ProcedureStoreBase {
       buildHoldingCleanupTracker();
     }
 
-    // TODO: In case we are holding up a lot of logs for long time we should
-    // rewrite old procedures (in theory parent procs) to the new WAL.
+    // In case we are holding up a lot of logs for long time
+    // rewrite the procedures holding the oldest one to the new WAL.
+    if (checkpointLogCount > 0 && logs.size() > checkpointLogCount) {
+      long oldestLogId = logs.getFirst().getLogId();
+      // Ask again if the oldest log is still held after as many more rolls, some procedures
+      // may have been skipped the last time, e.g. the ones being executed.
+      if (oldestLogId != checkpointLogId ||
+          logs.size() >= checkpointLogsHeld + checkpointLogCount) {
+        checkpointLogId = oldestLogId;
+        checkpointLogsHeld = logs.size();
+        long[] procIds = holdingCleanupTracker.getAllActiveProcIds();
+        LOG.info("Holding " + logs.size() + " logs, asking to rewrite the " + procIds.length +
+          " procedures holding the oldest log " + logs.getFirst());
+        sendForceUpdateSignal(procIds);
+      }
+    }
   }
 
   private void buildHoldingCleanupTracker() {
@@ -20,6 +20,7 @@ package org.apache.hadoop.hbase.procedure2;
 
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -128,6 +129,47 @@ public class TestProcedureExecutor {
     ProcedureTestingUtility.assertProcNotFailed(procExecutor, busyProcId2);
   }
 
+  @Test(timeout=60000)
+  public void testWorkerStuckMaxPoolSize() throws Exception {
+    final Configuration conf = new Configuration(htu.getConfiguration());
+    conf.setFloat("hbase.procedure.worker.add.stuck.percentage", 0.5f);
+    conf.setInt("hbase.procedure.worker.monitor.interval.msec", 250);
+    conf.setInt("hbase.procedure.worker.stuck.threshold.msec", 500);
+    conf.setInt(ProcedureExecutor.WORKER_MAX_POOL_SIZE_CONF_KEY, 2);
+
+    final int NUM_THREADS = 1;
+    createNewExecutor(conf, NUM_THREADS);
+
+    final Semaphore[] latches = new Semaphore[3];
+    final long[] procIds = new long[latches.length];
+    for (int i = 0; i < latches.length; ++i) {
+      latches[i] = new Semaphore(0);
+      procIds[i] = procExecutor.submitProcedure(new BusyWaitProcedure(latches[i]));
+    }
+
+    // one worker is added for the stuck one, then the pool is at its max size
+    assertEquals(2, waitThreadCount(2));
+    while (procExecutor.getStuckWorkerCount() < 2) {
+      Threads.sleepWithoutInterrupt(100);
+    }
+    Threads.sleepWithoutInterrupt(1000);
+    assertEquals(2, procExecutor.getWorkerThreadCount());
+    assertEquals(2, procExecutor.getActiveExecutorCount());
+    assertEquals(1, procExecutor.getQueuedProcedureCount());
+
+    for (int i = 0; i < latches.length; ++i) {
+      latches[i].release(2);
+    }
+    for (int i = 0; i < procIds.length; ++i) {
+      ProcedureTestingUtility.waitProcedure(procExecutor, procIds[i]);
+      ProcedureTestingUtility.assertProcNotFailed(procExecutor, procIds[i]);
+    }
+
+    // the added worker goes away once idle
+    procExecutor.setKeepAliveTime(500L, TimeUnit.MILLISECONDS);
+    assertEquals(NUM_THREADS, waitThreadCount(NUM_THREADS));
+  }
+
   @Test
   public void testSubmitBatch() throws Exception {
     Procedure[] procs = new Procedure[5];
@@ -147,6 +189,24 @@ public class TestProcedureExecutor {
     }
   }
 
+  /**
+   * A worker that does not get the lock of a procedure must not finalize it, as the procedure may
+   * already have been handed to, and completed by, another worker.
+   */
+  @Test(timeout=60000)
+  public void testLockWaitDoesNotFinishTwice() throws Exception {
+    createNewExecutor(htu.getConfiguration(), 2);
+    LockWaitProcedure proc = new LockWaitProcedure(procExecutor);
+    long procId = procExecutor.submitProcedure(proc);
+    ProcedureTestingUtility.waitProcedure(procExecutor, procId);
+    ProcedureTestingUtility.assertProcNotFailed(procExecutor, procId);
+    // let the worker that waited for the lock get back to the scheduler
+    while (procExecutor.getActiveExecutorCount() > 0) {
+      Threads.sleepWithoutInterrupt(10);
+    }
+    assertEquals(1, proc.finishCount.get());
+  }
+
   private int waitThreadCount(final int expectedThreads) {
     while (procExecutor.isRunning()) {
       if (procExecutor.getWorkerThreadCount() == expectedThreads) {
@@ -186,5 +246,39 @@ public class TestProcedureExecutor {
     }
   }
 
+  /**
+   * A procedure that does not get its lock the first time, and is woken up right away to run on
+   * another worker, and waits for that worker to complete it.
+   */
+  public static class LockWaitProcedure extends NoopProcedure<TestProcEnv> {
+    private final ProcedureExecutor<TestProcEnv> executor;
+    private final AtomicInteger finishCount = new AtomicInteger();
+    private volatile boolean waited = false;
+
+    public LockWaitProcedure(final ProcedureExecutor<TestProcEnv> executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    protected LockState acquireLock(final TestProcEnv env) {
+      if (waited) {
+        return LockState.LOCK_ACQUIRED;
+      }
+      waited = true;
+      executor.getScheduler().addFront(this);
+      long deadline = System.currentTimeMillis() + 30000;
+      while (!isSuccess() && System.currentTimeMillis() < deadline) {
+        Threads.sleepWithoutInterrupt(10);
+      }
+      return LockState.LOCK_EVENT_WAIT;
+    }
+
+    @Override
+    protected void updateMetricsOnFinish(final TestProcEnv env, final long runtime,
+        boolean success) {
+      finishCount.incrementAndGet();
+    }
+  }
+
   private class TestProcEnv { }
 }
@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hbase.procedure2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseCommonTestingUtility;
+import org.apache.hadoop.hbase.procedure2.ProcedureTestingUtility.LoadCounter;
+import org.apache.hadoop.hbase.procedure2.store.wal.WALProcedureStore;
+import org.apache.hadoop.hbase.testclassification.MasterTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({MasterTests.class, SmallTests.class})
+public class TestProcedureForceUpdate {
+  private static final Log LOG = LogFactory.getLog(TestProcedureForceUpdate.class);
+
+  private static final int PROCEDURE_EXECUTOR_SLOTS = 2;
+
+  private static ProcedureExecutor<Void> procExecutor;
+  private static RacingWALProcedureStore procStore;
+  // Released by the force update to let the blocked child finish, and so wake up its parent
+  private static CountDownLatch childLatch;
+  private static volatile TestChildProcedure fastChild;
+
+  private HBaseCommonTestingUtility htu;
+  private FileSystem fs;
+  private Path logDir;
+
+  @Before
+  public void setUp() throws IOException {
+    htu = new HBaseCommonTestingUtility();
+    Path testDir = htu.getDataTestDir();
+    fs = testDir.getFileSystem(htu.getConfiguration());
+    assertTrue(testDir.depth() > 1);
+
+    logDir = new Path(testDir, "proc-logs");
+    childLatch = new CountDownLatch(1);
+    fastChild = null;
+    procStore = new RacingWALProcedureStore(htu.getConfiguration(), fs, logDir);
+    procExecutor = new ProcedureExecutor<>(htu.getConfiguration(), null, procStore);
+    procStore.start(PROCEDURE_EXECUTOR_SLOTS);
+    procExecutor.start(PROCEDURE_EXECUTOR_SLOTS, true);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    procExecutor.stop();
+    procStore.stop(false);
+    fs.delete(logDir, true);
+  }
+
+  /**
+   * Force updates a finished child while its parent is woken up, completes and deletes it, and
+   * checks that the child is not replayed.
+   */
+  @Test
+  public void testForceUpdateRacingWakeUp() throws Exception {
+    TestParentProcedure proc = new TestParentProcedure();
+    long procId = procExecutor.submitProcedure(proc);
+    // The parent waits for its blocked child, once the other child has completed
+    while (fastChild == null || !fastChild.isFinished()) {
+      Thread.sleep(10);
+    }
+    assertTrue(proc.isWaiting());
+    procStore.racingProc = fastChild;
+    procStore.forceUpdate(new long[] { fastChild.getProcId() });
+    ProcedureTestingUtility.waitProcedure(procExecutor, procId);
+    assertTrue("expected the force update to run", procStore.raced);
+    ProcedureTestingUtility.assertProcNotFailed(procExecutor, procId);
+
+    // Only the parent is replayed, as completed
+    procExecutor.stop();
+    procExecutor.join();
+    LoadCounter loader = ProcedureTestingUtility.storeRestartAndAssert(procStore, 3, 0, 1, 0);
+    assertEquals(procId, loader.getCompleted().get(0).getProcId());
+  }
+
+  /**
+   * Force updates a runnable procedure waiting for a worker, and one being executed, and checks
+   * that only the first one is written.
+   */
+  @Test
+  public void testForceUpdateRunnable() throws Exception {
+    long[] procIds = new long[PROCEDURE_EXECUTOR_SLOTS + 1];
+    for (int i = 0; i < PROCEDURE_EXECUTOR_SLOTS; ++i) {
+      procIds[i] = procExecutor.submitProcedure(new TestChildProcedure(true));
+    }
+    while (procExecutor.getActiveExecutorCount() < PROCEDURE_EXECUTOR_SLOTS) {
+      Thread.sleep(10);
+    }
+    // No worker is left for the last procedure, it stays runnable in the scheduler
+    long runnableProcId = procExecutor.submitProcedure(new TestChildProcedure(true));
+    procIds[PROCEDURE_EXECUTOR_SLOTS] = runnableProcId;
+    procStore.forceUpdate(procIds);
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!procStore.forceUpdated.contains(runnableProcId) &&
+        System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    childLatch.countDown();
+    for (long procId: procIds) {
+      ProcedureTestingUtility.waitProcedure(procExecutor, procId);
+      ProcedureTestingUtility.assertProcNotFailed(procExecutor, procId);
+    }
+    assertEquals(Arrays.asList(runnableProcId), procStore.forceUpdated);
+  }
+
+  /**
+   * A store that, while it force updates a procedure, lets its parent complete before writing
+   * it, like a force update that is slower than the workers.
+   */
+  private static class RacingWALProcedureStore extends WALProcedureStore {
+    private volatile Procedure<?> racingProc;
+    private volatile boolean raced = false;
+    private final List<Long> forceUpdated = new CopyOnWriteArrayList<>();
+
+    public RacingWALProcedureStore(Configuration conf, FileSystem fs, Path walDir) {
+      super(conf, fs, walDir, new WALProcedureStore.LeaseRecovery() {
+        @Override
+        public void recoverFileLease(FileSystem fs, Path path) throws IOException {
+          // no-op
+        }
+      });
+    }
+
+    void forceUpdate(long[] procIds) {
+      sendForceUpdateSignal(procIds);
+    }
+
+    @Override
+    public void update(Procedure proc) {
+      boolean forced = Thread.currentThread().getName().startsWith("ProcExecForceUpdate");
+      if (forced) {
+        forceUpdated.add(proc.getProcId());
+      }
+      if (proc != racingProc || !forced) {
+        super.update(proc);
+        return;
+      }
+      raced = true;
+      childLatch.countDown();
+      // Give the workers the time to complete the parent, if they are not kept from doing so
+      try {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!procExecutor.isFinished(proc.getParentProcId()) &&
+            System.currentTimeMillis() < deadline) {
+          Thread.sleep(10);
+        }
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      LOG.info("Force update of " + proc);
+      super.update(proc);
+    }
+  }
+
+  public static class TestParentProcedure extends SequentialProcedure<Void> {
+    public TestParentProcedure() {}
+
+    @Override
+    protected Procedure[] execute(Void env) {
+      fastChild = new TestChildProcedure(false);
+      return new Procedure[] { fastChild, new TestChildProcedure(true) };
+    }
+
+    @Override
+    protected void rollback(Void env) {
+    }
+
+    @Override
+    protected boolean abort(Void env) {
+      return false;
+    }
+  }
+
+  public static class TestChildProcedure extends SequentialProcedure<Void> {
+    private final boolean blocked;
+
+    public TestChildProcedure() {
+      this(false);
+    }
+
+    public TestChildProcedure(boolean blocked) {
+      this.blocked = blocked;
+    }
+
+    @Override
+    protected Procedure[] execute(Void env) throws InterruptedException {
+      if (blocked) {
+        childLatch.await(10, TimeUnit.SECONDS);
+      }
+      return null;
+    }
+
+    @Override
+    protected void rollback(Void env) {
+    }
+
+    @Override
+    protected boolean abort(Void env) {
+      return false;
+    }
+  }
+}
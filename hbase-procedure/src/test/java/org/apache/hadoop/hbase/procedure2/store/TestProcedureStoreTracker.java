@@ -29,6 +29,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import static org.apache.hadoop.hbase.procedure2.store.ProcedureStoreTracker.BitSetNode;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -288,4 +289,26 @@ public class TestProcedureStoreTracker {
     tracker.setDeletedIfSet(procIds);
     assertEquals(true, tracker.isEmpty());
   }
+
+  @Test
+  public void testGetAllActiveProcIds() {
+    final ProcedureStoreTracker tracker = new ProcedureStoreTracker();
+    final long[] procIds = new long[] { 1, 3, 7, 63, 64, 152, 512, 1024, 1025 };
+    assertEquals(0, tracker.getAllActiveProcIds().length);
+
+    tracker.insert(procIds);
+    assertArrayEquals(procIds, tracker.getAllActiveProcIds());
+
+    tracker.delete(new long[] { 3, 64, 1024 });
+    assertArrayEquals(new long[] { 1, 7, 63, 152, 512, 1025 }, tracker.getAllActiveProcIds());
+
+    // the procedures updated in a later log are no longer holding the first one
+    tracker.reset();
+    tracker.insert(procIds);
+    ProcedureStoreTracker holdingTracker = new ProcedureStoreTracker();
+    holdingTracker.resetTo(tracker, true);
+    holdingTracker.setDeletedIfSet(7, 512);
+    assertArrayEquals(new long[] { 1, 3, 63, 64, 152, 1024, 1025 },
+      holdingTracker.getAllActiveProcIds());
+  }
 }
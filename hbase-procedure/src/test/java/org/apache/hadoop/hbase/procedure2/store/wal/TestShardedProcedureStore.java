@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hbase.procedure2.store.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseCommonTestingUtility;
+import org.apache.hadoop.hbase.procedure2.Procedure;
+import org.apache.hadoop.hbase.procedure2.ProcedureTestingUtility;
+import org.apache.hadoop.hbase.procedure2.ProcedureTestingUtility.LoadCounter;
+import org.apache.hadoop.hbase.procedure2.ProcedureTestingUtility.TestProcedure;
+import org.apache.hadoop.hbase.testclassification.MasterTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({MasterTests.class, SmallTests.class})
+public class TestShardedProcedureStore {
+  private static final int PROCEDURE_STORE_SLOTS = 1;
+
+  private HBaseCommonTestingUtility htu;
+  private FileSystem fs;
+  private Path logDir;
+  private ShardedProcedureStore procStore;
+
+  @Before
+  public void setUp() throws IOException {
+    htu = new HBaseCommonTestingUtility();
+    Path testDir = htu.getDataTestDir();
+    fs = testDir.getFileSystem(htu.getConfiguration());
+    logDir = new Path(testDir, "proc-logs");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (procStore != null) {
+      procStore.stop(false);
+    }
+    fs.delete(logDir, true);
+  }
+
+  private ShardedProcedureStore createStore(int numShards) {
+    return new ShardedProcedureStore(htu.getConfiguration(), fs, logDir, null,
+        new WALProcedureStore.LeaseRecovery() {
+          @Override
+          public void recoverFileLease(FileSystem fs, Path path) throws IOException {
+            // no-op
+          }
+        }, numShards);
+  }
+
+  private LoadCounter startStore(int numShards) throws IOException {
+    procStore = createStore(numShards);
+    procStore.start(PROCEDURE_STORE_SLOTS);
+    procStore.recoverLease();
+    LoadCounter loader = new LoadCounter();
+    procStore.load(loader);
+    return loader;
+  }
+
+  @Test
+  public void testProcedureTreesStayInOneShard() throws Exception {
+    startStore(3);
+    for (int i = 1; i <= 6; ++i) {
+      procStore.insert(new TestProcedure(i), null);
+    }
+    TestProcedure root = new TestProcedure(2);
+    TestProcedure child = new TestProcedure(7, 2, 2, null);
+    TestProcedure grandChild = new TestProcedure(8, 7, 2, null);
+    procStore.insert(root, new Procedure[] { child });
+    procStore.insert(child, new Procedure[] { grandChild });
+    assertSame(procStore.getShard(root), procStore.getShard(child));
+    assertSame(procStore.getShard(root), procStore.getShard(grandChild));
+    procStore.update(grandChild);
+    procStore.delete(new long[] { 1, 4, 5 }, 0, 2);
+    for (int i = 0; i < 3; ++i) {
+      assertTrue(procStore.getShards().get(i).getActiveLogs().size() > 0);
+    }
+    assertTrue(fs.exists(new Path(logDir, ShardedProcedureStore.SHARD_DIR_PREFIX + 1)));
+    assertTrue(fs.exists(new Path(logDir, ShardedProcedureStore.SHARD_DIR_PREFIX + 2)));
+
+    LoadCounter loader = ProcedureTestingUtility.storeRestartAndAssert(procStore, 8, 6, 0, 0);
+    assertFalse(loader.isRunnable(1));
+    assertFalse(loader.isRunnable(4));
+    assertTrue(loader.isRunnable(5));
+    assertTrue(loader.isRunnable(8));
+
+    procStore.delete(child, new long[] { 8 });
+    procStore.delete(root, new long[] { 7 });
+    procStore.delete(2);
+    ProcedureTestingUtility.storeRestartAndAssert(procStore, 8, 3, 0, 0);
+  }
+
+  @Test
+  public void testRolledBackChildDeletedFromTreeShard() throws Exception {
+    startStore(3);
+    TestProcedure root = new TestProcedure(2);
+    TestProcedure child = new TestProcedure(7, 2, 2, null);
+    procStore.insert(root, null);
+    procStore.insert(root, new Procedure[] { child });
+    procStore.update(child);
+    // a rolled back child is deleted by id, and the id of the child maps to another shard
+    procStore.delete(child.getProcId());
+    procStore.update(root);
+    LoadCounter loader = ProcedureTestingUtility.storeRestartAndAssert(procStore, 7, 1, 0, 0);
+    assertTrue(loader.isRunnable(2));
+
+    // once reloaded, the children are still deleted from the shard of their tree
+    TestProcedure otherChild = new TestProcedure(8, 2, 2, null);
+    procStore.insert(root, new Procedure[] { otherChild });
+    ProcedureTestingUtility.storeRestartAndAssert(procStore, 8, 2, 0, 0);
+    procStore.delete(otherChild.getProcId());
+    ProcedureTestingUtility.storeRestartAndAssert(procStore, 8, 1, 0, 0);
+  }
+
+  @Test
+  public void testLoadLogsOfSingleStore() throws Exception {
+    WALProcedureStore walStore =
+        ProcedureTestingUtility.createWalStore(htu.getConfiguration(), fs, logDir);
+    walStore.start(PROCEDURE_STORE_SLOTS);
+    walStore.recoverLease();
+    walStore.load(new LoadCounter());
+    for (int i = 1; i <= 5; ++i) {
+      walStore.insert(new TestProcedure(i), null);
+    }
+    walStore.stop(false);
+
+    LoadCounter loader = startStore(2);
+    assertEquals(5, loader.getMaxProcId());
+    assertEquals(5, loader.getRunnableCount());
+    // The procedures stay in the first shard, the one they were loaded from.
+    procStore.update(new TestProcedure(5));
+    procStore.delete(new long[] { 1, 2, 3, 4, 5 }, 0, 4);
+    ProcedureTestingUtility.storeRestartAndAssert(procStore, 5, 1, 0, 0);
+  }
+
+  @Test
+  public void testRemovedShardWithLogs() throws Exception {
+    startStore(3);
+    for (int i = 1; i <= 3; ++i) {
+      procStore.insert(new TestProcedure(i), null);
+    }
+    procStore.stop(false);
+
+    procStore = createStore(2);
+    procStore.start(PROCEDURE_STORE_SLOTS);
+    try {
+      procStore.recoverLease();
+      fail("The procedures of the third shard would have been lost");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
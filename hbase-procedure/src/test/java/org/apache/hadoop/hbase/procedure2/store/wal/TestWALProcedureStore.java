@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -209,6 +210,59 @@ public class TestWALProcedureStore {
     assertFalse(procStore.getActiveLogs().contains(firstLog));
   }
 
+  @Test
+  public void testWalCleanerCheckpoint() throws Exception {
+    htu.getConfiguration().setInt(WALProcedureStore.CHECKPOINT_LOG_COUNT_CONF_KEY, 3);
+    storeRestart(new LoadCounter());
+    final List<Long> forceUpdated = new ArrayList<>();
+    procStore.registerListener(new ProcedureStore.ProcedureStoreListener() {
+      @Override
+      public void postSync() {}
+
+      @Override
+      public void abortProcess() {}
+
+      @Override
+      public void forceUpdate(long[] procIds) {
+        for (long procId: procIds) {
+          forceUpdated.add(procId);
+        }
+      }
+    });
+
+    TestSequentialProcedure[] procs = new TestSequentialProcedure[3];
+    for (int i = 0; i < procs.length; ++i) {
+      procs[i] = new TestSequentialProcedure();
+      procStore.insert(procs[i], null);
+      procStore.rollWriterForTesting();
+    }
+    // the three oldest logs are each held by a procedure
+    ProcedureWALFile firstLog = procStore.getActiveLogs().get(0);
+    assertEquals(4, procStore.getActiveLogs().size());
+    procStore.removeInactiveLogsForTesting();
+    assertEquals(Arrays.asList(procs[0].getProcId()), forceUpdated);
+
+    // the procedures holding a log are asked only once...
+    procStore.removeInactiveLogsForTesting();
+    assertEquals(1, forceUpdated.size());
+
+    // ...until as many more logs are rolled while they still hold it
+    for (int i = 0; i < 3; ++i) {
+      procStore.update(procs[1]);
+      procStore.rollWriterForTesting();
+      procStore.removeInactiveLogsForTesting();
+      assertEquals(i < 2 ? 1 : 2, forceUpdated.size());
+    }
+    assertEquals(Arrays.asList(procs[0].getProcId(), procs[0].getProcId()), forceUpdated);
+
+    procStore.update(procs[0]);
+    procStore.removeInactiveLogsForTesting();
+    assertFalse(procStore.getActiveLogs().contains(firstLog));
+    // the new oldest log is held by the last procedure
+    assertEquals(3, forceUpdated.size());
+    assertEquals(procs[2].getProcId(), (long) forceUpdated.get(2));
+  }
+
   @Test
   public void testWalCleanerUpdatesDontLeaveHoles() throws Exception {
     TestSequentialProcedure p1 = new TestSequentialProcedure();
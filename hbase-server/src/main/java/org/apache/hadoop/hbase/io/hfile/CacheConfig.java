@@ -117,6 +117,17 @@ public class CacheConfig {
   public static final String BUCKET_CACHE_COMBINED_KEY =
       "hbase.bucketcache.combinedcache.enabled";
 
+  /**
+   * The fraction of the lru on-heap block cache that is set aside for index and bloom blocks when
+   * the bucket cache is combined with it. Data blocks cached in the lru block cache cannot evict
+   * blocks from this part, see {@link CombinedBlockCache}. Zero, the default, shares the lru
+   * block cache between all blocks it caches.
+   */
+  public static final String INDEX_BLOCK_CACHE_PERCENTAGE_KEY =
+      "hbase.blockcache.index.percentage";
+
+  public static final float DEFAULT_INDEX_BLOCK_CACHE_PERCENTAGE = 0f;
+
   public static final String BUCKET_CACHE_WRITER_THREADS_KEY = "hbase.bucketcache.writer.threads";
   public static final String BUCKET_CACHE_WRITER_QUEUE_KEY =
       "hbase.bucketcache.writer.queuelength";
@@ -549,6 +560,7 @@ public class CacheConfig {
   static BlockCache GLOBAL_BLOCK_CACHE_INSTANCE;
   private static LruBlockCache GLOBAL_L1_CACHE_INSTANCE = null;
   private static BlockCache GLOBAL_L2_CACHE_INSTANCE = null;
+  private static LruBlockCache GLOBAL_INDEX_CACHE_INSTANCE = null;
 
   /** Boolean whether we have disabled the block cache entirely. */
   @VisibleForTesting
@@ -576,6 +588,49 @@ public class CacheConfig {
     return null;
   }
 
+  /**
+   * @return the block cache for index and bloom blocks set aside from the L1, or null if they are
+   *         not cached separately
+   */
+  public static LruBlockCache getL1IndexCache() {
+    return GLOBAL_INDEX_CACHE_INSTANCE;
+  }
+
+  /**
+   * @return the stats of the block cache for index and bloom blocks, or null if they are not
+   *         cached separately
+   */
+  public CacheStats getIndexCacheStats() {
+    if (GLOBAL_INDEX_CACHE_INSTANCE != null) {
+      return GLOBAL_INDEX_CACHE_INSTANCE.getStats();
+    }
+    return null;
+  }
+
+  /**
+   * Sets part of the given L1 aside for index and bloom blocks, see
+   * {@link #INDEX_BLOCK_CACHE_PERCENTAGE_KEY}.
+   * @return the block cache for index and bloom blocks, or null if not configured
+   */
+  private static LruBlockCache getIndexCache(final Configuration c, LruBlockCache l1) {
+    float percentage = c.getFloat(INDEX_BLOCK_CACHE_PERCENTAGE_KEY,
+      DEFAULT_INDEX_BLOCK_CACHE_PERCENTAGE);
+    if (percentage <= 0) {
+      return null;
+    }
+    if (percentage >= 1) {
+      throw new IllegalArgumentException(INDEX_BLOCK_CACHE_PERCENTAGE_KEY + " must be less "
+          + "than 1, was " + percentage);
+    }
+    long indexCacheSize = (long) (l1.getMaxSize() * percentage);
+    int blockSize = c.getInt(BLOCKCACHE_BLOCKSIZE_KEY, HConstants.DEFAULT_BLOCKSIZE);
+    LOG.info("Allocating index and bloom block LruBlockCache size="
+        + StringUtils.byteDesc(indexCacheSize) + " out of the LruBlockCache");
+    l1.setMaxSize(l1.getMaxSize() - indexCacheSize);
+    GLOBAL_INDEX_CACHE_INSTANCE = new LruBlockCache(indexCacheSize, blockSize, true, c);
+    return GLOBAL_INDEX_CACHE_INSTANCE;
+  }
+
   /**
    * @param c Configuration to use.
    * @return An L1 instance.  Currently an instance of LruBlockCache.
@@ -719,7 +774,11 @@ public class CacheConfig {
         GLOBAL_BLOCK_CACHE_INSTANCE = new InclusiveCombinedBlockCache(l1, l2);
       } else {
         if (combinedWithLru) {
-          GLOBAL_BLOCK_CACHE_INSTANCE = new CombinedBlockCache(l1, l2);
+          LruBlockCache indexCache = getIndexCache(conf, l1);
+          if (indexCache != null) {
+            indexCache.setVictimCache(l2);
+          }
+          GLOBAL_BLOCK_CACHE_INSTANCE = new CombinedBlockCache(l1, l2, indexCache);
         } else {
           // L1 and L2 are not 'combined'.  They are connected via the LruBlockCache victimhandler
           // mechanism.  It is a little ugly but works according to the following: when the
@@ -737,6 +796,7 @@ public class CacheConfig {
   @VisibleForTesting
   static synchronized void clearGlobalInstances() {
     GLOBAL_L1_CACHE_INSTANCE = null;
+    GLOBAL_INDEX_CACHE_INSTANCE = null;
     GLOBAL_BLOCK_CACHE_INSTANCE = null;
   }
 }
@@ -36,19 +36,33 @@ import org.apache.hadoop.hbase.shaded.com.google.common.annotations.VisibleForTe
  * first from the smaller lruCache before looking for the block in the l2Cache.  Blocks evicted
  * from lruCache are put into the bucket cache. 
  * Metrics are the combined size and hits and misses of both caches.
- * 
+ * <p>
+ * Optionally, index and bloom blocks get an LruBlockCache of their own, the indexCache, so that
+ * data blocks cached in the lruCache, e.g. those of families that cache data in L1, cannot evict
+ * them. Blocks evicted from the indexCache are put into the bucket cache as well.
  */
 @InterfaceAudience.Private
 public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
   protected final LruBlockCache lruCache;
   protected final BlockCache l2Cache;
+  /** The cache for index and bloom blocks, or null if they are cached in the lruCache */
+  protected final LruBlockCache indexCache;
   protected final CombinedCacheStats combinedCacheStats;
 
   public CombinedBlockCache(LruBlockCache lruCache, BlockCache l2Cache) {
+    this(lruCache, l2Cache, null);
+  }
+
+  public CombinedBlockCache(LruBlockCache lruCache, BlockCache l2Cache,
+      LruBlockCache indexCache) {
     this.lruCache = lruCache;
     this.l2Cache = l2Cache;
-    this.combinedCacheStats = new CombinedCacheStats(lruCache.getStats(),
-        l2Cache.getStats());
+    this.indexCache = indexCache;
+    CacheStats lruCacheStats = lruCache.getStats();
+    if (indexCache != null) {
+      lruCacheStats = new CombinedCacheStats(indexCache.getStats(), lruCacheStats);
+    }
+    this.combinedCacheStats = new CombinedCacheStats(lruCacheStats, l2Cache.getStats());
   }
 
   @Override
@@ -57,14 +71,17 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
     if (l2Cache instanceof HeapSize) {
       l2size = ((HeapSize) l2Cache).heapSize();
     }
-    return lruCache.heapSize() + l2size;
+    long indexSize = indexCache == null ? 0 : indexCache.heapSize();
+    return lruCache.heapSize() + l2size + indexSize;
   }
 
   @Override
   public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory,
       final boolean cacheDataInL1) {
     boolean metaBlock = buf.getBlockType().getCategory() != BlockCategory.DATA;
-    if (metaBlock || cacheDataInL1) {
+    if (metaBlock && indexCache != null) {
+      indexCache.cacheBlock(cacheKey, buf, inMemory, cacheDataInL1);
+    } else if (metaBlock || cacheDataInL1) {
       lruCache.cacheBlock(cacheKey, buf, inMemory, cacheDataInL1);
     } else {
       l2Cache.cacheBlock(cacheKey, buf, inMemory, false);
@@ -81,6 +98,17 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
       boolean repeat, boolean updateCacheMetrics) {
     // TODO: is there a hole here, or just awkwardness since in the lruCache getBlock
     // we end up calling l2Cache.getBlock.
+    if (indexCache != null) {
+      BlockType blockType = cacheKey.getBlockType();
+      if (blockType != null && blockType.getCategory() != BlockCategory.DATA) {
+        // Counts the misses of index and bloom blocks, which are then looked up in the l2Cache,
+        // the victim cache of the indexCache.
+        return indexCache.getBlock(cacheKey, caching, repeat, updateCacheMetrics);
+      }
+      if (blockType == null && indexCache.containsBlock(cacheKey)) {
+        return indexCache.getBlock(cacheKey, caching, repeat, updateCacheMetrics);
+      }
+    }
     return lruCache.containsBlock(cacheKey)?
         lruCache.getBlock(cacheKey, caching, repeat, updateCacheMetrics):
         l2Cache.getBlock(cacheKey, caching, repeat, updateCacheMetrics);
@@ -88,12 +116,14 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
 
   @Override
   public boolean evictBlock(BlockCacheKey cacheKey) {
-    return lruCache.evictBlock(cacheKey) || l2Cache.evictBlock(cacheKey);
+    return (indexCache != null && indexCache.evictBlock(cacheKey))
+        || lruCache.evictBlock(cacheKey) || l2Cache.evictBlock(cacheKey);
   }
 
   @Override
   public int evictBlocksByHfileName(String hfileName) {
-    return lruCache.evictBlocksByHfileName(hfileName)
+    int evicted = indexCache == null ? 0 : indexCache.evictBlocksByHfileName(hfileName);
+    return evicted + lruCache.evictBlocksByHfileName(hfileName)
         + l2Cache.evictBlocksByHfileName(hfileName);
   }
 
@@ -102,20 +132,31 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
     return this.combinedCacheStats;
   }
 
+  /**
+   * @return the stats of the cache for index and bloom blocks, or null if there is none
+   */
+  public CacheStats getIndexCacheStats() {
+    return indexCache == null ? null : indexCache.getStats();
+  }
+
   @Override
   public void shutdown() {
+    if (indexCache != null) {
+      indexCache.shutdown();
+    }
     lruCache.shutdown();
     l2Cache.shutdown();
   }
 
   @Override
   public long size() {
-    return lruCache.size() + l2Cache.size();
+    return (indexCache == null ? 0 : indexCache.size()) + lruCache.size() + l2Cache.size();
   }
 
   @Override
   public long getMaxSize() {
-    return lruCache.getMaxSize() + l2Cache.getMaxSize();
+    return (indexCache == null ? 0 : indexCache.getMaxSize()) + lruCache.getMaxSize()
+        + l2Cache.getMaxSize();
   }
 
   @Override
@@ -125,17 +166,20 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
 
   @Override
   public long getFreeSize() {
-    return lruCache.getFreeSize() + l2Cache.getFreeSize();
+    return (indexCache == null ? 0 : indexCache.getFreeSize()) + lruCache.getFreeSize()
+        + l2Cache.getFreeSize();
   }
 
   @Override
   public long getCurrentSize() {
-    return lruCache.getCurrentSize() + l2Cache.getCurrentSize();
+    return (indexCache == null ? 0 : indexCache.getCurrentSize()) + lruCache.getCurrentSize()
+        + l2Cache.getCurrentSize();
   }
 
   @Override
   public long getBlockCount() {
-    return lruCache.getBlockCount() + l2Cache.getBlockCount();
+    return (indexCache == null ? 0 : indexCache.getBlockCount()) + lruCache.getBlockCount()
+        + l2Cache.getBlockCount();
   }
 
   @Override
@@ -363,11 +407,22 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
 
   @Override
   public BlockCache[] getBlockCaches() {
+    if (this.indexCache != null) {
+      return new BlockCache [] {this.lruCache, this.l2Cache, this.indexCache};
+    }
     return new BlockCache [] {this.lruCache, this.l2Cache};
   }
 
   @Override
   public void setMaxSize(long size) {
+    // The cache for index and bloom blocks keeps its size, the lruCache gets what is left.
+    if (this.indexCache != null) {
+      if (size <= this.indexCache.getMaxSize()) {
+        throw new IllegalArgumentException("Block cache size " + size + " leaves no room for the "
+            + "LruBlockCache next to the index block cache of " + this.indexCache.getMaxSize());
+      }
+      size -= this.indexCache.getMaxSize();
+    }
     this.lruCache.setMaxSize(size);
   }
 
@@ -40,6 +40,13 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
    */
   public static final int VERSION = 3;
 
+  /**
+   * The version of blocked Bloom filters. Their metadata is the same as the one of
+   * {@link #VERSION}, but their chunks are blocked Bloom filters, see
+   * {@link org.apache.hadoop.hbase.util.BloomFilterUtil#BLOCKED_BLOOM_BLOCK_BYTES}.
+   */
+  public static final int BLOCKED_VERSION = 4;
+
   /** Target error rate for configuring the filter and for information */
   protected float errorRate;
 
@@ -52,6 +59,8 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
   protected int hashType;
   /** Comparator used to compare Bloom filter keys */
   protected CellComparator comparator;
+  /** Whether the chunks are blocked Bloom filters */
+  protected boolean blocked;
 
   @Override
   public long getMaxKeys() {
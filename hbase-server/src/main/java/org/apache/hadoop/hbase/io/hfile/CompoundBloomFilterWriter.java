@@ -99,8 +99,31 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
   public CompoundBloomFilterWriter(int chunkByteSizeHint, float errorRate,
       int hashType, int maxFold, boolean cacheOnWrite,
       CellComparator comparator, BloomType bloomType) {
-    chunkByteSize = BloomFilterUtil.computeFoldableByteSize(
-        chunkByteSizeHint * 8L, maxFold);
+    this(chunkByteSizeHint, errorRate, hashType, maxFold, cacheOnWrite, comparator, bloomType,
+        false);
+  }
+
+  /**
+   * @param chunkByteSizeHint
+   *          each chunk's size in bytes. The real chunk size might be different
+   *          as required by the fold factor.
+   * @param errorRate
+   *          target false positive rate
+   * @param hashType
+   *          hash function type to use
+   * @param maxFold
+   *          maximum degree of folding allowed
+   * @param bloomType
+   *          the bloom type
+   * @param blocked
+   *          whether to write blocked Bloom filter chunks
+   */
+  public CompoundBloomFilterWriter(int chunkByteSizeHint, float errorRate,
+      int hashType, int maxFold, boolean cacheOnWrite,
+      CellComparator comparator, BloomType bloomType, boolean blocked) {
+    chunkByteSize = blocked
+        ? BloomFilterUtil.computeBlockedFoldableByteSize(chunkByteSizeHint * 8L, maxFold)
+        : BloomFilterUtil.computeFoldableByteSize(chunkByteSizeHint * 8L, maxFold);
 
     this.errorRate = errorRate;
     this.hashType = hashType;
@@ -108,6 +131,7 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
     this.cacheOnWrite = cacheOnWrite;
     this.comparator = comparator;
     this.bloomType = bloomType;
+    this.blocked = blocked;
   }
 
   @Override
@@ -203,7 +227,7 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
     if (prevChunk == null) {
       // First chunk
       chunk = BloomFilterUtil.createBySize(chunkByteSize, errorRate,
-          hashType, maxFold, bloomType);
+          hashType, maxFold, bloomType, blocked);
     } else {
       // Use the same parameters as the last chunk, but a new array and
       // a zero key count.
@@ -256,7 +280,7 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
      */
     @Override
     public void write(DataOutput out) throws IOException {
-      out.writeInt(VERSION);
+      out.writeInt(blocked ? BLOCKED_VERSION : VERSION);
 
       out.writeLong(getByteSize());
       out.writeInt(prevChunk.getHashCount());
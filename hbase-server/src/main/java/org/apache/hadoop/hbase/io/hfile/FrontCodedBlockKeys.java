@@ -0,0 +1,428 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.ByteBufferKeyOnlyKeyValue;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.HeapSize;
+import org.apache.hadoop.hbase.util.ByteBufferUtils;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * The sorted keys of a root-level block index, front-coded in one contiguous buffer instead of
+ * one object per key. The keys are cut into groups of {@code restartInterval} keys. The first key
+ * of a group is stored whole, the others as the length of the prefix they share with the key
+ * before them and the rest of the key. The offsets of the first keys of the groups are kept in a
+ * small array, so that a lookup is a binary search over the first keys, which are compared in
+ * place, followed by a linear scan of at most one group.
+ * <p>
+ * Keys are stored as
+ * <pre>
+ * first key of a group:  vint length, key
+ * other keys:            vint shared prefix length, vint suffix length, suffix
+ * </pre>
+ */
+@InterfaceAudience.Private
+class FrontCodedBlockKeys implements HeapSize {
+  private static final long FIXED_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+      + 2 * ClassSize.REFERENCE + 3 * Bytes.SIZEOF_INT);
+
+  /**
+   * What a thread needs to look up keys, so that lookups, which are on the seek path, do not
+   * allocate anything but the keys they return.
+   */
+  private static final ThreadLocal<SearchScratch> SCRATCH =
+      ThreadLocal.withInitial(SearchScratch::new);
+
+  private final ByteBuffer buf;
+  private final int[] restartOffsets;
+  private final int numKeys;
+  private final int restartInterval;
+  /** The length of the longest key, which is what a key is decoded into at most */
+  private final int maxKeyLength;
+
+  private FrontCodedBlockKeys(ByteBuffer buf, int[] restartOffsets, int numKeys,
+      int restartInterval, int maxKeyLength) {
+    this.buf = buf;
+    this.restartOffsets = restartOffsets;
+    this.numKeys = numKeys;
+    this.restartInterval = restartInterval;
+    this.maxKeyLength = maxKeyLength;
+  }
+
+  /**
+   * @return the number of keys
+   */
+  int size() {
+    return numKeys;
+  }
+
+  /**
+   * @return a copy of the i-th key
+   */
+  byte[] getKey(int i) {
+    if (i < 0 || i >= numKeys) {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+    int restart = i / restartInterval;
+    int pos = restartOffsets[restart];
+    int length = readVInt(pos);
+    pos += vIntSize(length);
+    if (i % restartInterval == 0) {
+      byte[] key = new byte[length];
+      ByteBufferUtils.copyFromBufferToArray(key, buf, pos, 0, length);
+      return key;
+    }
+    byte[] key = SCRATCH.get().getKey(maxKeyLength);
+    ByteBufferUtils.copyFromBufferToArray(key, buf, pos, 0, length);
+    pos += length;
+    for (int j = restart * restartInterval + 1; j <= i; j++) {
+      int shared = readVInt(pos);
+      pos += vIntSize(shared);
+      int suffixLength = readVInt(pos);
+      pos += vIntSize(suffixLength);
+      ByteBufferUtils.copyFromBufferToArray(key, buf, pos, shared, suffixLength);
+      pos += suffixLength;
+      length = shared + suffixLength;
+    }
+    return Arrays.copyOf(key, length);
+  }
+
+  /**
+   * Searches for a key with {@link Bytes#BYTES_RAWCOMPARATOR} order. The keys are compared in
+   * place, without decoding them.
+   * @return the index of the key if it is found, otherwise (-(insertion point) - 1) like
+   *         {@link Bytes#binarySearch(byte[][], byte[], int, int)}
+   */
+  int binarySearch(byte[] key, int offset, int length) {
+    // Find the last group whose first key is not larger than the key.
+    int low = 0;
+    int high = restartOffsets.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int pos = restartOffsets[mid];
+      int keyLength = readVInt(pos);
+      int cmp = -ByteBufferUtils.compareTo(buf, pos + vIntSize(keyLength), keyLength, key,
+        offset, length);
+      if (cmp > 0) {
+        low = mid + 1;
+      } else if (cmp < 0) {
+        high = mid - 1;
+      } else {
+        return mid * restartInterval;
+      }
+    }
+    if (high < 0) {
+      return -1;
+    }
+
+    // Scan the group for the last key not larger than the key. The key is larger than the key
+    // before the one looked at, and shares its first 'matched' bytes with it. As the key looked at
+    // shares its first 'shared' bytes with the key before it, only when both are the same do
+    // their remaining bytes have to be compared.
+    int restart = high;
+    int first = restart * restartInterval;
+    int last = Math.min(first + restartInterval, numKeys) - 1;
+    int pos = restartOffsets[restart];
+    int keyLength = readVInt(pos);
+    pos += vIntSize(keyLength);
+    int matched = commonPrefixLength(pos, keyLength, key, offset, length);
+    pos += keyLength;
+    for (int i = first + 1; i <= last; i++) {
+      int shared = readVInt(pos);
+      pos += vIntSize(shared);
+      int suffixLength = readVInt(pos);
+      pos += vIntSize(suffixLength);
+      if (shared < matched) {
+        // The key looked at sorts after the key before it at a byte the key has in common with
+        // the key before it.
+        return -i - 1;
+      } else if (shared == matched) {
+        int common = commonPrefixLength(pos, suffixLength, key, offset + matched,
+          length - matched);
+        if (common == suffixLength && common == length - matched) {
+          return i;
+        } else if (common == length - matched || (common < suffixLength
+            && (buf.get(pos + common) & 0xff) > (key[offset + matched + common] & 0xff))) {
+          return -i - 1;
+        }
+        matched += common;
+      }
+      pos += suffixLength;
+    }
+    return -(last + 1) - 1;
+  }
+
+  /**
+   * @return the number of leading bytes the bytes in the buffer and the bytes of the array share
+   */
+  private int commonPrefixLength(int pos, int length, byte[] key, int offset, int keyLength) {
+    int maxLength = Math.min(length, keyLength);
+    int common = 0;
+    while (common < maxLength && buf.get(pos + common) == key[offset + common]) {
+      common++;
+    }
+    return common;
+  }
+
+  /**
+   * Searches for a cell among keys that are the keys of cells, with the given comparator.
+   * @return the index of the key if it is found, otherwise (-(insertion point) - 1) like
+   *         {@link Bytes#binarySearch(Cell[], Cell, CellComparator)}
+   */
+  int binarySearch(Cell key, CellComparator comparator) {
+    SearchScratch scratch = SCRATCH.get();
+    try {
+      return binarySearch(key, comparator, scratch);
+    } finally {
+      scratch.clear();
+    }
+  }
+
+  private int binarySearch(Cell key, CellComparator comparator, SearchScratch scratch) {
+    // Find the last group whose first key is not larger than the key.
+    int low = 0;
+    int high = restartOffsets.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int pos = restartOffsets[mid];
+      int length = readVInt(pos);
+      pos += vIntSize(length);
+      // we have to compare in this order, because the comparator order
+      // has special logic when the 'left side' is a special key.
+      int cmp;
+      if (buf.hasArray()) {
+        scratch.arrayKV.setKey(buf.array(), buf.arrayOffset() + pos, length);
+        cmp = comparator.compare(key, scratch.arrayKV);
+      } else {
+        scratch.bufferKV.setKey(buf, pos, length);
+        cmp = comparator.compare(key, scratch.bufferKV);
+      }
+      if (cmp > 0) {
+        low = mid + 1;
+      } else if (cmp < 0) {
+        high = mid - 1;
+      } else {
+        return mid * restartInterval;
+      }
+    }
+    if (high < 0) {
+      return -1;
+    }
+
+    // Scan the group for the last key not larger than the key. The keys are decoded one over the
+    // other, as the comparator needs them whole.
+    int restart = high;
+    int first = restart * restartInterval;
+    int last = Math.min(first + restartInterval, numKeys) - 1;
+    int pos = restartOffsets[restart];
+    int length = readVInt(pos);
+    pos += vIntSize(length);
+    byte[] decoded = scratch.getKey(maxKeyLength);
+    ByteBufferUtils.copyFromBufferToArray(decoded, buf, pos, 0, length);
+    pos += length;
+    for (int i = first + 1; i <= last; i++) {
+      int shared = readVInt(pos);
+      pos += vIntSize(shared);
+      int suffixLength = readVInt(pos);
+      pos += vIntSize(suffixLength);
+      ByteBufferUtils.copyFromBufferToArray(decoded, buf, pos, shared, suffixLength);
+      pos += suffixLength;
+      scratch.arrayKV.setKey(decoded, 0, shared + suffixLength);
+      int cmp = comparator.compare(key, scratch.arrayKV);
+      if (cmp == 0) {
+        return i;
+      } else if (cmp < 0) {
+        return -i - 1;
+      }
+    }
+    return -(last + 1) - 1;
+  }
+
+  private int readVInt(int pos) {
+    int result = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buf.get(pos++);
+      result |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return result;
+  }
+
+  private static int vIntSize(int value) {
+    int size = 1;
+    while ((value >>>= 7) != 0) {
+      size++;
+    }
+    return size;
+  }
+
+  @Override
+  public long heapSize() {
+    long heapSize = FIXED_OVERHEAD;
+    heapSize += ClassSize.align(ClassSize.ARRAY + restartOffsets.length * Bytes.SIZEOF_INT);
+    heapSize += ClassSize.align(ClassSize.BYTE_BUFFER);
+    if (buf.hasArray()) {
+      heapSize += ClassSize.align(ClassSize.ARRAY + buf.capacity());
+    }
+    return heapSize;
+  }
+
+  /**
+   * @return the size of the buffer holding the keys
+   */
+  int getBufferSize() {
+    return buf.capacity();
+  }
+
+  /**
+   * A buffer to decode keys into, and the cells to compare them as.
+   */
+  private static class SearchScratch {
+    private final ByteBufferKeyOnlyKeyValue bufferKV = new ByteBufferKeyOnlyKeyValue();
+    private final KeyValue.KeyOnlyKeyValue arrayKV = new KeyValue.KeyOnlyKeyValue();
+    private byte[] key = new byte[64];
+
+    /**
+     * @return a buffer of at least the given length
+     */
+    byte[] getKey(int length) {
+      if (key.length < length) {
+        key = new byte[Math.max(key.length << 1, length)];
+      }
+      return key;
+    }
+
+    /**
+     * Lets go of the keys compared last, so that a thread does not keep the keys of a closed file
+     * from being freed.
+     */
+    void clear() {
+      arrayKV.clear();
+      bufferKV.clear();
+    }
+  }
+
+  /**
+   * Builds {@link FrontCodedBlockKeys} from keys added in order.
+   */
+  static class Builder {
+    private final int numKeys;
+    private final int restartInterval;
+    private final int[] restartOffsets;
+    private byte[] bytes = new byte[64];
+    private int size = 0;
+    private byte[] prevKey = null;
+    private int count = 0;
+    private int maxKeyLength = 0;
+
+    Builder(int numKeys, int restartInterval) {
+      if (restartInterval < 1) {
+        throw new IllegalArgumentException("Invalid restart interval " + restartInterval);
+      }
+      this.numKeys = numKeys;
+      this.restartInterval = restartInterval;
+      this.restartOffsets = new int[(numKeys + restartInterval - 1) / restartInterval];
+    }
+
+    void add(byte[] key) {
+      if (count >= numKeys) {
+        throw new IllegalStateException("Already added " + numKeys + " keys");
+      }
+      if (count % restartInterval == 0) {
+        restartOffsets[count / restartInterval] = size;
+        writeVInt(key.length);
+        write(key, 0, key.length);
+      } else {
+        int shared = 0;
+        int maxShared = Math.min(prevKey.length, key.length);
+        while (shared < maxShared && prevKey[shared] == key[shared]) {
+          shared++;
+        }
+        writeVInt(shared);
+        writeVInt(key.length - shared);
+        write(key, shared, key.length - shared);
+      }
+      prevKey = key;
+      maxKeyLength = Math.max(maxKeyLength, key.length);
+      count++;
+    }
+
+    /**
+     * @return true once all keys were added
+     */
+    boolean isFull() {
+      return count == numKeys;
+    }
+
+    /**
+     * @param offHeap whether to keep the keys in a direct buffer
+     */
+    FrontCodedBlockKeys build(boolean offHeap) {
+      if (count != numKeys) {
+        throw new IllegalStateException("Added " + count + " keys, expected " + numKeys);
+      }
+      ByteBuffer buf;
+      if (offHeap) {
+        buf = ByteBuffer.allocateDirect(size);
+        buf.put(bytes, 0, size);
+        buf.clear();
+      } else {
+        buf = ByteBuffer.wrap(Arrays.copyOf(bytes, size));
+      }
+      bytes = null;
+      prevKey = null;
+      return new FrontCodedBlockKeys(buf, restartOffsets, numKeys, restartInterval,
+          maxKeyLength);
+    }
+
+    private void writeVInt(int value) {
+      while ((value & ~0x7F) != 0) {
+        writeByte((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      writeByte((byte) value);
+    }
+
+    private void writeByte(byte b) {
+      ensureCapacity(1);
+      bytes[size++] = b;
+    }
+
+    private void write(byte[] b, int offset, int length) {
+      ensureCapacity(length);
+      System.arraycopy(b, offset, bytes, size, length);
+      size += length;
+    }
+
+    private void ensureCapacity(int length) {
+      if (size + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + length));
+      }
+    }
+  }
+}
@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.io.IOUtils;
@@ -456,6 +457,17 @@ public class HFile {
 
     HFileScanner getScanner(boolean cacheBlocks, boolean pread);
 
+    /**
+     * Reads the block at the given offset into the block cache in the background, so that a
+     * later {@link #readBlock} of it does not have to wait on the file system.
+     * @param offset offset of the block
+     * @param onDiskBlockSize size of the block, or -1 if not known
+     * @param expectedDataBlockEncoding the encoding data blocks are expected in
+     * @return the pending read, or null if the block is cached already or could not be cached
+     */
+    Future<?> prefetchBlock(long offset, long onDiskBlockSize,
+        DataBlockEncoding expectedDataBlockEncoding);
+
     Compression.Algorithm getCompressionAlgorithm();
 
     /**
@@ -670,6 +682,8 @@ public class HFile {
     static final byte [] COMPARATOR = Bytes.toBytes(RESERVED_PREFIX + "COMPARATOR");
     static final byte [] TAGS_COMPRESSED = Bytes.toBytes(RESERVED_PREFIX + "TAGS_COMPRESSED");
     public static final byte [] MAX_TAGS_LEN = Bytes.toBytes(RESERVED_PREFIX + "MAX_TAGS_LEN");
+    static final byte [] COMPRESSION_DICTIONARY =
+        Bytes.toBytes(RESERVED_PREFIX + "COMPRESSION_DICTIONARY");
     private final SortedMap<byte [], byte []> map = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     public FileInfo() {
@@ -23,6 +23,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -1104,6 +1105,49 @@ public class HFileBlock implements Cacheable {
       finishBlockAndWriteHeaderAndData((DataOutputStream) out);
     }
 
+    /**
+     * Writes a data block of another file to the given stream as it is on disk, without decoding
+     * and compressing it again. Only the header is rewritten, for the offset of the previous
+     * block of the same type in this file, and the checksums are computed anew. The block must
+     * have been encoded and compressed the way this writer would have done it. Leaves the writer
+     * in the "block ready" state, with {@link #getOnDiskSizeWithHeader()} describing the block.
+     *
+     * @param block the block as read from disk, not unpacked
+     */
+    void writeRawDataBlock(HFileBlock block, FSDataOutputStream out) throws IOException {
+      Preconditions.checkArgument(block.getBlockType().isData(), "Not a data block: %s",
+        block.getBlockType());
+      if (state == State.BLOCK_READY && startOffset != -1) {
+        prevOffsetByType[blockType.getId()] = startOffset;
+      }
+      blockType = block.getBlockType();
+      prevOffset = prevOffsetByType[blockType.getId()];
+      state = State.BLOCK_READY;
+      startOffset = -1;
+
+      int onDiskDataSizeWithHeader = block.getOnDiskDataSizeWithHeader();
+      if (onDiskBlockBytesWithHeader == null) {
+        onDiskBlockBytesWithHeader = new ByteArrayOutputStream(onDiskDataSizeWithHeader);
+      }
+      onDiskBlockBytesWithHeader.reset();
+      // The header is overwritten below.
+      byte[] headerAndData = new byte[onDiskDataSizeWithHeader];
+      block.getBufferReadOnly().get(0, headerAndData, 0, onDiskDataSizeWithHeader);
+      onDiskBlockBytesWithHeader.write(headerAndData, 0, onDiskDataSizeWithHeader);
+      int numBytes = (int) ChecksumUtil.numBytes(onDiskDataSizeWithHeader,
+          fileContext.getBytesPerChecksum());
+      putHeader(onDiskBlockBytesWithHeader, onDiskDataSizeWithHeader + numBytes,
+          block.getUncompressedSizeWithoutHeader() + HConstants.HFILEBLOCK_HEADER_SIZE,
+          onDiskDataSizeWithHeader);
+      if (onDiskChecksum.length != numBytes) {
+        onDiskChecksum = new byte[numBytes];
+      }
+      ChecksumUtil.generateChecksums(
+          onDiskBlockBytesWithHeader.getBuffer(), 0, onDiskBlockBytesWithHeader.size(),
+          onDiskChecksum, 0, fileContext.getChecksumType(), fileContext.getBytesPerChecksum());
+      writeHeaderAndData(out);
+    }
+
     /**
      * Writes the header and the compressed data of this block (or uncompressed
      * data when not using compression) into the given stream. Can be called in
@@ -1202,6 +1246,28 @@ public class HFileBlock implements Cacheable {
       return baosInMemory.size();
     }
 
+    /**
+     * Copies the uncompressed, possibly encoded, data of the block that is ready, without the
+     * header. Used to sample block contents when training a compression dictionary.
+     */
+    byte[] cloneUncompressedDataWithoutHeader() {
+      expectState(State.BLOCK_READY);
+      return Arrays.copyOfRange(baosInMemory.getBuffer(), HConstants.HFILEBLOCK_HEADER_SIZE,
+        baosInMemory.size());
+    }
+
+    /**
+     * Primes compression of all following data blocks with the given preset dictionary.
+     * Index, bloom and file info blocks are always compressed without it, so a reader can
+     * load the dictionary from the file info before it needs it.
+     */
+    void setCompressionDictionary(byte[] dictionary) {
+      if (dataBlockEncodingCtx instanceof HFileBlockDefaultEncodingContext) {
+        ((HFileBlockDefaultEncodingContext) dataBlockEncodingCtx)
+            .setCompressionDictionary(dictionary);
+      }
+    }
+
     /** @return true if a block is being written  */
     boolean isWriting() {
       return state == State.WRITING;
@@ -1391,6 +1457,12 @@ public class HFileBlock implements Cacheable {
     void setIncludesMemstoreTS(boolean includesMemstoreTS);
     void setDataBlockEncoder(HFileDataBlockEncoder encoder);
 
+    /**
+     * Sets the preset dictionary data blocks of this file may have been compressed with.
+     * @param dictionary the dictionary from the file info, or null if the file has none
+     */
+    void setCompressionDictionary(byte[] dictionary);
+
     /**
      * To close the stream's socket. Note: This can be concurrently called from multiple threads and
      * implementation should take care of thread safety.
@@ -1430,6 +1502,9 @@ public class HFileBlock implements Cacheable {
     /** Default context used when BlockType != {@link BlockType#ENCODED_DATA}. */
     private final HFileBlockDefaultDecodingContext defaultDecodingCtx;
 
+    /** Preset compression dictionary of this file, or null if it has none. */
+    private byte[] compressionDictionary;
+
     /**
      * Cache of the NEXT header after this. Check it is indeed next blocks header
      * before using it. TODO: Review. This overread into next block to fetch
@@ -1817,6 +1892,17 @@ public class HFileBlock implements Cacheable {
     @Override
     public void setDataBlockEncoder(HFileDataBlockEncoder encoder) {
       encodedBlockDecodingCtx = encoder.newDataBlockDecodingContext(this.fileContext);
+      setCompressionDictionary(compressionDictionary);
+    }
+
+    @Override
+    public void setCompressionDictionary(byte[] dictionary) {
+      this.compressionDictionary = dictionary;
+      defaultDecodingCtx.setCompressionDictionary(dictionary);
+      if (encodedBlockDecodingCtx instanceof HFileBlockDefaultDecodingContext) {
+        ((HFileBlockDefaultDecodingContext) encodedBlockDecodingCtx)
+            .setCompressionDictionary(dictionary);
+      }
     }
 
     @Override
@@ -2004,7 +2090,6 @@ public class HFileBlock implements Cacheable {
   }
 
   /** @return the size of data on disk + header. Excludes checksum. */
-  @VisibleForTesting
   int getOnDiskDataSizeWithHeader() {
     return this.onDiskDataSizeWithHeader;
   }
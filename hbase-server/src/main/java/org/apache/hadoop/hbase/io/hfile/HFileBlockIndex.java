@@ -86,6 +86,23 @@ public class HFileBlockIndex {
 
   static final int DEFAULT_MIN_INDEX_NUM_ENTRIES = 16;
 
+  /**
+   * The number of keys of a group of front-coded root index keys when the root index keys are
+   * kept front-coded in one buffer instead of one object per key, see
+   * {@link FrontCodedBlockKeys}. Zero, the default, keeps one object per key.
+   */
+  public static final String FRONT_CODED_RESTART_INTERVAL_KEY =
+      "hfile.block.index.front.coded.restart.interval";
+
+  static final int DEFAULT_FRONT_CODED_RESTART_INTERVAL = 0;
+
+  /**
+   * Whether front-coded root index keys are kept in a direct buffer, off the Java heap.
+   */
+  public static final String FRONT_CODED_OFFHEAP_KEY = "hfile.block.index.front.coded.offheap";
+
+  static final boolean DEFAULT_FRONT_CODED_OFFHEAP = false;
+
   /**
    * The number of bytes stored in each "secondary index" entry in addition to
    * key bytes in the non-root index block format. The first long is the file
@@ -143,12 +160,12 @@ public class HFileBlockIndex {
           heapSize += ClassSize.align(ClassSize.ARRAY + key.length);
         }
       }
-      return heapSize;
+      return calculateHeapSizeForFrontCodedKeys(heapSize);
     }
 
     @Override
     public boolean isEmpty() {
-      return blockKeys.length == 0;
+      return frontCodedKeys != null ? frontCodedKeys.size() == 0 : blockKeys.length == 0;
     }
 
     /**
@@ -156,7 +173,7 @@ public class HFileBlockIndex {
      *          from 0 to {@link #getRootBlockCount() - 1}
      */
     public byte[] getRootBlockKey(int i) {
-      return blockKeys[i];
+      return frontCodedKeys != null ? frontCodedKeys.getKey(i) : blockKeys[i];
     }
 
     @Override
@@ -175,26 +192,31 @@ public class HFileBlockIndex {
 
     @Override
     protected void initialize(int numEntries) {
-      blockKeys = new byte[numEntries][];
+      blockKeys = initializeFrontCodedKeys(numEntries) ? null : new byte[numEntries][];
     }
 
     @Override
     protected void add(final byte[] key, final long offset, final int dataSize) {
       blockOffsets[rootCount] = offset;
-      blockKeys[rootCount] = key;
+      if (blockKeys != null) {
+        blockKeys[rootCount] = key;
+      } else {
+        addFrontCodedKey(key);
+      }
       blockDataSizes[rootCount] = dataSize;
       rootCount++;
     }
 
     @Override
     public int rootBlockContainingKey(byte[] key, int offset, int length, CellComparator comp) {
-      int pos = Bytes.binarySearch(blockKeys, key, offset, length);
+      int pos = frontCodedKeys != null ? frontCodedKeys.binarySearch(key, offset, length)
+          : Bytes.binarySearch(blockKeys, key, offset, length);
       // pos is between -(blockKeys.length + 1) to blockKeys.length - 1, see
       // binarySearch's javadoc.
 
       if (pos >= 0) {
         // This means this is an exact match with an element of blockKeys.
-        assert pos < blockKeys.length;
+        assert pos < rootCount;
         return pos;
       }
 
@@ -204,7 +226,7 @@ public class HFileBlockIndex {
       // key < blockKeys[0], meaning the file does not contain the given key.
 
       int i = -pos - 1;
-      assert 0 <= i && i <= blockKeys.length;
+      assert 0 <= i && i <= rootCount;
       return i - 1;
     }
 
@@ -221,7 +243,7 @@ public class HFileBlockIndex {
       StringBuilder sb = new StringBuilder();
       sb.append("size=" + rootCount).append("\n");
       for (int i = 0; i < rootCount; i++) {
-        sb.append("key=").append(KeyValue.keyToString(blockKeys[i]))
+        sb.append("key=").append(KeyValue.keyToString(getRootBlockKey(i)))
             .append("\n  offset=").append(blockOffsets[i])
             .append(", dataSize=" + blockDataSizes[i]).append("\n");
       }
@@ -235,7 +257,7 @@ public class HFileBlockIndex {
    * part of a cell like the Data block index or the ROW_COL bloom blocks
    * This needs a comparator to work with the Cells
    */
-   static class CellBasedKeyBlockIndexReader extends BlockIndexReader {
+  public static class CellBasedKeyBlockIndexReader extends BlockIndexReader {
 
     private Cell[] blockKeys;
     /** Pre-computed mid-key */
@@ -269,12 +291,12 @@ public class HFileBlockIndex {
       }
       // Add comparator and the midkey atomicreference
       heapSize += 2 * ClassSize.REFERENCE;
-      return heapSize;
+      return calculateHeapSizeForFrontCodedKeys(heapSize);
     }
 
     @Override
     public boolean isEmpty() {
-      return blockKeys.length == 0;
+      return frontCodedKeys != null ? frontCodedKeys.size() == 0 : blockKeys.length == 0;
     }
 
     /**
@@ -282,6 +304,10 @@ public class HFileBlockIndex {
      *          from 0 to {@link #getRootBlockCount() - 1}
      */
     public Cell getRootBlockKey(int i) {
+      if (frontCodedKeys != null) {
+        byte[] key = frontCodedKeys.getKey(i);
+        return new KeyValue.KeyOnlyKeyValue(key, 0, key.length);
+      }
       return blockKeys[i];
     }
 
@@ -301,8 +327,8 @@ public class HFileBlockIndex {
       long currentOffset = blockOffsets[rootLevelIndex];
       int currentOnDiskSize = blockDataSizes[rootLevelIndex];
 
-      if (rootLevelIndex < blockKeys.length - 1) {
-        nextIndexedKey = blockKeys[rootLevelIndex + 1];
+      if (rootLevelIndex < rootCount - 1) {
+        nextIndexedKey = getRootBlockKey(rootLevelIndex + 1);
       } else {
         nextIndexedKey = KeyValueScanner.NO_NEXT_INDEXED_KEY;
       }
@@ -438,7 +464,7 @@ public class HFileBlockIndex {
         }
       } else {
         // The middle of the root-level index.
-        targetMidKey = blockKeys[rootCount / 2];
+        targetMidKey = getRootBlockKey(rootCount / 2);
       }
 
       this.midKey.set(targetMidKey);
@@ -447,7 +473,7 @@ public class HFileBlockIndex {
 
     @Override
     protected void initialize(int numEntries) {
-      blockKeys = new Cell[numEntries];
+      blockKeys = initializeFrontCodedKeys(numEntries) ? null : new Cell[numEntries];
     }
 
     /**
@@ -460,8 +486,12 @@ public class HFileBlockIndex {
     @Override
     protected void add(final byte[] key, final long offset, final int dataSize) {
       blockOffsets[rootCount] = offset;
-      // Create the blockKeys as Cells once when the reader is opened
-      blockKeys[rootCount] = new KeyValue.KeyOnlyKeyValue(key, 0, key.length);
+      if (blockKeys != null) {
+        // Create the blockKeys as Cells once when the reader is opened
+        blockKeys[rootCount] = new KeyValue.KeyOnlyKeyValue(key, 0, key.length);
+      } else {
+        addFrontCodedKey(key);
+      }
       blockDataSizes[rootCount] = dataSize;
       rootCount++;
     }
@@ -477,13 +507,14 @@ public class HFileBlockIndex {
     @Override
     public int rootBlockContainingKey(Cell key) {
       // Here the comparator should not be null as this happens for the root-level block
-      int pos = Bytes.binarySearch(blockKeys, key, comparator);
+      int pos = frontCodedKeys != null ? frontCodedKeys.binarySearch(key, comparator)
+          : Bytes.binarySearch(blockKeys, key, comparator);
       // pos is between -(blockKeys.length + 1) to blockKeys.length - 1, see
       // binarySearch's javadoc.
 
       if (pos >= 0) {
         // This means this is an exact match with an element of blockKeys.
-        assert pos < blockKeys.length;
+        assert pos < rootCount;
         return pos;
       }
 
@@ -493,7 +524,7 @@ public class HFileBlockIndex {
       // key < blockKeys[0], meaning the file does not contain the given key.
 
       int i = -pos - 1;
-      assert 0 <= i && i <= blockKeys.length;
+      assert 0 <= i && i <= rootCount;
       return i - 1;
     }
 
@@ -502,7 +533,7 @@ public class HFileBlockIndex {
       StringBuilder sb = new StringBuilder();
       sb.append("size=" + rootCount).append("\n");
       for (int i = 0; i < rootCount; i++) {
-        sb.append("key=").append((blockKeys[i]))
+        sb.append("key=").append(getRootBlockKey(i))
             .append("\n  offset=").append(blockOffsets[i])
             .append(", dataSize=" + blockDataSizes[i]).append("\n");
       }
@@ -539,6 +570,60 @@ public class HFileBlockIndex {
     /** A way to read {@link HFile} blocks at a given offset */
     protected CachingBlockReader cachingBlockReader;
 
+    /**
+     * The root index keys when they are front-coded, see
+     * {@link #setFrontCodedKeys(int, boolean)}. Built once all root index entries are added.
+     */
+    protected FrontCodedBlockKeys frontCodedKeys;
+    private FrontCodedBlockKeys.Builder frontCodedKeysBuilder;
+    private int frontCodedRestartInterval = DEFAULT_FRONT_CODED_RESTART_INTERVAL;
+    private boolean frontCodedOffHeap = DEFAULT_FRONT_CODED_OFFHEAP;
+
+    /**
+     * Keeps the root index keys front-coded in one buffer instead of one object per key. Must be
+     * called before the root index is read.
+     * @param restartInterval the number of keys of a group, or zero to not front-code the keys
+     * @param offHeap whether to keep the keys in a direct buffer
+     */
+    public void setFrontCodedKeys(int restartInterval, boolean offHeap) {
+      this.frontCodedRestartInterval = restartInterval;
+      this.frontCodedOffHeap = offHeap;
+    }
+
+    /**
+     * Prepares the front-coded root index keys if they are enabled.
+     * @return true if the keys are front-coded
+     */
+    protected boolean initializeFrontCodedKeys(int numEntries) {
+      frontCodedKeys = null;
+      frontCodedKeysBuilder = null;
+      if (frontCodedRestartInterval <= 0) {
+        return false;
+      }
+      frontCodedKeysBuilder = new FrontCodedBlockKeys.Builder(numEntries,
+          frontCodedRestartInterval);
+      if (numEntries == 0) {
+        frontCodedKeys = frontCodedKeysBuilder.build(frontCodedOffHeap);
+        frontCodedKeysBuilder = null;
+      }
+      return true;
+    }
+
+    protected void addFrontCodedKey(byte[] key) {
+      frontCodedKeysBuilder.add(key);
+      if (frontCodedKeysBuilder.isFull()) {
+        frontCodedKeys = frontCodedKeysBuilder.build(frontCodedOffHeap);
+        frontCodedKeysBuilder = null;
+      }
+    }
+
+    protected long calculateHeapSizeForFrontCodedKeys(long heapSize) {
+      if (frontCodedKeys != null) {
+        heapSize += frontCodedKeys.heapSize();
+      }
+      return heapSize;
+    }
+
     /**
      * @return true if the block index is empty.
      */
@@ -910,8 +995,8 @@ public class HFileBlockIndex {
     @Override
     public long heapSize() {
       // The BlockIndexReader does not have the blockKey, comparator and the midkey atomic reference
-      long heapSize = ClassSize.align(3 * ClassSize.REFERENCE +
-          2 * Bytes.SIZEOF_INT + ClassSize.OBJECT);
+      long heapSize = ClassSize.align(5 * ClassSize.REFERENCE +
+          3 * Bytes.SIZEOF_INT + Bytes.SIZEOF_BOOLEAN + ClassSize.OBJECT);
 
       // Mid-key metadata.
       heapSize += MID_KEY_METADATA_SIZE;
@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import java.security.Key;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
@@ -203,6 +204,12 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     dataBlockIndexReader = new HFileBlockIndex.CellBasedKeyBlockIndexReader(comparator,
         trailer.getNumDataIndexLevels(), this);
     metaBlockIndexReader = new HFileBlockIndex.ByteArrayKeyBlockIndexReader(1);
+    int frontCodedRestartInterval = conf.getInt(HFileBlockIndex.FRONT_CODED_RESTART_INTERVAL_KEY,
+        HFileBlockIndex.DEFAULT_FRONT_CODED_RESTART_INTERVAL);
+    boolean frontCodedOffHeap = conf.getBoolean(HFileBlockIndex.FRONT_CODED_OFFHEAP_KEY,
+        HFileBlockIndex.DEFAULT_FRONT_CODED_OFFHEAP);
+    dataBlockIndexReader.setFrontCodedKeys(frontCodedRestartInterval, frontCodedOffHeap);
+    metaBlockIndexReader.setFrontCodedKeys(frontCodedRestartInterval, frontCodedOffHeap);
 
     // Parse load-on-open data.
 
@@ -243,6 +250,8 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     // Read data block encoding algorithm name from file info.
     dataBlockEncoder = HFileDataBlockEncoderImpl.createFromFileInfo(fileInfo);
     fsBlockReader.setDataBlockEncoder(dataBlockEncoder);
+    // Data blocks written after the writer trained its dictionary need it to decompress.
+    fsBlockReader.setCompressionDictionary(fileInfo.get(FileInfo.COMPRESSION_DICTIONARY));
 
     // Store all other load-on-open blocks for further consumption.
     HFileBlock b;
@@ -509,6 +518,9 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     protected HFileBlock curBlock;
     // Previous blocks that were used in the course of the read
     protected final ArrayList<HFileBlock> prevBlocks = new ArrayList<>();
+    // Background read of the block following the current one, see requestNextBlock()
+    private Future<?> nextBlockPrefetch;
+    private long nextBlockPrefetchOffset = -1;
 
     public HFileScannerImpl(final HFile.Reader reader, final boolean cacheBlocks,
         final boolean pread, final boolean isCompaction) {
@@ -1091,6 +1103,31 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
       return _next();
     }
 
+    @Override
+    public boolean requestNextBlock() {
+      if (!isSeeked() || curBlock == null || !isAtLastCellInBlock()) {
+        return false;
+      }
+      long nextBlockOffset = curBlock.getOffset() + curBlock.getOnDiskSizeWithHeader();
+      if (nextBlockPrefetch != null && nextBlockPrefetchOffset == nextBlockOffset) {
+        return !nextBlockPrefetch.isDone();
+      }
+      if (!cacheBlocks || curBlock.getOffset() >= reader.getTrailer().getLastDataBlockOffset()) {
+        return false;
+      }
+      nextBlockPrefetch = reader.prefetchBlock(nextBlockOffset, curBlock.getNextBlockOnDiskSize(),
+        getEffectiveDataBlockEncoding());
+      nextBlockPrefetchOffset = nextBlockOffset;
+      return nextBlockPrefetch != null;
+    }
+
+    /**
+     * @return true if the current cell is the last one of the current block
+     */
+    protected boolean isAtLastCellInBlock() {
+      return blockBuffer.remaining() <= getCurCellSerializedSize();
+    }
+
     /**
      * Positions this scanner at the start of the file.
      *
@@ -1513,6 +1550,36 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     }
   }
 
+  @Override
+  public Future<?> prefetchBlock(final long offset, final long onDiskBlockSize,
+      final DataBlockEncoding expectedDataBlockEncoding) {
+    if (!cacheConf.shouldCacheBlockOnRead(BlockType.BlockCategory.DATA)) {
+      return null;
+    }
+    BlockCache cache = cacheConf.getBlockCache();
+    BlockCacheKey cacheKey = new BlockCacheKey(name, offset, this.isPrimaryReplicaReader(), null);
+    Cacheable cachedBlock = cache.getBlock(cacheKey, false, false, false);
+    if (cachedBlock != null) {
+      cache.returnBlock(cacheKey, cachedBlock);
+      return null;
+    }
+    return PrefetchExecutor.requestBlock(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          // Nothing but the block cache holds on to the block, it is read to be cached.
+          returnBlock(readBlock(offset, onDiskBlockSize, true, true, false, false, null,
+            expectedDataBlockEncoding));
+        } catch (IOException e) {
+          // The reader that wanted the block will read it again and see the error itself.
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Prefetch of block at " + offset + " in " + path + " failed", e);
+          }
+        }
+      }
+    });
+  }
+
   @Override
   public boolean hasMVCCInfo() {
     return includesMemstoreTS && decodeMemstoreTS;
@@ -1662,6 +1729,11 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
       return true;
     }
 
+    @Override
+    protected boolean isAtLastCellInBlock() {
+      return seeker.isAtLastPosition();
+    }
+
     @Override
     public boolean next() throws IOException {
       boolean isValid = seeker.next();
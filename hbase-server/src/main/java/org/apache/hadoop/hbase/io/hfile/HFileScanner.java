@@ -107,6 +107,14 @@ public interface HFileScanner extends Shipper, Closeable {
    */
   boolean next() throws IOException;
 
+  /**
+   * Checks whether the following {@link #next()} has to load a block that is not in the block
+   * cache. If so, the block is read into the cache in the background, so that a caller which
+   * would rather not wait on the file system can step away and come back later.
+   * @return true while the block {@link #next()} moves to is being read in the background
+   */
+  boolean requestNextBlock();
+
   /**
    * Gets the current key in the form of a cell. You must call
    * {@link #seekTo(Cell)} before this method.
@@ -42,10 +42,13 @@ import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.CellComparator.MetaCellComparator;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.compress.CompressionDictionary;
 import org.apache.hadoop.hbase.io.crypto.Encryption;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.io.hfile.HFile.FileInfo;
 import org.apache.hadoop.hbase.io.hfile.HFileBlock.BlockWritable;
+import org.apache.hadoop.hbase.regionserver.CellSink;
+import org.apache.hadoop.hbase.regionserver.ShipperListener;
 import org.apache.hadoop.hbase.security.EncryptionUtil;
 import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.util.BloomFilterWriter;
@@ -69,6 +72,33 @@ public class HFileWriterImpl implements HFile.Writer {
   /** Block size limit after encoding, used to unify encoded block Cache entry size*/
   private final int encodedBlockSizeLimit;
 
+  /**
+   * If enabled and the file is GZ compressed, a preset dictionary is trained from the first
+   * data blocks and used to compress all following data blocks. Helps small blocks holding
+   * repetitive values. Can be set per column family.
+   */
+  public static final String COMPRESSION_DICTIONARY_ENABLED_KEY =
+      "hbase.hfile.compression.dictionary.enabled";
+  public static final boolean DEFAULT_COMPRESSION_DICTIONARY_ENABLED = false;
+
+  /** Maximum size of the trained dictionary. Deflate cannot make use of more than 32KB. */
+  public static final String COMPRESSION_DICTIONARY_SIZE_KEY =
+      "hbase.hfile.compression.dictionary.size";
+  public static final int DEFAULT_COMPRESSION_DICTIONARY_SIZE = 16 * 1024;
+
+  /** Number of leading data blocks sampled to train the dictionary. */
+  public static final String COMPRESSION_DICTIONARY_SAMPLE_BLOCKS_KEY =
+      "hbase.hfile.compression.dictionary.sample.blocks";
+  public static final int DEFAULT_COMPRESSION_DICTIONARY_SAMPLE_BLOCKS = 8;
+
+  /**
+   * Uncompressed contents of the first data blocks, collected until there are enough to train
+   * the compression dictionary. Null once trained or if no dictionary is wanted.
+   */
+  private List<byte[]> dictionarySamples;
+  private int dictionarySampleBlocks;
+  private int dictionaryMaxSize;
+
   /** The Cell previously appended. Becomes the last cell in the file.*/
   protected Cell lastCell = null;
 
@@ -307,6 +337,16 @@ public class HFileWriterImpl implements HFile.Writer {
 
     // Meta data block index writer
     metaBlockIndexWriter = new HFileBlockIndex.BlockIndexWriter();
+
+    if (hFileContext.getCompression() == Compression.Algorithm.GZ
+        && conf.getBoolean(COMPRESSION_DICTIONARY_ENABLED_KEY,
+          DEFAULT_COMPRESSION_DICTIONARY_ENABLED)) {
+      dictionarySampleBlocks = Math.max(1, conf.getInt(COMPRESSION_DICTIONARY_SAMPLE_BLOCKS_KEY,
+        DEFAULT_COMPRESSION_DICTIONARY_SAMPLE_BLOCKS));
+      dictionaryMaxSize = conf.getInt(COMPRESSION_DICTIONARY_SIZE_KEY,
+        DEFAULT_COMPRESSION_DICTIONARY_SIZE);
+      dictionarySamples = new ArrayList<>(dictionarySampleBlocks);
+    }
     if (LOG.isTraceEnabled()) LOG.trace("Initialized with " + cacheConf);
   }
 
@@ -346,6 +386,31 @@ public class HFileWriterImpl implements HFile.Writer {
     if (cacheConf.shouldCacheDataOnWrite()) {
       doCacheOnWrite(lastDataBlockOffset);
     }
+    if (dictionarySamples != null) {
+      sampleForCompressionDictionary();
+    }
+  }
+
+  /**
+   * Keeps the contents of the block just written as a training sample. Once enough blocks
+   * were sampled, trains the dictionary, records it in the file info and hands it to the
+   * block writer for all remaining data blocks.
+   */
+  private void sampleForCompressionDictionary() throws IOException {
+    dictionarySamples.add(blockWriter.cloneUncompressedDataWithoutHeader());
+    if (dictionarySamples.size() < dictionarySampleBlocks) {
+      return;
+    }
+    byte[] dictionary = CompressionDictionary.train(dictionarySamples, dictionaryMaxSize);
+    dictionarySamples = null;
+    if (dictionary == null) {
+      return;
+    }
+    fileInfo.append(FileInfo.COMPRESSION_DICTIONARY, dictionary, false);
+    blockWriter.setCompressionDictionary(dictionary);
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Trained " + dictionary.length + " byte compression dictionary for " + name);
+    }
   }
 
   /**
@@ -737,16 +802,19 @@ public class HFileWriterImpl implements HFile.Writer {
 
     blockWriter.write(cell);
 
-    totalKeyLength += CellUtil.estimatedSerializedSizeOfKey(cell);
-    totalValueLength += cell.getValueLength();
-
     // Are we the first key in this block?
     if (firstCellInBlock == null) {
       // If cell is big, block will be closed and this firstCellInBlock reference will only last
       // a short while.
       firstCellInBlock = cell;
     }
+    trackAppendedCell(cell);
+  }
 
+  /** Updates the statistics of this file for a cell that was written to it. */
+  private void trackAppendedCell(Cell cell) {
+    totalKeyLength += CellUtil.estimatedSerializedSizeOfKey(cell);
+    totalValueLength += cell.getValueLength();
     // TODO: What if cell is 10MB and we write infrequently? We hold on to cell here indefinitely?
     lastCell = cell;
     entryCount++;
@@ -757,6 +825,94 @@ public class HFileWriterImpl implements HFile.Writer {
     }
   }
 
+  /**
+   * @return whether the data blocks of the given file are encoded and compressed exactly the way
+   *         this writer would write them, so that
+   *         {@link #appendDataBlocks(HFile.Reader, CellSink, ShipperListener)} can copy them
+   */
+  public boolean canCopyDataBlocks(HFile.Reader reader) throws IOException {
+    HFileContext context = reader.getFileContext();
+    boolean tagsCompressed = hFileContext.getDataBlockEncoding() != DataBlockEncoding.NONE
+        && hFileContext.isCompressTags();
+    return reader instanceof HFileReaderImpl
+        && context.isUseHBaseChecksum()
+        && context.getCompression() == hFileContext.getCompression()
+        && reader.getDataBlockEncoding() == blockEncoder.getDataBlockEncoding()
+        && context.isIncludesMvcc() == hFileContext.isIncludesMvcc()
+        && context.isIncludesTags() == hFileContext.isIncludesTags()
+        && (!context.isIncludesTags() || context.isCompressTags() == tagsCompressed)
+        // Blocks are encrypted with the key of their file, and compressed with its dictionary.
+        && context.getEncryptionContext() == Encryption.Context.NONE
+        && hFileContext.getEncryptionContext() == Encryption.Context.NONE
+        && reader.loadFileInfo().get(FileInfo.COMPRESSION_DICTIONARY) == null
+        && dictionarySamples == null && !fileInfo.containsKey(FileInfo.COMPRESSION_DICTIONARY)
+        // Cache on write needs the unpacked blocks.
+        && !cacheConf.shouldCacheDataOnWrite()
+        && reader.getComparator().getClass() == comparator.getClass();
+  }
+
+  /**
+   * Appends all cells of the given file by copying its data blocks as they are on disk, which
+   * saves decoding, encoding and compressing them again. The cells still have to sort after the
+   * cells written before and are read once, for the statistics of this file and to be passed to
+   * the given tracker, which is expected to keep the Bloom filters and time ranges of the cells
+   * but not to write them anywhere. The file must pass {@link #canCopyDataBlocks(HFile.Reader)}.
+   * @param cellTracker is told about every cell of the file, in order
+   * @param shipperListener is called with this writer before the blocks of the file read so far
+   *          are released, so that it can copy the cells it still refers to
+   */
+  public void appendDataBlocks(HFile.Reader reader, CellSink cellTracker,
+      ShipperListener shipperListener) throws IOException {
+    finishBlock();
+    HFileBlock.FSReader blockReader = reader.getUncachedBlockReader();
+    HFileReaderImpl.HFileScannerImpl scanner =
+        (HFileReaderImpl.HFileScannerImpl) reader.getScanner(false, false, true);
+    try {
+      if (!scanner.seekTo()) {
+        return;
+      }
+      long blockOffset = UNSET;
+      do {
+        Cell cell = scanner.getCell();
+        checkKey(cell);
+        if (scanner.curBlock.getOffset() != blockOffset) {
+          blockOffset = scanner.curBlock.getOffset();
+          if (lastCell != null) {
+            writeInlineBlocks(false);
+            shipperListener.beforeShipped();
+            beforeShipped();
+            scanner.shipped();
+          }
+          // The scanner hands out decoded blocks, so the block is read once more as it is on
+          // disk. Usually it is still in the OS page cache.
+          appendRawDataBlock(blockReader.readBlockData(blockOffset,
+            scanner.curBlock.getOnDiskSizeWithHeader(), true, false), cell);
+        }
+        cellTracker.append(cell);
+        trackAppendedCell(cell);
+      } while (scanner.next());
+      writeInlineBlocks(false);
+      shipperListener.beforeShipped();
+      beforeShipped();
+    } finally {
+      scanner.close();
+    }
+  }
+
+  private void appendRawDataBlock(HFileBlock block, Cell firstCell) throws IOException {
+    long offset = outputStream.getPos();
+    if (firstDataBlockOffset == UNSET) {
+      firstDataBlockOffset = offset;
+    }
+    lastDataBlockOffset = offset;
+    blockWriter.writeRawDataBlock(block, outputStream);
+    Cell indexEntry = getMidpoint(this.comparator, lastCell, firstCell);
+    dataBlockIndexWriter.addEntry(CellUtil.getCellKeySerializedAsKeyValueKey(indexEntry),
+      offset, blockWriter.getOnDiskSizeWithHeader());
+    totalUncompressedBytes +=
+        block.getUncompressedSizeWithoutHeader() + HConstants.HFILEBLOCK_HEADER_SIZE;
+  }
+
   @Override
   public void beforeShipped() throws IOException {
     // Add clone methods for every cell
@@ -22,10 +22,12 @@ import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -49,6 +51,11 @@ public class PrefetchExecutor {
   private static final int prefetchDelayMillis;
   /** Variation in prefetch delay times, to mitigate stampedes */
   private static final float prefetchDelayVariation;
+  /**
+   * Executor pool for single block reads requested by scans, kept apart from the whole-file
+   * prefetch pool so that they do not queue up behind long running file prefetches
+   */
+  private static final ThreadPoolExecutor blockPrefetchExecutorPool;
   static {
     // Consider doing this on demand with a configuration passed in rather
     // than in a static initializer.
@@ -68,6 +75,21 @@ public class PrefetchExecutor {
           return t;
         }
     });
+    int blockPrefetchThreads = conf.getInt("hbase.hfile.thread.prefetch.block", 8);
+    int blockPrefetchQueueSize = conf.getInt("hbase.hfile.prefetch.block.queue.size", 1024);
+    blockPrefetchExecutorPool = new ThreadPoolExecutor(blockPrefetchThreads,
+      blockPrefetchThreads, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(blockPrefetchQueueSize),
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          String name = "hfile-block-prefetch-" + System.currentTimeMillis();
+          Thread t = new Thread(r, name);
+          t.setDaemon(true);
+          return t;
+        }
+    });
+    blockPrefetchExecutorPool.allowCoreThreadTimeOut(true);
   }
 
   private static final Random RNG = new Random();
@@ -109,6 +131,21 @@ public class PrefetchExecutor {
     }
   }
 
+  /**
+   * Runs a single block read in the background, right away.
+   * @return the pending read, or null if the pool is too busy to take it
+   */
+  public static Future<?> requestBlock(Runnable runnable) {
+    try {
+      return blockPrefetchExecutorPool.submit(runnable);
+    } catch (RejectedExecutionException e) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Block prefetch request rejected");
+      }
+      return null;
+    }
+  }
+
   public static void complete(Path path) {
     prefetchFutures.remove(path);
     if (LOG.isDebugEnabled()) {
@@ -23,6 +23,7 @@ import java.nio.channels.ClosedChannelException;
 import org.apache.hadoop.hbase.CallDroppedException;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
 import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
@@ -50,6 +51,9 @@ public class CallRunner {
   private RpcServerInterface rpcServer;
   private MonitoredRPCHandler status;
   private volatile boolean sucessful;
+  // Whether the calls made while running the call inherit its priority and deadline
+  private boolean inheritContext = false;
+  private int inheritedPriority = HConstants.PRIORITY_UNSET;
 
   /**
    * On construction, adds the size of this call to the running count of outstanding call sizes.
@@ -79,6 +83,16 @@ public class CallRunner {
     return (ServerCall<?>) call;
   }
 
+  /**
+   * Makes the calls to other servers that are made while running the call inherit the given
+   * priority, which the call was dispatched at, and the deadline of the call.
+   * @see InheritedRpcContext
+   */
+  void setInheritedPriority(int priority) {
+    this.inheritContext = true;
+    this.inheritedPriority = priority;
+  }
+
   public void setStatus(MonitoredRPCHandler status) {
     this.status = status;
   }
@@ -102,6 +116,9 @@ public class CallRunner {
       call.setStartTime(System.currentTimeMillis());
       if (call.getStartTime() > call.getDeadline()) {
         RpcServer.LOG.warn("Dropping timed out call: " + call);
+        if (this.rpcServer.getMetrics() != null) {
+          this.rpcServer.getMetrics().droppedExpiredCall();
+        }
         return;
       }
       this.status.setStatus("Setting up call");
@@ -115,6 +132,9 @@ public class CallRunner {
       String error = null;
       Pair<Message, CellScanner> resultPair = null;
       RpcServer.CurCall.set(call);
+      if (inheritContext) {
+        InheritedRpcContext.set(inheritedPriority, call.getDeadline());
+      }
       TraceScope traceScope = null;
       try {
         if (!this.rpcServer.isStarted()) {
@@ -133,6 +153,7 @@ public class CallRunner {
         resultPair = this.rpcServer.call(call, this.status);
       } catch (TimeoutIOException e){
         RpcServer.LOG.warn("Can not complete this request in time, drop it: " + call);
+        call.releaseResponseMemory();
         return;
       } catch (Throwable e) {
         if (e instanceof ServerNotRunningYetException) {
@@ -153,6 +174,9 @@ public class CallRunner {
           traceScope.close();
         }
         RpcServer.CurCall.set(null);
+        if (inheritContext) {
+          InheritedRpcContext.clear();
+        }
         if (resultPair != null) {
           this.rpcServer.addCallSize(call.getSize() * -1);
           sucessful = true;
@@ -20,6 +20,7 @@
 package org.apache.hadoop.hbase.ipc;
 
 import org.apache.hadoop.hbase.CallQueueTooBigException;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.MultiActionResultTooLarge;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
@@ -78,6 +79,25 @@ public class MetricsHBaseServer {
     source.dequeuedCall(qTime);
   }
 
+  /**
+   * Records the queue time of a call both overall and for the class of calls its priority puts
+   * it in, see {@link SimpleRpcScheduler#dispatch(CallRunner)}.
+   */
+  void dequeuedCall(int qTime, int priority) {
+    dequeuedCall(qTime);
+    if (priority > HConstants.QOS_THRESHOLD) {
+      source.dequeuedPriorityCall(qTime);
+    } else if (priority == HConstants.REPLICATION_QOS) {
+      source.dequeuedReplicationCall(qTime);
+    } else {
+      source.dequeuedGeneralCall(qTime);
+    }
+  }
+
+  void droppedExpiredCall() {
+    source.droppedExpiredCall();
+  }
+
   void processedCall(int processingTime) {
     source.processedCall(processingTime);
   }
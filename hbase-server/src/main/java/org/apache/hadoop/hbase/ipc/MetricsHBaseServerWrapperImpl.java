@@ -39,6 +39,14 @@ public class MetricsHBaseServerWrapperImpl implements MetricsHBaseServerWrapper
     return server.callQueueSizeInBytes.sum();
   }
 
+  @Override
+  public long getResponseMemorySize() {
+    if (!isServerStarted()) {
+      return 0;
+    }
+    return server.responseMemoryInBytes.sum();
+  }
+
   @Override
   public int getGeneralQueueLength() {
     if (!isServerStarted() || this.server.getScheduler() == null) {
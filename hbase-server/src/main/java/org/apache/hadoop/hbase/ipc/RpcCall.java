@@ -98,6 +98,12 @@ public interface RpcCall extends RpcCallContext {
    */
   long getSize();
 
+  /**
+   * Releases the response memory this call has reserved. Used when the call is dropped without
+   * sending a response, otherwise the memory is released once the response has been sent.
+   */
+  void releaseResponseMemory();
+
   /**
    * @return The request header of this call.
    */
@@ -101,4 +101,11 @@ public interface RpcCallContext {
 
   long getResponseExceptionSize();
   void incrementResponseExceptionSize(long exceptionSize);
+
+  /**
+   * Whether the responses of all running calls together have used up the memory the server allows
+   * them. Long running calls like scans and multis should stop adding to their response and
+   * return what they have when this is the case.
+   */
+  boolean isResponseMemoryExhausted();
 }
@@ -56,6 +56,15 @@ public abstract class RpcExecutor {
   /** max delay in msec used to bound the deprioritized requests */
   public static final String QUEUE_MAX_CALL_DELAY_CONF_KEY = "hbase.ipc.server.queue.max.call.delay";
 
+  /**
+   * If true, the 'deadline' call queue orders calls by the deadline their client passed along,
+   * earliest first, instead of by arrival. Calls without a timeout are given the default rpc
+   * timeout. Deprioritized calls are still delayed on top of that.
+   */
+  public static final String QUEUE_USE_CLIENT_DEADLINE_CONF_KEY =
+      "hbase.ipc.server.queue.use.client.deadline";
+  public static final boolean QUEUE_USE_CLIENT_DEADLINE_DEFAULT = false;
+
   /**
    * The default, 'fifo', has the least friction but is dumb. If set to 'deadline', uses a priority
    * queue and deprioritizes long-running scans. Sorting by priority comes at a cost, reduced
@@ -349,26 +358,38 @@ public abstract class RpcExecutor {
    * the same deadline BoundedPriorityBlockingQueue will order them in FIFO (first-in-first-out)
    * manner.
    */
-  private static class CallPriorityComparator implements Comparator<CallRunner> {
+  static class CallPriorityComparator implements Comparator<CallRunner> {
     private final static int DEFAULT_MAX_CALL_DELAY = 5000;
 
     private final PriorityFunction priority;
     private final int maxDelay;
+    private final boolean useClientDeadline;
+    private final int defaultTimeout;
 
     public CallPriorityComparator(final Configuration conf, final PriorityFunction priority) {
       this.priority = priority;
       this.maxDelay = conf.getInt(QUEUE_MAX_CALL_DELAY_CONF_KEY, DEFAULT_MAX_CALL_DELAY);
+      this.useClientDeadline = conf.getBoolean(QUEUE_USE_CLIENT_DEADLINE_CONF_KEY,
+        QUEUE_USE_CLIENT_DEADLINE_DEFAULT);
+      this.defaultTimeout = conf.getInt(HConstants.HBASE_RPC_TIMEOUT_KEY,
+        HConstants.DEFAULT_HBASE_RPC_TIMEOUT);
+    }
+
+    private long getDeadline(RpcCall call) {
+      long delay = Math.min(priority.getDeadline(call.getHeader(), call.getParam()), maxDelay);
+      if (!useClientDeadline) {
+        return call.getReceiveTime() + delay;
+      }
+      long deadline = call.getDeadline();
+      if (deadline == Long.MAX_VALUE) {
+        deadline = call.getReceiveTime() + defaultTimeout;
+      }
+      return deadline + delay;
     }
 
     @Override
     public int compare(CallRunner a, CallRunner b) {
-      RpcCall callA = a.getRpcCall();
-      RpcCall callB = b.getRpcCall();
-      long deadlineA = priority.getDeadline(callA.getHeader(), callA.getParam());
-      long deadlineB = priority.getDeadline(callB.getHeader(), callB.getParam());
-      deadlineA = callA.getReceiveTime() + Math.min(deadlineA, maxDelay);
-      deadlineB = callB.getReceiveTime() + Math.min(deadlineB, maxDelay);
-      return Long.compare(deadlineA, deadlineB);
+      return Long.compare(getDeadline(a.getRpcCall()), getDeadline(b.getRpcCall()));
     }
   }
 
@@ -151,6 +151,25 @@ public abstract class RpcServer implements RpcServerInterface,
    */
   protected final LongAdder callQueueSizeInBytes = new LongAdder();
 
+  /**
+   * Maximum size in bytes of the responses that are being built by running Calls or are waiting
+   * to be written back to the client. Calls reserve memory as they add cells to their response,
+   * see {@link RpcCallContext#incrementResponseCellSize(long)}, and hold on to it until the
+   * response has been sent. Once this size is reached, new Calls that are not high priority are
+   * rejected with a {@link CallQueueTooBigException} that the client retries, and running scans
+   * and multis return what they have gathered so far. Set this size with
+   * "hbase.ipc.server.max.response.memory"; zero, the default, means there is no limit. The
+   * current size is kept in {@link #responseMemoryInBytes}.
+   */
+  protected final long maxResponseMemoryInBytes;
+  public static final String MAX_RESPONSE_MEMORY_KEY = "hbase.ipc.server.max.response.memory";
+  protected static final long DEFAULT_MAX_RESPONSE_MEMORY = 0;
+
+  /**
+   * This is a running count of the size in bytes reserved by the responses of all calls.
+   */
+  protected final LongAdder responseMemoryInBytes = new LongAdder();
+
   protected final boolean tcpNoDelay; // if T then disable Nagle's Algorithm
   protected final boolean tcpKeepAlive; // if T then use keepalives
 
@@ -294,6 +313,8 @@ public abstract class RpcServer implements RpcServerInterface,
     // See declaration above for documentation on what this size is.
     this.maxQueueSizeInBytes =
       this.conf.getLong("hbase.ipc.server.max.callqueue.size", DEFAULT_MAX_CALLQUEUE_SIZE);
+    this.maxResponseMemoryInBytes =
+      this.conf.getLong(MAX_RESPONSE_MEMORY_KEY, DEFAULT_MAX_RESPONSE_MEMORY);
 
     this.warnResponseTime = conf.getInt(WARN_RESPONSE_TIME, DEFAULT_WARN_RESPONSE_TIME);
     this.warnResponseSize = conf.getInt(WARN_RESPONSE_SIZE, DEFAULT_WARN_RESPONSE_SIZE);
@@ -425,7 +446,7 @@ public abstract class RpcServer implements RpcServerInterface,
         responseSize += call.getResponseCellSize();
       }
 
-      metrics.dequeuedCall(qTime);
+      metrics.dequeuedCall(qTime, call.getPriority());
       metrics.processedCall(processingTime);
       metrics.totalCall(totalTime);
       metrics.receivedRequest(requestSize);
@@ -534,6 +555,19 @@ public abstract class RpcServer implements RpcServerInterface,
     this.callQueueSizeInBytes.add(diff);
   }
 
+  void addResponseMemory(final long diff) {
+    this.responseMemoryInBytes.add(diff);
+  }
+
+  /**
+   * @return true if the responses of the running and unsent calls have reserved all the memory
+   * they are allowed to, see {@link #maxResponseMemoryInBytes}
+   */
+  boolean isResponseMemoryExhausted() {
+    return this.maxResponseMemoryInBytes > 0
+        && this.responseMemoryInBytes.sum() >= this.maxResponseMemoryInBytes;
+  }
+
   /**
    * Authorize the incoming client connection.
    *
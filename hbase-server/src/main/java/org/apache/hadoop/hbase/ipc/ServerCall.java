@@ -90,6 +90,8 @@ abstract class ServerCall<T extends ServerRpcConnection> implements RpcCall, Rpc
   private long responseBlockSize = 0;
   // cumulative size of serialized exceptions
   private long exceptionSize = 0;
+  // bytes reserved against the server wide response memory, see RpcServer#responseMemoryInBytes
+  private long reservedResponseMemory = 0;
   private final boolean retryImmediatelySupported;
 
   @edu.umd.cs.findbugs.annotations.SuppressWarnings(value="NP_NULL_ON_SOME_PATH",
@@ -137,6 +139,19 @@ abstract class ServerCall<T extends ServerRpcConnection> implements RpcCall, Rpc
     // If the call was run successfuly, we might have already returned the BB
     // back to pool. No worries..Then inputCellBlock will be null
     cleanup();
+    releaseResponseMemory();
+  }
+
+  private void reserveResponseMemory(long bytes) {
+    if (this.connection != null && bytes != 0) {
+      this.connection.rpcServer.addResponseMemory(bytes);
+      this.reservedResponseMemory += bytes;
+    }
+  }
+
+  @Override
+  public void releaseResponseMemory() {
+    reserveResponseMemory(-this.reservedResponseMemory);
   }
 
   @Override
@@ -241,6 +256,8 @@ abstract class ServerCall<T extends ServerRpcConnection> implements RpcCall, Rpc
       if (connection.useWrap) {
         bc = wrapWithSasl(bc);
       }
+      // From now on the call only holds on to the serialized response.
+      reserveResponseMemory(bc.size() - this.reservedResponseMemory);
     } catch (IOException e) {
       RpcServer.LOG.warn("Exception while creating response " + e);
     }
@@ -400,6 +417,7 @@ abstract class ServerCall<T extends ServerRpcConnection> implements RpcCall, Rpc
   @Override
   public void incrementResponseCellSize(long cellSize) {
     responseCellSize += cellSize;
+    reserveResponseMemory(cellSize);
   }
 
   @Override
@@ -419,6 +437,12 @@ abstract class ServerCall<T extends ServerRpcConnection> implements RpcCall, Rpc
   @Override
   public void incrementResponseExceptionSize(long exSize) {
     exceptionSize += exSize;
+    reserveResponseMemory(exSize);
+  }
+
+  @Override
+  public boolean isResponseMemoryExhausted() {
+    return this.connection != null && this.connection.rpcServer.isResponseMemoryExhausted();
   }
 
   @Override
@@ -36,6 +36,7 @@ import org.apache.commons.crypto.random.CryptoRandom;
 import org.apache.commons.crypto.random.CryptoRandomFactory;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.client.VersionInfoUtil;
 import org.apache.hadoop.hbase.codec.Codec;
@@ -640,6 +641,19 @@ abstract class ServerRpcConnection implements Closeable {
       callTooBig.sendResponseIfReady();
       return;
     }
+    // Likewise when the responses being built or sent already hold all the memory they may.
+    // High priority calls are let through, they are small and needed to make progress.
+    if (header.getPriority() <= HConstants.NORMAL_QOS
+        && this.rpcServer.isResponseMemoryExhausted()) {
+      final ServerCall<?> callTooBig = createCall(id, this.service, null, null, null, null,
+        totalRequestSize, null, null, 0, this.callCleanup);
+      this.rpcServer.metrics.exception(RpcServer.CALL_QUEUE_TOO_BIG_EXCEPTION);
+      callTooBig.setResponse(null, null, RpcServer.CALL_QUEUE_TOO_BIG_EXCEPTION,
+        "Response memory is exhausted on " + this.rpcServer.getListenerAddress() +
+        ", is " + RpcServer.MAX_RESPONSE_MEMORY_KEY + " too small?");
+      callTooBig.sendResponseIfReady();
+      return;
+    }
     MethodDescriptor md = null;
     Message param = null;
     CellScanner cellScanner = null;
@@ -35,6 +35,15 @@ import org.apache.hadoop.hbase.conf.ConfigurationObserver;
 @InterfaceAudience.LimitedPrivate({HBaseInterfaceAudience.COPROC, HBaseInterfaceAudience.PHOENIX})
 @InterfaceStability.Evolving
 public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObserver {
+  /**
+   * If true, the calls to other servers that a handler makes while running a call inherit the
+   * priority the call was dispatched at, if it is above normal, and the deadline of the call, see
+   * {@link InheritedRpcContext}.
+   */
+  public static final String INHERIT_PRIORITY_AND_DEADLINE_CONF_KEY =
+      "hbase.ipc.server.inherit.priority.and.deadline";
+  static final boolean INHERIT_PRIORITY_AND_DEADLINE_DEFAULT = false;
+
   private int port;
   private final PriorityFunction priority;
   private final RpcExecutor callExecutor;
@@ -44,6 +53,8 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
   /** What level a high priority call is at. */
   private final int highPriorityLevel;
 
+  private final boolean inheritPriorityAndDeadline;
+
   private Abortable abortable = null;
 
   /**
@@ -71,6 +82,8 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
     this.priority = priority;
     this.highPriorityLevel = highPriorityLevel;
     this.abortable = server;
+    this.inheritPriorityAndDeadline = conf.getBoolean(INHERIT_PRIORITY_AND_DEADLINE_CONF_KEY,
+      INHERIT_PRIORITY_AND_DEADLINE_DEFAULT);
 
     String callQueueType = conf.get(RpcExecutor.CALL_QUEUE_TYPE_CONF_KEY,
       RpcExecutor.CALL_QUEUE_TYPE_CONF_DEFAULT);
@@ -158,6 +171,9 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
     if (level == HConstants.PRIORITY_UNSET) {
       level = HConstants.NORMAL_QOS;
     }
+    if (inheritPriorityAndDeadline) {
+      callTask.setInheritedPriority(level);
+    }
     if (priorityExecutor != null && level > highPriorityLevel) {
       return priorityExecutor.dispatch(callTask);
     } else if (replicationExecutor != null && level == HConstants.REPLICATION_QOS) {
@@ -270,7 +270,9 @@ class SimpleRpcServerResponder extends Thread {
           return true;
         }
         if (!processResponse(connection, resp)) {
-          connection.responseQueue.addFirst(resp);
+          if (!connection.enqueueResponse(resp, true)) {
+            resp.done();
+          }
           return false;
         }
       }
@@ -297,7 +299,11 @@ class SimpleRpcServerResponder extends Thread {
             return; // we're done.
           }
           // Too big to fit, putting ahead.
-          conn.responseQueue.addFirst(resp);
+          if (!conn.enqueueResponse(resp, true)) {
+            // The connection was closed meanwhile, nobody will ever write this response.
+            resp.done();
+            return;
+          }
           added = true; // We will register to the selector later, outside of the lock.
         }
       } finally {
@@ -305,8 +311,9 @@ class SimpleRpcServerResponder extends Thread {
       }
     }
 
-    if (!added) {
-      conn.responseQueue.addLast(resp);
+    if (!added && !conn.enqueueResponse(resp, false)) {
+      resp.done();
+      return;
     }
     registerForWrite(conn);
   }
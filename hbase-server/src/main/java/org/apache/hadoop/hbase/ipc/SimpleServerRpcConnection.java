@@ -67,6 +67,8 @@ class SimpleServerRpcConnection extends ServerRpcConnection {
   final ConcurrentLinkedDeque<RpcResponse> responseQueue = new ConcurrentLinkedDeque<>();
   final Lock responseWriteLock = new ReentrantLock();
   long lastSentTime = -1L;
+  // Guarded by this. Once closed no response is queued any more, see enqueueResponse.
+  private boolean closed = false;
 
   public SimpleServerRpcConnection(SimpleRpcServer rpcServer, SocketChannel channel,
       long lastContact) {
@@ -308,11 +310,34 @@ class SimpleServerRpcConnection extends ServerRpcConnection {
     }
   }
 
+  /**
+   * Queues a response for the responder to write. This is exclusive with {@link #close()} so that
+   * no response is left behind in the queue of a closed connection.
+   * @param first true to put the response ahead of the queued ones
+   * @return false if the connection is closed, the caller then has to release the response
+   */
+  synchronized boolean enqueueResponse(RpcResponse resp, boolean first) {
+    if (closed) {
+      return false;
+    }
+    if (first) {
+      responseQueue.addFirst(resp);
+    } else {
+      responseQueue.addLast(resp);
+    }
+    return true;
+  }
+
   @Override
   public synchronized void close() {
+    closed = true;
     disposeSasl();
     data = null;
     callCleanup = null;
+    // Responses that will never be sent still hold on to pooled buffers and response memory.
+    for (RpcResponse resp; (resp = responseQueue.pollFirst()) != null;) {
+      resp.done();
+    }
     if (!channel.isOpen()) return;
     try {
       socket.shutdownOutput();
@@ -58,6 +58,7 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.ClusterStatus;
 import org.apache.hadoop.hbase.ClusterStatus.Option;
+import org.apache.hadoop.hbase.CompoundConfiguration;
 import org.apache.hadoop.hbase.CoordinatedStateException;
 import org.apache.hadoop.hbase.CoordinatedStateManager;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
@@ -142,6 +143,8 @@ import org.apache.hadoop.hbase.procedure2.LockedResource;
 import org.apache.hadoop.hbase.procedure2.Procedure;
 import org.apache.hadoop.hbase.procedure2.ProcedureEvent;
 import org.apache.hadoop.hbase.procedure2.ProcedureExecutor;
+import org.apache.hadoop.hbase.procedure2.store.ProcedureStore;
+import org.apache.hadoop.hbase.procedure2.store.wal.ShardedProcedureStore;
 import org.apache.hadoop.hbase.procedure2.store.wal.WALProcedureStore;
 import org.apache.hadoop.hbase.quotas.MasterQuotaManager;
 import org.apache.hadoop.hbase.quotas.MasterSpaceQuotaObserver;
@@ -178,6 +181,7 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.QuotaProtos.SpaceViolat
 import org.apache.hadoop.hbase.shaded.protobuf.generated.SnapshotProtos.SnapshotDescription;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos;
 import org.apache.hadoop.hbase.util.Addressing;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.CompressionTest;
 import org.apache.hadoop.hbase.util.EncryptionTest;
@@ -355,6 +359,7 @@ public class HMaster extends HRegionServer implements MasterServices {
   private RegionNormalizer normalizer;
   private BalancerChore balancerChore;
   private RegionNormalizerChore normalizerChore;
+  private MajorCompactionChore majorCompactionChore;
   private ClusterStatusChore clusterStatusChore;
   private ClusterStatusPublisher clusterStatusPublisherChore = null;
 
@@ -402,7 +407,7 @@ public class HMaster extends HRegionServer implements MasterServices {
   private SnapshotQuotaObserverChore snapshotQuotaChore;
 
   private ProcedureExecutor<MasterProcedureEnv> procedureExecutor;
-  private WALProcedureStore procedureStore;
+  private ProcedureStore procedureStore;
 
   // handle table states
   private TableStateManager tableStateManager;
@@ -884,6 +889,10 @@ public class HMaster extends HRegionServer implements MasterServices {
     getChoreService().scheduleChore(balancerChore);
     this.normalizerChore = new RegionNormalizerChore(this);
     getChoreService().scheduleChore(normalizerChore);
+    if (conf.getBoolean(MajorCompactionChore.ENABLED_KEY, MajorCompactionChore.DEFAULT_ENABLED)) {
+      this.majorCompactionChore = new MajorCompactionChore(this);
+      getChoreService().scheduleChore(majorCompactionChore);
+    }
     this.catalogJanitorChore = new CatalogJanitor(this);
     getChoreService().scheduleChore(catalogJanitorChore);
 
@@ -1215,8 +1224,15 @@ public class HMaster extends HRegionServer implements MasterServices {
     FSUtils.setStoragePolicy(walFs, conf, walDir, HConstants.WAL_STORAGE_POLICY,
       HConstants.DEFAULT_WAL_STORAGE_POLICY);
 
-    procedureStore = new WALProcedureStore(conf, walDir.getFileSystem(conf), walDir, walArchiveDir,
-        new MasterProcedureEnv.WALStoreLeaseRecovery(this));
+    final int numShards =
+        conf.getInt(ShardedProcedureStore.SHARDS_CONF_KEY, ShardedProcedureStore.DEFAULT_SHARDS);
+    if (numShards > 1) {
+      procedureStore = new ShardedProcedureStore(conf, walFs, walDir, walArchiveDir,
+          new MasterProcedureEnv.WALStoreLeaseRecovery(this), numShards);
+    } else {
+      procedureStore = new WALProcedureStore(conf, walFs, walDir, walArchiveDir,
+          new MasterProcedureEnv.WALStoreLeaseRecovery(this));
+    }
     procedureStore.registerListener(new MasterProcedureEnv.MasterProcedureStoreListener(this));
     MasterProcedureScheduler procedureScheduler = procEnv.getProcedureScheduler();
     procedureExecutor = new ProcedureExecutor<>(conf, procEnv, procedureStore, procedureScheduler);
@@ -1260,6 +1276,9 @@ public class HMaster extends HRegionServer implements MasterServices {
     if (this.normalizerChore != null) {
       this.normalizerChore.cancel(true);
     }
+    if (this.majorCompactionChore != null) {
+      this.majorCompactionChore.cancel(true);
+    }
     if (this.clusterStatusChore != null) {
       this.clusterStatusChore.cancel(true);
     }
@@ -1896,6 +1915,13 @@ public class HMaster extends HRegionServer implements MasterServices {
       // check replication scope
       checkReplicationScope(hcd);
 
+      // check the prefix length or delimiter of row prefix Bloom filters
+      try {
+        checkBloomFilterType(conf, htd, hcd);
+      } catch (IOException e) {
+        warnOrThrowExceptionForFailure(logWarn, CONF_KEY, e.getMessage(), e);
+      }
+
       // check data replication factor, it can be 0(default value) when user has not explicitly
       // set the value, in this case we use default replication factor set in the file system.
       if (hcd.getDFSReplication() < 0) {
@@ -1920,6 +1946,22 @@ public class HMaster extends HRegionServer implements MasterServices {
     }
   }
 
+  private void checkBloomFilterType(Configuration conf, TableDescriptor htd,
+      ColumnFamilyDescriptor hcd) throws IOException {
+    // The store reads the parameters from the configuration it is opened with.
+    Configuration storeConf = new CompoundConfiguration()
+        .add(conf)
+        .addBytesMap(htd.getValues())
+        .addStringMap(hcd.getConfiguration())
+        .addBytesMap(hcd.getValues());
+    try {
+      BloomFilterUtil.getBloomFilterParam(hcd.getBloomFilterType(), storeConf);
+    } catch (IllegalArgumentException e) {
+      throw new DoNotRetryIOException("Failed to get bloom filter param for column family "
+          + hcd.getNameAsString(), e);
+    }
+  }
+
   private void checkCompactionPolicy(Configuration conf, TableDescriptor htd)
       throws IOException {
     // FIFO compaction has some requirements
@@ -2586,11 +2628,24 @@ public class HMaster extends HRegionServer implements MasterServices {
   }
 
   public int getNumWALFiles() {
-    return procedureStore != null ? procedureStore.getActiveLogs().size() : 0;
+    if (procedureStore instanceof ShardedProcedureStore) {
+      int numWALFiles = 0;
+      for (WALProcedureStore shard : ((ShardedProcedureStore) procedureStore).getShards()) {
+        numWALFiles += shard.getActiveLogs().size();
+      }
+      return numWALFiles;
+    }
+    return procedureStore != null ? getWalProcedureStore().getActiveLogs().size() : 0;
   }
 
+  /**
+   * @return the WAL procedure store, or the store of its first shard if it is sharded
+   */
   public WALProcedureStore getWalProcedureStore() {
-    return procedureStore;
+    if (procedureStore instanceof ShardedProcedureStore) {
+      return ((ShardedProcedureStore) procedureStore).getShards().get(0);
+    }
+    return (WALProcedureStore) procedureStore;
   }
 
   public int getRegionServerInfoPort(final ServerName sn) {
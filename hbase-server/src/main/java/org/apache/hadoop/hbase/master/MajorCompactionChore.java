@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.master;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.RegionLoad;
+import org.apache.hadoop.hbase.ScheduledChore;
+import org.apache.hadoop.hbase.ServerLoad;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.compactions.CurrentHourProvider;
+import org.apache.hadoop.hbase.regionserver.compactions.OffPeakHours;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hadoop.hbase.shaded.com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.hbase.shaded.com.google.protobuf.ServiceException;
+import org.apache.hadoop.hbase.shaded.protobuf.RequestConverter;
+
+/**
+ * Schedules the major compactions of the cluster from the master, instead of every region server
+ * running them when the periodic timer of a region fires. The chore learns the request rate of
+ * every table for every hour of the day from the region loads the servers report, and only
+ * requests major compactions in the hours it predicts to be the quietest of the cluster, and in
+ * the configured off-peak hours. The regions that were not major compacted for the longest time
+ * go first, with at most {@value #MAX_PER_RACK_KEY} major compactions running on the servers of a
+ * rack at once.
+ * <p>
+ * The region servers should have their own periodic major compactions disabled, by setting
+ * {@link org.apache.hadoop.hbase.HConstants#MAJOR_COMPACTION_PERIOD} to 0, when this chore is
+ * enabled. The number of major compactions requested and the number of those the regions reported
+ * done are exported as master metrics.
+ */
+@InterfaceAudience.Private
+public class MajorCompactionChore extends ScheduledChore {
+  private static final Log LOG = LogFactory.getLog(MajorCompactionChore.class);
+
+  public static final String ENABLED_KEY = "hbase.master.major.compaction.scheduler.enabled";
+  static final boolean DEFAULT_ENABLED = false;
+
+  public static final String PERIOD_KEY = "hbase.master.major.compaction.scheduler.period";
+  static final int DEFAULT_PERIOD = 5 * 60 * 1000;
+
+  /** Regions not major compacted for longer than this many milliseconds are due for one. */
+  public static final String MAX_AGE_KEY = "hbase.master.major.compaction.scheduler.max.age";
+  static final long DEFAULT_MAX_AGE = 7L * 24 * 60 * 60 * 1000;
+
+  public static final String MAX_PER_RACK_KEY =
+      "hbase.master.major.compaction.scheduler.max.per.rack";
+  static final int DEFAULT_MAX_PER_RACK = 1;
+
+  /** The number of hours of the day with the lowest predicted load to major compact in. */
+  public static final String LOW_TRAFFIC_HOURS_KEY =
+      "hbase.master.major.compaction.scheduler.low.traffic.hours";
+  static final int DEFAULT_LOW_TRAFFIC_HOURS = 6;
+
+  /**
+   * Milliseconds after which a requested major compaction that was not reported done no longer
+   * counts against the limit of its rack.
+   */
+  public static final String TIMEOUT_KEY = "hbase.master.major.compaction.scheduler.timeout";
+  static final long DEFAULT_TIMEOUT = 6L * 60 * 60 * 1000;
+
+  /** Weight of a new sample in the predicted request rate of a table for an hour. */
+  private static final double SAMPLE_WEIGHT = 0.3;
+
+  private static final int HOURS_PER_DAY = 24;
+
+  /** A major compaction requested for a region. */
+  @VisibleForTesting
+  static final class PlannedCompaction {
+    final byte[] regionName;
+    final ServerName server;
+    final String rack;
+    final long requestTime;
+
+    PlannedCompaction(byte[] regionName, ServerName server, String rack, long requestTime) {
+      this.regionName = regionName;
+      this.server = server;
+      this.rack = rack;
+      this.requestTime = requestTime;
+    }
+  }
+
+  private final MasterServices master;
+  private final RackManager rackManager;
+  private final OffPeakHours offPeakHours;
+  private final long maxAge;
+  private final int maxPerRack;
+  private final int lowTrafficHours;
+  private final long timeout;
+
+  /** Predicted requests per second of every table in every hour of the day. */
+  private final Map<TableName, double[]> predictedRates = new HashMap<>();
+  private final boolean[] sampledHours = new boolean[HOURS_PER_DAY];
+  /** Read and write request counts of every region at the last sample. */
+  private Map<byte[], Long> lastRequestCounts = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+  private long lastSampleTime = -1;
+
+  /** Major compactions requested and not yet reported done, by region name. */
+  private final Map<byte[], PlannedCompaction> running = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+  private long plannedCount;
+  private long executedCount;
+
+  public MajorCompactionChore(HMaster master) {
+    this(master, master.getConfiguration(), new RackManager(master.getConfiguration()));
+  }
+
+  @VisibleForTesting
+  MajorCompactionChore(MasterServices master, Configuration conf, RackManager rackManager) {
+    super(master.getServerName() + "-MajorCompactionChore", master,
+      conf.getInt(PERIOD_KEY, DEFAULT_PERIOD));
+    this.master = master;
+    this.rackManager = rackManager;
+    this.offPeakHours = OffPeakHours.getInstance(conf);
+    this.maxAge = conf.getLong(MAX_AGE_KEY, DEFAULT_MAX_AGE);
+    this.maxPerRack = conf.getInt(MAX_PER_RACK_KEY, DEFAULT_MAX_PER_RACK);
+    this.lowTrafficHours = conf.getInt(LOW_TRAFFIC_HOURS_KEY, DEFAULT_LOW_TRAFFIC_HOURS);
+    this.timeout = conf.getLong(TIMEOUT_KEY, DEFAULT_TIMEOUT);
+  }
+
+  @Override
+  protected void chore() {
+    Map<ServerName, ServerLoad> servers = master.getServerManager().getOnlineServers();
+    long now = EnvironmentEdgeManager.currentTime();
+    int hour = CurrentHourProvider.getCurrentHour();
+    recordLoad(servers, hour, now);
+    for (PlannedCompaction compaction : planCompactions(servers, hour, now)) {
+      try {
+        master.getServerManager().getRsAdmin(compaction.server).compactRegion(null,
+          RequestConverter.buildCompactRegionRequest(compaction.regionName, true,
+            Optional.empty()));
+      } catch (IOException | ServiceException e) {
+        LOG.warn("Failed to request a major compaction of "
+            + Bytes.toStringBinary(compaction.regionName) + " on " + compaction.server, e);
+        running.remove(compaction.regionName);
+      }
+    }
+  }
+
+  /**
+   * Adds the request rates of the tables since the last sample to their predicted rates for the
+   * given hour of the day.
+   */
+  @VisibleForTesting
+  void recordLoad(Map<ServerName, ServerLoad> servers, int hour, long now) {
+    Map<TableName, Long> tableRequests = new HashMap<>();
+    Map<byte[], Long> requestCounts = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (ServerLoad serverLoad : servers.values()) {
+      for (RegionLoad regionLoad : serverLoad.getRegionsLoad().values()) {
+        long requests = regionLoad.getReadRequestsCount() + regionLoad.getWriteRequestsCount();
+        requestCounts.put(regionLoad.getName(), requests);
+        Long lastRequests = lastRequestCounts.get(regionLoad.getName());
+        // The counts start over when a region is opened again.
+        long delta = lastRequests == null || lastRequests > requests ? requests
+            : requests - lastRequests;
+        tableRequests.merge(HRegionInfo.getTable(regionLoad.getName()), delta, Long::sum);
+      }
+    }
+    lastRequestCounts = requestCounts;
+    long lastTime = lastSampleTime;
+    lastSampleTime = now;
+    if (lastTime < 0 || now <= lastTime) {
+      // The first counts only tell the totals since the regions were opened.
+      return;
+    }
+    double seconds = (now - lastTime) / 1000.0;
+    for (Map.Entry<TableName, Long> entry : tableRequests.entrySet()) {
+      double[] rates = predictedRates.computeIfAbsent(entry.getKey(),
+        t -> new double[HOURS_PER_DAY]);
+      double rate = entry.getValue() / seconds;
+      rates[hour] = sampledHours[hour] ? (1 - SAMPLE_WEIGHT) * rates[hour] + SAMPLE_WEIGHT * rate
+          : rate;
+    }
+    sampledHours[hour] = true;
+  }
+
+  /**
+   * @return the predicted requests per second of the whole cluster in the given hour of the day
+   */
+  @VisibleForTesting
+  double getPredictedRate(int hour) {
+    double rate = 0;
+    for (double[] rates : predictedRates.values()) {
+      rate += rates[hour];
+    }
+    return rate;
+  }
+
+  /**
+   * @return whether the given hour of the day is an off-peak hour, or one of the hours with the
+   *         lowest predicted load once the load of every hour was sampled
+   */
+  @VisibleForTesting
+  boolean isLowTrafficHour(int hour) {
+    if (offPeakHours.isOffPeakHour(hour)) {
+      return true;
+    }
+    for (boolean sampled : sampledHours) {
+      if (!sampled) {
+        return false;
+      }
+    }
+    double[] rates = new double[HOURS_PER_DAY];
+    for (int i = 0; i < HOURS_PER_DAY; i++) {
+      rates[i] = getPredictedRate(i);
+    }
+    double rate = rates[hour];
+    Arrays.sort(rates);
+    return lowTrafficHours > 0 && rate <= rates[Math.min(lowTrafficHours, HOURS_PER_DAY) - 1];
+  }
+
+  /**
+   * Accounts for the major compactions that completed or timed out, and picks the regions to
+   * major compact now, if the given hour is a low traffic hour.
+   * @return the major compactions to request, which are already counted as running
+   */
+  @VisibleForTesting
+  List<PlannedCompaction> planCompactions(Map<ServerName, ServerLoad> servers, int hour,
+      long now) {
+    Map<byte[], RegionLoad> regionLoads = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    Map<byte[], ServerName> regionServers = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<ServerName, ServerLoad> entry : servers.entrySet()) {
+      for (RegionLoad regionLoad : entry.getValue().getRegionsLoad().values()) {
+        regionLoads.put(regionLoad.getName(), regionLoad);
+        regionServers.put(regionLoad.getName(), entry.getKey());
+      }
+    }
+
+    Map<String, Integer> runningPerRack = new HashMap<>();
+    for (Iterator<PlannedCompaction> it = running.values().iterator(); it.hasNext();) {
+      PlannedCompaction compaction = it.next();
+      RegionLoad regionLoad = regionLoads.get(compaction.regionName);
+      // A region without store files has nothing to major compact, and never reports it done
+      if (regionLoad != null && (regionLoad.getLastMajorCompactionTs() >= compaction.requestTime
+          || regionLoad.getStorefiles() == 0)) {
+        executedCount++;
+        if (master.getMasterMetrics() != null) {
+          master.getMasterMetrics().incrementMajorCompactionsExecuted();
+        }
+        it.remove();
+      } else if (regionLoad == null || now - compaction.requestTime > timeout) {
+        LOG.info("Major compaction of " + Bytes.toStringBinary(compaction.regionName)
+            + " requested at " + compaction.requestTime + " was not reported done");
+        it.remove();
+      } else {
+        runningPerRack.merge(compaction.rack, 1, Integer::sum);
+      }
+    }
+    if (!isLowTrafficHour(hour)) {
+      return new ArrayList<>();
+    }
+
+    List<RegionLoad> due = new ArrayList<>();
+    for (RegionLoad regionLoad : regionLoads.values()) {
+      // Empty regions also report 0 as their last major compaction time. A region with store
+      // files reporting 0 was never major compacted, and is due.
+      if (!running.containsKey(regionLoad.getName()) && regionLoad.getStorefiles() > 0
+          && now - regionLoad.getLastMajorCompactionTs() >= maxAge) {
+        due.add(regionLoad);
+      }
+    }
+    due.sort((r1, r2) -> Long.compare(r1.getLastMajorCompactionTs(),
+      r2.getLastMajorCompactionTs()));
+    Map<ServerName, String> racks = new HashMap<>();
+    List<PlannedCompaction> planned = new ArrayList<>();
+    for (RegionLoad regionLoad : due) {
+      ServerName server = regionServers.get(regionLoad.getName());
+      String rack = racks.computeIfAbsent(server, rackManager::getRack);
+      if (runningPerRack.getOrDefault(rack, 0) >= maxPerRack) {
+        continue;
+      }
+      runningPerRack.merge(rack, 1, Integer::sum);
+      PlannedCompaction compaction =
+          new PlannedCompaction(regionLoad.getName(), server, rack, now);
+      running.put(compaction.regionName, compaction);
+      planned.add(compaction);
+    }
+    if (!planned.isEmpty()) {
+      plannedCount += planned.size();
+      if (master.getMasterMetrics() != null) {
+        for (int i = 0; i < planned.size(); i++) {
+          master.getMasterMetrics().incrementMajorCompactionsPlanned();
+        }
+      }
+      LOG.info("Requesting " + planned.size() + " major compaction(s) in hour " + hour
+          + " with a predicted load of " + getPredictedRate(hour) + " requests/s, "
+          + plannedCount + " planned and " + executedCount + " executed so far");
+    }
+    return planned;
+  }
+
+  @VisibleForTesting
+  long getPlannedCount() {
+    return plannedCount;
+  }
+
+  @VisibleForTesting
+  long getExecutedCount() {
+    return executedCount;
+  }
+}
@@ -75,6 +75,20 @@ public class MetricsMaster {
     masterSource.incRequests(inc);
   }
 
+  /**
+   * Counts a major compaction the master requested in a low traffic window.
+   */
+  public void incrementMajorCompactionsPlanned() {
+    masterSource.incMajorCompactionsPlanned();
+  }
+
+  /**
+   * Counts a major compaction requested by the master that the region reported done.
+   */
+  public void incrementMajorCompactionsExecuted() {
+    masterSource.incMajorCompactionsExecuted();
+  }
+
   /**
    * Sets the number of space quotas defined.
    *
@@ -27,6 +27,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.hadoop.hbase.procedure2.ProcedureExecutor;
 import org.apache.hadoop.hbase.quotas.QuotaObserverChore;
 import org.apache.hadoop.hbase.quotas.SpaceQuotaSnapshot;
 import org.apache.hadoop.hbase.zookeeper.ZooKeeperWatcher;
@@ -148,6 +149,35 @@ public class MetricsMasterWrapperImpl implements MetricsMasterWrapper {
     return master.getNumWALFiles();
   }
 
+  @Override
+  public int getNumProcedureWorkers() {
+    ProcedureExecutor<?> procExecutor = getRunningProcedureExecutor();
+    return procExecutor != null ? procExecutor.getWorkerThreadCount() : 0;
+  }
+
+  @Override
+  public int getNumActiveProcedureWorkers() {
+    ProcedureExecutor<?> procExecutor = getRunningProcedureExecutor();
+    return procExecutor != null ? procExecutor.getActiveExecutorCount() : 0;
+  }
+
+  @Override
+  public int getNumStuckProcedureWorkers() {
+    ProcedureExecutor<?> procExecutor = getRunningProcedureExecutor();
+    return procExecutor != null ? procExecutor.getStuckWorkerCount() : 0;
+  }
+
+  @Override
+  public int getNumQueuedProcedures() {
+    ProcedureExecutor<?> procExecutor = getRunningProcedureExecutor();
+    return procExecutor != null ? procExecutor.getQueuedProcedureCount() : 0;
+  }
+
+  private ProcedureExecutor<?> getRunningProcedureExecutor() {
+    ProcedureExecutor<?> procExecutor = master.getMasterProcedureExecutor();
+    return procExecutor != null && procExecutor.isRunning() ? procExecutor : null;
+  }
+
   @Override
   public Map<String,Entry<Long,Long>> getTableSpaceUtilization() {
     QuotaObserverChore quotaChore = master.getQuotaObserverChore();
@@ -48,6 +48,7 @@ import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.YouAreDeadException;
 import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.client.TableState;
 import org.apache.hadoop.hbase.exceptions.UnexpectedStateException;
 import org.apache.hadoop.hbase.master.balancer.FavoredStochasticBalancer;
@@ -1355,7 +1356,8 @@ public class AssignmentManager implements ServerListener {
 
   /**
    * Used when assign regions, this method will put system regions in
-   * front of user regions
+   * front of user regions: hbase:meta first, then the other system tables (namespace, acl,
+   * quota...), then the user tables with the highest table priority first.
    * @param regions
    * @return A list of regions with system regions at front
    */
@@ -1363,15 +1365,34 @@ public class AssignmentManager implements ServerListener {
       final List<HRegionInfo> regions) {
     if (regions == null) return Collections.emptyList();
 
+    List<HRegionInfo> metaList = new ArrayList<>();
     List<HRegionInfo> systemList = new ArrayList<>();
     List<HRegionInfo> userList = new ArrayList<>();
     for (HRegionInfo hri : regions) {
-      if (hri.isSystemTable()) systemList.add(hri);
+      if (hri.isMetaRegion()) metaList.add(hri);
+      else if (hri.isSystemTable()) systemList.add(hri);
       else userList.add(hri);
     }
-    // Append userList to systemList
-    systemList.addAll(userList);
-    return systemList;
+    // The sort is stable, regions of tables with the same priority keep their order
+    final Map<TableName, Integer> priorities = new HashMap<>();
+    userList.sort((a, b) -> Integer.compare(getTablePriority(b.getTable(), priorities),
+      getTablePriority(a.getTable(), priorities)));
+    // Append systemList and userList to metaList
+    metaList.addAll(systemList);
+    metaList.addAll(userList);
+    return metaList;
+  }
+
+  private int getTablePriority(final TableName tableName, final Map<TableName, Integer> cache) {
+    return cache.computeIfAbsent(tableName, table -> {
+      try {
+        TableDescriptor htd = master.getTableDescriptors().get(table);
+        if (htd != null) return htd.getPriority();
+      } catch (IOException e) {
+        LOG.warn("Failed to get the descriptor of " + table + ", assign with normal priority", e);
+      }
+      return HConstants.NORMAL_QOS;
+    });
   }
 
   // ============================================================================================
@@ -20,6 +20,8 @@
 package org.apache.hadoop.hbase.master.assignment;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -48,6 +50,7 @@ import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.zookeeper.MetaTableLocator;
 import org.apache.zookeeper.KeeperException;
 
+import org.apache.hadoop.hbase.shaded.com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.hbase.shaded.com.google.common.base.Preconditions;
 
 /**
@@ -60,12 +63,37 @@ public class RegionStateStore {
   /** The delimiter for meta columns for replicaIds &gt; 0 */
   protected static final char META_REPLICA_ID_DELIMITER = '_';
 
+  /**
+   * If true the region location updates made at the same time by different procedures are
+   * written to hbase:meta together, in a single batch of multi-row mutations.
+   */
+  public static final String BATCH_UPDATES_KEY = "hbase.assignment.meta.batch.updates";
+  static final boolean DEFAULT_BATCH_UPDATES = false;
+
   private final MasterServices master;
+  private final boolean batchUpdates;
 
   private MultiHConnection multiHConnection;
 
+  // The updates waiting for the batch being written to complete, and whether one is being written
+  private final Object batchLock = new Object();
+  private List<PendingUpdate> pendingUpdates = new ArrayList<>();
+  private boolean writingBatch = false;
+
+  private static final class PendingUpdate {
+    private final Put[] puts;
+    private boolean done = false;
+    private IOException exception;
+
+    PendingUpdate(final Put[] puts) {
+      this.puts = puts;
+    }
+  }
+
   public RegionStateStore(final MasterServices master) {
     this.master = master;
+    this.batchUpdates = master.getConfiguration() != null &&
+        master.getConfiguration().getBoolean(BATCH_UPDATES_KEY, DEFAULT_BATCH_UPDATES);
   }
 
   public void start() throws IOException {
@@ -197,14 +225,12 @@ public class RegionStateStore {
 
   protected void updateRegionLocation(final HRegionInfo regionInfo, final State state,
       final Put... put) throws IOException {
-    synchronized (this) {
-      if (multiHConnection == null) {
-        multiHConnection = new MultiHConnection(master.getConfiguration(), 1);
-      }
-    }
-
     try {
-      multiHConnection.processBatchCallback(Arrays.asList(put), TableName.META_TABLE_NAME, null, null);
+      if (batchUpdates) {
+        batchUpdate(put);
+      } else {
+        writeMeta(Arrays.asList(put));
+      }
     } catch (IOException e) {
       // TODO: Revist!!!! Means that if a server is loaded, then we will abort our host!
       // In tests we abort the Master!
@@ -216,6 +242,87 @@ public class RegionStateStore {
     }
   }
 
+  /**
+   * @return the number of updates waiting for the batch being written
+   */
+  @VisibleForTesting
+  int getPendingUpdateCount() {
+    synchronized (batchLock) {
+      return pendingUpdates.size();
+    }
+  }
+
+  /**
+   * Adds the puts to the next batch and waits for it to be written. The first caller finding no
+   * batch being written writes all the pending puts, so the updates coming in while a batch is
+   * written go out together in the next one.
+   */
+  private void batchUpdate(final Put[] puts) throws IOException {
+    final PendingUpdate update = new PendingUpdate(puts);
+    final List<PendingUpdate> batch;
+    synchronized (batchLock) {
+      pendingUpdates.add(update);
+      try {
+        while (writingBatch && !update.done) {
+          batchLock.wait();
+        }
+      } catch (InterruptedException e) {
+        // The update may still be written by the batch in progress
+        throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+      }
+      if (update.done) {
+        if (update.exception != null) {
+          throw update.exception;
+        }
+        return;
+      }
+      writingBatch = true;
+      batch = pendingUpdates;
+      pendingUpdates = new ArrayList<>();
+    }
+
+    IOException exception = null;
+    try {
+      final List<Put> batchPuts = new ArrayList<>(batch.size());
+      for (PendingUpdate pending: batch) {
+        batchPuts.addAll(Arrays.asList(pending.puts));
+      }
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("Writing " + batchPuts.size() + " puts of " + batch.size() +
+            " region state updates to hbase:meta");
+      }
+      writeMeta(batchPuts);
+    } catch (Throwable e) {
+      // Every update of the batch failed, whatever went wrong
+      exception = e instanceof IOException ? (IOException) e
+          : new IOException("Failed writing region state updates to hbase:meta", e);
+    } finally {
+      synchronized (batchLock) {
+        for (PendingUpdate pending: batch) {
+          pending.exception = exception;
+          pending.done = true;
+        }
+        writingBatch = false;
+        batchLock.notifyAll();
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /**
+   * Writes the puts to hbase:meta, grouped by meta region and server.
+   */
+  protected void writeMeta(final List<Put> puts) throws IOException {
+    synchronized (this) {
+      if (multiHConnection == null) {
+        multiHConnection = new MultiHConnection(master.getConfiguration(), 1);
+      }
+    }
+    multiHConnection.processBatchCallback(puts, TableName.META_TABLE_NAME, null, null);
+  }
+
   // ============================================================================================
   //  Update Region Splitting State helpers
   // ============================================================================================
@@ -67,9 +67,18 @@ import org.apache.hadoop.hbase.util.AvlUtil.AvlTreeIterator;
  * we may make smarter decisions: e.g. we can abort all the operations preceding
  * a delete table, or similar.
  *
+ * <p>When {@link #SYSTEM_TABLES_FIRST_KEY} is set, the procedures of hbase:meta and of the other
+ * system tables are kept in a run-queue of their own that is polled before the server one. This
+ * way the system regions of a crashed server are assigned as soon as a worker is free, instead of
+ * waiting behind the crash handling of all the other dead servers and the user tables.
+ *
  * <h4>Concurrency control</h4>
- * Concurrent access to member variables (tableRunQueue, serverRunQueue, locking, tableMap,
- * serverBuckets) is controlled by schedLock(). This mainly includes:<br>
+ * Concurrent access to member variables (tableRunQueue, systemTableRunQueue, serverRunQueue,
+ * locking, tableMap, serverBuckets) is controlled by schedLock(), apart from the region locks.
+ * Those are spread over stripes by region, each guarded by its own monitor, so that region
+ * procedures on different regions take and release their region locks without holding the
+ * scheduler lock. A stripe is never held while taking the scheduler lock. The scheduler lock
+ * mainly covers:<br>
  * <ul>
  *   <li>
  *     {@link #push(Procedure, boolean, boolean)}: A push will add a Queue back to run-queue
@@ -112,6 +121,7 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
 
   private final FairQueue<ServerName> serverRunQueue = new FairQueue<>();
   private final FairQueue<TableName> tableRunQueue = new FairQueue<>();
+  private final FairQueue<TableName> systemTableRunQueue = new FairQueue<>();
 
   private final ServerQueue[] serverBuckets = new ServerQueue[128];
   private TableQueue tableMap = null;
@@ -146,8 +156,15 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
   }
   private final TablePriorities tablePriorities;
 
+  public static final String SYSTEM_TABLES_FIRST_KEY =
+      "hbase.master.procedure.queue.system.tables.first";
+  static final boolean DEFAULT_SYSTEM_TABLES_FIRST = false;
+
+  private final boolean systemTablesFirst;
+
   public MasterProcedureScheduler(final Configuration conf) {
     tablePriorities = new TablePriorities(conf);
+    systemTablesFirst = conf.getBoolean(SYSTEM_TABLES_FIRST_KEY, DEFAULT_SYSTEM_TABLES_FIRST);
   }
 
   @Override
@@ -158,7 +175,8 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
   @Override
   protected void enqueue(final Procedure proc, final boolean addFront) {
     if (isTableProcedure(proc)) {
-      doAdd(tableRunQueue, getTableQueue(getTableName(proc)), proc, addFront);
+      final TableName tableName = getTableName(proc);
+      doAdd(getTableRunQueue(tableName), getTableQueue(tableName), proc, addFront);
     } else if (isServerProcedure(proc)) {
       doAdd(serverRunQueue, getServerQueue(getServerName(proc)), proc, addFront);
     } else {
@@ -189,15 +207,19 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
 
   @Override
   protected boolean queueHasRunnables() {
-    return tableRunQueue.hasRunnables() || serverRunQueue.hasRunnables();
+    return systemTableRunQueue.hasRunnables() || tableRunQueue.hasRunnables() ||
+        serverRunQueue.hasRunnables();
   }
 
   @Override
   protected Procedure dequeue() {
     // For now, let server handling have precedence over table handling; presumption is that it
     // is more important handling crashed servers than it is running the
-    // enabling/disabling tables, etc.
-    Procedure pollResult = doPoll(serverRunQueue);
+    // enabling/disabling tables, etc. The system tables, if kept apart, come before anything else.
+    Procedure pollResult = doPoll(systemTableRunQueue);
+    if (pollResult == null) {
+      pollResult = doPoll(serverRunQueue);
+    }
     if (pollResult == null) {
       pollResult = doPoll(tableRunQueue);
     }
@@ -310,14 +332,18 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
         }
       }
 
-      for (Entry<String, LockAndQueue> entry : locking.regionLocks.entrySet()) {
-        String regionName = entry.getKey();
-        LockAndQueue queue = entry.getValue();
-
-        if (queue.isLocked()) {
-          LockedResource lockedResource =
-            createLockedResource(LockedResourceType.REGION, regionName, queue);
-          lockedResources.add(lockedResource);
+      for (RegionLockStripe stripe : locking.regionLockStripes) {
+        synchronized (stripe) {
+          for (Entry<String, LockAndQueue> entry : stripe.locks.entrySet()) {
+            String regionName = entry.getKey();
+            LockAndQueue queue = entry.getValue();
+
+            if (queue.isLocked()) {
+              LockedResource lockedResource =
+                createLockedResource(LockedResourceType.REGION, regionName, queue);
+              lockedResources.add(lockedResource);
+            }
+          }
         }
       }
 
@@ -344,8 +370,11 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
           queue = locking.tableLocks.get(TableName.valueOf(resourceName));
           break;
         case REGION:
-          queue = locking.regionLocks.get(resourceName);
-          break;
+          RegionLockStripe stripe = locking.getRegionLockStripe(resourceName);
+          synchronized (stripe) {
+            queue = stripe.locks.get(resourceName);
+            return queue != null ? createLockedResource(resourceType, resourceName, queue) : null;
+          }
       }
 
       return queue != null ? createLockedResource(resourceType, resourceName, queue) : null;
@@ -373,8 +402,11 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
     }
 
     // Remove Tables
-    clear(tableMap, tableRunQueue, TABLE_QUEUE_KEY_COMPARATOR);
-    tableMap = null;
+    while (tableMap != null) {
+      TableQueue node = AvlTree.getFirst(tableMap);
+      tableMap = AvlTree.remove(tableMap, node.getKey(), TABLE_QUEUE_KEY_COMPARATOR);
+      removeFromRunQueue(getTableRunQueue(node.getKey()), node);
+    }
 
     assert size() == 0 : "expected queue size to be 0, got " + size();
   }
@@ -453,6 +485,10 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
   // ============================================================================
   //  Table Queue Lookup Helpers
   // ============================================================================
+  private FairQueue<TableName> getTableRunQueue(TableName tableName) {
+    return systemTablesFirst && tableName.isSystemTable() ? systemTableRunQueue : tableRunQueue;
+  }
+
   private TableQueue getTableQueue(TableName tableName) {
     TableQueue node = AvlTree.get(tableMap, tableName, TABLE_QUEUE_KEY_COMPARATOR);
     if (node != null) return node;
@@ -651,7 +687,7 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
         logLockedResource(LockedResourceType.TABLE, table.getNameAsString());
         return true;
       }
-      removeFromRunQueue(tableRunQueue, getTableQueue(table));
+      removeFromRunQueue(getTableRunQueue(table), getTableQueue(table));
       return false;
     } finally {
       schedUnlock();
@@ -677,7 +713,7 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
       if (namespaceLock.releaseSharedLock()) {
         waitingCount += wakeWaitingProcedures(namespaceLock);
       }
-      addToRunQueue(tableRunQueue, getTableQueue(table));
+      addToRunQueue(getTableRunQueue(table), getTableQueue(table));
       wakePollIfNeeded(waitingCount);
     } finally {
       schedUnlock();
@@ -729,7 +765,7 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
       final LockAndQueue tableLock = locking.getTableLock(table);
       int waitingCount = 0;
       if (tableLock.releaseSharedLock()) {
-        addToRunQueue(tableRunQueue, getTableQueue(table));
+        addToRunQueue(getTableRunQueue(table), getTableQueue(table));
         waitingCount += wakeWaitingProcedures(tableLock);
       }
       if (namespaceLock.releaseSharedLock()) {
@@ -761,7 +797,7 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
       if (queue.isEmpty() && tableLock.tryExclusiveLock(procedure)) {
         // remove the table from the run-queue and the map
         if (AvlIterableList.isLinked(queue)) {
-          tableRunQueue.remove(queue);
+          getTableRunQueue(table).remove(queue);
         }
         removeTableQueue(table);
       } else {
@@ -797,44 +833,65 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
   public boolean waitRegions(final Procedure procedure, final TableName table,
       final HRegionInfo... regionInfo) {
     Arrays.sort(regionInfo);
-    schedLock();
-    try {
-      // If there is parent procedure, it would have already taken xlock, so no need to take
-      // shared lock here. Otherwise, take shared lock.
-      if (!procedure.hasParent()
-          && waitTableQueueSharedLock(procedure, table) == null) {
-          return true;
+    // If there is parent procedure, it would have already taken xlock, so no need to take
+    // shared lock here. Otherwise, take shared lock.
+    if (!procedure.hasParent()
+        && waitTableQueueSharedLock(procedure, table) == null) {
+        return true;
+    }
+
+    // acquire region xlocks or wait. Only the stripes of the regions are locked.
+    final boolean traceEnabled = LOG.isTraceEnabled();
+    final boolean[] locked = new boolean[regionInfo.length];
+    final List<Procedure> nextProcs = new ArrayList<>();
+    boolean hasLock = true;
+    for (int i = 0; i < regionInfo.length; ++i) {
+      if (traceEnabled) {
+        LOG.trace(procedure + " " + table + " " + regionInfo[i].getRegionNameAsString());
+      }
+      assert table != null;
+      assert regionInfo[i] != null;
+      assert regionInfo[i].getTable() != null;
+      assert regionInfo[i].getTable().equals(table): regionInfo[i] + " " + procedure;
+      assert i == 0 || regionInfo[i] != regionInfo[i - 1] : "duplicate region: " + regionInfo[i];
+
+      final String encodedName = regionInfo[i].getEncodedName();
+      final RegionLockStripe stripe = locking.getRegionLockStripe(encodedName);
+      if (!locked[i]) {
+        synchronized (stripe) {
+          locked[i] = stripe.getLock(encodedName).tryExclusiveLock(procedure);
+        }
+      }
+      if (locked[i]) {
+        continue;
       }
 
-      // acquire region xlocks or wait
-      boolean hasLock = true;
-      final LockAndQueue[] regionLocks = new LockAndQueue[regionInfo.length];
-      for (int i = 0; i < regionInfo.length; ++i) {
-        LOG.info(procedure + " " + table + " " + regionInfo[i].getRegionNameAsString());
-        assert table != null;
-        assert regionInfo[i] != null;
-        assert regionInfo[i].getTable() != null;
-        assert regionInfo[i].getTable().equals(table): regionInfo[i] + " " + procedure;
-        assert i == 0 || regionInfo[i] != regionInfo[i - 1] : "duplicate region: " + regionInfo[i];
-
-        regionLocks[i] = locking.getRegionLock(regionInfo[i].getEncodedName());
-        if (!regionLocks[i].tryExclusiveLock(procedure)) {
-          waitProcedure(regionLocks[i], procedure);
-          hasLock = false;
-          while (i-- > 0) {
-            regionLocks[i].releaseExclusiveLock(procedure);
+      // Release the region xlocks taken so far before waiting. Once the procedure waits, the
+      // owner of the region may wake it up and another worker may run it, while this thread
+      // would still be giving back regions the procedure then owns again.
+      for (int j = 0; j < regionInfo.length; ++j) {
+        if (locked[j]) {
+          locked[j] = false;
+          final Procedure nextProc = releaseRegionLock(procedure, regionInfo[j].getEncodedName());
+          if (nextProc != null) {
+            nextProcs.add(nextProc);
           }
-          break;
         }
       }
-
-      if (!hasLock && !procedure.hasParent()) {
-        wakeTableSharedLock(procedure, table);
+      synchronized (stripe) {
+        final LockAndQueue regionLock = stripe.getLock(encodedName);
+        if (!regionLock.tryExclusiveLock(procedure)) {
+          waitProcedure(regionLock, procedure);
+          hasLock = false;
+          break;
+        }
       }
-      return !hasLock;
-    } finally {
-      schedUnlock();
+      // the region was released meanwhile, start over holding it
+      locked[i] = true;
+      i = -1;
     }
+    wakeRegionWaiters(procedure, table, nextProcs, !hasLock);
+    return !hasLock;
   }
 
   /**
@@ -854,33 +911,57 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
   public void wakeRegions(final Procedure procedure,final TableName table,
       final HRegionInfo... regionInfo) {
     Arrays.sort(regionInfo);
-    schedLock();
-    try {
-      int numProcs = 0;
-      final Procedure[] nextProcs = new Procedure[regionInfo.length];
-      for (int i = 0; i < regionInfo.length; ++i) {
-        assert regionInfo[i].getTable().equals(table);
-        assert i == 0 || regionInfo[i] != regionInfo[i - 1] : "duplicate region: " + regionInfo[i];
-
-        LockAndQueue regionLock = locking.getRegionLock(regionInfo[i].getEncodedName());
-        if (regionLock.releaseExclusiveLock(procedure)) {
-          if (!regionLock.isEmpty()) {
-            // release one procedure at the time since regions has an xlock
-            nextProcs[numProcs++] = regionLock.removeFirst();
-          } else {
-            locking.removeRegionLock(regionInfo[i].getEncodedName());
-          }
+    final List<Procedure> nextProcs = new ArrayList<>(regionInfo.length);
+    for (int i = 0; i < regionInfo.length; ++i) {
+      assert regionInfo[i].getTable().equals(table);
+      assert i == 0 || regionInfo[i] != regionInfo[i - 1] : "duplicate region: " + regionInfo[i];
+
+      final Procedure nextProc = releaseRegionLock(procedure, regionInfo[i].getEncodedName());
+      if (nextProc != null) {
+        nextProcs.add(nextProc);
+      }
+    }
+    wakeRegionWaiters(procedure, table, nextProcs, true);
+  }
+
+  /**
+   * Releases the exclusive lock of the procedure on the specified region.
+   * @return the procedure to wake up, as the first to wait for the region, or null
+   */
+  private Procedure releaseRegionLock(final Procedure procedure, final String encodedName) {
+    final RegionLockStripe stripe = locking.getRegionLockStripe(encodedName);
+    synchronized (stripe) {
+      final LockAndQueue regionLock = stripe.getLock(encodedName);
+      if (regionLock.releaseExclusiveLock(procedure)) {
+        if (!regionLock.isEmpty()) {
+          // release one procedure at the time since regions has an xlock
+          return regionLock.removeFirst();
         }
+        stripe.locks.remove(encodedName);
       }
+      return null;
+    }
+  }
 
+  /**
+   * Wakes the procedures that were waiting for the regions the procedure released, and releases
+   * the table shared-lock of the procedure if asked to.
+   */
+  private void wakeRegionWaiters(final Procedure procedure, final TableName table,
+      final List<Procedure> nextProcs, final boolean releaseTableLock) {
+    // if we have a parent, it is holding an xlock so we didn't take the shared-lock
+    final boolean releaseSharedLock = releaseTableLock && !procedure.hasParent();
+    if (nextProcs.isEmpty() && !releaseSharedLock) {
+      return;
+    }
+    schedLock();
+    try {
       // awake procedures if any
-      for (int i = numProcs - 1; i >= 0; --i) {
-        wakeProcedure(nextProcs[i]);
+      for (int i = nextProcs.size() - 1; i >= 0; --i) {
+        wakeProcedure(nextProcs.get(i));
       }
-      wakePollIfNeeded(numProcs);
-      if (!procedure.hasParent()) {
-        // release the table shared-lock.
-        // (if we have a parent, it is holding an xlock so we didn't take the shared-lock)
+      wakePollIfNeeded(nextProcs.size());
+      if (releaseSharedLock) {
         wakeTableSharedLock(procedure, table);
       }
     } finally {
@@ -938,7 +1019,8 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
       namespaceLock.releaseExclusiveLock(procedure);
       int waitingCount = 0;
       if (systemNamespaceTableLock.releaseSharedLock()) {
-        addToRunQueue(tableRunQueue, getTableQueue(TableName.NAMESPACE_TABLE_NAME));
+        addToRunQueue(getTableRunQueue(TableName.NAMESPACE_TABLE_NAME),
+            getTableQueue(TableName.NAMESPACE_TABLE_NAME));
         waitingCount += wakeWaitingProcedures(systemNamespaceTableLock);
       }
       waitingCount += wakeWaitingProcedures(namespaceLock);
@@ -1087,17 +1169,42 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
     }
   }
 
+  private static final int NUM_REGION_LOCK_STRIPES = 64;
+
+  /**
+   * The locks of the regions whose encoded names fall into one stripe, guarded by the monitor of
+   * the stripe.
+   */
+  private static class RegionLockStripe {
+    final Map<String, LockAndQueue> locks = new HashMap<>();
+
+    LockAndQueue getLock(String encodedRegionName) {
+      LockAndQueue lock = locks.get(encodedRegionName);
+      if (lock == null) {
+        lock = new LockAndQueue();
+        locks.put(encodedRegionName, lock);
+      }
+      return lock;
+    }
+  }
+
   /**
    * Locks on namespaces, tables, and regions.
    * Since LockAndQueue implementation is NOT thread-safe, schedLock() guards all calls to these
-   * locks.
+   * locks, except for the region locks which are guarded by the monitor of their stripe.
    */
   private static class SchemaLocking {
     final Map<ServerName, LockAndQueue> serverLocks = new HashMap<>();
     final Map<String, LockAndQueue> namespaceLocks = new HashMap<>();
     final Map<TableName, LockAndQueue> tableLocks = new HashMap<>();
-    // Single map for all regions irrespective of tables. Key is encoded region name.
-    final Map<String, LockAndQueue> regionLocks = new HashMap<>();
+    // Stripes of the locks of all regions irrespective of tables, by encoded region name.
+    final RegionLockStripe[] regionLockStripes = new RegionLockStripe[NUM_REGION_LOCK_STRIPES];
+
+    SchemaLocking() {
+      for (int i = 0; i < regionLockStripes.length; ++i) {
+        regionLockStripes[i] = new RegionLockStripe();
+      }
+    }
 
     private <T> LockAndQueue getLock(Map<T, LockAndQueue> map, T key) {
       LockAndQueue lock = map.get(key);
@@ -1120,12 +1227,9 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
       return getLock(namespaceLocks, namespace);
     }
 
-    LockAndQueue getRegionLock(String encodedRegionName) {
-      return getLock(regionLocks, encodedRegionName);
-    }
-
-    LockAndQueue removeRegionLock(String encodedRegionName) {
-      return regionLocks.remove(encodedRegionName);
+    RegionLockStripe getRegionLockStripe(String encodedRegionName) {
+      return regionLockStripes[Math.floorMod(encodedRegionName.hashCode(),
+        regionLockStripes.length)];
     }
 
     LockAndQueue getServerLock(ServerName serverName) {
@@ -1141,7 +1245,11 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
       serverLocks.clear();
       namespaceLocks.clear();
       tableLocks.clear();
-      regionLocks.clear();
+      for (RegionLockStripe stripe : regionLockStripes) {
+        synchronized (stripe) {
+          stripe.locks.clear();
+        }
+      }
     }
 
     @Override
@@ -1149,7 +1257,17 @@ public class MasterProcedureScheduler extends AbstractProcedureScheduler {
       return "serverLocks=" + filterUnlocked(this.serverLocks) +
         ", namespaceLocks=" + filterUnlocked(this.namespaceLocks) +
         ", tableLocks=" + filterUnlocked(this.tableLocks) +
-        ", regionLocks=" + filterUnlocked(this.regionLocks);
+        ", regionLocks=" + filterUnlockedRegions();
+    }
+
+    private String filterUnlockedRegions() {
+      Map<String, LockAndQueue> regionLocks = new HashMap<>();
+      for (RegionLockStripe stripe : regionLockStripes) {
+        synchronized (stripe) {
+          regionLocks.putAll(stripe.locks);
+        }
+      }
+      return filterUnlocked(regionLocks);
     }
 
     private String filterUnlocked(Map<?, LockAndQueue> locks) {
@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * The scan a batch of gets is run with, see {@link HRegion#batchGet(List, List, long)}. It spans
+ * the first to the last requested row and remembers the rows themselves, so that store files can
+ * be checked against the Bloom filters of all of them when the store scanners are opened.
+ */
+@InterfaceAudience.Private
+class BatchGetScan extends Scan {
+  private final List<byte[]> rows;
+
+  /**
+   * @param get the get all gets of the batch look like apart from their row
+   * @param rows the requested rows, sorted
+   */
+  BatchGetScan(Get get, List<byte[]> rows) {
+    super(get);
+    this.rows = rows;
+    withStartRow(rows.get(0), true);
+    withStopRow(rows.get(rows.size() - 1), true);
+  }
+
+  /**
+   * @return the requested rows, sorted
+   */
+  List<byte[]> getRows() {
+    return rows;
+  }
+}
@@ -77,6 +77,16 @@ public class CompactSplit implements PropagatingConfigurationObserver {
       "hbase.regionserver.regionSplitLimit";
   public static final int DEFAULT_REGION_SERVER_REGION_SPLIT_LIMIT= 1000;
 
+  /**
+   * Configuration key to order queued compactions that are not urgent by how much they cut read
+   * amplification per byte they rewrite, instead of by the number of store files their stores
+   * are away from blocking. Compactions of blocked stores and user requested compactions still
+   * go first.
+   */
+  public static final String COMPACTION_QUEUE_READ_AMP_AWARE =
+      "hbase.regionserver.compaction.queue.readamp.aware";
+  public static final boolean COMPACTION_QUEUE_READ_AMP_AWARE_DEFAULT = false;
+
   private final HRegionServer server;
   private final Configuration conf;
 
@@ -113,7 +123,10 @@ public class CompactSplit implements PropagatingConfigurationObserver {
 
     final String n = Thread.currentThread().getName();
 
-    StealJobQueue<Runnable> stealJobQueue = new StealJobQueue<Runnable>(COMPARATOR);
+    boolean readAmpAware = conf.getBoolean(COMPACTION_QUEUE_READ_AMP_AWARE,
+        COMPACTION_QUEUE_READ_AMP_AWARE_DEFAULT);
+    StealJobQueue<Runnable> stealJobQueue = new StealJobQueue<Runnable>(
+        readAmpAware ? READ_AMP_AWARE_COMPARATOR : COMPARATOR);
     this.longCompactions = new ThreadPoolExecutor(largeThreads, largeThreads,
         60, TimeUnit.SECONDS, stealJobQueue,
         new ThreadFactory() {
@@ -439,11 +452,56 @@ public class CompactSplit implements PropagatingConfigurationObserver {
     }
   };
 
+  /**
+   * Orders compactions by how much they cut read amplification per byte they rewrite, see
+   * {@link #COMPACTION_QUEUE_READ_AMP_AWARE}. Compactions that are equal in that respect are
+   * ordered like {@link #COMPARATOR} does.
+   */
+  private static final Comparator<Runnable> READ_AMP_AWARE_COMPARATOR =
+      new Comparator<Runnable>() {
+    @Override
+    public int compare(Runnable r1, Runnable r2) {
+      if (r1 instanceof CompactionRunner && r2 instanceof CompactionRunner) {
+        CompactionRunner o1 = (CompactionRunner) r1;
+        CompactionRunner o2 = (CompactionRunner) r2;
+        int cmp = compareReadAmpReduction(o1.queuedPriority, o1.readAmpReductionPerByte,
+          o2.queuedPriority, o2.readAmpReductionPerByte);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return COMPARATOR.compare(r1, r2);
+    }
+  };
+
+  /**
+   * Compares two queued compactions by how much they cut read amplification per byte they
+   * rewrite. Compactions of stores that are blocked or about to block and user requested
+   * compactions are urgent and ordered by priority instead.
+   * @return a negative number if the first compaction should run first
+   */
+  @VisibleForTesting
+  static int compareReadAmpReduction(int priority1, double readAmpReductionPerByte1,
+      int priority2, double readAmpReductionPerByte2) {
+    if (priority1 <= Store.PRIORITY_USER || priority2 <= Store.PRIORITY_USER) {
+      // less first
+      return Integer.compare(priority1, priority2);
+    }
+    // more first
+    return Double.compare(readAmpReductionPerByte2, readAmpReductionPerByte1);
+  }
+
   private final class CompactionRunner implements Runnable {
     private final HStore store;
     private final HRegion region;
     private final Optional<CompactionContext> compaction;
     private int queuedPriority;
+    /**
+     * The estimated read amplification reduction per byte rewritten. For system compactions, which
+     * select their files when they run, it is estimated as if all files of the store were
+     * compacted.
+     */
+    private final double readAmpReductionPerByte;
     private ThreadPoolExecutor parent;
     private User user;
     private long time;
@@ -456,6 +514,10 @@ public class CompactSplit implements PropagatingConfigurationObserver {
       this.compaction = compaction;
       this.queuedPriority = compaction.isPresent() ? compaction.get().getRequest().getPriority()
           : store.getCompactPriority();
+      this.readAmpReductionPerByte = compaction.isPresent()
+          ? compaction.get().getRequest().getReadAmpReductionPerByte()
+          : CompactionRequest.getReadAmpReductionPerByte(store.getStorefilesCount(),
+            store.getStorefilesSize());
       this.parent = parent;
       this.user = user;
       this.time = System.currentTimeMillis();
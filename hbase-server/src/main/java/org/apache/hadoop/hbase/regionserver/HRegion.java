@@ -6955,6 +6955,73 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     }
   }
 
+  /**
+   * Reads the rows of several gets that differ only in their row with a single region scanner.
+   * The rows are visited in sorted order and the scanner is reseeked forward from one to the
+   * next, so each store sets up its scanners once for the whole batch, store files whose Bloom
+   * filters rule out every row are left out up front, and rows that share a block reuse the
+   * current block position instead of looking it up again.
+   * <p>
+   * Coprocessor get hooks and get metrics are left to the caller. Each get must already have
+   * gone through {@link #prepareGet(Get)}.
+   * @param gets the gets; all of them must be equal to the first apart from their row and must
+   *          not have a filter. Not for meta regions, whose rows do not sort as plain bytes
+   * @param results receives the cells read for each get, in the order of <code>gets</code>
+   * @param maxResultSize stop reading rows once the cells read so far add up to this many bytes;
+   *          the entries of gets that were not reached are left null
+   * @return the scanner used, which the caller has to close once the cells are not referenced
+   *         anymore
+   */
+  RegionScanner batchGet(List<Get> gets, List<List<Cell>> results, long maxResultSize)
+      throws IOException {
+    Integer[] order = new Integer[gets.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+      results.add(null);
+    }
+    Arrays.sort(order, (a, b) -> Bytes.compareTo(gets.get(a).getRow(), gets.get(b).getRow()));
+    List<byte[]> rows = new ArrayList<>(order.length);
+    for (Integer i : order) {
+      rows.add(gets.get(i).getRow());
+    }
+
+    Scan scan = new BatchGetScan(gets.get(order[0]), rows);
+    if (scan.getLoadColumnFamiliesOnDemandValue() == null) {
+      scan.setLoadColumnFamiliesOnDemand(isLoadingCfsOnDemandDefault());
+    }
+    RegionScanner scanner = getScanner(scan);
+    try {
+      // The row the scanner returned last. It is the first row at or after the last requested
+      // one, so it may still be asked for by a later get.
+      List<Cell> current = new ArrayList<>();
+      boolean moreRows = true;
+      long resultSize = 0;
+      for (Integer i : order) {
+        byte[] row = gets.get(i).getRow();
+        if (current.isEmpty()
+            || getCellComparator().compareRows(current.get(0), row, 0, row.length) < 0) {
+          current.clear();
+          moreRows = moreRows && scanner.reseek(row) && scanner.next(current);
+        }
+        if (!current.isEmpty() && CellUtil.matchingRow(current.get(0), row)) {
+          results.set(i, new ArrayList<>(current));
+          for (Cell cell : current) {
+            resultSize += CellUtil.estimatedSerializedSizeOf(cell);
+          }
+        } else {
+          results.set(i, new ArrayList<>(0));
+        }
+        if (resultSize >= maxResultSize) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      scanner.close();
+      throw e;
+    }
+    return scanner;
+  }
+
   @Override
   public void mutateRow(RowMutations rm) throws IOException {
     // Don't need nonces here - RowMutations only supports puts and deletes
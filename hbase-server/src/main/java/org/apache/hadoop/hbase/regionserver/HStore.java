@@ -207,6 +207,7 @@ public class HStore implements Store {
   private volatile long flushedOutputFileSize = 0;
   private volatile long compactedCellsSize = 0;
   private volatile long majorCompactedCellsSize = 0;
+  private volatile long compactionOutputFileSize = 0;
 
   /**
    * Constructor
@@ -1368,6 +1369,7 @@ public class HStore implements Store {
       for (StoreFile sf : sfs) {
         outputBytes += sf.getReader().length();
       }
+      compactionOutputFileSize += outputBytes;
 
       // At this point the store will use new files for all new scanners.
       completeCompaction(filesToCompact); // update store size.
@@ -2352,7 +2354,7 @@ public class HStore implements Store {
   }
 
   public static final long FIXED_OVERHEAD =
-      ClassSize.align(ClassSize.OBJECT + (17 * ClassSize.REFERENCE) + (11 * Bytes.SIZEOF_LONG)
+      ClassSize.align(ClassSize.OBJECT + (17 * ClassSize.REFERENCE) + (12 * Bytes.SIZEOF_LONG)
               + (5 * Bytes.SIZEOF_INT) + (2 * Bytes.SIZEOF_BOOLEAN));
 
   public static final long DEEP_OVERHEAD = ClassSize.align(FIXED_OVERHEAD
@@ -2425,6 +2427,11 @@ public class HStore implements Store {
     return majorCompactedCellsSize;
   }
 
+  @Override
+  public long getCompactionOutputFileSize() {
+    return compactionOutputFileSize;
+  }
+
   /**
    * Returns the StoreEngine that is backing this concrete implementation of Store.
    * @return Returns the {@link StoreEngine} object used internally inside this HStore object.
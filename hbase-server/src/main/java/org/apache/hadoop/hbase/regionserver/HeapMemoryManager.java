@@ -34,6 +34,7 @@ import org.apache.hadoop.hbase.ScheduledChore;
 import org.apache.hadoop.hbase.Server;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.LruBlockCache;
 import org.apache.hadoop.hbase.io.hfile.ResizableBlockCache;
 import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
 import org.apache.hadoop.util.ReflectionUtils;
@@ -78,6 +79,8 @@ public class HeapMemoryManager {
   private float heapOccupancyPercent;
 
   private final ResizableBlockCache blockCache;
+  // The part of the block cache set aside for index and bloom blocks, which is not tuned
+  private final long indexCacheSize;
   // TODO : remove this and mark regionServerAccounting as the observer directly
   private final FlushRequester memStoreFlusher;
   private final Server server;
@@ -110,7 +113,9 @@ public class HeapMemoryManager {
       Server server, RegionServerAccounting regionServerAccounting) {
     ResizableBlockCache l1Cache = CacheConfig.getL1(conf);
     if (l1Cache != null) {
-      return new HeapMemoryManager(l1Cache, memStoreFlusher, server, regionServerAccounting);
+      LruBlockCache indexCache = CacheConfig.getL1IndexCache();
+      return new HeapMemoryManager(l1Cache, indexCache == null ? 0 : indexCache.getMaxSize(),
+          memStoreFlusher, server, regionServerAccounting);
     }
     return null;
   }
@@ -118,8 +123,16 @@ public class HeapMemoryManager {
   @VisibleForTesting
   HeapMemoryManager(ResizableBlockCache blockCache, FlushRequester memStoreFlusher,
                 Server server, RegionServerAccounting regionServerAccounting) {
+    this(blockCache, 0, memStoreFlusher, server, regionServerAccounting);
+  }
+
+  @VisibleForTesting
+  HeapMemoryManager(ResizableBlockCache blockCache, long indexCacheSize,
+      FlushRequester memStoreFlusher, Server server,
+      RegionServerAccounting regionServerAccounting) {
     Configuration conf = server.getConfiguration();
     this.blockCache = blockCache;
+    this.indexCacheSize = indexCacheSize;
     this.memStoreFlusher = memStoreFlusher;
     this.server = server;
     this.regionServerAccounting = regionServerAccounting;
@@ -205,6 +218,14 @@ public class HeapMemoryManager {
           + globalMemStorePercentMinRange + " and " + BLOCK_CACHE_SIZE_MAX_RANGE_KEY + " is "
           + blockCachePercentMaxRange);
     }
+    if (indexCacheSize > 0 && maxHeapSize > 0
+        && (long) (maxHeapSize * blockCachePercentMinRange) <= indexCacheSize) {
+      throw new RuntimeException("The minimum block cache size leaves no room for the "
+          + "LruBlockCache next to the index and bloom block cache of " + indexCacheSize
+          + " bytes. Please check the settings for " + BLOCK_CACHE_SIZE_MIN_RANGE_KEY + " and "
+          + CacheConfig.INDEX_BLOCK_CACHE_PERCENTAGE_KEY + " in your configuration. "
+          + BLOCK_CACHE_SIZE_MIN_RANGE_KEY + " is " + blockCachePercentMinRange);
+    }
     return tuningEnabled;
   }
 
@@ -384,7 +405,8 @@ public class HeapMemoryManager {
           LOG.info("Setting block cache heap size to " + newBlockCacheSize
               + " and memstore heap size to " + newMemstoreSize);
           blockCachePercent = blockCacheSize;
-          blockCache.setMaxSize(newBlockCacheSize);
+          // The index block cache keeps its size, the L1 gets what is left.
+          blockCache.setMaxSize(newBlockCacheSize - indexCacheSize);
           globalMemStorePercent = memstoreSize;
           // Internally sets it to RegionServerAccounting
           // TODO : Set directly on RSAccounting??
@@ -435,6 +435,12 @@ public class KeyValueHeap extends NonReversedNonLazyKeyValueScanner
     return current == null ? null : current.getNextIndexedKey();
   }
 
+  @Override
+  public boolean requestNextBlock() {
+    // only the top scanner moves on the next call
+    return current != null && current.requestNextBlock();
+  }
+
   @Override
   public void shipped() throws IOException {
     for (KeyValueScanner scanner : this.scannersForDelayedClose) {
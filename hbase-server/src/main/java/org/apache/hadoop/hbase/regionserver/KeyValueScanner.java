@@ -180,4 +180,15 @@ public interface KeyValueScanner extends Shipper, Closeable {
    * see HFileWriterImpl#getMidpoint, or null if not known.
    */
   public Cell getNextIndexedKey();
+
+  /**
+   * Checks whether the following {@link #next()} has to wait for a block to be read from the file
+   * system, and if so starts reading it in the background.
+   * @return true while the block the following {@link #next()} needs is being read in the
+   *         background
+   * @see org.apache.hadoop.hbase.io.hfile.HFileScanner#requestNextBlock()
+   */
+  default boolean requestNextBlock() {
+    return false;
+  }
 }
@@ -161,6 +161,14 @@ public class MetricsRegionServer {
     serverSource.updateCompactionOutputSize(isMajor, outputBytes);
   }
 
+  public void updateFlushThroughput(long bytesPerSecond, long sleepTime) {
+    serverSource.updateFlushThroughput(bytesPerSecond, sleepTime);
+  }
+
+  public void updateCompactionThroughput(long bytesPerSecond, long sleepTime) {
+    serverSource.updateCompactionThroughput(bytesPerSecond, sleepTime);
+  }
+
   public void updateBulkLoad(long millis) {
     this.bulkLoadTimer.updateMillis(millis);
   }
@@ -109,6 +109,7 @@ class MetricsRegionServerWrapperImpl
   private CacheStats cacheStats;
   private CacheStats l1Stats = null;
   private CacheStats l2Stats = null;
+  private CacheStats indexCacheStats = null;
   private ScheduledExecutorService executor;
   private Runnable runnable;
   private long period;
@@ -153,6 +154,7 @@ class MetricsRegionServerWrapperImpl
     if (cacheConfig != null) {
       l1Stats = cacheConfig.getL1Stats();
       l2Stats = cacheConfig.getL2Stats();
+      indexCacheStats = cacheConfig.getIndexCacheStats();
       if (this.blockCache == null) {
         this.blockCache = cacheConfig.getBlockCache();
       }
@@ -448,6 +450,38 @@ class MetricsRegionServerWrapperImpl
     return this.l2Stats.getMissRatio();
   }
 
+  @Override
+  public long getIndexCacheHitCount() {
+    if (this.indexCacheStats == null) {
+      return 0;
+    }
+    return this.indexCacheStats.getHitCount();
+  }
+
+  @Override
+  public long getIndexCacheMissCount() {
+    if (this.indexCacheStats == null) {
+      return 0;
+    }
+    return this.indexCacheStats.getMissCount();
+  }
+
+  @Override
+  public double getIndexCacheHitRatio() {
+    if (this.indexCacheStats == null) {
+      return 0;
+    }
+    return this.indexCacheStats.getHitRatio();
+  }
+
+  @Override
+  public long getIndexCacheEvictedCount() {
+    if (this.indexCacheStats == null) {
+      return 0;
+    }
+    return this.indexCacheStats.getEvictedCount();
+  }
+
   @Override public void forceRecompute() {
     this.runnable.run();
   }
@@ -54,6 +54,7 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
   private long numReferenceFiles;
   private long maxFlushQueueSize;
   private long maxCompactionQueueSize;
+  private double writeAmplification;
 
   private ScheduledFuture<?> regionMetricsUpdateTask;
 
@@ -204,6 +205,11 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
     return numReferenceFiles;
   }
 
+  @Override
+  public double getWriteAmplification() {
+    return writeAmplification;
+  }
+
   @Override
   public int getRegionHashCode() {
     return this.region.hashCode();
@@ -221,6 +227,8 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
       long tempNumReferenceFiles = 0;
       long tempMaxCompactionQueueSize = 0;
       long tempMaxFlushQueueSize = 0;
+      long tempFlushedOutputFileSize = 0;
+      long tempCompactionOutputFileSize = 0;
 
       long avgAgeNumerator = 0;
       long numHFiles = 0;
@@ -242,6 +250,8 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
           avgAgeNumerator += store.getAvgStoreFileAge() * storeHFiles;
           numHFiles += storeHFiles;
           tempNumReferenceFiles += store.getNumReferenceFiles();
+          tempFlushedOutputFileSize += store.getFlushedOutputFileSize();
+          tempCompactionOutputFileSize += store.getCompactionOutputFileSize();
         }
       }
 
@@ -258,6 +268,9 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
       }
 
       numReferenceFiles = tempNumReferenceFiles;
+      if (tempFlushedOutputFileSize != 0) {
+        writeAmplification = (double) tempCompactionOutputFileSize / tempFlushedOutputFileSize;
+      }
       tempMaxCompactionQueueSize = getNumCompactionsQueued();
       tempMaxFlushQueueSize = getNumFlushesQueued();
       if (tempMaxCompactionQueueSize > maxCompactionQueueSize) {
@@ -97,6 +97,11 @@ public class NoLimitScannerContext extends ScannerContext {
     // Do nothing. NoLimitScannerContext instances are immutable post-construction
   }
 
+  @Override
+  void suspend() {
+    // Do nothing. NoLimitScannerContext instances are immutable post-construction
+  }
+
   @Override
   NextState setScannerState(NextState state) {
     // Do nothing. NoLimitScannerContext instances are immutable post-construction
@@ -256,6 +256,30 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
    */
   static final int BATCH_ROWS_THRESHOLD_DEFAULT = 5000;
 
+  /**
+   * Minimum number of gets in a region action of a multi request for them to be served together
+   * by one region scanner, see {@link HRegion#batchGet(List, List, long)}. Only applies to region
+   * actions made up entirely of gets that differ in nothing but their row. 0 disables batching.
+   */
+  static final String BATCH_GET_MIN_SIZE_NAME = "hbase.regionserver.multi.batch.get.min.size";
+  /**
+   * Default value of {@link RSRpcServices#BATCH_GET_MIN_SIZE_NAME}
+   */
+  static final int BATCH_GET_MIN_SIZE_DEFAULT = 0;
+
+  /**
+   * Whether a scan call may be suspended, rather than hold on to its handler, when it is about to
+   * read a block that is not in the block cache. The block is read in the background and the call
+   * returns what it has collected so far as a heartbeat; the client's next call resumes the scan.
+   * Only applies to clients that handle heartbeats.
+   */
+  static final String SCAN_SUSPEND_ON_CACHE_MISS_NAME =
+      "hbase.regionserver.scan.suspend.on.cache.miss";
+  /**
+   * Default value of {@link RSRpcServices#SCAN_SUSPEND_ON_CACHE_MISS_NAME}
+   */
+  static final boolean SCAN_SUSPEND_ON_CACHE_MISS_DEFAULT = false;
+
   // Request counter. (Includes requests that are not serviced by regions.)
   // Count only once for requests with multiple actions like multi/caching-scan/replayBatch
   final LongAdder requestCount = new LongAdder();
@@ -312,6 +336,16 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
    */
   private final int rowSizeWarnThreshold;
 
+  /**
+   * Minimum number of gets in a region action to serve them with one region scanner
+   */
+  private final int batchGetMinSize;
+
+  /**
+   * Whether scan calls may be suspended on a block cache miss
+   */
+  private final boolean scanSuspendOnCacheMiss;
+
   final AtomicBoolean clearCompactionQueues = new AtomicBoolean(false);
 
   /**
@@ -778,6 +812,11 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     Object lastBlock = null;
     ClientProtos.ResultOrException.Builder resultOrExceptionBuilder = ResultOrException.newBuilder();
     boolean hasResultOrException = false;
+    Map<Integer, Object> batchedGetResults = null;
+    if (context != null && closeCallBack != null && region instanceof HRegion) {
+      batchedGetResults =
+          batchGets((HRegion) region, actions, closeCallBack, context, maxQuotaResultSize);
+    }
     for (ClientProtos.Action action : actions.getActionList()) {
       hasResultOrException = false;
       resultOrExceptionBuilder.clear();
@@ -788,7 +827,8 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
             && context.isRetryImmediatelySupported()
             && (context.getResponseCellSize() > maxQuotaResultSize
               || context.getResponseBlockSize() + context.getResponseExceptionSize()
-              > maxQuotaResultSize)) {
+              > maxQuotaResultSize
+              || (context.getResponseCellSize() > 0 && context.isResponseMemoryExhausted()))) {
 
           // We're storing the exception since the exception and reason string won't
           // change after the response size limit is reached.
@@ -822,18 +862,26 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
           continue;
         }
         if (action.hasGet()) {
-          long before = EnvironmentEdgeManager.currentTime();
-          try {
-            Get get = ProtobufUtil.toGet(action.getGet());
-            if (context != null) {
-              r = get(get, ((HRegion) region), closeCallBack, context);
-            } else {
-              r = region.get(get);
-            }
-          } finally {
-            if (regionServer.metricsRegionServer != null) {
-              regionServer.metricsRegionServer.updateGet(
-                EnvironmentEdgeManager.currentTime() - before);
+          Object batched =
+              batchedGetResults == null ? null : batchedGetResults.remove(action.getIndex());
+          if (batched instanceof IOException) {
+            throw (IOException) batched;
+          } else if (batched != null) {
+            r = (Result) batched;
+          } else {
+            long before = EnvironmentEdgeManager.currentTime();
+            try {
+              Get get = ProtobufUtil.toGet(action.getGet());
+              if (context != null) {
+                r = get(get, ((HRegion) region), closeCallBack, context);
+              } else {
+                r = region.get(get);
+              }
+            } finally {
+              if (regionServer.metricsRegionServer != null) {
+                regionServer.metricsRegionServer.updateGet(
+                  EnvironmentEdgeManager.currentTime() - before);
+              }
             }
           }
         } else if (action.hasServiceCall()) {
@@ -926,6 +974,111 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     return cellsToReturn;
   }
 
+  /**
+   * Serves the gets of a region action with one region scanner when the action is made up of
+   * enough gets that differ only in their row, see {@link HRegion#batchGet(List, List, long)}.
+   * Coprocessor get hooks still run for every get. Every get of the batch is recorded in the get
+   * metrics with an equal share of the time of the batch, as the time spent on each of them is
+   * not known.
+   * @return the {@link Result} or the {@link IOException} of every get by action index, or null
+   *         if the action does not qualify. A get that has been handed to the batch is never run
+   *         again on its own, so its coprocessor hooks run once.
+   */
+  private Map<Integer, Object> batchGets(HRegion region, RegionAction actions,
+      RegionScannersCloseCallBack closeCallBack, RpcCallContext context, long maxResultSize) {
+    if (batchGetMinSize <= 0 || actions.getActionCount() < batchGetMinSize
+        || region.getRegionInfo().isMetaRegion()) {
+      return null;
+    }
+    ClientProtos.Get shape = null;
+    for (ClientProtos.Action action : actions.getActionList()) {
+      if (!action.hasGet() || action.getGet().hasFilter()) {
+        return null;
+      }
+      ClientProtos.Get actionShape = action.getGet().toBuilder().clearRow().buildPartial();
+      if (shape == null) {
+        shape = actionShape;
+      } else if (!shape.equals(actionShape)) {
+        return null;
+      }
+    }
+
+    long before = EnvironmentEdgeManager.currentTime();
+    boolean stale = region.getRegionInfo().getReplicaId() != 0;
+    RegionCoprocessorHost coprocessorHost = region.getCoprocessorHost();
+    Map<Integer, Object> results = new HashMap<>(actions.getActionCount());
+    List<Get> gets = new ArrayList<>(actions.getActionCount());
+    List<Integer> indexes = new ArrayList<>(actions.getActionCount());
+    for (ClientProtos.Action action : actions.getActionList()) {
+      try {
+        Get get = ProtobufUtil.toGet(action.getGet());
+        region.prepareGet(get);
+        if (coprocessorHost != null) {
+          List<Cell> cells = new ArrayList<>();
+          if (coprocessorHost.preGet(get, cells)) {
+            results.put(action.getIndex(), Result.create(cells,
+              get.isCheckExistenceOnly() ? !cells.isEmpty() : null, stale));
+            continue;
+          }
+        }
+        gets.add(get);
+        indexes.add(action.getIndex());
+      } catch (IOException e) {
+        results.put(action.getIndex(), e);
+      }
+    }
+
+    if (!gets.isEmpty()) {
+      // Without retry support the client cannot be told to ask again for the gets left out, so
+      // they are all read, as they would be one by one.
+      if (!context.isRetryImmediatelySupported()) {
+        maxResultSize = Long.MAX_VALUE;
+      }
+      List<List<Cell>> cellsPerGet = new ArrayList<>(gets.size());
+      try {
+        closeCallBack.addScanner(region.batchGet(gets, cellsPerGet, maxResultSize));
+      } catch (IOException e) {
+        for (Integer index : indexes) {
+          results.put(index, e);
+        }
+        cellsPerGet = null;
+      }
+      IOException sizeIOE = null;
+      for (int i = 0; cellsPerGet != null && i < gets.size(); i++) {
+        List<Cell> cells = cellsPerGet.get(i);
+        if (cells == null) {
+          if (sizeIOE == null) {
+            sizeIOE = new MultiActionResultTooLarge("Max size exceeded in batched gets");
+          }
+          results.put(indexes.get(i), sizeIOE);
+          continue;
+        }
+        Get get = gets.get(i);
+        try {
+          if (coprocessorHost != null) {
+            coprocessorHost.postGet(get, cells);
+          }
+          results.put(indexes.get(i),
+            Result.create(cells, get.isCheckExistenceOnly() ? !cells.isEmpty() : null, stale));
+        } catch (IOException e) {
+          results.put(indexes.get(i), e);
+        }
+      }
+    }
+    int numGets = actions.getActionCount();
+    long timePerGet = (EnvironmentEdgeManager.currentTime() - before) / numGets;
+    MetricsRegion metricsRegion = region.getMetrics();
+    for (int i = 0; i < numGets; i++) {
+      if (metricsRegion != null) {
+        metricsRegion.updateGet(timePerGet);
+      }
+      if (regionServer.metricsRegionServer != null) {
+        regionServer.metricsRegionServer.updateGet(timePerGet);
+      }
+    }
+    return results;
+  }
+
   private void checkCellSizeLimit(final Region region, final Mutation m) throws IOException {
     if (!(region instanceof HRegion)) {
       return;
@@ -1157,6 +1310,9 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     this.ld = ld;
     regionServer = rs;
     rowSizeWarnThreshold = rs.conf.getInt(BATCH_ROWS_THRESHOLD_NAME, BATCH_ROWS_THRESHOLD_DEFAULT);
+    batchGetMinSize = rs.conf.getInt(BATCH_GET_MIN_SIZE_NAME, BATCH_GET_MIN_SIZE_DEFAULT);
+    scanSuspendOnCacheMiss =
+        rs.conf.getBoolean(SCAN_SUSPEND_ON_CACHE_MISS_NAME, SCAN_SUSPEND_ON_CACHE_MISS_DEFAULT);
     RpcSchedulerFactory rpcSchedulerFactory;
     try {
       Class<?> rpcSchedulerFactoryClass = rs.conf.getClass(
@@ -3053,6 +3209,8 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
         contextBuilder.setBatchLimit(scanner.getBatch());
         contextBuilder.setTimeLimit(timeScope, timeLimit);
         contextBuilder.setTrackMetrics(trackMetrics);
+        // Suspending returns like a heartbeat, so it is only possible when heartbeats are.
+        contextBuilder.setSuspendOnCacheMiss(scanSuspendOnCacheMiss && allowHeartbeatMessages);
         ScannerContext scannerContext = contextBuilder.build();
         boolean limitReached = false;
         while (numOfResults < maxResults) {
@@ -3106,7 +3264,11 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
           boolean sizeLimitReached = scannerContext.checkSizeLimit(LimitScope.BETWEEN_ROWS);
           boolean timeLimitReached = scannerContext.checkTimeLimit(LimitScope.BETWEEN_ROWS);
           boolean resultsLimitReached = numOfResults >= maxResults;
-          limitReached = sizeLimitReached || timeLimitReached || resultsLimitReached;
+          // Return what we have when the responses on this server hold all the memory they may.
+          boolean memoryLimitReached =
+              numOfResults > 0 && context != null && context.isResponseMemoryExhausted();
+          limitReached = sizeLimitReached || timeLimitReached || resultsLimitReached
+              || memoryLimitReached;
 
           if (limitReached || !moreRows) {
             if (LOG.isTraceEnabled()) {
@@ -97,12 +97,28 @@ public class ScannerContext {
 
   private Cell lastPeekedCell = null;
 
+  /**
+   * Whether the scan may be suspended rather than wait for a block that is not in the block cache.
+   * See {@link #suspend()}.
+   */
+  final boolean suspendOnCacheMiss;
+
+  /**
+   * Set once the scan has been suspended. A suspended scan counts as having reached its time limit.
+   */
+  boolean suspended;
+
   /**
    * Tracks the relevant server side metrics during scans. null when metrics should not be tracked
    */
   final ServerSideScanMetrics metrics;
 
   ScannerContext(boolean keepProgress, LimitFields limitsToCopy, boolean trackMetrics) {
+    this(keepProgress, limitsToCopy, trackMetrics, false);
+  }
+
+  ScannerContext(boolean keepProgress, LimitFields limitsToCopy, boolean trackMetrics,
+      boolean suspendOnCacheMiss) {
     this.limits = new LimitFields();
     if (limitsToCopy != null) this.limits.copy(limitsToCopy);
 
@@ -112,6 +128,7 @@ public class ScannerContext {
     this.keepProgress = keepProgress;
     this.scannerState = DEFAULT_STATE;
     this.metrics = trackMetrics ? new ServerSideScanMetrics() : null;
+    this.suspendOnCacheMiss = suspendOnCacheMiss;
   }
 
   boolean isTrackingMetrics() {
@@ -319,7 +336,35 @@ public class ScannerContext {
    * @return true when the limit is enforceable from the checker's scope and it has been reached
    */
   boolean checkTimeLimit(LimitScope checkerScope) {
-    return hasTimeLimit(checkerScope) && progress.getTime() >= limits.getTime();
+    return hasTimeLimit(checkerScope) && (suspended || progress.getTime() >= limits.getTime());
+  }
+
+  /**
+   * @param checkerScope The scope that the scan would be suspended from
+   * @return true if the scan may be suspended from the checker's scope. That is the case when it
+   *         is allowed to, has already made progress, and its time limit can be enforced from the
+   *         checker's scope, since a suspended scan returns like one that ran out of time
+   */
+  boolean canSuspend(LimitScope checkerScope) {
+    return suspendOnCacheMiss && hasTimeLimit(checkerScope)
+        && (progress.getDataSize() > 0 || progress.getHeapSize() > 0);
+  }
+
+  /**
+   * Suspend the scan, giving up the rest of its time limit. Used when the scan would otherwise
+   * block on a block read that has been started in the background: what has been collected so far
+   * is returned, freeing the handler, and the scanner picks up from where it stopped on the next
+   * call, by when the block is likely to be cached.
+   */
+  void suspend() {
+    suspended = true;
+  }
+
+  /**
+   * @return true if the scan was suspended, see {@link #suspend()}
+   */
+  boolean isSuspended() {
+    return suspended;
   }
 
   /**
@@ -356,6 +401,9 @@ public class ScannerContext {
     sb.append(", state:");
     sb.append(scannerState);
 
+    sb.append(", suspended:");
+    sb.append(suspended);
+
     sb.append("}");
     return sb.toString();
   }
@@ -371,6 +419,7 @@ public class ScannerContext {
   public static final class Builder {
     boolean keepProgress = DEFAULT_KEEP_PROGRESS;
     boolean trackMetrics = false;
+    boolean suspendOnCacheMiss = false;
     LimitFields limits = new LimitFields();
 
     private Builder() {
@@ -390,6 +439,16 @@ public class ScannerContext {
       return this;
     }
 
+    /**
+     * @param suspendOnCacheMiss whether the scan may be suspended rather than wait for a block
+     *          that is not in the block cache, see {@link ScannerContext#suspend()}. Only takes
+     *          effect together with a time limit
+     */
+    public Builder setSuspendOnCacheMiss(boolean suspendOnCacheMiss) {
+      this.suspendOnCacheMiss = suspendOnCacheMiss;
+      return this;
+    }
+
     public Builder setSizeLimit(LimitScope sizeScope, long dataSizeLimit, long heapSizeLimit) {
       limits.setDataSize(dataSizeLimit);
       limits.setHeapSize(heapSizeLimit);
@@ -409,7 +468,7 @@ public class ScannerContext {
     }
 
     public ScannerContext build() {
-      return new ScannerContext(keepProgress, limits, trackMetrics);
+      return new ScannerContext(keepProgress, limits, trackMetrics, suspendOnCacheMiss);
     }
   }
 
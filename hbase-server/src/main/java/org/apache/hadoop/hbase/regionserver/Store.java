@@ -516,6 +516,11 @@ public interface Store extends HeapSize, StoreConfigInformation, PropagatingConf
    */
   long getMajorCompactedCellsSize();
 
+  /**
+   * @return The total size of the files written by compactions, in bytes
+   */
+  long getCompactionOutputFileSize();
+
   /*
    * @param o Observer who wants to know about changes in set of Readers
    */
@@ -20,6 +20,7 @@ package org.apache.hadoop.hbase.regionserver;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -46,6 +47,7 @@ import org.apache.hadoop.hbase.io.hfile.HFileScanner;
 import org.apache.hadoop.hbase.nio.ByteBuff;
 import org.apache.hadoop.hbase.util.BloomFilter;
 import org.apache.hadoop.hbase.util.BloomFilterFactory;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
@@ -63,6 +65,7 @@ public class StoreFileReader {
   protected BloomFilter generalBloomFilter = null;
   protected BloomFilter deleteFamilyBloomFilter = null;
   protected BloomType bloomFilterType;
+  private byte[] bloomFilterParam;
   private final HFile.Reader reader;
   protected long sequenceID = -1;
   protected TimeRange timeRange = null;
@@ -233,13 +236,27 @@ public class StoreFileReader {
    *         False if the Bloom filter is applicable and the scan fails it.
    */
   boolean passesBloomFilter(Scan scan, final SortedSet<byte[]> columns) {
-    // Multi-column non-get scans will use Bloom filters through the
-    // lower-level API function that this function calls.
+    if (scan instanceof BatchGetScan) {
+      // A batch of gets only needs the file if it may hold at least one of the rows.
+      for (byte[] row : ((BatchGetScan) scan).getRows()) {
+        if (passesBloomFilter(row, columns)) {
+          return true;
+        }
+      }
+      return false;
+    }
     if (!scan.isGetScan()) {
+      if (BloomFilterUtil.isRowPrefixBloomType(bloomFilterType)) {
+        return passesGeneralRowPrefixBloomFilter(scan);
+      }
+      // Multi-column non-get scans will use Bloom filters through the
+      // lower-level API function that this function calls.
       return true;
     }
+    return passesBloomFilter(scan.getStartRow(), columns);
+  }
 
-    byte[] row = scan.getStartRow();
+  private boolean passesBloomFilter(byte[] row, final SortedSet<byte[]> columns) {
     switch (this.bloomFilterType) {
       case ROW:
         return passesGeneralRowBloomFilter(row, 0, row.length);
@@ -256,11 +273,71 @@ public class StoreFileReader {
         // seekExact operation.
         return true;
 
+      case ROWPREFIX_FIXED_LENGTH:
+      case ROWPREFIX_DELIMITED:
+        byte[] rowPrefix = BloomFilterUtil.getRowPrefix(bloomFilterType, bloomFilterParam, row);
+        return passesGeneralRowBloomFilter(rowPrefix, 0, rowPrefix.length);
+
       default:
         return true;
     }
   }
 
+  /**
+   * Checks the row prefix Bloom filter for a scan whose rows all share the row prefix of its
+   * start row, which is the case for short scans inside a single prefix, e.g. when the start and
+   * stop rows are set with {@link Scan#setRowPrefixFilter(byte[])}.
+   * @return false if the scan has such a prefix and the file holds no row with it
+   */
+  private boolean passesGeneralRowPrefixBloomFilter(Scan scan) {
+    if (this.generalBloomFilter == null) {
+      return true;
+    }
+    byte[] rowPrefix = BloomFilterUtil.getCompleteRowPrefix(bloomFilterType, bloomFilterParam,
+      scan.getStartRow());
+    if (rowPrefix == null) {
+      return true;
+    }
+    // Exactly the rows from the prefix up to, excluding, the closest row after all rows starting
+    // with it have the prefix.
+    byte[] smallestScanRow = scan.isReversed() ? scan.getStopRow() : scan.getStartRow();
+    byte[] largestScanRow = scan.isReversed() ? scan.getStartRow() : scan.getStopRow();
+    if (Bytes.equals(largestScanRow, HConstants.EMPTY_END_ROW)
+        || Bytes.compareTo(smallestScanRow, rowPrefix) < 0) {
+      return true;
+    }
+    byte[] afterRowPrefix = getClosestRowAfterPrefix(rowPrefix);
+    if (afterRowPrefix == null) {
+      if (!Bytes.startsWith(largestScanRow, rowPrefix)) {
+        return true;
+      }
+    } else {
+      int cmp = Bytes.compareTo(largestScanRow, afterRowPrefix);
+      boolean includesLargestScanRow = scan.isReversed() || scan.includeStopRow();
+      if (cmp > 0 || (cmp == 0 && includesLargestScanRow)) {
+        return true;
+      }
+    }
+    return passesGeneralRowBloomFilter(rowPrefix, 0, rowPrefix.length);
+  }
+
+  /**
+   * @return the smallest row that is larger than all rows starting with the given prefix, or
+   *         null if there is none as the prefix only consists of 0xFF bytes
+   */
+  private static byte[] getClosestRowAfterPrefix(byte[] prefix) {
+    int offset = prefix.length;
+    while (offset > 0 && prefix[offset - 1] == (byte) 0xFF) {
+      offset--;
+    }
+    if (offset == 0) {
+      return null;
+    }
+    byte[] row = Arrays.copyOf(prefix, offset);
+    row[offset - 1]++;
+    return row;
+  }
+
   public boolean passesDeleteFamilyBloomFilter(byte[] row, int rowOffset,
       int rowLen) {
     // Cache Bloom filter as a local variable in case it is set to null by
@@ -364,7 +441,7 @@ public class StoreFileReader {
         // hbase:meta does not have blooms. So we need not have special interpretation
         // of the hbase:meta cells.  We can safely use Bytes.BYTES_RAWCOMPARATOR for ROW Bloom
         if (keyIsAfterLast) {
-          if (bloomFilterType == BloomType.ROW) {
+          if (bloomFilterType != BloomType.ROWCOL) {
             keyIsAfterLast = (Bytes.BYTES_RAWCOMPARATOR.compare(key, lastBloomKey) > 0);
           } else {
             keyIsAfterLast = (CellComparator.COMPARATOR.compare(kvKey, lastBloomKeyOnlyKV)) > 0;
@@ -443,6 +520,8 @@ public class StoreFileReader {
       bloomFilterType = BloomType.valueOf(Bytes.toString(b));
     }
 
+    bloomFilterParam = fi.get(StoreFile.BLOOM_FILTER_PARAM_KEY);
+
     lastBloomKey = fi.get(StoreFile.LAST_BLOOM_KEY);
     if(bloomFilterType == BloomType.ROWCOL) {
       lastBloomKeyOnlyKV = new KeyValue.KeyOnlyKeyValue(lastBloomKey, 0, lastBloomKey.length);
@@ -565,6 +565,11 @@ public class StoreFileScanner implements KeyValueScanner {
     return hfs.getNextIndexedKey();
   }
 
+  @Override
+  public boolean requestNextBlock() {
+    return cur != null && realSeekDone && hfs.requestNextBlock();
+  }
+
   @Override
   public void shipped() throws IOException {
     this.hfs.shipped();
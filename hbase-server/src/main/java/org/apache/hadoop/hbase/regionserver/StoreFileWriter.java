@@ -40,13 +40,16 @@ import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileWriterImpl;
 import org.apache.hadoop.hbase.util.BloomContext;
 import org.apache.hadoop.hbase.util.BloomFilterFactory;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.BloomFilterWriter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.FSUtils;
 import org.apache.hadoop.hbase.util.RowBloomContext;
 import org.apache.hadoop.hbase.util.RowColBloomContext;
+import org.apache.hadoop.hbase.util.RowPrefixBloomContext;
 import org.apache.hadoop.io.WritableUtils;
 
 /**
@@ -60,6 +63,7 @@ public class StoreFileWriter implements CellSink, ShipperListener {
   private final BloomFilterWriter generalBloomFilterWriter;
   private final BloomFilterWriter deleteFamilyBloomFilterWriter;
   private final BloomType bloomType;
+  private byte[] bloomParam = null;
   private long earliestPutTs = HConstants.LATEST_TIMESTAMP;
   private long deleteFamilyCnt = 0;
   private BloomContext bloomContext = null;
@@ -152,9 +156,19 @@ public class StoreFileWriter implements CellSink, ShipperListener {
       case ROWCOL:
         bloomContext = new RowColBloomContext(generalBloomFilterWriter, comparator);
         break;
+      case ROWPREFIX_FIXED_LENGTH:
+      case ROWPREFIX_DELIMITED:
+        try {
+          bloomParam = BloomFilterUtil.getBloomFilterParam(bloomType, conf);
+        } catch (IllegalArgumentException e) {
+          throw new IOException(e);
+        }
+        bloomContext = new RowPrefixBloomContext(generalBloomFilterWriter, comparator, bloomType,
+            bloomParam);
+        break;
       default:
-        throw new IOException(
-            "Invalid Bloom filter type: " + bloomType + " (ROW or ROWCOL expected)");
+        throw new IOException("Invalid Bloom filter type: " + bloomType
+            + " (ROW, ROWCOL, ROWPREFIX_FIXED_LENGTH or ROWPREFIX_DELIMITED expected)");
       }
     } else {
       // Not using Bloom filters.
@@ -266,6 +280,27 @@ public class StoreFileWriter implements CellSink, ShipperListener {
     trackTimestamps(cell);
   }
 
+  /**
+   * @return whether the data blocks of the given file can be copied into this file as they are,
+   *         see {@link #appendDataBlocks(StoreFileReader)}
+   */
+  public boolean canCopyDataBlocks(StoreFileReader reader) throws IOException {
+    return writer instanceof HFileWriterImpl
+        && ((HFileWriterImpl) writer).canCopyDataBlocks(reader.getHFileReader());
+  }
+
+  /**
+   * Appends all cells of the given file by copying its data blocks as they are on disk. The cells
+   * are only read to add them to the Bloom filters and the time range of this file.
+   */
+  public void appendDataBlocks(StoreFileReader reader) throws IOException {
+    ((HFileWriterImpl) writer).appendDataBlocks(reader.getHFileReader(), cell -> {
+      appendGeneralBloomfilter(cell);
+      appendDeleteFamilyBloomFilter(cell);
+      trackTimestamps(cell);
+    }, this);
+  }
+
   @Override
   public void beforeShipped() throws IOException {
     // For now these writer will always be of type ShipperListener true.
@@ -312,6 +347,9 @@ public class StoreFileWriter implements CellSink, ShipperListener {
       writer.addGeneralBloomFilter(generalBloomFilterWriter);
       writer.appendFileInfo(StoreFile.BLOOM_FILTER_TYPE_KEY,
           Bytes.toBytes(bloomType.toString()));
+      if (bloomParam != null) {
+        writer.appendFileInfo(StoreFile.BLOOM_FILTER_PARAM_KEY, bloomParam);
+      }
       bloomContext.addLastBloomKey(writer);
     }
     return hasGeneralBloom;
@@ -568,6 +568,12 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
           return scannerContext.setScannerState(NextState.TIME_LIMIT_REACHED).hasMoreValues();
         }
       }
+      // Moving past this cell may have to wait for a block from the file system. Rather than
+      // hold on to the handler, return what we have while the block is read in the background.
+      if (scannerContext.canSuspend(LimitScope.BETWEEN_CELLS) && heap.requestNextBlock()) {
+        scannerContext.suspend();
+        return scannerContext.setScannerState(NextState.TIME_LIMIT_REACHED).hasMoreValues();
+      }
       // Do object compare - we set prevKV from the same heap.
       if (prevCell != cell) {
         ++kvsScanned;
@@ -80,6 +80,27 @@ public class CompactionRequest {
     return totalSize;
   }
 
+  /**
+   * Gets the estimated number of files fewer a read has to look at once the compaction is done,
+   * per byte the compaction rewrites.
+   */
+  public double getReadAmpReductionPerByte() {
+    return getReadAmpReductionPerByte(filesToCompact.size(), totalSize);
+  }
+
+  /**
+   * Estimates how much compacting the given number of files cuts read amplification per byte it
+   * rewrites. Compacting N files into one saves a read from looking at N - 1 files.
+   * @param numFiles the number of files to compact
+   * @param size the total size of the files
+   */
+  public static double getReadAmpReductionPerByte(int numFiles, long size) {
+    if (numFiles < 2) {
+      return 0;
+    }
+    return (numFiles - 1) / (double) Math.max(1L, size);
+  }
+
   public boolean isAllFiles() {
     return this.isMajor == DisplayCompactionType.MAJOR
         || this.isMajor == DisplayCompactionType.ALL_FILES;
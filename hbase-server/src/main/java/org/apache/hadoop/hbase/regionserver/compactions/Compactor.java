@@ -84,8 +84,8 @@ public abstract class Compactor<T extends CellSink> {
   protected static final String MINOR_COMPACTION_DROP_CACHE =
       "hbase.regionserver.minorcompaction.pagecache.drop";
 
-  private boolean dropCacheMajor;
-  private boolean dropCacheMinor;
+  protected boolean dropCacheMajor;
+  protected boolean dropCacheMinor;
 
   //TODO: depending on Store is not good but, realistically, all compactors currently do.
   Compactor(final Configuration conf, final Store store) {
@@ -379,6 +379,19 @@ public abstract class Compactor<T extends CellSink> {
   protected boolean performCompaction(FileDetails fd, InternalScanner scanner, CellSink writer,
       long smallestReadPoint, boolean cleanSeqId, ThroughputController throughputController,
       boolean major, int numofFilesToCompact) throws IOException {
+    return performCompaction(fd, scanner, writer, smallestReadPoint, cleanSeqId,
+      throughputController, major, numofFilesToCompact, progress);
+  }
+
+  /**
+   * Performs the compaction, tracking it in the given progress rather than in the progress of
+   * the compactor, e.g. for one of several compactions that run at the same time.
+   * @see #performCompaction(FileDetails, InternalScanner, CellSink, long, boolean,
+   *      ThroughputController, boolean, int)
+   */
+  protected boolean performCompaction(FileDetails fd, InternalScanner scanner, CellSink writer,
+      long smallestReadPoint, boolean cleanSeqId, ThroughputController throughputController,
+      boolean major, int numofFilesToCompact, CompactionProgress progress) throws IOException {
     assert writer instanceof ShipperListener;
     long bytesWrittenProgressForCloseCheck = 0;
     long bytesWrittenProgressForLog = 0;
@@ -18,23 +18,49 @@
 package org.apache.hadoop.hbase.regionserver.compactions;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.io.hfile.HFileBlockIndex;
+import org.apache.hadoop.hbase.regionserver.CellSink;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.ScanType;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.regionserver.ShipperListener;
 import org.apache.hadoop.hbase.regionserver.Store;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreFileReader;
+import org.apache.hadoop.hbase.regionserver.StoreFileScanner;
 import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
+import org.apache.hadoop.hbase.regionserver.StoreScanner;
 import org.apache.hadoop.hbase.regionserver.throttle.NoLimitThroughputController;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.security.User;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.Threads;
 
+import org.apache.hadoop.hbase.shaded.com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.hbase.shaded.com.google.common.collect.Lists;
+import org.apache.hadoop.hbase.shaded.com.google.common.io.Closeables;
 
 /**
  * Compact passed set of files. Create an instance and then call
@@ -44,8 +70,39 @@ import org.apache.hadoop.hbase.shaded.com.google.common.collect.Lists;
 public class DefaultCompactor extends Compactor<StoreFileWriter> {
   private static final Log LOG = LogFactory.getLog(DefaultCompactor.class);
 
+  /**
+   * The maximum number of key range subcompactions a major compaction is split into.
+   * 1, the default, disables splitting.
+   */
+  public static final String MAX_SUBCOMPACTIONS_KEY = "hbase.hstore.compaction.subcompactions.max";
+  static final int DEFAULT_MAX_SUBCOMPACTIONS = 1;
+
+  /**
+   * The minimum number of bytes a key range subcompaction reads, so only compactions of at least
+   * twice this size are split.
+   */
+  public static final String MIN_SUBCOMPACTION_SIZE_KEY =
+      "hbase.hstore.compaction.subcompaction.min.size";
+  static final long DEFAULT_MIN_SUBCOMPACTION_SIZE = 1024L * 1024 * 1024;
+
+  /**
+   * Whether minor compactions copy the data blocks of the files whose rows no other file of the
+   * compaction holds as they are on disk, instead of decoding, encoding and compressing all their
+   * cells again.
+   */
+  public static final String COPY_DATA_BLOCKS_KEY = "hbase.hstore.compaction.copy.data.blocks";
+  static final boolean DEFAULT_COPY_DATA_BLOCKS = false;
+
+  private final int maxSubcompactions;
+  private final long minSubcompactionSize;
+  private final boolean copyDataBlocks;
+
   public DefaultCompactor(final Configuration conf, final Store store) {
     super(conf, store);
+    this.maxSubcompactions = conf.getInt(MAX_SUBCOMPACTIONS_KEY, DEFAULT_MAX_SUBCOMPACTIONS);
+    this.minSubcompactionSize = conf.getLong(MIN_SUBCOMPACTION_SIZE_KEY,
+      DEFAULT_MIN_SUBCOMPACTION_SIZE);
+    this.copyDataBlocks = conf.getBoolean(COPY_DATA_BLOCKS_KEY, DEFAULT_COPY_DATA_BLOCKS);
   }
 
   private final CellSinkFactory<StoreFileWriter> writerFactory =
@@ -63,9 +120,283 @@ public class DefaultCompactor extends Compactor<StoreFileWriter> {
    */
   public List<Path> compact(final CompactionRequest request,
       ThroughputController throughputController, User user) throws IOException {
+    List<byte[]> boundaries = getSubcompactionBoundaries(request);
+    if (!boundaries.isEmpty()) {
+      return compactInKeyRanges(request, boundaries, throughputController);
+    }
+    List<StoreFile> filesToCopy = getFilesToCopy(request);
+    if (!filesToCopy.isEmpty()) {
+      return compactCopyingDataBlocks(request, filesToCopy, throughputController);
+    }
     return compact(request, defaultScannerFactory, writerFactory, throughputController, user);
   }
 
+  /**
+   * Picks the rows a compaction is split at, so that the key ranges between them hold about the
+   * same number of bytes of the files to compact. The candidates are the first keys of the
+   * root-level data index blocks of the files, the same keys the mid-keys of the files are
+   * picked from, each standing for an equal share of the bytes of its file.
+   * <p>
+   * Only major compactions are split, the forced and periodic ones, not the minor compactions
+   * that happen to select all files. Their output files, which hold disjoint key ranges, are
+   * excluded from minor compactions, because the ratio based selection would otherwise pick them
+   * again right away, as a set of files of about the same size. The next major compaction
+   * rewrites them.
+   * @return the rows to split at in ascending order, or an empty list to compact in one go
+   */
+  @VisibleForTesting
+  List<byte[]> getSubcompactionBoundaries(CompactionRequest request) {
+    int numSubcompactions = (int) Math.min(maxSubcompactions,
+      request.getSize() / Math.max(1, minSubcompactionSize));
+    if (numSubcompactions < 2 || !request.isMajor()) {
+      return Collections.emptyList();
+    }
+    // The coprocessor hooks expect to see a compaction through a single scanner.
+    if (store.getCoprocessorHost() != null
+        && !store.getCoprocessorHost().getCoprocessors().isEmpty()) {
+      return Collections.emptyList();
+    }
+    CellComparator comparator = store.getComparator();
+    List<Cell> keys = new ArrayList<>();
+    List<Long> weights = new ArrayList<>();
+    long totalWeight = 0;
+    for (StoreFile file : request.getFiles()) {
+      StoreFileReader reader = file.getReader();
+      if (reader == null || !(reader.getHFileReader()
+          .getDataBlockIndexReader() instanceof HFileBlockIndex.CellBasedKeyBlockIndexReader)) {
+        return Collections.emptyList();
+      }
+      HFileBlockIndex.CellBasedKeyBlockIndexReader indexReader =
+          (HFileBlockIndex.CellBasedKeyBlockIndexReader) reader.getHFileReader()
+              .getDataBlockIndexReader();
+      int rootCount = indexReader.getRootBlockCount();
+      for (int i = 0; i < rootCount; i++) {
+        keys.add(indexReader.getRootBlockKey(i));
+        weights.add(reader.length() / rootCount);
+        totalWeight += reader.length() / rootCount;
+      }
+    }
+    Integer[] order = new Integer[keys.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (i, j) -> comparator.compareRows(keys.get(i), keys.get(j)));
+
+    List<byte[]> boundaries = new ArrayList<>();
+    Cell lastSplitKey = keys.isEmpty() ? null : keys.get(order[0]);
+    long accumulated = 0;
+    for (int i = 0; i < order.length && boundaries.size() < numSubcompactions - 1; i++) {
+      Cell key = keys.get(order[i]);
+      // Split before this key once the key ranges before it hold their share of the bytes.
+      if (accumulated >= totalWeight * (boundaries.size() + 1) / numSubcompactions
+          && comparator.compareRows(lastSplitKey, key) < 0) {
+        boundaries.add(CellUtil.cloneRow(key));
+        lastSplitKey = key;
+      }
+      accumulated += weights.get(order[i]);
+    }
+    return boundaries;
+  }
+
+  /**
+   * Compacts the key ranges between the given rows in parallel, each into its own file. The files
+   * are committed together as the output of one compaction, or all removed if any of the key
+   * ranges fails.
+   */
+  private List<Path> compactInKeyRanges(CompactionRequest request, List<byte[]> boundaries,
+      ThroughputController throughputController) throws IOException {
+    FileDetails fd = getFileDetails(request.getFiles(), request.isAllFiles());
+    this.progress = new CompactionProgress(fd.maxKeyCount);
+    long smallestReadPoint = getSmallestReadPoint();
+    boolean cleanSeqId = false;
+    if (fd.minSeqIdToKeep > 0 && !store.getColumnFamilyDescriptor().isNewVersionBehavior()) {
+      smallestReadPoint = Math.min(fd.minSeqIdToKeep, smallestReadPoint);
+      cleanSeqId = true;
+    }
+    ScanType scanType = defaultScannerFactory.getScanType(request);
+    int numRanges = boundaries.size() + 1;
+    LOG.info("Splitting compaction of " + request.getFiles().size() + " file(s) in " + store
+        + " into " + numRanges + " key ranges");
+
+    List<StoreFileWriter> writers = Collections.synchronizedList(new ArrayList<>());
+    // Each key range tracks its own progress, which is added up once all of them are done.
+    List<CompactionProgress> rangeProgresses = new ArrayList<>(numRanges);
+    List<Future<Boolean>> futures = new ArrayList<>(numRanges);
+    ThreadPoolExecutor pool = Threads.getBoundedCachedThreadPool(numRanges, 60, TimeUnit.SECONDS,
+      Threads.newDaemonThreadFactory("Subcompaction-" + store.getColumnFamilyName()));
+    boolean finished = false;
+    try {
+      for (int i = 0; i < numRanges; i++) {
+        byte[] startRow = i == 0 ? null : boundaries.get(i - 1);
+        byte[] stopRow = i == numRanges - 1 ? null : boundaries.get(i);
+        long readPoint = smallestReadPoint;
+        boolean clean = cleanSeqId;
+        CompactionProgress rangeProgress = new CompactionProgress(fd.maxKeyCount / numRanges);
+        rangeProgresses.add(rangeProgress);
+        futures.add(pool.submit(() -> {
+          List<StoreFileScanner> scanners =
+              createFileScanners(request.getFiles(), readPoint, dropCacheMajor);
+          InternalScanner scanner = null;
+          try {
+            scanner = new RowRangeCompactionScanner(store, scanners, scanType, readPoint,
+                fd.earliestPutTs, startRow, stopRow);
+            StoreFileWriter writer = createTmpWriter(fd, dropCacheMajor);
+            writers.add(writer);
+            return performCompaction(fd, scanner, writer, readPoint, clean, throughputController,
+              request.isAllFiles(), request.getFiles().size(), rangeProgress);
+          } finally {
+            Closeables.close(scanner, true);
+          }
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        if (!future.get()) {
+          throw new InterruptedIOException("Aborting compaction of store " + store
+              + " in region " + store.getRegionInfo().getRegionNameAsString()
+              + " because it was interrupted.");
+        }
+      }
+      for (CompactionProgress rangeProgress : rangeProgresses) {
+        progress.currentCompactedKVs += rangeProgress.currentCompactedKVs;
+        progress.totalCompactedSize += rangeProgress.totalCompactedSize;
+      }
+      progress.complete();
+      finished = true;
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException(
+          "Interrupted while compacting store " + store).initCause(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      if (!finished) {
+        for (Future<Boolean> future : futures) {
+          future.cancel(true);
+        }
+      }
+      pool.shutdown();
+      if (!finished) {
+        progress.cancel();
+        try {
+          // The writers of the key ranges still running are only known once they have stopped.
+          pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        for (StoreFileWriter writer : writers) {
+          abortWriter(writer);
+        }
+      }
+    }
+    List<Path> newFiles = new ArrayList<>(writers.size());
+    for (StoreFileWriter writer : writers) {
+      writer.appendFileInfo(StoreFile.EXCLUDE_FROM_MINOR_COMPACTION_KEY, Bytes.toBytes(true));
+      newFiles.addAll(commitWriter(writer, fd, request));
+    }
+    return newFiles;
+  }
+
+  /**
+   * Picks the files of a minor compaction whose data blocks can be copied to the output file as
+   * they are. These are the files none of whose rows any other file of the compaction holds, so
+   * that no cell of another file can mask or be masked by their cells, and none of whose cells can
+   * have expired. Within a file, the versions beyond the maximum and the cells masked by its
+   * delete markers were already dropped when it was written, and minor compactions keep the
+   * delete markers. Bulk loaded files do not qualify, as their cells take the sequence id of the
+   * file only when they are read.
+   * @return the files to copy, ordered by row, or an empty list to compact all cells
+   */
+  @VisibleForTesting
+  public List<StoreFile> getFilesToCopy(CompactionRequest request) {
+    if (!copyDataBlocks || request.isAllFiles()) {
+      return Collections.emptyList();
+    }
+    // The coprocessor hooks expect to see every cell of a compaction.
+    if (store.getCoprocessorHost() != null
+        && !store.getCoprocessorHost().getCoprocessors().isEmpty()) {
+      return Collections.emptyList();
+    }
+    CellComparator comparator = store.getComparator();
+    long ttl = store.getScanInfo().getTtl();
+    long oldestUnexpiredTs =
+        ttl == Long.MAX_VALUE ? Long.MIN_VALUE : EnvironmentEdgeManager.currentTime() - ttl;
+    List<StoreFile> files = new ArrayList<>();
+    for (StoreFile file : request.getFiles()) {
+      if (file.getReader() == null) {
+        return Collections.emptyList();
+      }
+      // Empty files hold no rows to overlap.
+      if (file.getFirstKey() != null) {
+        files.add(file);
+      }
+    }
+    files.sort((f1, f2) -> comparator.compareRows(f1.getFirstKey(), f2.getFirstKey()));
+
+    List<StoreFile> filesToCopy = new ArrayList<>();
+    Cell maxLastKey = null;
+    for (int i = 0; i < files.size(); i++) {
+      StoreFile file = files.get(i);
+      boolean overlapsPrevious =
+          maxLastKey != null && comparator.compareRows(maxLastKey, file.getFirstKey()) >= 0;
+      boolean overlapsNext = i + 1 < files.size()
+          && comparator.compareRows(file.getLastKey(), files.get(i + 1).getFirstKey()) >= 0;
+      if (!overlapsPrevious && !overlapsNext && !file.isBulkLoadResult()
+          && file.getMinimumTimestamp().orElse(Long.MIN_VALUE) >= oldestUnexpiredTs) {
+        filesToCopy.add(file);
+      }
+      if (maxLastKey == null || comparator.compareRows(file.getLastKey(), maxLastKey) > 0) {
+        maxLastKey = file.getLastKey();
+      }
+    }
+    return filesToCopy;
+  }
+
+  /**
+   * Compacts the given files into one, copying the data blocks of the files to copy that are
+   * written the way the output file is, and merging the cells of the others.
+   */
+  private List<Path> compactCopyingDataBlocks(CompactionRequest request,
+      List<StoreFile> filesToCopy, ThroughputController throughputController) throws IOException {
+    FileDetails fd = getFileDetails(request.getFiles(), request.isAllFiles());
+    this.progress = new CompactionProgress(fd.maxKeyCount);
+    long smallestReadPoint = getSmallestReadPoint();
+    StoreFileWriter writer = createTmpWriter(fd, dropCacheMinor);
+    InternalScanner scanner = null;
+    boolean finished = false;
+    try {
+      List<StoreFile> filesToMerge = new ArrayList<>(request.getFiles());
+      List<StoreFile> copiedFiles = new ArrayList<>();
+      for (StoreFile file : filesToCopy) {
+        if (writer.canCopyDataBlocks(file.getReader())) {
+          filesToMerge.remove(file);
+          copiedFiles.add(file);
+        }
+      }
+      LOG.debug("Copying the data blocks of " + copiedFiles.size() + " of "
+          + request.getFiles().size() + " file(s) in compaction of " + store);
+      List<StoreFileScanner> scanners =
+          createFileScanners(filesToMerge, smallestReadPoint, dropCacheMinor);
+      scanner = defaultScannerFactory.createScanner(scanners,
+        defaultScannerFactory.getScanType(request), fd, smallestReadPoint);
+      DataBlockCopyingSink sink = new DataBlockCopyingSink(writer, copiedFiles);
+      if (!performCompaction(fd, scanner, sink, smallestReadPoint, false, throughputController,
+        request.isAllFiles(), filesToMerge.size())) {
+        throw new InterruptedIOException("Aborting compaction of store " + store + " in region "
+            + store.getRegionInfo().getRegionNameAsString() + " because it was interrupted.");
+      }
+      sink.copyRemainingFiles();
+      finished = true;
+    } finally {
+      Closeables.close(scanner, true);
+      if (!finished) {
+        abortWriter(writer);
+      }
+    }
+    return commitWriter(writer, fd, request);
+  }
+
   /**
    * Compact a list of files for testing. Creates a fake {@link CompactionRequest} to pass to
    * {@link #compact(CompactionRequest, ThroughputController, User)};
@@ -108,4 +439,81 @@ public class DefaultCompactor extends Compactor<StoreFileWriter> {
         e);
     }
   }
+
+  /**
+   * Passes the cells of a compaction on to a store file writer, and copies the data blocks of
+   * each file to copy right before the first cell that sorts after the rows of the file.
+   */
+  private class DataBlockCopyingSink implements CellSink, ShipperListener {
+    private final StoreFileWriter writer;
+    private final Iterator<StoreFile> filesToCopy;
+    private StoreFile nextFileToCopy;
+
+    DataBlockCopyingSink(StoreFileWriter writer, List<StoreFile> filesToCopy) {
+      this.writer = writer;
+      this.filesToCopy = filesToCopy.iterator();
+      this.nextFileToCopy = this.filesToCopy.hasNext() ? this.filesToCopy.next() : null;
+    }
+
+    @Override
+    public void append(Cell cell) throws IOException {
+      while (nextFileToCopy != null
+          && store.getComparator().compareRows(nextFileToCopy.getLastKey(), cell) < 0) {
+        copyNextFile();
+      }
+      writer.append(cell);
+    }
+
+    @Override
+    public void beforeShipped() throws IOException {
+      writer.beforeShipped();
+    }
+
+    void copyRemainingFiles() throws IOException {
+      while (nextFileToCopy != null) {
+        copyNextFile();
+      }
+    }
+
+    private void copyNextFile() throws IOException {
+      StoreFileReader reader = nextFileToCopy.getReader();
+      writer.appendDataBlocks(reader);
+      progress.currentCompactedKVs += reader.getEntries();
+      progress.totalCompactedSize += reader.length();
+      nextFileToCopy = filesToCopy.hasNext() ? filesToCopy.next() : null;
+    }
+  }
+
+  /**
+   * A compaction scanner over the rows from an inclusive start row to an exclusive stop row,
+   * either of which may be null for an open end.
+   */
+  private static class RowRangeCompactionScanner extends StoreScanner {
+    private final CellComparator comparator;
+    private final byte[] stopRow;
+
+    RowRangeCompactionScanner(Store store, List<StoreFileScanner> scanners, ScanType scanType,
+        long smallestReadPoint, long earliestPutTs, byte[] startRow, byte[] stopRow)
+        throws IOException {
+      super(store, store.getScanInfo(), OptionalInt.empty(), scanners, scanType,
+          smallestReadPoint, earliestPutTs);
+      this.comparator = store.getComparator();
+      this.stopRow = stopRow;
+      if (startRow != null) {
+        reseek(CellUtil.createFirstOnRow(startRow));
+      }
+    }
+
+    @Override
+    public boolean next(List<Cell> outResult, ScannerContext scannerContext) throws IOException {
+      // A call never returns cells of more than one row, so it is enough to look at the next cell
+      // before reading a row.
+      Cell next = peek();
+      if (stopRow != null && next != null
+          && comparator.compareRows(next, stopRow, 0, stopRow.length) >= 0) {
+        return false;
+      }
+      return super.next(outResult, scannerContext);
+    }
+  }
 }
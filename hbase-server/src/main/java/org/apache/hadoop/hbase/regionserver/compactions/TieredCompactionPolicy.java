@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+
+/**
+ * A size tiered, or universal, compaction policy. Every store file is a sorted run, and the
+ * selection is driven by explicit targets instead of a ratio alone:
+ * <ol>
+ * <li>Space amplification: if the files newer than the oldest one add up to more than
+ * {@value #MAX_SIZE_AMPLIFICATION_PERCENT_KEY} percent of the oldest one, all files are
+ * compacted.</li>
+ * <li>Size ratio: starting from the newest file, older files are added to the selection as long
+ * as each one is at most {@value #SIZE_RATIO_PERCENT_KEY} percent larger than the files
+ * selected so far, so that files are only merged with files of about the same total size. This
+ * keeps the write amplification at about one rewrite per tier.</li>
+ * <li>Sorted run count: if there are more than {@value #MAX_SORTED_RUNS_KEY} files, the newest
+ * files are compacted to get back to that count.</li>
+ * </ol>
+ * Selections are bounded by the minimum and maximum number of files to compact, and files larger
+ * than the maximum compaction size are skipped, like for the other policies. The write
+ * amplification a store actually sees is reported by the writeAmplification region metric.
+ */
+@InterfaceAudience.Private
+public class TieredCompactionPolicy extends RatioBasedCompactionPolicy {
+  private static final Log LOG = LogFactory.getLog(TieredCompactionPolicy.class);
+
+  public static final String MAX_SIZE_AMPLIFICATION_PERCENT_KEY =
+      "hbase.hstore.compaction.tiered.max.size.amplification.percent";
+  static final int DEFAULT_MAX_SIZE_AMPLIFICATION_PERCENT = 200;
+
+  public static final String SIZE_RATIO_PERCENT_KEY =
+      "hbase.hstore.compaction.tiered.size.ratio.percent";
+  static final int DEFAULT_SIZE_RATIO_PERCENT = 1;
+
+  public static final String MAX_SORTED_RUNS_KEY = "hbase.hstore.compaction.tiered.max.sorted.runs";
+  static final int DEFAULT_MAX_SORTED_RUNS = 8;
+
+  private int maxSizeAmplificationPercent;
+  private int sizeRatioPercent;
+  private int maxSortedRuns;
+
+  public TieredCompactionPolicy(Configuration conf, StoreConfigInformation storeConfigInfo) {
+    super(conf, storeConfigInfo);
+    loadConf(conf);
+  }
+
+  private void loadConf(Configuration conf) {
+    maxSizeAmplificationPercent = conf.getInt(MAX_SIZE_AMPLIFICATION_PERCENT_KEY,
+      DEFAULT_MAX_SIZE_AMPLIFICATION_PERCENT);
+    sizeRatioPercent = conf.getInt(SIZE_RATIO_PERCENT_KEY, DEFAULT_SIZE_RATIO_PERCENT);
+    maxSortedRuns = conf.getInt(MAX_SORTED_RUNS_KEY, DEFAULT_MAX_SORTED_RUNS);
+  }
+
+  @Override
+  public void setConf(Configuration conf) {
+    super.setConf(conf);
+    loadConf(conf);
+  }
+
+  @Override
+  protected ArrayList<StoreFile> applyCompactionPolicy(ArrayList<StoreFile> candidates,
+      boolean mayUseOffPeak, boolean mayBeStuck) throws IOException {
+    int count = candidates.size();
+    if (count < comConf.getMinFilesToCompact()) {
+      return new ArrayList<>();
+    }
+    long[] sizes = new long[count];
+    long newerSize = 0;
+    for (int i = 0; i < count; i++) {
+      sizes[i] = candidates.get(i).getReader().length();
+      if (i > 0) {
+        newerSize += sizes[i];
+      }
+    }
+
+    if (newerSize * 100 > (long) maxSizeAmplificationPercent * sizes[0]) {
+      LOG.debug("Tiered compaction selected all " + count + " files, because the newer files add "
+          + "up to " + newerSize + " bytes over " + sizes[0] + " bytes of the oldest file");
+      return selectNewest(candidates, count);
+    }
+
+    // Look for the newest window of files of about the same accumulated size.
+    for (int end = count - 1; end >= comConf.getMinFilesToCompact() - 1; end--) {
+      long selectedSize = sizes[end];
+      int start = end;
+      while (start > 0 && end - start + 1 < comConf.getMaxFilesToCompact()
+          && sizes[start - 1] * 100 <= selectedSize * (100 + sizeRatioPercent)) {
+        start--;
+        selectedSize += sizes[start];
+      }
+      if (end - start + 1 >= comConf.getMinFilesToCompact()) {
+        LOG.debug("Tiered compaction selected " + (end - start + 1) + " files of size "
+            + selectedSize + " within the size ratio");
+        return new ArrayList<>(candidates.subList(start, end + 1));
+      }
+    }
+
+    if (count > maxSortedRuns || mayBeStuck) {
+      int toCompact = Math.max(count - maxSortedRuns + 1, comConf.getMinFilesToCompact());
+      LOG.debug("Tiered compaction selected the newest " + toCompact + " of " + count
+          + " files to reduce the number of sorted runs");
+      return selectNewest(candidates, toCompact);
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * @return the newest files, at most the maximum number of files to compact
+   */
+  private ArrayList<StoreFile> selectNewest(ArrayList<StoreFile> candidates, int count) {
+    count = Math.min(count, comConf.getMaxFilesToCompact());
+    return new ArrayList<>(candidates.subList(candidates.size() - count, candidates.size()));
+  }
+}
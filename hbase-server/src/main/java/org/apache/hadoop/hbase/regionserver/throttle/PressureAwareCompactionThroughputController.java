@@ -23,6 +23,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.ScheduledChore;
 import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.MetricsRegionServer;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
 import org.apache.hadoop.hbase.regionserver.compactions.OffPeakHours;
 
@@ -73,8 +74,11 @@ public class PressureAwareCompactionThroughputController extends PressureAwareTh
 
   private long maxThroughputOffpeak;
 
+  private MetricsRegionServer metrics;
+
   @Override
   public void setup(final RegionServerServices server) {
+    this.metrics = server.getMetrics();
     server.getChoreService().scheduleChore(
       new ScheduledChore("CompactionThroughputTuner", this, tuningPeriod) {
 
@@ -144,6 +148,13 @@ public class PressureAwareCompactionThroughputController extends PressureAwareTh
         + "]";
   }
 
+  @Override
+  protected void updateMetrics(long bytesPerSecond, long sleepTime) {
+    if (metrics != null) {
+      metrics.updateCompactionThroughput(bytesPerSecond, sleepTime);
+    }
+  }
+
   @Override
   protected boolean skipControl(long deltaSize, long controlSize) {
     if (deltaSize < controlSize) {
@@ -23,6 +23,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.ScheduledChore;
 import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.MetricsRegionServer;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
 import org.apache.hadoop.hbase.regionserver.compactions.OffPeakHours;
 
@@ -66,8 +67,11 @@ public class PressureAwareFlushThroughputController extends PressureAwareThrough
   private static final long DEFAULT_HBASE_HSTORE_FLUSH_THROUGHPUT_CONTROL_CHECK_INTERVAL =
       10L * 1024 * 1024;// 10MB
 
+  private MetricsRegionServer metrics;
+
   @Override
   public void setup(final RegionServerServices server) {
+    this.metrics = server.getMetrics();
     server.getChoreService().scheduleChore(
       new ScheduledChore("FlushThroughputTuner", this, tuningPeriod, this.tuningPeriod) {
 
@@ -128,6 +132,13 @@ public class PressureAwareFlushThroughputController extends PressureAwareThrough
         + ", activeFlushNumber=" + activeOperations.size() + "]";
   }
 
+  @Override
+  protected void updateMetrics(long bytesPerSecond, long sleepTime) {
+    if (metrics != null) {
+      metrics.updateFlushThroughput(bytesPerSecond, sleepTime);
+    }
+  }
+
   @Override
   protected boolean skipControl(long deltaSize, long controlSize) {
     // for flush, we control the flow no matter whether the flush size is small
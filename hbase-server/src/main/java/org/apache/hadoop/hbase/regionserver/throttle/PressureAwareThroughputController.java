@@ -17,29 +17,57 @@
  */
 package org.apache.hadoop.hbase.regionserver.throttle;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.NamespaceDescriptor;
 import org.apache.hadoop.hbase.Stoppable;
+import org.apache.hadoop.hbase.TableName;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
 import org.apache.hadoop.hbase.regionserver.compactions.OffPeakHours;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 
+/**
+ * Base class of the throughput controllers that tune the limit of the whole region server to the
+ * pressure on it. By default the limit is split evenly between the active operations. With
+ * {@value #FAIR_SHARING_KEY} enabled the limit is shared hierarchically instead: first between
+ * the tables with active operations in proportion to their weights, then evenly between the
+ * stores of a table, and last evenly between the operations of a store. So the many compactions
+ * of one busy table cannot take the budget of the other tables. The weights are configured with
+ * {@value #TABLE_WEIGHTS_KEY} as a comma separated list of table=weight and @namespace=weight
+ * entries, and tables without an entry of their own or of their namespace have weight 1.
+ */
 @InterfaceAudience.LimitedPrivate(HBaseInterfaceAudience.CONFIG)
 public abstract class PressureAwareThroughputController extends Configured implements
     ThroughputController, Stoppable {
   private static final Log LOG = LogFactory.getLog(PressureAwareThroughputController.class);
 
+  public static final String FAIR_SHARING_KEY =
+      "hbase.regionserver.throughput.controller.fair.sharing";
+  private static final boolean DEFAULT_FAIR_SHARING = false;
+
+  public static final String TABLE_WEIGHTS_KEY =
+      "hbase.regionserver.throughput.controller.table.weights";
+
+  private static final double DEFAULT_WEIGHT = 1.0;
+
   /**
    * Stores the information of one controlled compaction.
    */
   private static final class ActiveOperation {
 
+    private final String table;
+
+    private final String store;
+
     private final long startTime;
 
     private long lastControlTime;
@@ -55,7 +83,11 @@ public abstract class PressureAwareThroughputController extends Configured imple
     // prevent too many debug log
     private long lastLogTime;
 
-    ActiveOperation() {
+    private volatile double maxThroughput;
+
+    ActiveOperation(String opName) {
+      this.table = ThroughputControlUtil.getTableForThrottling(opName);
+      this.store = ThroughputControlUtil.getStoreForThrottling(opName);
       long currentTime = EnvironmentEdgeManager.currentTime();
       this.startTime = currentTime;
       this.lastControlTime = currentTime;
@@ -74,10 +106,36 @@ public abstract class PressureAwareThroughputController extends Configured imple
   protected int tuningPeriod;
 
   private volatile double maxThroughput;
-  private volatile double maxThroughputPerOperation;
+
+  private boolean fairSharing;
+
+  private Map<String, Double> weights = new HashMap<>();
 
   protected final ConcurrentMap<String, ActiveOperation> activeOperations = new ConcurrentHashMap<>();
 
+  @Override
+  public void setConf(Configuration conf) {
+    super.setConf(conf);
+    if (conf == null) {
+      return;
+    }
+    this.fairSharing = conf.getBoolean(FAIR_SHARING_KEY, DEFAULT_FAIR_SHARING);
+    Map<String, Double> weights = new HashMap<>();
+    for (String entry : conf.getTrimmedStrings(TABLE_WEIGHTS_KEY)) {
+      String[] nameAndWeight = entry.split("=");
+      if (nameAndWeight.length != 2) {
+        throw new IllegalArgumentException("Illegal " + TABLE_WEIGHTS_KEY + " entry " + entry);
+      }
+      double weight = Double.parseDouble(nameAndWeight[1].trim());
+      if (weight <= 0) {
+        throw new IllegalArgumentException("Illegal " + TABLE_WEIGHTS_KEY + " entry " + entry);
+      }
+      String name = nameAndWeight[0].trim();
+      weights.put(name.startsWith("@") ? name : TableName.valueOf(name).getNameAsString(), weight);
+    }
+    this.weights = weights;
+  }
+
   @Override
   public abstract void setup(final RegionServerServices server);
 
@@ -95,8 +153,62 @@ public abstract class PressureAwareThroughputController extends Configured imple
 
   @Override
   public void start(String opName) {
-    activeOperations.put(opName, new ActiveOperation());
-    maxThroughputPerOperation = getMaxThroughput() / activeOperations.size();
+    activeOperations.put(opName, new ActiveOperation(opName));
+    updateMaxThroughputPerOperation();
+  }
+
+  /**
+   * @return the weight of the given table in the throughput shared between tables
+   */
+  double getWeight(String table) {
+    Double weight = weights.get(table);
+    if (weight == null) {
+      int index = table.indexOf(TableName.NAMESPACE_DELIM);
+      weight = weights.get("@" + (index > 0 ? table.substring(0, index)
+          : NamespaceDescriptor.DEFAULT_NAMESPACE_NAME_STR));
+    }
+    return weight != null ? weight : DEFAULT_WEIGHT;
+  }
+
+  /**
+   * Splits the limit of the region server between the active operations.
+   */
+  private synchronized void updateMaxThroughputPerOperation() {
+    double maxThroughput = getMaxThroughput();
+    if (!fairSharing) {
+      double maxThroughputPerOperation = maxThroughput / activeOperations.size();
+      for (ActiveOperation operation : activeOperations.values()) {
+        operation.maxThroughput = maxThroughputPerOperation;
+      }
+      return;
+    }
+    Map<String, Map<String, Integer>> tables = new HashMap<>();
+    for (ActiveOperation operation : activeOperations.values()) {
+      tables.computeIfAbsent(operation.table, t -> new HashMap<>()).merge(operation.store, 1,
+        Integer::sum);
+    }
+    double totalWeight = 0;
+    for (String table : tables.keySet()) {
+      totalWeight += getWeight(table);
+    }
+    for (ActiveOperation operation : activeOperations.values()) {
+      Map<String, Integer> stores = tables.get(operation.table);
+      if (stores == null) {
+        // Started after the operations were grouped, it gets its share on the next update.
+        continue;
+      }
+      double tableThroughput = maxThroughput * getWeight(operation.table) / totalWeight;
+      operation.maxThroughput =
+          tableThroughput / stores.size() / stores.getOrDefault(operation.store, 1);
+    }
+  }
+
+  /**
+   * @return the throughput limit of the given active operation, or 0 if it is not active
+   */
+  double getMaxThroughput(String opName) {
+    ActiveOperation operation = activeOperations.get(opName);
+    return operation != null ? operation.maxThroughput : 0;
   }
 
   @Override
@@ -108,7 +220,7 @@ public abstract class PressureAwareThroughputController extends Configured imple
       return 0;
     }
     long now = EnvironmentEdgeManager.currentTime();
-    long minTimeAllowed = (long) (deltaSize / maxThroughputPerOperation * 1000); // ms
+    long minTimeAllowed = (long) (deltaSize / operation.maxThroughput * 1000); // ms
     long elapsedTime = now - operation.lastControlTime;
     operation.lastControlSize = operation.totalSize;
     if (elapsedTime >= minTimeAllowed) {
@@ -123,7 +235,7 @@ public abstract class PressureAwareThroughputController extends Configured imple
         LOG.debug("deltaSize: " + deltaSize + " bytes; elapseTime: " + elapsedTime + " ns");
         LOG.debug(opName + " sleep " + sleepTime + " ms because current throughput is "
             + throughputDesc(deltaSize, elapsedTime) + ", max allowed is "
-            + throughputDesc(maxThroughputPerOperation) + ", already slept "
+            + throughputDesc(operation.maxThroughput) + ", already slept "
             + operation.numberOfSleeps + " time(s) and total slept time is "
             + operation.totalSleepTime + " ms till now.");
         operation.lastLogTime = now;
@@ -144,11 +256,20 @@ public abstract class PressureAwareThroughputController extends Configured imple
    */
   protected abstract boolean skipControl(long deltaSize, long controlSize);
 
+  /**
+   * Reports the throughput a finished operation achieved and the time it slept to the metrics.
+   * @param bytesPerSecond the average throughput of the operation
+   * @param sleepTime the total time the operation slept, in milliseconds
+   */
+  protected abstract void updateMetrics(long bytesPerSecond, long sleepTime);
+
   @Override
   public void finish(String opName) {
     ActiveOperation operation = activeOperations.remove(opName);
-    maxThroughputPerOperation = getMaxThroughput() / activeOperations.size();
+    updateMaxThroughputPerOperation();
     long elapsedTime = EnvironmentEdgeManager.currentTime() - operation.startTime;
+    updateMetrics(elapsedTime > 0 ? operation.totalSize * 1000 / elapsedTime : operation.totalSize,
+      operation.totalSleepTime);
     LOG.info(opName + " average throughput is "
         + throughputDesc(operation.totalSize, elapsedTime) + ", slept "
         + operation.numberOfSleeps + " time(s) and total slept time is "
@@ -174,6 +295,6 @@ public abstract class PressureAwareThroughputController extends Configured imple
 
   public void setMaxThroughput(double maxThroughput) {
     this.maxThroughput = maxThroughput;
-    maxThroughputPerOperation = getMaxThroughput() / activeOperations.size();
+    updateMaxThroughputPerOperation();
   }
 }
@@ -19,6 +19,7 @@ package org.apache.hadoop.hbase.regionserver.throttle;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.regionserver.Store;
 
@@ -53,4 +54,25 @@ public final class ThroughputControlUtil {
         + store.getColumnFamilyDescriptor().getNameAsString()
         + NAME_DELIMITER + opName + NAME_DELIMITER + counter;
   }
+
+  /**
+   * @param name a name generated by {@link #getNameForThrottling(Store, String)}
+   * @return the part of the name that identifies the store, or the whole name if it was not
+   *         generated for a store
+   */
+  public static String getStoreForThrottling(final String name) {
+    int counterIndex = name.lastIndexOf(NAME_DELIMITER);
+    int opIndex = counterIndex > 0 ? name.lastIndexOf(NAME_DELIMITER, counterIndex - 1) : -1;
+    return opIndex > 0 ? name.substring(0, opIndex) : name;
+  }
+
+  /**
+   * @param name a name generated by {@link #getNameForThrottling(Store, String)}
+   * @return the name of the table of the store, which is the part of the region name before the
+   *         first comma, or the whole name if it was not generated for a store
+   */
+  public static String getTableForThrottling(final String name) {
+    int index = name.indexOf(HConstants.DELIMITER);
+    return index > 0 ? name.substring(0, index) : name;
+  }
 }
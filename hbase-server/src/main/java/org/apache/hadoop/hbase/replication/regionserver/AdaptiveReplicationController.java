@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Tunes the size of the batches read for a replication source and the number of batches it ships
+ * at once from how far behind the peer is.
+ * <p>
+ * The lag is the age of the last edit read from the WAL. While it is above
+ * {@value #HIGH_LAG_KEY} the batch size capacity doubles and one more batch is allowed in flight
+ * after every batch read, up to {@code replication.source.size.capacity} and
+ * {@value ReplicationSourceShipper#MAX_IN_FLIGHT_BATCHES_KEY}, so that a peer catches up quickly
+ * after an outage. Once it drops below {@value #LOW_LAG_KEY} they shrink the same way, down to
+ * {@value #MIN_SIZE_CAPACITY_KEY} and a single batch, so that edits are shipped as soon as they
+ * are written. The bandwidth limit of the peer is still applied to every batch shipped.
+ * </p>
+ */
+@InterfaceAudience.Private
+public class AdaptiveReplicationController {
+  private static final Log LOG = LogFactory.getLog(AdaptiveReplicationController.class);
+
+  public static final String ADAPTIVE_ENABLED_KEY = "replication.source.adaptive.enabled";
+  static final boolean DEFAULT_ADAPTIVE_ENABLED = false;
+
+  public static final String HIGH_LAG_KEY = "replication.source.adaptive.high.lag.ms";
+  static final long DEFAULT_HIGH_LAG = 60000;
+
+  public static final String LOW_LAG_KEY = "replication.source.adaptive.low.lag.ms";
+  static final long DEFAULT_LOW_LAG = 5000;
+
+  public static final String MIN_SIZE_CAPACITY_KEY =
+      "replication.source.adaptive.min.size.capacity";
+  static final long DEFAULT_MIN_SIZE_CAPACITY = 1024 * 1024;
+
+  private final MetricsSource metrics;
+  private final long highLag;
+  private final long lowLag;
+  private final long minSizeCapacity;
+  private final long maxSizeCapacity;
+  private final int maxInFlightBatches;
+
+  // Start with the largest batches, a source usually has a backlog when it starts
+  private volatile long sizeCapacity;
+  private volatile int inFlightBatchesLimit;
+
+  public AdaptiveReplicationController(Configuration conf, MetricsSource metrics) {
+    this.metrics = metrics;
+    this.highLag = conf.getLong(HIGH_LAG_KEY, DEFAULT_HIGH_LAG);
+    this.lowLag = conf.getLong(LOW_LAG_KEY, DEFAULT_LOW_LAG);
+    this.maxSizeCapacity = conf.getLong("replication.source.size.capacity", 1024 * 1024 * 64);
+    this.minSizeCapacity =
+        Math.min(conf.getLong(MIN_SIZE_CAPACITY_KEY, DEFAULT_MIN_SIZE_CAPACITY), maxSizeCapacity);
+    this.maxInFlightBatches = Math.max(1, conf.getInt(
+      ReplicationSourceShipper.MAX_IN_FLIGHT_BATCHES_KEY,
+      ReplicationSourceShipper.DEFAULT_MAX_IN_FLIGHT_BATCHES));
+    this.sizeCapacity = maxSizeCapacity;
+    this.inFlightBatchesLimit = maxInFlightBatches;
+    updateMetrics();
+  }
+
+  /**
+   * Adjusts the tuning to the age of the last edit read.
+   * @param lag the age of the last edit read in milliseconds, 0 if there was nothing to read
+   */
+  public synchronized void update(long lag) {
+    long newSizeCapacity = sizeCapacity;
+    int newInFlightBatchesLimit = inFlightBatchesLimit;
+    if (lag >= highLag) {
+      newSizeCapacity = Math.min(maxSizeCapacity, 2 * sizeCapacity);
+      newInFlightBatchesLimit = Math.min(maxInFlightBatches, inFlightBatchesLimit + 1);
+    } else if (lag <= lowLag) {
+      newSizeCapacity = Math.max(minSizeCapacity, sizeCapacity / 2);
+      newInFlightBatchesLimit = Math.max(1, inFlightBatchesLimit - 1);
+    }
+    if (newSizeCapacity != sizeCapacity || newInFlightBatchesLimit != inFlightBatchesLimit) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Replication lag " + lag + "ms, batch size capacity " + sizeCapacity + " -> "
+            + newSizeCapacity + ", in flight batches " + inFlightBatchesLimit + " -> "
+            + newInFlightBatchesLimit);
+      }
+      sizeCapacity = newSizeCapacity;
+      inFlightBatchesLimit = newInFlightBatchesLimit;
+      updateMetrics();
+    }
+  }
+
+  private void updateMetrics() {
+    metrics.setBatchSizeCapacity(sizeCapacity);
+    metrics.setInFlightBatchesLimit(inFlightBatchesLimit);
+  }
+
+  /**
+   * @return the size above which the reader stops adding entries to a batch
+   */
+  public long getSizeCapacity() {
+    return sizeCapacity;
+  }
+
+  /**
+   * @return the number of batches the shipper may have in flight
+   */
+  public int getInFlightBatchesLimit() {
+    return inFlightBatchesLimit;
+  }
+}
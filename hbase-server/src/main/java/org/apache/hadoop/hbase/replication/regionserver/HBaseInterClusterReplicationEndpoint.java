@@ -49,6 +49,8 @@ import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.client.ClusterConnection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.ipc.RpcClient;
 import org.apache.hadoop.hbase.ipc.RpcServer;
 import org.apache.hadoop.hbase.protobuf.ReplicationProtbufUtil;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.AdminService.BlockingInterface;
@@ -73,7 +75,6 @@ import org.apache.hadoop.ipc.RemoteException;
  */
 @InterfaceAudience.Private
 public class HBaseInterClusterReplicationEndpoint extends HBaseReplicationEndpoint {
-
   private static final Log LOG = LogFactory.getLog(HBaseInterClusterReplicationEndpoint.class);
 
   private static final long DEFAULT_MAX_TERMINATION_WAIT_MULTIPLIER = 2;
@@ -158,6 +159,16 @@ public class HBaseInterClusterReplicationEndpoint extends HBaseReplicationEndpoi
     if (StringUtils.isNotEmpty(replicationCodec)) {
       this.conf.set(HConstants.RPC_CODEC_CONF_KEY, replicationCodec);
     }
+    // The compressor class goes in the connection header, the sink decompresses the cell blocks
+    // of the connection with the same class.
+    String replicationCompression = this.conf.get(HConstants.REPLICATION_COMPRESSION_CONF_KEY);
+    if (StringUtils.isNotEmpty(replicationCompression)) {
+      String codecClassName = Compression.getCodecClassName(
+        Compression.getCompressionAlgorithmByName(replicationCompression), this.conf);
+      if (codecClassName != null) {
+        this.conf.set(RpcClient.COMPRESSOR_CLASS, codecClassName);
+      }
+    }
   }
 
   private void connectToPeers() {
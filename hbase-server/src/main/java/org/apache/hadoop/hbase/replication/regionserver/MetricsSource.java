@@ -114,6 +114,33 @@ public class MetricsSource implements BaseSource {
     globalSourceSource.decrSizeOfLogQueue(1);
   }
 
+  /**
+   * Increment the number of batches shipped to the peer and not yet acknowledged.
+   */
+  public void incrInFlightBatches() {
+    singleSourceSource.incrInFlightBatches(1);
+    globalSourceSource.incrInFlightBatches(1);
+  }
+
+  public void decrInFlightBatches() {
+    singleSourceSource.decrInFlightBatches(1);
+    globalSourceSource.decrInFlightBatches(1);
+  }
+
+  /**
+   * Add to the size of the WAL entries read for the peer and not yet acknowledged by it.
+   * @param bytes the heap size of the entries
+   */
+  public void incrLagBytes(long bytes) {
+    singleSourceSource.incrLagBytes(bytes);
+    globalSourceSource.incrLagBytes(bytes);
+  }
+
+  public void decrLagBytes(long bytes) {
+    singleSourceSource.decrLagBytes(bytes);
+    globalSourceSource.decrLagBytes(bytes);
+  }
+
   /**
    * Add on the the number of log edits read
    *
@@ -183,6 +210,8 @@ public class MetricsSource implements BaseSource {
     int lastQueueSize = singleSourceSource.getSizeOfLogQueue();
     globalSourceSource.decrSizeOfLogQueue(lastQueueSize);
     singleSourceSource.decrSizeOfLogQueue(lastQueueSize);
+    globalSourceSource.decrInFlightBatches(singleSourceSource.getInFlightBatches());
+    globalSourceSource.decrLagBytes(singleSourceSource.getLagBytes());
     singleSourceSource.clear();
     globalSourceSource.decrSizeOfHFileRefsQueue(lastHFileRefsQueueSize);
     lastTimeStamps.clear();
@@ -205,6 +234,54 @@ public class MetricsSource implements BaseSource {
     return singleSourceSource.getSizeOfLogQueue();
   }
 
+  /**
+   * Get the number of batches shipped to the peer and not yet acknowledged
+   * @return inFlightBatches
+   */
+  public int getInFlightBatches() {
+    return singleSourceSource.getInFlightBatches();
+  }
+
+  /**
+   * Get the size of the WAL entries read for the peer and not yet acknowledged
+   * @return lagBytes
+   */
+  public long getLagBytes() {
+    return singleSourceSource.getLagBytes();
+  }
+
+  /**
+   * Set the size above which the source stops adding WAL entries to a batch
+   * @param bytes the batch size capacity
+   */
+  public void setBatchSizeCapacity(long bytes) {
+    singleSourceSource.setBatchSizeCapacity(bytes);
+  }
+
+  /**
+   * Get the size above which the source stops adding WAL entries to a batch
+   * @return batchSizeCapacity
+   */
+  public long getBatchSizeCapacity() {
+    return singleSourceSource.getBatchSizeCapacity();
+  }
+
+  /**
+   * Set the number of batches the source may have shipped and not yet acknowledged
+   * @param batches the in flight batches limit
+   */
+  public void setInFlightBatchesLimit(int batches) {
+    singleSourceSource.setInFlightBatchesLimit(batches);
+  }
+
+  /**
+   * Get the number of batches the source may have shipped and not yet acknowledged
+   * @return inFlightBatchesLimit
+   */
+  public int getInFlightBatchesLimit() {
+    return singleSourceSource.getInFlightBatchesLimit();
+  }
+
   /**
    * Get the timeStampsOfLastShippedOp, if there are multiple groups, return the latest one
    * @return lastTimestampForAge
@@ -71,7 +71,10 @@ public class RecoveredReplicationSourceShipper extends ReplicationSourceShipper
       }
 
       try {
-        WALEntryBatch entryBatch = entryReader.take();
+        WALEntryBatch entryBatch = takeEntryBatch();
+        if (entryBatch == null) {
+          continue;
+        }
         shipEdits(entryBatch);
         if (entryBatch.getWalEntries().isEmpty()
             && entryBatch.getLastSeqIds().isEmpty()) {
@@ -86,6 +89,7 @@ public class RecoveredReplicationSourceShipper extends ReplicationSourceShipper
         Thread.currentThread().interrupt();
       }
     }
+    shutdownShipExecutor();
     source.tryFinish();
     // If the worker exits run loop without finishing its task, mark it as stopped.
     if (!isFinished()) {
@@ -28,6 +28,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
@@ -48,6 +52,7 @@ import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Row;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.WALEntry;
@@ -57,6 +62,7 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.StoreDescript
 import org.apache.hadoop.hbase.wal.WALEdit;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
+import org.apache.hadoop.hbase.util.Threads;
 
 /**
  * <p>
@@ -69,6 +75,11 @@ import org.apache.hadoop.hbase.util.Pair;
  * single region server cannot receive edits from two sources at the same time
  * </p><p>
  * This class uses the native HBase client in order to replicate entries.
+ * </p><p>
+ * With {@value #APPLY_THREADS_KEY} greater than one, the mutations of a table are partitioned by
+ * the region they go to, and the partitions are applied concurrently on a pool of that many
+ * threads. All the mutations of a row go to the same partition in their original order, so the
+ * edits of a row are still applied in order.
  * </p>
  *
  * TODO make this class more like ReplicationSource wrt log handling
@@ -77,6 +88,10 @@ import org.apache.hadoop.hbase.util.Pair;
 public class ReplicationSink {
 
   private static final Log LOG = LogFactory.getLog(ReplicationSink.class);
+
+  public static final String APPLY_THREADS_KEY = "replication.sink.apply.threads";
+  static final int DEFAULT_APPLY_THREADS = 1;
+
   private final Configuration conf;
   // Volatile because of note in here -- look for double-checked locking:
   // http://www.oracle.com/technetwork/articles/javase/bloch-effective-08-qa-140880.html
@@ -87,6 +102,8 @@ public class ReplicationSink {
   // Number of hfiles that we successfully replicated
   private long hfilesReplicated = 0;
   private SourceFSConfigurationProvider provider;
+  // Applies the mutations of different regions concurrently, null to apply them serially
+  private final ExecutorService applyPool;
 
   /**
    * Create a sink for replication
@@ -112,6 +129,9 @@ public class ReplicationSink {
       throw new IllegalArgumentException("Configured source fs configuration provider class "
           + className + " throws error.", e);
     }
+    int applyThreads = conf.getInt(APPLY_THREADS_KEY, DEFAULT_APPLY_THREADS);
+    this.applyPool = applyThreads > 1 ? Threads.getBoundedCachedThreadPool(applyThreads, 60,
+      TimeUnit.SECONDS, Threads.newDaemonThreadFactory("ReplicationSinkApply")) : null;
   }
 
   /**
@@ -162,6 +182,8 @@ public class ReplicationSink {
             TableName.valueOf(entry.getKey().getTableName().toByteArray());
         Cell previousCell = null;
         Mutation m = null;
+        // All the mutations of an entry share the same cluster ids
+        List<UUID> clusterIds = null;
         int count = entry.getAssociatedCellCount();
         for (int i = 0; i < count; i++) {
           // Throw index out of bounds if our cell count is off
@@ -177,20 +199,23 @@ public class ReplicationSink {
             buildBulkLoadHFileMap(bulkLoadHFileMap, table, cell);
           } else {
             // Handle wal replication
+            boolean isDelete = CellUtil.isDelete(cell);
             if (isNewRowOrType(previousCell, cell)) {
               // Create new mutation
               m =
-                  CellUtil.isDelete(cell) ? new Delete(cell.getRowArray(), cell.getRowOffset(),
+                  isDelete ? new Delete(cell.getRowArray(), cell.getRowOffset(),
                       cell.getRowLength()) : new Put(cell.getRowArray(), cell.getRowOffset(),
                       cell.getRowLength());
-              List<UUID> clusterIds = new ArrayList<>(entry.getKey().getClusterIdsList().size());
-              for (HBaseProtos.UUID clusterId : entry.getKey().getClusterIdsList()) {
-                clusterIds.add(toUUID(clusterId));
+              if (clusterIds == null) {
+                clusterIds = new ArrayList<>(entry.getKey().getClusterIdsList().size());
+                for (HBaseProtos.UUID clusterId : entry.getKey().getClusterIdsList()) {
+                  clusterIds.add(toUUID(clusterId));
+                }
               }
               m.setClusterIds(clusterIds);
               addToHashMultiMap(rowMap, table, clusterIds, m);
             }
-            if (CellUtil.isDelete(cell)) {
+            if (isDelete) {
               ((Delete) m).add(cell);
             } else {
               ((Put) m).add(cell);
@@ -340,6 +365,9 @@ public class ReplicationSink {
    * stop the thread pool executor. It is called when the regionserver is stopped.
    */
   public void stopReplicationSinkServices() {
+    if (applyPool != null) {
+      applyPool.shutdownNow();
+    }
     try {
       if (this.sharedHtableCon != null) {
         synchronized (sharedHtableConLock) {
@@ -368,6 +396,10 @@ public class ReplicationSink {
     Table table = null;
     try {
       Connection connection = getConnection();
+      if (applyPool != null) {
+        batchPerRegion(connection, tableName, allRows);
+        return;
+      }
       table = connection.getTable(tableName);
       for (List<Row> rows : allRows) {
         table.batch(rows, null);
@@ -381,6 +413,53 @@ public class ReplicationSink {
     }
   }
 
+  /**
+   * Applies the mutations of every region of the table concurrently. The lists of mutations are
+   * still applied one after the other in every region.
+   */
+  private void batchPerRegion(Connection connection, TableName tableName,
+      Collection<List<Row>> allRows) throws IOException, InterruptedException {
+    Map<String, List<List<Row>>> regionRows = new HashMap<>();
+    try (RegionLocator locator = connection.getRegionLocator(tableName)) {
+      for (List<Row> rows : allRows) {
+        Map<String, List<Row>> partitions = new HashMap<>();
+        for (Row row : rows) {
+          String region = locator.getRegionLocation(row.getRow()).getRegionInfo().getEncodedName();
+          partitions.computeIfAbsent(region, r -> new ArrayList<>()).add(row);
+        }
+        for (Map.Entry<String, List<Row>> partition : partitions.entrySet()) {
+          regionRows.computeIfAbsent(partition.getKey(), r -> new ArrayList<>())
+              .add(partition.getValue());
+        }
+      }
+    }
+    List<Future<Void>> futures = new ArrayList<>(regionRows.size());
+    for (List<List<Row>> rowsOfRegion : regionRows.values()) {
+      futures.add(applyPool.submit(() -> {
+        try (Table table = connection.getTable(tableName)) {
+          for (List<Row> rows : rowsOfRegion) {
+            table.batch(rows, null);
+          }
+        }
+        return null;
+      }));
+    }
+    IOException error = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (error == null) {
+          error = e.getCause() instanceof IOException ? (IOException) e.getCause()
+              : new IOException(e.getCause());
+        }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
   private Connection getConnection() throws IOException {
     // See https://en.wikipedia.org/wiki/Double-checked_locking
     Connection connection = sharedHtableCon;
@@ -120,6 +120,8 @@ public class ReplicationSource extends Thread implements ReplicationSourceInterf
   protected WALEntryFilter walEntryFilter;
   // throttler
   private ReplicationThrottler throttler;
+  // tunes the batches from the replication lag, null if disabled
+  private AdaptiveReplicationController adaptiveController;
   private long defaultBandwidth;
   private long currentBandwidth;
   private WALFileLengthProvider walFileLengthProvider;
@@ -178,6 +180,10 @@ public class ReplicationSource extends Thread implements ReplicationSourceInterf
     defaultBandwidth = this.conf.getLong("replication.source.per.peer.node.bandwidth", 0);
     currentBandwidth = getCurrentBandwidth();
     this.throttler = new ReplicationThrottler((double) currentBandwidth / 10.0);
+    if (this.conf.getBoolean(AdaptiveReplicationController.ADAPTIVE_ENABLED_KEY,
+      AdaptiveReplicationController.DEFAULT_ADAPTIVE_ENABLED)) {
+      this.adaptiveController = new AdaptiveReplicationController(this.conf, metrics);
+    }
     this.totalBufferUsed = manager.getTotalBufferUsed();
     this.walFileLengthProvider = walFileLengthProvider;
     LOG.info("peerClusterZnode=" + peerClusterZnode + ", ReplicationSource : " + peerId
@@ -335,6 +341,13 @@ public class ReplicationSource extends Thread implements ReplicationSourceInterf
     };
   }
 
+  /**
+   * @return the controller tuning the batches of this source, or null if they are not tuned
+   */
+  AdaptiveReplicationController getAdaptiveController() {
+    return adaptiveController;
+  }
+
   @Override
   public ReplicationEndpoint getReplicationEndpoint() {
     return this.replicationEndpoint;
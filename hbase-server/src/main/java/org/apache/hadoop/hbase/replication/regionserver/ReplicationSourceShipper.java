@@ -19,8 +19,16 @@
 package org.apache.hadoop.hbase.replication.regionserver;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -49,11 +57,23 @@ import org.apache.hadoop.hbase.shaded.com.google.common.cache.LoadingCache;
 /**
  * This thread reads entries from a queue and ships them. Entries are placed onto the queue by
  * ReplicationSourceWALReaderThread
+ * <p>
+ * By default a batch is only shipped once the peer acknowledged the one before it. With
+ * {@value #MAX_IN_FLIGHT_BATCHES_KEY} greater than one, up to that many batches are shipped at
+ * once, so that the round trips to a distant peer overlap. A batch is still held back while an
+ * earlier batch with edits of one of its regions is in flight, so the edits of a region reach the
+ * peer in order, and the log position only advances past a batch once it and all the batches
+ * before it were acknowledged. Batches with serial replication barriers and batches without
+ * entries are shipped once all earlier batches were acknowledged.
  */
 @InterfaceAudience.Private
 public class ReplicationSourceShipper extends Thread {
   private static final Log LOG = LogFactory.getLog(ReplicationSourceShipper.class);
 
+  public static final String MAX_IN_FLIGHT_BATCHES_KEY =
+      "replication.source.shipper.max.inflight.batches";
+  static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 1;
+
   // Hold the state of a replication worker thread
   public enum WorkerState {
     RUNNING,
@@ -79,6 +99,29 @@ public class ReplicationSourceShipper extends Thread {
   // Maximum number of retries before taking bold actions
   protected final int maxRetriesMultiplier;
 
+  /**
+   * A batch shipped to the peer and not yet accounted as replicated.
+   */
+  private static final class InFlightBatch {
+    private final WALEntryBatch entryBatch;
+    private final int size;
+    private final Set<String> regions;
+    private final Future<Boolean> replicated;
+
+    InFlightBatch(WALEntryBatch entryBatch, int size, Set<String> regions,
+        Future<Boolean> replicated) {
+      this.entryBatch = entryBatch;
+      this.size = size;
+      this.regions = regions;
+      this.replicated = replicated;
+    }
+  }
+
+  private final int maxInFlightBatches;
+  // The batches in flight in the order they were read, only accessed by the shipper thread
+  private final Deque<InFlightBatch> inFlightBatches = new ArrayDeque<>();
+  private ExecutorService shipExecutor;
+
   // Use guava cache to set ttl for each key
   private final LoadingCache<String, Boolean> canSkipWaitingSet = CacheBuilder.newBuilder()
       .expireAfterAccess(1, TimeUnit.DAYS).build(
@@ -100,6 +143,8 @@ public class ReplicationSourceShipper extends Thread {
         this.conf.getLong("replication.source.sleepforretries", 1000);    // 1 second
     this.maxRetriesMultiplier =
         this.conf.getInt("replication.source.maxretriesmultiplier", 300); // 5 minutes @ 1 sec per
+    this.maxInFlightBatches =
+        this.conf.getInt(MAX_IN_FLIGHT_BATCHES_KEY, DEFAULT_MAX_IN_FLIGHT_BATCHES);
   }
 
   @Override
@@ -124,7 +169,10 @@ public class ReplicationSourceShipper extends Thread {
       }
 
       try {
-        WALEntryBatch entryBatch = entryReader.take();
+        WALEntryBatch entryBatch = takeEntryBatch();
+        if (entryBatch == null) {
+          continue;
+        }
         for (Map.Entry<String, Long> entry : entryBatch.getLastSeqIds().entrySet()) {
           waitingUntilCanPush(entry);
         }
@@ -134,17 +182,41 @@ public class ReplicationSourceShipper extends Thread {
         Thread.currentThread().interrupt();
       }
     }
+    shutdownShipExecutor();
     // If the worker exits run loop without finishing its task, mark it as stopped.
     if (state != WorkerState.FINISHED) {
       setWorkerState(WorkerState.STOPPED);
     }
   }
 
+  /**
+   * Takes the next batch from the reader. While batches are in flight, only waits for a while and
+   * advances the log position past the batches the peer acknowledged in the meantime.
+   * @return the next batch, or null if none became available
+   */
+  protected WALEntryBatch takeEntryBatch() throws InterruptedException {
+    if (inFlightBatches.isEmpty()) {
+      return entryReader.take();
+    }
+    WALEntryBatch entryBatch = entryReader.poll(sleepForRetries);
+    if (entryBatch == null) {
+      completeAcknowledgedBatches();
+    }
+    return entryBatch;
+  }
+
   /**
    * Do the shipping logic
    */
   protected void shipEdits(WALEntryBatch entryBatch) {
     List<Entry> entries = entryBatch.getWalEntries();
+    if (maxInFlightBatches > 1 && !entries.isEmpty() && entryBatch.getLastSeqIds().isEmpty()) {
+      shipInFlight(entryBatch);
+      return;
+    }
+    if (!waitForInFlightBatches()) {
+      return;
+    }
     long lastReadPosition = entryBatch.getLastWalPosition();
     currentPath = entryBatch.getLastWalPath();
     int sleepMultiplier = 0;
@@ -191,25 +263,7 @@ public class ReplicationSourceShipper extends Thread {
           sleepMultiplier = Math.max(sleepMultiplier - 1, 0);
         }
 
-        if (this.lastLoggedPosition != lastReadPosition) {
-          //Clean up hfile references
-          int size = entries.size();
-          for (int i = 0; i < size; i++) {
-            cleanUpHFileRefs(entries.get(i).getEdit());
-          }
-
-          // Save positions to meta table before zk.
-          updateSerialRepPositions(entryBatch.getLastSeqIds());
-          //Log and clean up WAL logs
-          updateLogPosition(lastReadPosition);
-        }
-
-        source.postShipEdits(entries, currentSize);
-        // FIXME check relationship between wal group and overall
-        source.getSourceMetrics().shipBatch(entryBatch.getNbOperations(), currentSize,
-          entryBatch.getNbHFiles());
-        source.getSourceMetrics().setAgeOfLastShippedOp(
-          entries.get(entries.size() - 1).getKey().getWriteTime(), walGroupId);
+        postShipEdits(entryBatch, currentSize);
         if (LOG.isTraceEnabled()) {
           LOG.trace("Replicated " + entries.size() + " entries or " + entryBatch.getNbOperations()
               + " operations in " + ((endTimeNs - startTimeNs) / 1000000) + " ms");
@@ -225,6 +279,198 @@ public class ReplicationSourceShipper extends Thread {
     }
   }
 
+  /**
+   * Updates the log position and the metrics once the peer acknowledged the given batch and all
+   * the batches before it.
+   */
+  private void postShipEdits(WALEntryBatch entryBatch, int currentSize) throws IOException {
+    List<Entry> entries = entryBatch.getWalEntries();
+    long lastReadPosition = entryBatch.getLastWalPosition();
+    currentPath = entryBatch.getLastWalPath();
+    if (this.lastLoggedPosition != lastReadPosition) {
+      //Clean up hfile references
+      int size = entries.size();
+      for (int i = 0; i < size; i++) {
+        cleanUpHFileRefs(entries.get(i).getEdit());
+      }
+
+      // Save positions to meta table before zk.
+      updateSerialRepPositions(entryBatch.getLastSeqIds());
+      //Log and clean up WAL logs
+      updateLogPosition(lastReadPosition);
+    }
+
+    source.postShipEdits(entries, currentSize);
+    // FIXME check relationship between wal group and overall
+    source.getSourceMetrics().shipBatch(entryBatch.getNbOperations(), currentSize,
+      entryBatch.getNbHFiles());
+    source.getSourceMetrics().decrLagBytes(entryBatch.getHeapSize());
+    source.getSourceMetrics().setAgeOfLastShippedOp(
+      entries.get(entries.size() - 1).getKey().getWriteTime(), walGroupId);
+  }
+
+  /**
+   * Ships the given batch without waiting for the peer to acknowledge it, once fewer than the
+   * maximum number of batches and no batch with edits of the same regions are in flight.
+   */
+  private void shipInFlight(WALEntryBatch entryBatch) {
+    List<Entry> entries = entryBatch.getWalEntries();
+    Set<String> regions = new HashSet<>();
+    for (Entry entry : entries) {
+      regions.add(Bytes.toString(entry.getKey().getEncodedRegionName()));
+    }
+    if (!completeAcknowledgedBatches()) {
+      return;
+    }
+    while (!inFlightBatches.isEmpty()
+        && (inFlightBatches.size() >= getInFlightBatchesLimit() || isRegionInFlight(regions))) {
+      if (!completeFirstInFlightBatch()) {
+        return;
+      }
+    }
+    int currentSize = (int) entryBatch.getHeapSize();
+    while (isActive()) {
+      try {
+        source.tryThrottle(currentSize);
+        break;
+      } catch (InterruptedException e) {
+        LOG.debug("Interrupted while sleeping for throttling control");
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (!isActive()) {
+      return;
+    }
+    if (shipExecutor == null) {
+      shipExecutor = Executors.newFixedThreadPool(maxInFlightBatches,
+        Threads.newDaemonThreadFactory(getName() + ".shipper"));
+    }
+    inFlightBatches.addLast(new InFlightBatch(entryBatch, currentSize, regions,
+        shipExecutor.submit(() -> replicate(entryBatch, currentSize))));
+    source.getSourceMetrics().incrInFlightBatches();
+  }
+
+  private int getInFlightBatchesLimit() {
+    AdaptiveReplicationController adaptiveController = entryReader.getAdaptiveController();
+    return adaptiveController != null
+        ? Math.min(maxInFlightBatches, adaptiveController.getInFlightBatchesLimit())
+        : maxInFlightBatches;
+  }
+
+  private boolean isRegionInFlight(Set<String> regions) {
+    for (InFlightBatch inFlightBatch : inFlightBatches) {
+      for (String region : regions) {
+        if (inFlightBatch.regions.contains(region)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sends the given batch to the peer, retrying until the peer acknowledged it.
+   * @return false if the shipper was stopped before the peer acknowledged the batch
+   */
+  private boolean replicate(WALEntryBatch entryBatch, int currentSize) {
+    int sleepMultiplier = 0;
+    while (isActive()) {
+      try {
+        ReplicationEndpoint.ReplicateContext replicateContext =
+            new ReplicationEndpoint.ReplicateContext();
+        replicateContext.setEntries(entryBatch.getWalEntries()).setSize(currentSize);
+        replicateContext.setWalGroupId(walGroupId);
+        if (source.getReplicationEndpoint().replicate(replicateContext)) {
+          return true;
+        }
+      } catch (Exception ex) {
+        LOG.warn(source.getReplicationEndpoint().getClass().getName() + " threw unknown exception:"
+            + org.apache.hadoop.util.StringUtils.stringifyException(ex));
+        if (sleepForRetries("ReplicationEndpoint threw exception", sleepMultiplier)) {
+          sleepMultiplier++;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Advances the log position past the batches the peer acknowledged without waiting.
+   * @return false if the shipper was stopped before
+   */
+  private boolean completeAcknowledgedBatches() {
+    while (!inFlightBatches.isEmpty() && inFlightBatches.peekFirst().replicated.isDone()) {
+      if (!completeFirstInFlightBatch()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Waits until the peer acknowledged all the batches in flight.
+   * @return false if the shipper was stopped before
+   */
+  private boolean waitForInFlightBatches() {
+    while (!inFlightBatches.isEmpty()) {
+      if (!completeFirstInFlightBatch()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Waits for the peer to acknowledge the oldest batch in flight, and advances the log position
+   * past it.
+   * @return false if the shipper was stopped before
+   */
+  private boolean completeFirstInFlightBatch() {
+    InFlightBatch inFlightBatch = inFlightBatches.peekFirst();
+    boolean replicated;
+    try {
+      replicated = inFlightBatch.replicated.get();
+    } catch (InterruptedException e) {
+      LOG.debug("Interrupted while waiting for an in flight batch");
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      // replicate retries on all exceptions
+      throw new RuntimeException(e.getCause());
+    }
+    if (!replicated) {
+      return false;
+    }
+    int sleepMultiplier = 1;
+    while (isActive()) {
+      try {
+        postShipEdits(inFlightBatch.entryBatch, inFlightBatch.size);
+        inFlightBatches.removeFirst();
+        source.getSourceMetrics().decrInFlightBatches();
+        return true;
+      } catch (IOException e) {
+        LOG.warn("Failed to clean up after shipping a batch", e);
+        if (sleepForRetries("Clean up after shipping failed", sleepMultiplier)) {
+          sleepMultiplier++;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Stops shipping the batches in flight, which are shipped again from the last logged position.
+   */
+  protected void shutdownShipExecutor() {
+    if (shipExecutor != null) {
+      shipExecutor.shutdownNow();
+    }
+    for (int i = inFlightBatches.size(); i > 0; i--) {
+      source.getSourceMetrics().decrInFlightBatches();
+    }
+    inFlightBatches.clear();
+  }
+
   private void waitingUntilCanPush(Map.Entry<String, Long> entry) {
     String key = entry.getKey();
     long seq = entry.getValue();
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
@@ -39,6 +40,7 @@ import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.replication.WALEntryFilter;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.hbase.util.Threads;
 import org.apache.hadoop.hbase.wal.WAL.Entry;
@@ -68,6 +70,8 @@ public class ReplicationSourceWALReader extends Thread {
   protected final BlockingQueue<WALEntryBatch> entryBatchQueue;
   // max (heap) size of each batch - multiply by number of batches in queue to get total
   private final long replicationBatchSizeCapacity;
+  // tunes the batch size capacity of the source, null if the capacity is fixed
+  private final AdaptiveReplicationController adaptiveController;
   // max count of each batch - multiply by number of batches in queue to get total
   protected final int replicationBatchCountCapacity;
   // position in the WAL to start reading at
@@ -104,6 +108,7 @@ public class ReplicationSourceWALReader extends Thread {
     this.replicationBatchSizeCapacity =
         this.conf.getLong("replication.source.size.capacity", 1024 * 1024 * 64);
     this.replicationBatchCountCapacity = this.conf.getInt("replication.source.nb.capacity", 25000);
+    this.adaptiveController = source.getAdaptiveController();
     // memory used will be batchSizeCapacity * (nb.batches + 1)
     // the +1 is for the current thread reading before placing onto the queue
     int batchCount = conf.getInt("replication.source.nb.batches", 1);
@@ -134,11 +139,13 @@ public class ReplicationSourceWALReader extends Thread {
             continue;
           }
           WALEntryBatch batch = readWALEntries(entryStream);
+          updateAdaptiveController(batch);
           if (batch != null && (!batch.getLastSeqIds().isEmpty() || batch.getNbEntries() > 0)) {
             if (LOG.isTraceEnabled()) {
               LOG.trace(String.format("Read %s WAL entries eligible for replication",
                 batch.getNbEntries()));
             }
+            source.getSourceMetrics().incrLagBytes(batch.getHeapSize());
             entryBatchQueue.put(batch);
             sleepMultiplier = 1;
           } else { // got no entries and didn't advance position in WAL
@@ -171,7 +178,7 @@ public class ReplicationSourceWALReader extends Thread {
       }
       Entry entry = entryStream.next();
       if (updateSerialReplPos(batch, entry)) {
-        batch.lastWalPosition = entryStream.getPosition();
+        batch.setLastWalPosition(entryStream.getPosition());
         break;
       }
       entry = filterEntry(entry);
@@ -183,7 +190,7 @@ public class ReplicationSourceWALReader extends Thread {
           updateBatchStats(batch, entry, entryStream.getPosition(), entrySize);
           boolean totalBufferTooLarge = acquireBufferQuota(entrySize);
           // Stop if too many entries or too big
-          if (totalBufferTooLarge || batch.getHeapSize() >= replicationBatchSizeCapacity
+          if (totalBufferTooLarge || batch.getHeapSize() >= getBatchSizeCapacity()
               || batch.getNbEntries() >= replicationBatchCountCapacity) {
             break;
           }
@@ -193,6 +200,28 @@ public class ReplicationSourceWALReader extends Thread {
     return batch;
   }
 
+  private long getBatchSizeCapacity() {
+    return adaptiveController != null ? adaptiveController.getSizeCapacity()
+        : replicationBatchSizeCapacity;
+  }
+
+  /**
+   * Reports to the adaptive controller how old the last entry read is, or no lag if there was no
+   * entry to read.
+   */
+  private void updateAdaptiveController(WALEntryBatch batch) {
+    if (adaptiveController == null) {
+      return;
+    }
+    long lag = 0;
+    if (batch != null && batch.getNbEntries() > 0) {
+      List<Entry> entries = batch.getWalEntries();
+      lag = EnvironmentEdgeManager.currentTime()
+          - entries.get(entries.size() - 1).getKey().getWriteTime();
+    }
+    adaptiveController.update(lag);
+  }
+
   protected void handleEmptyWALEntryBatch(WALEntryBatch batch, Path currentPath)
       throws InterruptedException {
     LOG.trace("Didn't read any new entries from WAL");
@@ -217,6 +246,13 @@ public class ReplicationSourceWALReader extends Thread {
     }
   }
 
+  /**
+   * @return the controller tuning the batches of the source, or null if they are not tuned
+   */
+  AdaptiveReplicationController getAdaptiveController() {
+    return adaptiveController;
+  }
+
   public Path getCurrentPath() {
     // if we've read some WAL entries, get the Path we read from
     WALEntryBatch batchQueueHead = entryBatchQueue.peek();
@@ -282,6 +318,17 @@ public class ReplicationSourceWALReader extends Thread {
     return entryBatchQueue.take();
   }
 
+  /**
+   * Retrieves the next batch of WAL entries from the queue, waiting up to the given time for a
+   * batch to become available
+   * @param timeout how long to wait, in milliseconds
+   * @return A batch of entries, or null if no batch became available in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public WALEntryBatch poll(long timeout) throws InterruptedException {
+    return entryBatchQueue.poll(timeout, TimeUnit.MILLISECONDS);
+  }
+
   private long getEntrySize(Entry entry) {
     WALEdit edit = entry.getEdit();
     return edit.heapSize() + calculateTotalSizeOfStoreFiles(edit);
@@ -295,7 +342,7 @@ public class ReplicationSourceWALReader extends Thread {
       batch.incrementNbRowKeys(nbRowsAndHFiles.getFirst());
       batch.incrementNbHFiles(nbRowsAndHFiles.getSecond());
     }
-    batch.lastWalPosition = entryPosition;
+    batch.setLastWalPosition(entryPosition);
   }
 
   /**
@@ -443,6 +490,10 @@ public class ReplicationSourceWALReader extends Thread {
       return lastWalPosition;
     }
 
+    void setLastWalPosition(long lastWalPosition) {
+      this.lastWalPosition = lastWalPosition;
+    }
+
     public int getNbEntries() {
       return walEntries.size();
     }
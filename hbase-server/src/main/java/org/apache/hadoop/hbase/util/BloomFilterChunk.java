@@ -50,6 +50,11 @@ public class BloomFilterChunk implements BloomFilterBase {
   protected ByteBuffer bloom;
   /** The type of bloom */
   protected BloomType bloomType;
+  /**
+   * Whether all bits of a key are set in one block,
+   * see {@link BloomFilterUtil#BLOCKED_BLOOM_BLOCK_BYTES}
+   */
+  protected final boolean blocked;
 
   /**
    * Loads bloom filter meta data from file input.
@@ -63,6 +68,7 @@ public class BloomFilterChunk implements BloomFilterBase {
     this.hashType = meta.readInt();
     this.keyCount = meta.readInt();
     this.maxKeys = this.keyCount;
+    this.blocked = false;
 
     this.hash = Hash.getInstance(this.hashType);
     if (hash == null) {
@@ -81,13 +87,19 @@ public class BloomFilterChunk implements BloomFilterBase {
    * @return error rate for this particular Bloom filter
    */
   public double actualErrorRate() {
-    return BloomFilterUtil.actualErrorRate(keyCount, byteSize * 8, hashCount);
+    return blocked ? BloomFilterUtil.blockedErrorRate(keyCount, byteSize * 8, hashCount)
+        : BloomFilterUtil.actualErrorRate(keyCount, byteSize * 8, hashCount);
   }
 
   public BloomFilterChunk(int hashType, BloomType bloomType) {
+    this(hashType, bloomType, false);
+  }
+
+  public BloomFilterChunk(int hashType, BloomType bloomType, boolean blocked) {
     this.hashType = hashType;
     this.hash = Hash.getInstance(hashType);
     this.bloomType = bloomType;
+    this.blocked = blocked;
   }
 
   /**
@@ -108,14 +120,21 @@ public class BloomFilterChunk implements BloomFilterBase {
   // Used only in testcases
   public BloomFilterChunk(int maxKeys, double errorRate, int hashType,
       int foldFactor) throws IllegalArgumentException {
-    this(hashType, BloomType.ROW);
+    this(maxKeys, errorRate, hashType, foldFactor, false);
+  }
+
+  // Used only in testcases
+  public BloomFilterChunk(int maxKeys, double errorRate, int hashType,
+      int foldFactor, boolean blocked) throws IllegalArgumentException {
+    this(hashType, BloomType.ROW, blocked);
 
     long bitSize = BloomFilterUtil.computeBitSize(maxKeys, errorRate);
     hashCount = BloomFilterUtil.optimalFunctionCount(maxKeys, bitSize);
     this.maxKeys = maxKeys;
 
     // increase byteSize so folding is possible
-    byteSize = BloomFilterUtil.computeFoldableByteSize(bitSize, foldFactor);
+    byteSize = blocked ? BloomFilterUtil.computeBlockedFoldableByteSize(bitSize, foldFactor)
+        : BloomFilterUtil.computeFoldableByteSize(bitSize, foldFactor);
 
     sanityCheck();
   }
@@ -127,7 +146,7 @@ public class BloomFilterChunk implements BloomFilterBase {
    * @return a Bloom filter with the same configuration as this
    */
   public BloomFilterChunk createAnother() {
-    BloomFilterChunk bbf = new BloomFilterChunk(hashType, this.bloomType);
+    BloomFilterChunk bbf = new BloomFilterChunk(hashType, this.bloomType, this.blocked);
     bbf.byteSize = byteSize;
     bbf.hashCount = hashCount;
     bbf.maxKeys = maxKeys;
@@ -174,6 +193,10 @@ public class BloomFilterChunk implements BloomFilterBase {
      * http://www.eecs.harvard.edu/~kirsch/pubs/bbbf/esa06.pdf
      */
     HashKey<byte[]> hashKey = new ByteArrayHashKey(buf, offset, len);
+    if (blocked) {
+      setBlockedHashLoc(this.hash.hash(hashKey, 0));
+      return;
+    }
     int hash1 = this.hash.hash(hashKey, 0);
     int hash2 = this.hash.hash(hashKey, hash1);
     setHashLoc(hash1, hash2);
@@ -189,13 +212,15 @@ public class BloomFilterChunk implements BloomFilterBase {
     HashKey<Cell> hashKey;
     if (this.bloomType == BloomType.ROW) {
       hashKey = new RowBloomHashKey(cell);
-      hash1 = this.hash.hash(hashKey, 0);
-      hash2 = this.hash.hash(hashKey, hash1);
     } else {
       hashKey = new RowColBloomHashKey(cell);
-      hash1 = this.hash.hash(hashKey, 0);
-      hash2 = this.hash.hash(hashKey, hash1);
     }
+    if (blocked) {
+      setBlockedHashLoc(this.hash.hash(hashKey, 0));
+      return;
+    }
+    hash1 = this.hash.hash(hashKey, 0);
+    hash2 = this.hash.hash(hashKey, hash1);
     setHashLoc(hash1, hash2);
   }
 
@@ -208,6 +233,16 @@ public class BloomFilterChunk implements BloomFilterBase {
     ++this.keyCount;
   }
 
+  private void setBlockedHashLoc(int keyHash) {
+    int blockBitOffset = BloomFilterUtil.blockedBloomBlockBitOffset(keyHash, (int) this.byteSize);
+    long probes = BloomFilterUtil.blockedBloomProbes(keyHash);
+    for (int i = 0; i < this.hashCount; i++) {
+      set(blockBitOffset + BloomFilterUtil.blockedBloomProbe(probes, i));
+    }
+
+    ++this.keyCount;
+  }
+
   //---------------------------------------------------------------------------
   /** Private helpers */
 
@@ -265,8 +300,10 @@ public class BloomFilterChunk implements BloomFilterBase {
       int newByteSize = (int)this.byteSize;
       int newMaxKeys = this.maxKeys;
 
+      // Blocked blooms can only be folded while they have an even number of blocks
+      int foldMask = blocked ? BloomFilterUtil.BLOCKED_BLOOM_BLOCK_BYTES * 2 - 1 : 1;
       // while exponentially smaller & folding is lossless
-      while ((newByteSize & 1) == 0 && newMaxKeys > (this.keyCount<<1)) {
+      while ((newByteSize & foldMask) == 0 && newMaxKeys > (this.keyCount<<1)) {
         pieces <<= 1;
         newByteSize >>= 1;
         newMaxKeys >>= 1;
@@ -310,6 +347,10 @@ public class BloomFilterChunk implements BloomFilterBase {
     return hashCount;
   }
 
+  public boolean isBlocked() {
+    return blocked;
+  }
+
   @Override
   public String toString() {
     return BloomFilterUtil.toString(this);
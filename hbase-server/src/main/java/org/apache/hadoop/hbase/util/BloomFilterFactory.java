@@ -83,6 +83,16 @@ public final class BloomFilterFactory {
   public static final String IO_STOREFILE_BLOOM_BLOCK_SIZE =
       "io.storefile.bloom.block.size";
 
+  /**
+   * Whether to write blocked Bloom filters, which set all bits of a key in one
+   * 64-byte block so that a lookup costs a single cache miss, at the price of
+   * a bit more space for the same error rate. Files with either kind of Bloom
+   * filter can be read regardless of this setting. It can be set for a column
+   * family in its configuration.
+   */
+  public static final String IO_STOREFILE_BLOOM_BLOCKED =
+      "io.storefile.bloom.blocked";
+
   /** Maximum number of times a Bloom filter can be "folded" if oversized */
   private static final int MAX_ALLOWED_FOLD_FACTOR = 7;
 
@@ -105,6 +115,9 @@ public final class BloomFilterFactory {
       case CompoundBloomFilterBase.VERSION:
         return new CompoundBloomFilter(meta, reader);
 
+      case CompoundBloomFilterBase.BLOCKED_VERSION:
+        return new CompoundBloomFilter(meta, reader, true);
+
       default:
         throw new IllegalArgumentException(
           "Bad bloom filter format version " + version
@@ -127,6 +140,13 @@ public final class BloomFilterFactory {
     return conf.getBoolean(IO_STOREFILE_DELETEFAMILY_BLOOM_ENABLED, true);
   }
 
+  /**
+   * @return true if blocked Bloom filters should be written in the given configuration
+   */
+  public static boolean isBlockedBloomEnabled(Configuration conf) {
+    return conf.getBoolean(IO_STOREFILE_BLOOM_BLOCKED, false);
+  }
+
   /**
    * @return the Bloom filter error rate in the given configuration
    */
@@ -196,7 +216,10 @@ public final class BloomFilterFactory {
     // In case of compound Bloom filters we ignore the maxKeys hint.
     CompoundBloomFilterWriter bloomWriter = new CompoundBloomFilterWriter(getBloomBlockSize(conf),
         err, Hash.getHashType(conf), maxFold, cacheConf.shouldCacheBloomsOnWrite(),
-        bloomType == BloomType.ROWCOL ? CellComparator.COMPARATOR : null, bloomType);
+        bloomType == BloomType.ROWCOL ? CellComparator.COMPARATOR : null,
+        // Row prefix Bloom filters hold the prefixes as rows.
+        bloomType == BloomType.ROWCOL ? BloomType.ROWCOL : BloomType.ROW,
+        isBlockedBloomEnabled(conf));
     writer.addInlineBlockWriter(bloomWriter);
     return bloomWriter;
   }
@@ -227,7 +250,7 @@ public final class BloomFilterFactory {
     // In case of compound Bloom filters we ignore the maxKeys hint.
     CompoundBloomFilterWriter bloomWriter = new CompoundBloomFilterWriter(getBloomBlockSize(conf),
         err, Hash.getHashType(conf), maxFold, cacheConf.shouldCacheBloomsOnWrite(),
-        null, BloomType.ROW);
+        null, BloomType.ROW, isBlockedBloomEnabled(conf));
     writer.addInlineBlockWriter(bloomWriter);
     return bloomWriter;
   }
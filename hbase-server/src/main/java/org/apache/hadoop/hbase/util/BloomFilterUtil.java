@@ -18,8 +18,10 @@
 package org.apache.hadoop.hbase.util;
 
 import java.text.NumberFormat;
+import java.util.Arrays;
 import java.util.Random;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.nio.ByteBuff;
@@ -38,6 +40,21 @@ public final class BloomFilterUtil {
    * 0.480453.
    */
   public static final double LOG2_SQUARED = Math.log(2) * Math.log(2);
+
+  /**
+   * Size of the blocks of a blocked Bloom filter. All bits of a key are set in a single block, so
+   * that a lookup touches one cache line instead of one per hash function.
+   */
+  public static final int BLOCKED_BLOOM_BLOCK_BYTES = 64;
+  private static final int BLOCKED_BLOOM_BLOCK_SHIFT = 6;
+  private static final int BLOCKED_BLOOM_BLOCK_BITS = BLOCKED_BLOOM_BLOCK_BYTES * 8;
+  private static final int BLOCKED_BLOOM_PROBE_BITS = 9;
+  private static final int BLOCKED_BLOOM_PROBES_PER_MIX = Long.SIZE / BLOCKED_BLOOM_PROBE_BITS;
+
+  /** Length of the row prefix of {@link BloomType#ROWPREFIX_FIXED_LENGTH} Bloom filters */
+  public static final String PREFIX_LENGTH_KEY = "RowPrefixBloomFilter.prefix_length";
+  /** Delimiter ending the row prefix of {@link BloomType#ROWPREFIX_DELIMITED} Bloom filters */
+  public static final String DELIMITER_KEY = "RowPrefixDelimitedBloomFilter.delimiter";
   
   /**
    * A random number generator to use for "fake lookups" when testing to
@@ -158,6 +175,73 @@ public final class BloomFilterUtil {
     return (int) byteSizeLong;
   }
 
+  /**
+   * Like {@link #computeFoldableByteSize(long, int)}, for blocked Bloom filters. The size is a
+   * whole number of blocks, and folding has to leave whole blocks too, so the fold factor is
+   * reduced for sizes that do not have that many blocks.
+   *
+   * @param bitSize
+   * @param foldFactor
+   * @return Foldable byte size
+   */
+  public static int computeBlockedFoldableByteSize(long bitSize, int foldFactor) {
+    long byteSize = (bitSize + 7) / 8;
+    while (foldFactor > 0 && ((long) BLOCKED_BLOOM_BLOCK_BYTES << foldFactor) > byteSize) {
+      --foldFactor;
+    }
+    return computeFoldableByteSize(bitSize, foldFactor + BLOCKED_BLOOM_BLOCK_SHIFT);
+  }
+
+  /**
+   * The error rate of a blocked Bloom filter. The number of keys in the block a query lands in
+   * follows a Poisson distribution, overloaded blocks make the error rate higher than the one of a
+   * standard Bloom filter of the same size, see {@link #actualErrorRate(long, long, int)}.
+   *
+   * @param maxKeys
+   * @param bitSize
+   * @param functionCount
+   * @return the error rate
+   */
+  public static double blockedErrorRate(long maxKeys, long bitSize, int functionCount) {
+    double keysPerBlock = maxKeys * (double) BLOCKED_BLOOM_BLOCK_BITS / bitSize;
+    double bitUnset = 1 - 1.0 / BLOCKED_BLOOM_BLOCK_BITS;
+    int maxKeysInBlock = (int) (keysPerBlock + 10 * Math.sqrt(keysPerBlock) + 20);
+    double probability = Math.exp(-keysPerBlock);
+    double errorRate = 0;
+    for (int i = 0; i <= maxKeysInBlock; i++) {
+      if (i > 0) {
+        probability *= keysPerBlock / i;
+      }
+      errorRate += probability
+          * Math.pow(1 - Math.pow(bitUnset, (double) functionCount * i), functionCount);
+    }
+    return errorRate;
+  }
+
+  /**
+   * Like {@link #computeMaxKeys(long, double, int)}, for blocked Bloom filters.
+   *
+   * @param bitSize
+   * @param errorRate
+   * @param hashCount
+   * @return the maximum number of keys that can be inserted in a blocked Bloom
+   *         filter to maintain the target error rate
+   */
+  public static long computeBlockedMaxKeys(long bitSize, double errorRate, int hashCount) {
+    // The error rate grows with the number of keys, binary search for the last one that is fine.
+    long low = 0;
+    long high = computeMaxKeys(bitSize, errorRate, hashCount);
+    while (low < high) {
+      long mid = (low + high + 1) >>> 1;
+      if (blockedErrorRate(mid, bitSize, hashCount) <= errorRate) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
   public static int optimalFunctionCount(int maxKeys, long bitSize) {
     long i = bitSize / maxKeys;
     double result = Math.ceil(Math.log(2) * i);
@@ -180,9 +264,27 @@ public final class BloomFilterUtil {
    */
   public static BloomFilterChunk createBySize(int byteSizeHint,
       double errorRate, int hashType, int foldFactor, BloomType bloomType) {
-    BloomFilterChunk bbf = new BloomFilterChunk(hashType, bloomType);
+    return createBySize(byteSizeHint, errorRate, hashType, foldFactor, bloomType, false);
+  }
 
-    bbf.byteSize = computeFoldableByteSize(byteSizeHint * 8L, foldFactor);
+  /**
+   * Creates a Bloom filter chunk of the given size.
+   *
+   * @param byteSizeHint the desired number of bytes for the Bloom filter bit
+   *          array. Will be increased so that folding is possible.
+   * @param errorRate target false positive rate of the Bloom filter
+   * @param hashType Bloom filter hash function type
+   * @param foldFactor
+   * @param bloomType
+   * @param blocked whether to create a blocked Bloom filter
+   * @return the new Bloom filter of the desired size
+   */
+  public static BloomFilterChunk createBySize(int byteSizeHint,
+      double errorRate, int hashType, int foldFactor, BloomType bloomType, boolean blocked) {
+    BloomFilterChunk bbf = new BloomFilterChunk(hashType, bloomType, blocked);
+
+    bbf.byteSize = blocked ? computeBlockedFoldableByteSize(byteSizeHint * 8L, foldFactor)
+        : computeFoldableByteSize(byteSizeHint * 8L, foldFactor);
     long bitSize = bbf.byteSize * 8;
     bbf.maxKeys = (int) idealMaxKeys(bitSize, errorRate);
     bbf.hashCount = optimalFunctionCount(bbf.maxKeys, bitSize);
@@ -190,7 +292,8 @@ public final class BloomFilterUtil {
     // Adjust max keys to bring error rate closer to what was requested,
     // because byteSize was adjusted to allow for folding, and hashCount was
     // rounded.
-    bbf.maxKeys = (int) computeMaxKeys(bitSize, errorRate, bbf.hashCount);
+    bbf.maxKeys = (int) (blocked ? computeBlockedMaxKeys(bitSize, errorRate, bbf.hashCount)
+        : computeMaxKeys(bitSize, errorRate, bbf.hashCount));
 
     return bbf;
   }
@@ -232,9 +335,89 @@ public final class BloomFilterUtil {
 
   public static boolean contains(Cell cell, ByteBuff bloomBuf, int bloomOffset, int bloomSize,
       Hash hash, int hashCount, BloomType type) {
+    return contains(cell, bloomBuf, bloomOffset, bloomSize, hash, hashCount, type, false);
+  }
+
+  public static boolean contains(byte[] buf, int offset, int length,
+      ByteBuff bloomBuf, int bloomOffset, int bloomSize, Hash hash,
+      int hashCount, boolean blocked) {
+    HashKey<byte[]> hashKey = new ByteArrayHashKey(buf, offset, length);
+    return blocked ? containsBlocked(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey)
+        : contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
+  }
+
+  public static boolean contains(Cell cell, ByteBuff bloomBuf, int bloomOffset, int bloomSize,
+      Hash hash, int hashCount, BloomType type, boolean blocked) {
     HashKey<Cell> hashKey = type == BloomType.ROW ? new RowBloomHashKey(cell)
         : new RowColBloomHashKey(cell);
-    return contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
+    return blocked ? containsBlocked(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey)
+        : contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
+  }
+
+  private static <T> boolean containsBlocked(ByteBuff bloomBuf, int bloomOffset, int bloomSize,
+      Hash hash, int hashCount, HashKey<T> hashKey) {
+    int blockBitOffset;
+    long probes;
+    if (randomGeneratorForTest == null) {
+      // Production mode.
+      int keyHash = hash.hash(hashKey, 0);
+      blockBitOffset = blockedBloomBlockBitOffset(keyHash, bloomSize);
+      probes = blockedBloomProbes(keyHash);
+    } else {
+      // Test mode with "fake lookups" to estimate "ideal false positive rate".
+      blockBitOffset = randomGeneratorForTest.nextInt(bloomSize / BLOCKED_BLOOM_BLOCK_BYTES)
+          * BLOCKED_BLOOM_BLOCK_BITS;
+      probes = randomGeneratorForTest.nextLong();
+    }
+    for (int i = 0; i < hashCount; i++) {
+      if (!checkBit(blockBitOffset + blockedBloomProbe(probes, i), bloomBuf, bloomOffset)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the offset in bits of the block of a blocked Bloom filter of the given size a key with
+   *         the given hash goes to. Taking the hash modulo the number of blocks keeps the filter
+   *         foldable.
+   */
+  static int blockedBloomBlockBitOffset(int keyHash, int bloomSize) {
+    int numBlocks = bloomSize >>> BLOCKED_BLOOM_BLOCK_SHIFT;
+    return ((keyHash & Integer.MAX_VALUE) % numBlocks) * BLOCKED_BLOOM_BLOCK_BITS;
+  }
+
+  /**
+   * Spreads the hash of a key over 64 bits, from which the positions of its bits inside its block
+   * are derived, so that a single hash of the key is enough.
+   */
+  static long blockedBloomProbes(int keyHash) {
+    return mix64(keyHash);
+  }
+
+  /**
+   * @return the position of the i-th bit of a key inside its block. The positions are independent
+   *         9 bit slices of the probes, which are mixed again for every further 7 bits. Double
+   *         hashing inside a block this small gives a noticeably higher false positive rate.
+   */
+  static int blockedBloomProbe(long probes, int i) {
+    if (i >= BLOCKED_BLOOM_PROBES_PER_MIX) {
+      probes = mix64(probes + (i / BLOCKED_BLOOM_PROBES_PER_MIX) * 0x9e3779b97f4a7c15L);
+      i %= BLOCKED_BLOOM_PROBES_PER_MIX;
+    }
+    return (int) (probes >>> (i * BLOCKED_BLOOM_PROBE_BITS)) & (BLOCKED_BLOOM_BLOCK_BITS - 1);
+  }
+
+  /**
+   * The finalization mix of MurmurHash3.
+   */
+  private static long mix64(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
   }
 
   /**
@@ -277,4 +460,87 @@ public final class BloomFilterUtil {
     return formatStats(bloomFilter) + STATS_RECORD_SEP + "Actual error rate: "
         + String.format("%.8f", bloomFilter.actualErrorRate());
   }
+
+  /**
+   * @return true if Bloom filters of the given type hold a prefix of the row
+   */
+  public static boolean isRowPrefixBloomType(BloomType bloomType) {
+    return bloomType == BloomType.ROWPREFIX_FIXED_LENGTH
+        || bloomType == BloomType.ROWPREFIX_DELIMITED;
+  }
+
+  /**
+   * Gets the parameter of a row prefix Bloom filter from the column family configuration, the
+   * prefix length for {@link BloomType#ROWPREFIX_FIXED_LENGTH} and the delimiter for
+   * {@link BloomType#ROWPREFIX_DELIMITED}. It is stored with the store file, so that the file
+   * can be read without the configuration it was written with.
+   * @return the parameter, or null if Bloom filters of the given type have none
+   * @throws IllegalArgumentException if the parameter is missing or invalid
+   */
+  public static byte[] getBloomFilterParam(BloomType bloomType, Configuration conf) {
+    switch (bloomType) {
+      case ROWPREFIX_FIXED_LENGTH:
+        String prefixLength = conf.get(PREFIX_LENGTH_KEY);
+        if (prefixLength == null) {
+          throw new IllegalArgumentException(PREFIX_LENGTH_KEY + " not specified for "
+              + bloomType + " Bloom filter");
+        }
+        int length;
+        try {
+          length = Integer.parseInt(prefixLength);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Invalid " + PREFIX_LENGTH_KEY + ": "
+              + prefixLength, e);
+        }
+        if (length <= 0) {
+          throw new IllegalArgumentException("Invalid " + PREFIX_LENGTH_KEY + ": "
+              + prefixLength + ", it must be greater than 0");
+        }
+        return Bytes.toBytes(length);
+      case ROWPREFIX_DELIMITED:
+        String delimiter = conf.get(DELIMITER_KEY);
+        if (delimiter == null || delimiter.isEmpty()) {
+          throw new IllegalArgumentException(DELIMITER_KEY + " not specified for "
+              + bloomType + " Bloom filter");
+        }
+        return Bytes.toBytes(delimiter);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return the row prefix a row prefix Bloom filter holds for the given row, which is the whole
+   *         row if it is shorter than the prefix length or does not contain the delimiter. The
+   *         delimiter is part of the prefix, so that the prefixes of sorted rows are sorted too.
+   */
+  public static byte[] getRowPrefix(BloomType bloomType, byte[] param, byte[] row) {
+    int prefixLength = getRowPrefixLength(bloomType, param, row);
+    return prefixLength < 0 || prefixLength == row.length ? row
+        : Arrays.copyOf(row, prefixLength);
+  }
+
+  /**
+   * @return the row prefix of the given row if exactly the rows starting with it have the same
+   *         row prefix, or null if longer rows starting with the row have other prefixes, which
+   *         is the case when it is shorter than the prefix length or does not contain the
+   *         delimiter
+   */
+  public static byte[] getCompleteRowPrefix(BloomType bloomType, byte[] param, byte[] row) {
+    int prefixLength = getRowPrefixLength(bloomType, param, row);
+    return prefixLength < 0 ? null : Arrays.copyOf(row, prefixLength);
+  }
+
+  /**
+   * @return the length of the row prefix of the given row, or -1 if the row prefix is not
+   *         complete
+   */
+  private static int getRowPrefixLength(BloomType bloomType, byte[] param, byte[] row) {
+    if (bloomType == BloomType.ROWPREFIX_FIXED_LENGTH) {
+      int prefixLength = Bytes.toInt(param);
+      return row.length < prefixLength ? -1 : prefixLength;
+    }
+    int index = Bytes.indexOf(row, param);
+    return index < 0 ? -1 : index + param.length;
+  }
 }
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Handles ROWPREFIX_FIXED_LENGTH and ROWPREFIX_DELIMITED bloom related context. The row prefix
+ * of each cell is added as a row to the underlying row Bloom filter.
+ */
+@InterfaceAudience.Private
+public class RowPrefixBloomContext extends RowBloomContext {
+  private final BloomType bloomType;
+  private final byte[] bloomParam;
+
+  /**
+   * @param bloomParam the prefix length or delimiter, see
+   *          {@link BloomFilterUtil#getBloomFilterParam(BloomType,
+   *          org.apache.hadoop.conf.Configuration)}
+   */
+  public RowPrefixBloomContext(BloomFilterWriter bloomFilterWriter, CellComparator comparator,
+      BloomType bloomType, byte[] bloomParam) {
+    super(bloomFilterWriter, comparator);
+    this.bloomType = bloomType;
+    this.bloomParam = bloomParam;
+  }
+
+  @Override
+  public void writeBloom(Cell cell) throws IOException {
+    super.writeBloom(getRowPrefixCell(cell));
+  }
+
+  private Cell getRowPrefixCell(Cell cell) {
+    byte[] row = CellUtil.copyRow(cell);
+    return CellUtil.createFirstOnRow(BloomFilterUtil.getRowPrefix(bloomType, bloomParam, row));
+  }
+}
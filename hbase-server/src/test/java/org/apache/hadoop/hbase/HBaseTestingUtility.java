@@ -112,6 +112,7 @@ import org.apache.hadoop.hbase.security.HBaseKerberosUtils;
 import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.security.visibility.VisibilityLabelsCache;
 import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.FSTableDescriptors;
 import org.apache.hadoop.hbase.util.FSUtils;
@@ -4344,6 +4345,8 @@ public class HBaseTestingUtility extends HBaseCommonTestingUtility {
           htd.setCompressionType(compressionType);
           htd.setDataBlockEncoding(encodingType);
           htd.setBloomFilterType(bloomType);
+          htd.setConfiguration(BloomFilterUtil.PREFIX_LENGTH_KEY, "10");
+          htd.setConfiguration(BloomFilterUtil.DELIMITER_KEY, "#");
           htds.add(htd);
           familyId++;
         }
@@ -20,6 +20,7 @@ package org.apache.hadoop.hbase.io.hfile;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -415,6 +416,56 @@ public class TestCacheConfig {
     assertDataBlockCount(lrubc, 1);
   }
 
+  /**
+   * Index and bloom blocks go into a tier of their own when it is configured, so that data
+   * blocks cached in L1 do not compete with them.
+   */
+  @Test
+  public void testIndexBlockCacheTier() {
+    this.conf.set(HConstants.BUCKET_CACHE_IOENGINE_KEY, "offheap");
+    this.conf.setInt(HConstants.BUCKET_CACHE_SIZE_KEY, 100);
+    this.conf.setFloat(CacheConfig.INDEX_BLOCK_CACHE_PERCENTAGE_KEY, 0.25f);
+    long lruCacheSize = MemorySizeUtil.getLruCacheSize(this.conf);
+    CacheConfig cc = new CacheConfig(this.conf);
+    assertTrue(cc.getBlockCache() instanceof CombinedBlockCache);
+    CombinedBlockCache cbc = (CombinedBlockCache)cc.getBlockCache();
+    BlockCache[] bcs = cbc.getBlockCaches();
+    assertEquals(3, bcs.length);
+    LruBlockCache lrubc = (LruBlockCache)bcs[0];
+    LruBlockCache indexCache = (LruBlockCache)bcs[2];
+    assertEquals((long) (lruCacheSize * 0.25f), indexCache.getMaxSize());
+    assertEquals(lruCacheSize, indexCache.getMaxSize() + lrubc.getMaxSize());
+
+    BlockCacheKey indexKey = new BlockCacheKey("index", 0, true, BlockType.LEAF_INDEX);
+    cbc.cacheBlock(indexKey, new IndexCacheEntry(), false, false);
+    assertEquals(1, indexCache.getBlockCount());
+    assertEquals(0, lrubc.getBlockCount());
+    cc.setCacheDataInL1(true);
+    cacheDataBlock(cc, "1");
+    assertEquals(1, indexCache.getBlockCount());
+    assertDataBlockCount(lrubc, 1);
+
+    assertTrue(cbc.getBlock(indexKey, true, false, true) != null);
+    assertEquals(1, cc.getIndexCacheStats().getHitCount());
+    assertEquals(1, cbc.getStats().getHitCount());
+    // The misses of index blocks are counted by the index block cache.
+    BlockCacheKey missingIndexKey = new BlockCacheKey("index", 1, true, BlockType.LEAF_INDEX);
+    assertNull(cbc.getBlock(missingIndexKey, true, false, true));
+    assertEquals(1, cc.getIndexCacheStats().getMissCount());
+    // The lruCache can be resized, the index block cache keeps its size.
+    cbc.setMaxSize(lruCacheSize / 2);
+    assertEquals((long) (lruCacheSize * 0.25f), indexCache.getMaxSize());
+    assertEquals(lruCacheSize / 2, indexCache.getMaxSize() + lrubc.getMaxSize());
+    try {
+      cbc.setMaxSize(indexCache.getMaxSize());
+      fail("The lruCache would have no room left");
+    } catch (IllegalArgumentException e) {
+    }
+    assertEquals(lruCacheSize / 2, indexCache.getMaxSize() + lrubc.getMaxSize());
+    assertTrue(cbc.evictBlock(indexKey));
+    assertEquals(0, indexCache.getBlockCount());
+  }
+
   @Test
   public void testL2CacheWithInvalidBucketSize() {
     Configuration c = new Configuration(this.conf);
@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({IOTests.class, SmallTests.class})
+public class TestFrontCodedBlockKeys {
+  private static final int NUM_KEYS = 1000;
+  private static final byte[] FAMILY = Bytes.toBytes("family");
+  private static final byte[] QUALIFIER = Bytes.toBytes("qualifier");
+
+  private final Random rand = new Random(4711);
+
+  /**
+   * @return sorted, distinct rows with long shared prefixes
+   */
+  private static List<byte[]> createRows(int numRows) {
+    List<byte[]> rows = new ArrayList<>();
+    for (int i = 0; i < numRows; i++) {
+      rows.add(Bytes.toBytes(String.format("user%08d-%s", i, i % 7 == 0 ? "x" : "yy")));
+    }
+    return rows;
+  }
+
+  private List<byte[]> createKeys(List<byte[]> rows) {
+    List<byte[]> keys = new ArrayList<>();
+    for (byte[] row : rows) {
+      keys.add(new KeyValue(row, FAMILY, QUALIFIER, 1000L - rand.nextInt(10), KeyValue.Type.Put)
+          .getKey());
+    }
+    return keys;
+  }
+
+  private static FrontCodedBlockKeys frontCode(List<byte[]> keys, int restartInterval,
+      boolean offHeap) {
+    FrontCodedBlockKeys.Builder builder = new FrontCodedBlockKeys.Builder(keys.size(),
+        restartInterval);
+    for (byte[] key : keys) {
+      builder.add(key);
+    }
+    assertTrue(builder.isFull());
+    return builder.build(offHeap);
+  }
+
+  /**
+   * @return every second key, so that there is something to search for between the keys
+   */
+  private static List<byte[]> everySecond(List<byte[]> keys) {
+    List<byte[]> result = new ArrayList<>();
+    for (int i = 1; i < keys.size(); i += 2) {
+      result.add(keys.get(i));
+    }
+    return result;
+  }
+
+  private void checkSearches(int restartInterval, boolean offHeap) {
+    List<byte[]> allRows = createRows(2 * NUM_KEYS);
+    List<byte[]> rows = everySecond(allRows);
+    byte[][] rowArray = rows.toArray(new byte[rows.size()][]);
+    FrontCodedBlockKeys frontCodedRows = frontCode(rows, restartInterval, offHeap);
+    assertEquals(rows.size(), frontCodedRows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      assertArrayEquals(rows.get(i), frontCodedRows.getKey(i));
+    }
+    allRows.add(0, Bytes.toBytes("a"));
+    allRows.add(Bytes.toBytes("z"));
+    for (byte[] row : allRows) {
+      assertEquals(Bytes.binarySearch(rowArray, row, 0, row.length),
+        frontCodedRows.binarySearch(row, 0, row.length));
+    }
+
+    List<byte[]> allKeys = createKeys(allRows);
+    List<byte[]> keys = everySecond(allKeys);
+    Cell[] cellArray = new Cell[keys.size()];
+    for (int i = 0; i < keys.size(); i++) {
+      cellArray[i] = new KeyValue.KeyOnlyKeyValue(keys.get(i), 0, keys.get(i).length);
+    }
+    FrontCodedBlockKeys frontCodedKeys = frontCode(keys, restartInterval, offHeap);
+    for (byte[] key : allKeys) {
+      Cell cell = new KeyValue.KeyOnlyKeyValue(key, 0, key.length);
+      assertEquals(Bytes.binarySearch(cellArray, cell, CellComparator.COMPARATOR),
+        frontCodedKeys.binarySearch(cell, CellComparator.COMPARATOR));
+    }
+  }
+
+  @Test
+  public void testSearch() {
+    for (int restartInterval : new int[] { 1, 2, 16, 100, 5000 }) {
+      checkSearches(restartInterval, false);
+    }
+  }
+
+  @Test
+  public void testSearchOffHeap() {
+    checkSearches(16, true);
+  }
+
+  @Test
+  public void testSearchKeysThatArePrefixes() {
+    String[] rows = { "", "a", "ab", "abc", "abcd", "abd", "abda", "ac", "b", "ba", "b\u00ff",
+      "b\u00ff\u00ff" };
+    List<byte[]> keys = new ArrayList<>();
+    for (String row : rows) {
+      keys.add(Bytes.toBytesBinary(row));
+    }
+    List<byte[]> probes = new ArrayList<>(keys);
+    for (String row : new String[] { "aa", "abb", "abcc", "abce", "abdb", "ad", "b\u0001",
+        "b\u00ff\u00fe", "bb", "c" }) {
+      probes.add(Bytes.toBytesBinary(row));
+    }
+    byte[][] keyArray = keys.toArray(new byte[keys.size()][]);
+    for (int restartInterval : new int[] { 1, 3, 100 }) {
+      FrontCodedBlockKeys frontCoded = frontCode(keys, restartInterval, false);
+      for (byte[] probe : probes) {
+        assertEquals(Bytes.toStringBinary(probe),
+          Bytes.binarySearch(keyArray, probe, 0, probe.length),
+          frontCoded.binarySearch(probe, 0, probe.length));
+      }
+    }
+  }
+
+  /**
+   * Checks that looking up keys allocates no more than looking them up among key objects does.
+   */
+  @Test
+  public void testSearchAllocations() {
+    java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+    Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported()
+        && allocationBean.isThreadAllocatedMemoryEnabled());
+
+    List<byte[]> allRows = createRows(2 * NUM_KEYS);
+    List<byte[]> allKeys = createKeys(allRows);
+    List<byte[]> keys = everySecond(allKeys);
+    byte[][] rowArray = everySecond(allRows).toArray(new byte[NUM_KEYS][]);
+    Cell[] cellArray = new Cell[keys.size()];
+    for (int i = 0; i < keys.size(); i++) {
+      cellArray[i] = new KeyValue.KeyOnlyKeyValue(keys.get(i), 0, keys.get(i).length);
+    }
+    Cell[] searchCells = new Cell[allKeys.size()];
+    for (int i = 0; i < allKeys.size(); i++) {
+      searchCells[i] = new KeyValue.KeyOnlyKeyValue(allKeys.get(i), 0, allKeys.get(i).length);
+    }
+    FrontCodedBlockKeys frontCodedRows = frontCode(everySecond(allRows), 16, false);
+    FrontCodedBlockKeys[] frontCodedKeys = { frontCode(keys, 16, false),
+      frontCode(keys, 16, true) };
+
+    long thread = Thread.currentThread().getId();
+    for (int round = 0; round < 2; round++) {
+      // The first round warms up, only the second one is checked.
+      long start = allocationBean.getThreadAllocatedBytes(thread);
+      for (Cell cell : searchCells) {
+        Bytes.binarySearch(cellArray, cell, CellComparator.COMPARATOR);
+      }
+      for (byte[] row : allRows) {
+        Bytes.binarySearch(rowArray, row, 0, row.length);
+      }
+      long keyObjectsAllocated = allocationBean.getThreadAllocatedBytes(thread) - start;
+
+      start = allocationBean.getThreadAllocatedBytes(thread);
+      for (FrontCodedBlockKeys frontCoded : frontCodedKeys) {
+        for (Cell cell : searchCells) {
+          frontCoded.binarySearch(cell, CellComparator.COMPARATOR);
+        }
+      }
+      for (byte[] row : allRows) {
+        frontCodedRows.binarySearch(row, 0, row.length);
+      }
+      long frontCodedAllocated = allocationBean.getThreadAllocatedBytes(thread) - start;
+      if (round > 0) {
+        // Leave a byte per search of room for what the JVM allocates on the side. Decoding a key
+        // into a new array alone takes dozens.
+        int numSearches = frontCodedKeys.length * searchCells.length + allRows.size();
+        assertTrue("Expected " + frontCodedAllocated + " bytes allocated to be about "
+            + keyObjectsAllocated, frontCodedAllocated <= keyObjectsAllocated + numSearches);
+      }
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    FrontCodedBlockKeys frontCoded = frontCode(new ArrayList<>(), 16, false);
+    assertEquals(0, frontCoded.size());
+    assertEquals(-1, frontCoded.binarySearch(QUALIFIER, 0, QUALIFIER.length));
+  }
+
+  @Test
+  public void testSmallerThanKeyObjects() {
+    List<byte[]> keys = createKeys(createRows(NUM_KEYS));
+    long keyObjectsHeapSize = ClassSize.align(ClassSize.ARRAY + keys.size() * ClassSize.REFERENCE);
+    for (byte[] key : keys) {
+      keyObjectsHeapSize += ClassSize.align(
+        ClassSize.align(ClassSize.ARRAY + key.length) + KeyValue.KeyOnlyKeyValue.FIXED_OVERHEAD);
+    }
+    long frontCodedHeapSize = frontCode(keys, 16, false).heapSize();
+    assertTrue("Expected " + frontCodedHeapSize + " to be less than half of "
+        + keyObjectsHeapSize, frontCodedHeapSize * 2 < keyObjectsHeapSize);
+    assertTrue(frontCode(keys, 16, true).heapSize() * 10 < frontCodedHeapSize);
+  }
+}
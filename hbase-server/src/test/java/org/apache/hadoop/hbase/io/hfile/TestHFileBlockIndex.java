@@ -100,6 +100,7 @@ public class TestHFileBlockIndex {
   private final Compression.Algorithm compr;
   private byte[] firstKeyInFile;
   private Configuration conf;
+  private int frontCodedRestartInterval = 0;
 
   private static final int[] INDEX_CHUNK_SIZES = { 4096, 512, 384 };
   private static final int[] EXPECTED_NUM_LEVELS = { 2, 3, 4 };
@@ -133,6 +134,12 @@ public class TestHFileBlockIndex {
     testBlockIndexInternals(true);
   }
 
+  @Test
+  public void testFrontCodedBlockIndex() throws IOException {
+    frontCodedRestartInterval = 4;
+    testBlockIndexInternals(false);
+  }
+
   private void clear() throws IOException {
     keys.clear();
     rand = new Random(2389757);
@@ -214,6 +221,7 @@ public class TestHFileBlockIndex {
     HFileBlockIndex.BlockIndexReader indexReader =
         new HFileBlockIndex.CellBasedKeyBlockIndexReader(
             CellComparator.COMPARATOR, numLevels, brw);
+    indexReader.setFrontCodedKeys(frontCodedRestartInterval, false);
 
     indexReader.readRootIndex(blockReader.blockRange(rootIndexOffset,
         fileSize).nextBlockWithBlockType(BlockType.ROOT_INDEX), numRootEntries);
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({IOTests.class, SmallTests.class})
+public class TestHFileCompressionDictionary {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final int NUM_KVS = 2000;
+
+  private static FileSystem fs;
+  private static List<KeyValue> testKvs;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    // Disable block cache in this test.
+    conf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.0f);
+    conf.setInt(HFileWriterImpl.COMPRESSION_DICTIONARY_SAMPLE_BLOCKS_KEY, 4);
+    fs = FileSystem.get(conf);
+
+    // Small JSON documents that share their structure but little else.
+    Random rand = new Random(12345);
+    testKvs = new ArrayList<>(NUM_KVS);
+    for (int i = 0; i < NUM_KVS; i++) {
+      String value = "{\"customerId\":" + rand.nextInt(1000000) + ",\"status\":\""
+          + (rand.nextBoolean() ? "ACTIVE" : "SUSPENDED") + "\",\"balance\":"
+          + rand.nextInt(100000) + ",\"lastLogin\":\"2017-0" + (1 + rand.nextInt(9))
+          + "-1" + rand.nextInt(10) + "T12:" + (10 + rand.nextInt(50)) + ":00Z\"}";
+      testKvs.add(new KeyValue(Bytes.toBytes(String.format("row%08d", i)), Bytes.toBytes("f"),
+          Bytes.toBytes("q"), Bytes.toBytes(value)));
+    }
+  }
+
+  private Path writeHFile(Configuration conf, DataBlockEncoding encoding) throws IOException {
+    HFileContext fileContext = new HFileContextBuilder()
+        .withBlockSize(1024) // small blocks
+        .withCompression(Compression.Algorithm.GZ)
+        .withDataBlockEncoding(encoding)
+        .build();
+    Path path = new Path(TEST_UTIL.getDataTestDir(), UUID.randomUUID().toString() + ".hfile");
+    FSDataOutputStream out = fs.create(path);
+    HFile.Writer writer = HFile.getWriterFactory(conf, new CacheConfig(conf))
+        .withOutputStream(out)
+        .withFileContext(fileContext)
+        .create();
+    try {
+      for (KeyValue kv : testKvs) {
+        writer.append(kv);
+      }
+    } finally {
+      writer.close();
+      out.close();
+    }
+    return path;
+  }
+
+  private void verifyHFile(Configuration conf, Path path) throws IOException {
+    HFile.Reader reader = HFile.createReader(fs, path, new CacheConfig(conf), true, conf);
+    try {
+      HFileScanner scanner = reader.getScanner(false, false);
+      assertTrue("Initial seekTo failed", scanner.seekTo());
+      int i = 0;
+      do {
+        assertTrue("Read back an unexpected KV",
+          CellUtil.equals(testKvs.get(i), scanner.getCell()));
+        assertTrue(CellUtil.matchingValue(testKvs.get(i), scanner.getCell()));
+        i++;
+      } while (scanner.next());
+      assertEquals("Did not read back as many KVs as written", testKvs.size(), i);
+
+      // Random seeks with pread hit blocks written both before and after training.
+      scanner = reader.getScanner(false, true);
+      Random rand = new Random(54321);
+      for (i = 0; i < 100; i++) {
+        KeyValue kv = testKvs.get(rand.nextInt(testKvs.size()));
+        assertEquals("Unable to find KV as expected: " + kv, 0, scanner.seekTo(kv));
+        assertTrue(CellUtil.matchingValue(kv, scanner.getCell()));
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReadBackWithDictionary() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HFileWriterImpl.COMPRESSION_DICTIONARY_ENABLED_KEY, true);
+    for (DataBlockEncoding encoding : DataBlockEncoding.values()) {
+      if (encoding == DataBlockEncoding.PREFIX_TREE) {
+        continue;
+      }
+      Path path = writeHFile(conf, encoding);
+      HFile.Reader reader = HFile.createReader(fs, path, new CacheConfig(conf), true, conf);
+      try {
+        assertNotNull("No dictionary stored for " + encoding,
+          reader.loadFileInfo().get(HFile.FileInfo.COMPRESSION_DICTIONARY));
+      } finally {
+        reader.close();
+      }
+      verifyHFile(conf, path);
+    }
+  }
+
+  @Test
+  public void testDictionaryShrinksSmallBlocks() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    Path plainPath = writeHFile(conf, DataBlockEncoding.NONE);
+    HFile.Reader reader = HFile.createReader(fs, plainPath, new CacheConfig(conf), true, conf);
+    try {
+      assertNull(reader.loadFileInfo().get(HFile.FileInfo.COMPRESSION_DICTIONARY));
+    } finally {
+      reader.close();
+    }
+
+    conf.setBoolean(HFileWriterImpl.COMPRESSION_DICTIONARY_ENABLED_KEY, true);
+    Path dictionaryPath = writeHFile(conf, DataBlockEncoding.NONE);
+    long plainSize = fs.getFileStatus(plainPath).getLen();
+    long dictionarySize = fs.getFileStatus(dictionaryPath).getLen();
+    assertTrue("Expected " + dictionarySize + " < " + plainSize, dictionarySize < plainSize);
+  }
+}
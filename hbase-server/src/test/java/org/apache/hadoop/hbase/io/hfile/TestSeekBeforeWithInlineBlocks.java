@@ -41,6 +41,7 @@ import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
 import org.apache.hadoop.hbase.testclassification.IOTests;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
 import org.apache.hadoop.hbase.util.BloomFilterFactory;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -98,6 +99,8 @@ public class TestSeekBeforeWithInlineBlocks {
           
           conf.setInt(HFileBlockIndex.MAX_CHUNK_SIZE_KEY, indexBlockSize);
           conf.setInt(BloomFilterFactory.IO_STOREFILE_BLOOM_BLOCK_SIZE, BLOOM_BLOCK_SIZE);
+          conf.setInt(BloomFilterUtil.PREFIX_LENGTH_KEY, 10);
+          conf.set(BloomFilterUtil.DELIMITER_KEY, "#");
           
           Cell[] cells = new Cell[NUM_KV];
 
@@ -36,6 +36,8 @@ import java.net.InetSocketAddress;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -45,7 +47,9 @@ import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.Waiter;
 import org.apache.hadoop.hbase.ipc.RpcServer.BlockingServiceAndInterface;
 import org.apache.hadoop.hbase.nio.ByteBuff;
 import org.apache.hadoop.hbase.shaded.com.google.protobuf.ServiceException;
@@ -223,6 +227,85 @@ public abstract class AbstractTestIPC {
     }
   }
 
+  /**
+   * Tests that responses release the memory they reserve once sent, and that calls are rejected
+   * while the response memory is exhausted.
+   */
+  @Test
+  public void testRpcMaxResponseMemory() throws Exception {
+    Configuration conf = new Configuration(CONF);
+    conf.setLong(RpcServer.MAX_RESPONSE_MEMORY_KEY, 1024 * 1024);
+    final RpcServer rpcServer = RpcServerFactory.createRpcServer(null,
+        "testRpcServer", Lists.newArrayList(new BlockingServiceAndInterface(
+            SERVICE, null)), new InetSocketAddress("localhost", 0), conf,
+        new FifoRpcScheduler(conf, 1));
+    try (AbstractRpcClient<?> client = createRpcClient(conf)) {
+      rpcServer.start();
+      BlockingInterface stub = newBlockingStub(client, rpcServer.getListenerAddress());
+      EchoRequestProto param = EchoRequestProto.newBuilder().setMessage("hello").build();
+      HBaseRpcController pcrc = new HBaseRpcControllerImpl(
+          CellUtil.createCellScanner(ImmutableList.<Cell> of(BIG_CELL)));
+      assertEquals("hello", stub.echo(pcrc, param).getMessage());
+      // The response is released after it has been written, which may be after we read it.
+      Waiter.waitFor(conf, 10000, () -> rpcServer.responseMemoryInBytes.sum() == 0);
+
+      rpcServer.addResponseMemory(1024 * 1024);
+      try {
+        stub.echo(null, param);
+        fail("RPC should have failed because the response memory is exhausted");
+      } catch (ServiceException e) {
+        LOG.info("Caught expected exception: " + e);
+        assertTrue(e.toString(),
+          StringUtils.stringifyException(e).contains("CallQueueTooBigException"));
+      }
+      rpcServer.addResponseMemory(-1024 * 1024);
+      assertEquals("hello", stub.echo(null, param).getMessage());
+    } finally {
+      rpcServer.stop();
+    }
+  }
+
+  /**
+   * Tests that a response that is ready after its client went away still releases its memory.
+   */
+  @Test
+  public void testResponseMemoryReleasedOnClose() throws Exception {
+    final RpcServer rpcServer = RpcServerFactory.createRpcServer(null,
+        "testRpcServer", Lists.newArrayList(new BlockingServiceAndInterface(
+            SERVICE, null)), new InetSocketAddress("localhost", 0), CONF,
+        new FifoRpcScheduler(CONF, 1));
+    try {
+      rpcServer.start();
+      final AbstractRpcClient<?> client = createRpcClient(CONF);
+      final BlockingInterface stub = newBlockingStub(client, rpcServer.getListenerAddress());
+      final CountDownLatch callDone = new CountDownLatch(1);
+      Thread caller = new Thread(() -> {
+        try {
+          stub.pause(null, PauseRequestProto.newBuilder().setMs(2000).build());
+        } catch (ServiceException e) {
+          LOG.info("Caught expected exception: " + e);
+        } finally {
+          callDone.countDown();
+        }
+      });
+      caller.start();
+      // Close the connection while the call is still running on the server
+      Waiter.waitFor(CONF, 10000, () -> rpcServer.getNumOpenConnections() == 1);
+      client.close();
+      assertTrue(callDone.await(10, TimeUnit.SECONDS));
+      // There is a single handler, so the pause call has been responded to on the closed
+      // connection once this call is served.
+      try (AbstractRpcClient<?> otherClient = createRpcClient(CONF)) {
+        EchoRequestProto param = EchoRequestProto.newBuilder().setMessage("hello").build();
+        assertEquals("hello", newBlockingStub(otherClient, rpcServer.getListenerAddress())
+            .echo(null, param).getMessage());
+      }
+      Waiter.waitFor(CONF, 10000, () -> rpcServer.responseMemoryInBytes.sum() == 0);
+    } finally {
+      rpcServer.stop();
+    }
+  }
+
   /**
    * Tests that the RpcServer creates & dispatches CallRunner object to scheduler with non-null
    * remoteAddress set to its Call Object
@@ -299,6 +382,40 @@ public abstract class AbstractTestIPC {
     }
   }
 
+  /**
+   * Checks that a call made while running another call times out once the deadline of the other
+   * call passes, even if its own timeout is longer.
+   */
+  @Test
+  public void testInheritedDeadline() throws IOException {
+    RpcServer rpcServer = RpcServerFactory.createRpcServer(null,
+        "testRpcServer", Lists.newArrayList(new BlockingServiceAndInterface(
+            SERVICE, null)), new InetSocketAddress("localhost", 0), CONF,
+        new FifoRpcScheduler(CONF, 1));
+    try (AbstractRpcClient<?> client = createRpcClient(CONF)) {
+      rpcServer.start();
+      BlockingInterface stub = newBlockingStub(client, rpcServer.getListenerAddress());
+      HBaseRpcController pcrc = new HBaseRpcControllerImpl();
+      pcrc.setCallTimeout(10000);
+      int ms = 1000;
+      long startTime = System.nanoTime();
+      InheritedRpcContext.set(HConstants.PRIORITY_UNSET, System.currentTimeMillis() + 100);
+      try {
+        stub.pause(pcrc, PauseRequestProto.newBuilder().setMs(ms).build());
+        fail("Expected the call to time out at the inherited deadline");
+      } catch (ServiceException e) {
+        long waitTime = (System.nanoTime() - startTime) / 1000000;
+        IOException ioe = ProtobufUtil.handleRemoteException(e);
+        assertTrue(ioe.getCause() instanceof CallTimeoutException);
+        assertTrue(waitTime < ms);
+      } finally {
+        InheritedRpcContext.clear();
+      }
+    } finally {
+      rpcServer.stop();
+    }
+  }
+
   static class TestFailingRpcServer extends SimpleRpcServer {
 
     TestFailingRpcServer() throws IOException {
@@ -24,6 +24,11 @@ public class MetricsHBaseServerWrapperStub implements MetricsHBaseServerWrapper{
     return 101;
   }
 
+  @Override
+  public long getResponseMemorySize() {
+    return 100;
+  }
+
   @Override
   public int getGeneralQueueLength() {
     return 102;
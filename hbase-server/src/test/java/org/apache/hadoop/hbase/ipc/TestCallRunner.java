@@ -17,6 +17,16 @@
  */
 package org.apache.hadoop.hbase.ipc;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.monitoring.MonitoredRPCHandler;
 import org.apache.hadoop.hbase.monitoring.MonitoredRPCHandlerImpl;
 import org.apache.hadoop.hbase.testclassification.RPCTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
@@ -38,4 +48,38 @@ public class TestCallRunner {
     cr.setStatus(new MonitoredRPCHandlerImpl());
     cr.run();
   }
+
+  /**
+   * Checks that the calls made while running a call inherit its priority and deadline.
+   */
+  @Test
+  public void testInheritPriorityAndDeadline() throws Exception {
+    RpcServerInterface mockRpcServer = Mockito.mock(RpcServerInterface.class);
+    Mockito.when(mockRpcServer.isStarted()).thenReturn(true);
+    ServerCall mockCall = Mockito.mock(ServerCall.class);
+    Mockito.when(mockCall.disconnectSince()).thenReturn(-1L);
+    Mockito.when(mockCall.getRemoteAddress()).thenReturn(InetAddress.getLoopbackAddress());
+    long deadline = System.currentTimeMillis() + 60000;
+    Mockito.when(mockCall.getDeadline()).thenReturn(deadline);
+    AtomicReference<InheritedRpcContext> inherited = new AtomicReference<>();
+    Mockito.when(mockRpcServer.call(Mockito.any(RpcCall.class),
+      Mockito.any(MonitoredRPCHandler.class))).thenAnswer(invocation -> {
+        inherited.set(InheritedRpcContext.get());
+        return null;
+      });
+    CallRunner cr = new CallRunner(mockRpcServer, mockCall);
+    cr.setStatus(new MonitoredRPCHandlerImpl());
+    cr.setInheritedPriority(HConstants.HIGH_QOS);
+    cr.run();
+
+    assertNotNull(inherited.get());
+    assertEquals(HConstants.HIGH_QOS, inherited.get().inheritPriority(HConstants.PRIORITY_UNSET));
+    assertEquals(HConstants.HIGH_QOS, inherited.get().inheritPriority(HConstants.NORMAL_QOS));
+    assertEquals(HConstants.HIGH_QOS + 1,
+      inherited.get().inheritPriority(HConstants.HIGH_QOS + 1));
+    int timeout = inherited.get().inheritTimeout(0);
+    assertTrue(timeout > 0 && timeout <= 60000);
+    assertEquals(1000, inherited.get().inheritTimeout(1000));
+    assertNull(InheritedRpcContext.get());
+  }
 }
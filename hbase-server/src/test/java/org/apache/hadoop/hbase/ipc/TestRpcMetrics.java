@@ -20,6 +20,7 @@
 package org.apache.hadoop.hbase.ipc;
 
 import org.apache.hadoop.hbase.CompatibilityFactory;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.ServerName;
@@ -65,6 +66,7 @@ public class TestRpcMetrics {
     MetricsHBaseServer mrpc = new MetricsHBaseServer("HMaster", new MetricsHBaseServerWrapperStub());
     MetricsHBaseServerSource serverSource = mrpc.getMetricsSource();
     HELPER.assertGauge("queueSize", 101, serverSource);
+    HELPER.assertGauge("responseMemorySize", 100, serverSource);
     HELPER.assertGauge("numCallsInGeneralQueue", 102, serverSource);
     HELPER.assertGauge("numCallsInReplicationQueue", 103, serverSource);
     HELPER.assertGauge("numCallsInPriorityQueue", 104, serverSource);
@@ -114,6 +116,17 @@ public class TestRpcMetrics {
     HELPER.assertCounter("processCallTime_NumOps", 1, serverSource);
     HELPER.assertCounter("totalCallTime_NumOps", 1, serverSource);
 
+    mrpc.dequeuedCall(100, HConstants.NORMAL_QOS);
+    mrpc.dequeuedCall(100, HConstants.HIGH_QOS);
+    mrpc.dequeuedCall(100, HConstants.HIGH_QOS);
+    mrpc.dequeuedCall(100, HConstants.REPLICATION_QOS);
+    mrpc.droppedExpiredCall();
+    HELPER.assertCounter("queueCallTime_NumOps", 5, serverSource);
+    HELPER.assertCounter("generalQueueCallTime_NumOps", 1, serverSource);
+    HELPER.assertCounter("priorityQueueCallTime_NumOps", 2, serverSource);
+    HELPER.assertCounter("replicationQueueCallTime_NumOps", 1, serverSource);
+    HELPER.assertCounter("numExpiredCallsDropped", 1, serverSource);
+
     mrpc.sentBytes(103);
     mrpc.sentBytes(103);
     mrpc.sentBytes(103);
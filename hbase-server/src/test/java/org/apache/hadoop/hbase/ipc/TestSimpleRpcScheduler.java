@@ -27,6 +27,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -38,6 +39,7 @@ import org.apache.hadoop.hbase.shaded.com.google.common.collect.Maps;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -255,6 +257,56 @@ public class TestSimpleRpcScheduler {
     }
   }
 
+  private CallRunner createMockTask(long receiveTime, long deadline) {
+    ServerCall call = mock(ServerCall.class);
+    when(call.getHeader()).thenReturn(RequestHeader.getDefaultInstance());
+    when(call.getReceiveTime()).thenReturn(receiveTime);
+    when(call.getDeadline()).thenReturn(deadline);
+    CallRunner task = mock(CallRunner.class);
+    when(task.getRpcCall()).thenReturn(call);
+    return task;
+  }
+
+  @Test
+  public void testClientDeadlineOrdering() {
+    PriorityFunction priority = mock(PriorityFunction.class);
+    CallRunner early = createMockTask(100, 600);
+    CallRunner late = createMockTask(0, 1000);
+    CallRunner noTimeout = createMockTask(0, Long.MAX_VALUE);
+
+    Configuration conf = HBaseConfiguration.create();
+    Comparator<CallRunner> comparator = new RpcExecutor.CallPriorityComparator(conf, priority);
+    // Ordered by arrival.
+    assertTrue(comparator.compare(late, early) < 0);
+    assertEquals(0, comparator.compare(late, noTimeout));
+
+    conf.setBoolean(RpcExecutor.QUEUE_USE_CLIENT_DEADLINE_CONF_KEY, true);
+    comparator = new RpcExecutor.CallPriorityComparator(conf, priority);
+    // Ordered by client deadline, calls without one get the default rpc timeout.
+    assertTrue(comparator.compare(early, late) < 0);
+    assertTrue(comparator.compare(late, noTimeout) < 0);
+  }
+
+  @Test
+  public void testInheritPriorityAndDeadline() throws Exception {
+    PriorityFunction qosFunction = mock(PriorityFunction.class);
+    when(qosFunction.getPriority((RPCProtos.RequestHeader) anyObject(), (Message) anyObject(),
+      (User) anyObject())).thenReturn(HConstants.HIGH_QOS);
+    for (boolean inherit : new boolean[] { false, true }) {
+      conf.setBoolean(SimpleRpcScheduler.INHERIT_PRIORITY_AND_DEADLINE_CONF_KEY, inherit);
+      RpcScheduler scheduler = new SimpleRpcScheduler(conf, 1, 1, 0, qosFunction,
+          HConstants.QOS_THRESHOLD);
+      scheduler.init(CONTEXT);
+      scheduler.start();
+      CallRunner task = createMockTask();
+      task.setStatus(new MonitoredRPCHandlerImpl());
+      scheduler.dispatch(task);
+      verify(task, timeout(1000)).run();
+      verify(task, times(inherit ? 1 : 0)).setInheritedPriority(HConstants.HIGH_QOS);
+      scheduler.stop();
+    }
+  }
+
   @Test
   public void testScanQueueWithZeroScanRatio() throws Exception {
 
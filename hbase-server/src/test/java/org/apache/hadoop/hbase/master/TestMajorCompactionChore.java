@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.master;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.RegionLoad;
+import org.apache.hadoop.hbase.ServerLoad;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionConfiguration;
+import org.apache.hadoop.hbase.testclassification.MasterTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({MasterTests.class, SmallTests.class})
+public class TestMajorCompactionChore {
+  private static final TableName TABLE = TableName.valueOf("test");
+  private static final long HOUR = 60 * 60 * 1000;
+  private static final long NOW = 100 * 24 * HOUR;
+
+  private static MajorCompactionChore createChore(Configuration conf) {
+    MasterServices master = mock(MasterServices.class);
+    when(master.getServerName()).thenReturn(ServerName.valueOf("master", 16000, 1));
+    RackManager rackManager = mock(RackManager.class);
+    for (int i = 0; i < 4; i++) {
+      // Two servers in each rack.
+      when(rackManager.getRack(server(i))).thenReturn("rack" + (i / 2));
+    }
+    return new MajorCompactionChore(master, conf, rackManager);
+  }
+
+  private static ServerName server(int i) {
+    return ServerName.valueOf("server" + i, 16020, 1);
+  }
+
+  private static byte[] regionName(int i) {
+    return HRegionInfo.createRegionName(TABLE, Bytes.toBytes(String.format("%03d", i)), i, true);
+  }
+
+  private static RegionLoad regionLoad(byte[] name, long requests, long lastMajorCompactionTs) {
+    return regionLoad(name, requests, lastMajorCompactionTs, 1);
+  }
+
+  private static RegionLoad regionLoad(byte[] name, long requests, long lastMajorCompactionTs,
+      int storefiles) {
+    RegionLoad regionLoad = mock(RegionLoad.class);
+    when(regionLoad.getName()).thenReturn(name);
+    when(regionLoad.getReadRequestsCount()).thenReturn(requests);
+    when(regionLoad.getWriteRequestsCount()).thenReturn(0L);
+    when(regionLoad.getLastMajorCompactionTs()).thenReturn(lastMajorCompactionTs);
+    when(regionLoad.getStorefiles()).thenReturn(storefiles);
+    return regionLoad;
+  }
+
+  /**
+   * @return servers each holding the given region loads, by server index
+   */
+  private static Map<ServerName, ServerLoad> servers(Map<Integer, List<RegionLoad>> loads) {
+    Map<ServerName, ServerLoad> servers = new HashMap<>();
+    for (Map.Entry<Integer, List<RegionLoad>> entry : loads.entrySet()) {
+      Map<byte[], RegionLoad> regionsLoad = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (RegionLoad regionLoad : entry.getValue()) {
+        regionsLoad.put(regionLoad.getName(), regionLoad);
+      }
+      ServerLoad serverLoad = mock(ServerLoad.class);
+      when(serverLoad.getRegionsLoad()).thenReturn(regionsLoad);
+      servers.put(server(entry.getKey()), serverLoad);
+    }
+    return servers;
+  }
+
+  /**
+   * @return the first server holding a single region with the given load
+   */
+  private static Map<ServerName, ServerLoad> singleRegion(long requests,
+      long lastMajorCompactionTs) {
+    List<RegionLoad> regionLoads = new ArrayList<>();
+    regionLoads.add(regionLoad(regionName(0), requests, lastMajorCompactionTs));
+    Map<Integer, List<RegionLoad>> loads = new HashMap<>();
+    loads.put(0, regionLoads);
+    return servers(loads);
+  }
+
+  @Test
+  public void testLowTrafficHours() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(MajorCompactionChore.LOW_TRAFFIC_HOURS_KEY, 3);
+    MajorCompactionChore chore = createChore(conf);
+    long requests = 0;
+    chore.recordLoad(singleRegion(requests, 0), 23, NOW - HOUR);
+    for (int hour = 0; hour < 24; hour++) {
+      // Busy during the day, quiet around 3 in the morning.
+      requests += 3600 * (1 + Math.abs(hour - 3));
+      chore.recordLoad(singleRegion(requests, 0), hour, NOW + hour * HOUR);
+      if (hour < 23) {
+        // Without a prediction for every hour, no hour is known to be quiet.
+        assertFalse(chore.isLowTrafficHour(hour));
+      }
+    }
+    assertEquals(1, chore.getPredictedRate(3), 0.001);
+    assertEquals(13, chore.getPredictedRate(15), 0.001);
+    for (int hour = 0; hour < 24; hour++) {
+      assertEquals("hour " + hour, hour >= 2 && hour <= 4, chore.isLowTrafficHour(hour));
+    }
+  }
+
+  @Test
+  public void testOffPeakHours() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(CompactionConfiguration.HBASE_HSTORE_OFFPEAK_START_HOUR, 22);
+    conf.setInt(CompactionConfiguration.HBASE_HSTORE_OFFPEAK_END_HOUR, 2);
+    MajorCompactionChore chore = createChore(conf);
+    assertTrue(chore.isLowTrafficHour(23));
+    assertTrue(chore.isLowTrafficHour(1));
+    assertFalse(chore.isLowTrafficHour(12));
+    assertTrue(chore.planCompactions(singleRegion(0, 0), 12, NOW).isEmpty());
+  }
+
+  @Test
+  public void testAtMostOnePerRack() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(CompactionConfiguration.HBASE_HSTORE_OFFPEAK_START_HOUR, 0);
+    conf.setInt(CompactionConfiguration.HBASE_HSTORE_OFFPEAK_END_HOUR, 23);
+    MajorCompactionChore chore = createChore(conf);
+
+    // Regions 4 * server + 0..2, the last one of each server recently major compacted.
+    Map<Integer, List<RegionLoad>> loads = new HashMap<>();
+    for (int server = 0; server < 4; server++) {
+      List<RegionLoad> regionLoads = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        int region = 4 * server + i;
+        regionLoads.add(regionLoad(regionName(region), 0, i == 2 ? NOW - HOUR : region * HOUR));
+      }
+      loads.put(server, regionLoads);
+    }
+    List<MajorCompactionChore.PlannedCompaction> planned =
+        chore.planCompactions(servers(loads), 1, NOW);
+    // The region least recently major compacted in each rack.
+    assertEquals(2, planned.size());
+    assertArrayEquals(regionName(0), planned.get(0).regionName);
+    assertEquals(server(0), planned.get(0).server);
+    assertArrayEquals(regionName(8), planned.get(1).regionName);
+    assertEquals(server(2), planned.get(1).server);
+    assertTrue(chore.planCompactions(servers(loads), 1, NOW + 1).isEmpty());
+
+    // The first region reports its major compaction done, which frees its rack.
+    loads.get(0).set(0, regionLoad(regionName(0), 0, NOW + 2));
+    planned = chore.planCompactions(servers(loads), 1, NOW + 3);
+    assertEquals(1, planned.size());
+    assertArrayEquals(regionName(1), planned.get(0).regionName);
+    assertEquals(1, chore.getExecutedCount());
+    assertEquals(3, chore.getPlannedCount());
+
+    // Compactions not reported done in time no longer hold their rack, and are requested again.
+    planned = chore.planCompactions(servers(loads), 1, NOW + 7 * HOUR);
+    assertEquals(2, planned.size());
+    assertArrayEquals(regionName(1), planned.get(0).regionName);
+    assertArrayEquals(regionName(8), planned.get(1).regionName);
+    assertEquals(1, chore.getExecutedCount());
+    assertEquals(5, chore.getPlannedCount());
+  }
+
+  @Test
+  public void testEmptyRegions() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(CompactionConfiguration.HBASE_HSTORE_OFFPEAK_START_HOUR, 0);
+    conf.setInt(CompactionConfiguration.HBASE_HSTORE_OFFPEAK_END_HOUR, 23);
+    MajorCompactionChore chore = createChore(conf);
+
+    // An empty region reports 0 as its last major compaction time, like a region with store
+    // files that was never major compacted. Only the latter is due.
+    List<RegionLoad> regionLoads = new ArrayList<>();
+    regionLoads.add(regionLoad(regionName(0), 0, 0, 0));
+    regionLoads.add(regionLoad(regionName(1), 0, 0, 2));
+    Map<Integer, List<RegionLoad>> loads = new HashMap<>();
+    loads.put(0, regionLoads);
+    List<MajorCompactionChore.PlannedCompaction> planned =
+        chore.planCompactions(servers(loads), 1, NOW);
+    assertEquals(1, planned.size());
+    assertArrayEquals(regionName(1), planned.get(0).regionName);
+
+    // The region got empty before its major compaction, which frees its rack.
+    regionLoads.set(1, regionLoad(regionName(1), 0, 0, 0));
+    assertTrue(chore.planCompactions(servers(loads), 1, NOW + 1).isEmpty());
+    assertEquals(1, chore.getExecutedCount());
+    regionLoads.add(regionLoad(regionName(2), 0, HOUR, 1));
+    planned = chore.planCompactions(servers(loads), 1, NOW + 2);
+    assertEquals(1, planned.size());
+    assertArrayEquals(regionName(2), planned.get(0).regionName);
+  }
+}
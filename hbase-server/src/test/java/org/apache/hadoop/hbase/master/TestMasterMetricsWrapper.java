@@ -86,6 +86,18 @@ public class TestMasterMetricsWrapper {
     assertEquals(1, info.getNumWALFiles());
   }
 
+  @Test
+  public void testProcedureWorkers() {
+    HMaster master = TEST_UTIL.getHBaseCluster().getMaster();
+    MetricsMasterWrapperImpl info = new MetricsMasterWrapperImpl(master);
+    assertEquals(master.getMasterProcedureExecutor().getWorkerThreadCount(),
+        info.getNumProcedureWorkers());
+    assertTrue(info.getNumProcedureWorkers() > 0);
+    assertEquals(0, info.getNumStuckProcedureWorkers());
+    assertTrue(info.getNumActiveProcedureWorkers() <= info.getNumProcedureWorkers());
+    assertTrue(info.getNumQueuedProcedures() >= 0);
+  }
+
   @Test
   public void testQuotaSnapshotConversion() {
     MetricsMasterWrapperImpl info = new MetricsMasterWrapperImpl(
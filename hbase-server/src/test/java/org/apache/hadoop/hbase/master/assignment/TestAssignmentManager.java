@@ -22,9 +22,12 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.Arrays;
 import java.util.NavigableMap;
 import java.util.Random;
 import java.util.Set;
@@ -46,8 +49,10 @@ import org.apache.hadoop.hbase.HBaseTestingUtility;
 import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableDescriptors;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.RetriesExhaustedException;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
 import org.apache.hadoop.hbase.exceptions.UnexpectedStateException;
 import org.apache.hadoop.hbase.ipc.ServerNotRunningYetException;
 import org.apache.hadoop.hbase.master.MasterServices;
@@ -169,6 +174,29 @@ public class TestAssignmentManager {
     if (this.am.waitServerReportEvent(null, null)) throw new UnexpectedStateException();
   }
 
+  @Test
+  public void testGetOrderedRegions() throws Exception {
+    final TableName lowTable = TableName.valueOf(this.name.getMethodName() + "-low");
+    final TableName highTable = TableName.valueOf(this.name.getMethodName() + "-high");
+    final MasterServices mockMaster = mock(MasterServices.class);
+    final TableDescriptors tds = mock(TableDescriptors.class);
+    when(mockMaster.getConfiguration()).thenReturn(UTIL.getConfiguration());
+    when(mockMaster.getTableDescriptors()).thenReturn(tds);
+    when(tds.get(lowTable)).thenReturn(TableDescriptorBuilder.newBuilder(lowTable).build());
+    when(tds.get(highTable))
+        .thenReturn(TableDescriptorBuilder.newBuilder(highTable).setPriority(10).build());
+    final AssignmentManager orderingAm =
+        new AssignmentManager(mockMaster, mock(RegionStateStore.class));
+
+    final HRegionInfo low = createRegionInfo(lowTable, 1);
+    final HRegionInfo high = createRegionInfo(highTable, 1);
+    final HRegionInfo ns = createRegionInfo(TableName.NAMESPACE_TABLE_NAME, 1);
+    final HRegionInfo meta = HRegionInfo.FIRST_META_REGIONINFO;
+    // hbase:meta, then the system tables, then the user tables by priority
+    assertEquals(Arrays.asList(meta, ns, high, low),
+      orderingAm.getOrderedRegions(Arrays.asList(low, ns, high, meta)));
+  }
+
   @Ignore @Test // TODO
   public void testGoodSplit() throws Exception {
     TableName tableName = TableName.valueOf(this.name.getMethodName());
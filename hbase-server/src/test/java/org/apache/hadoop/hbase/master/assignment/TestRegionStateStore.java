@@ -0,0 +1,176 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hbase.master.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.TableDescriptors;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.Waiter;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.master.MasterServices;
+import org.apache.hadoop.hbase.master.RegionState.State;
+import org.apache.hadoop.hbase.testclassification.MasterTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Checks that the region state updates made at the same time are written to hbase:meta together.
+ */
+@Category({MasterTests.class, SmallTests.class})
+public class TestRegionStateStore {
+  private static final TableName TABLE = TableName.valueOf("test");
+
+  private final Configuration conf = HBaseConfiguration.create();
+  // The number of puts of every batch written, and the latch the first one waits on
+  private final List<Integer> batches = new ArrayList<>();
+  private final CountDownLatch firstBatchLatch = new CountDownLatch(1);
+  private volatile Exception writeException;
+
+  private RegionStateStore createStore() throws IOException {
+    MasterServices master = mock(MasterServices.class);
+    when(master.getConfiguration()).thenReturn(conf);
+    when(master.getTableDescriptors()).thenReturn(mock(TableDescriptors.class));
+    return new RegionStateStore(master) {
+      @Override
+      protected void writeMeta(List<Put> puts) throws IOException {
+        boolean first;
+        synchronized (batches) {
+          first = batches.isEmpty();
+          batches.add(puts.size());
+        }
+        if (first) {
+          try {
+            firstBatchLatch.await();
+          } catch (InterruptedException e) {
+            throw new IOException(e);
+          }
+        }
+        if (writeException instanceof IOException) {
+          throw (IOException) writeException;
+        } else if (writeException != null) {
+          throw (RuntimeException) writeException;
+        }
+      }
+    };
+  }
+
+  private static HRegionInfo region(int i) {
+    return new HRegionInfo(TABLE, Bytes.toBytes(i), Bytes.toBytes(i + 1));
+  }
+
+  private List<Integer> getBatches() {
+    synchronized (batches) {
+      return new ArrayList<>(batches);
+    }
+  }
+
+  private List<Future<Void>> updateRegions(ExecutorService pool, RegionStateStore store, int count)
+      throws Exception {
+    List<Future<Void>> futures = new ArrayList<>();
+    futures.add(pool.submit(() -> {
+      store.updateRegionLocation(region(0), State.OPEN, new Put(Bytes.toBytes(0)));
+      return null;
+    }));
+    Waiter.waitFor(conf, 10000, () -> getBatches().size() == 1);
+    for (int i = 1; i < count; ++i) {
+      final int region = i;
+      futures.add(pool.submit(() -> {
+        store.updateRegionLocation(region(region), State.OPEN, new Put(Bytes.toBytes(region)));
+        return null;
+      }));
+    }
+    // Let the updates queue up behind the first batch
+    Waiter.waitFor(conf, 10000, () -> store.getPendingUpdateCount() == count - 1);
+    assertEquals(1, getBatches().size());
+    firstBatchLatch.countDown();
+    return futures;
+  }
+
+  @Test
+  public void testBatchUpdates() throws Exception {
+    conf.setBoolean(RegionStateStore.BATCH_UPDATES_KEY, true);
+    RegionStateStore store = createStore();
+    ExecutorService pool = Executors.newFixedThreadPool(5);
+    try {
+      for (Future<Void> future: updateRegions(pool, store, 5)) {
+        future.get();
+      }
+      assertEquals(Arrays.asList(1, 4), getBatches());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBatchUpdatesFailure() throws Exception {
+    testBatchUpdatesFailure(new IOException("injected"));
+  }
+
+  @Test
+  public void testBatchUpdatesRuntimeFailure() throws Exception {
+    testBatchUpdatesFailure(new RuntimeException("injected"));
+  }
+
+  private void testBatchUpdatesFailure(Exception injected) throws Exception {
+    conf.setBoolean(RegionStateStore.BATCH_UPDATES_KEY, true);
+    writeException = injected;
+    RegionStateStore store = createStore();
+    ExecutorService pool = Executors.newFixedThreadPool(3);
+    try {
+      // Every update of a failed batch fails
+      for (Future<Void> future: updateRegions(pool, store, 3)) {
+        try {
+          future.get();
+          fail("The update should have failed");
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (!(writeException instanceof IOException)) {
+            // Reported as an IOException, like the failures to write hbase:meta
+            assertTrue(cause instanceof IOException);
+            cause = cause.getCause();
+          }
+          assertTrue(cause == writeException);
+        }
+      }
+      assertEquals(Arrays.asList(1, 2), getBatches());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
@@ -29,7 +29,10 @@ import org.apache.hadoop.hbase.HBaseTestingUtility;
 import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.procedure2.Procedure;
+import org.apache.hadoop.hbase.procedure2.ProcedureExecutor;
+import org.apache.hadoop.hbase.procedure2.ProcedureTestingUtility.NoopProcedure;
 import org.apache.hadoop.hbase.procedure2.ProcedureTestingUtility.TestProcedure;
+import org.apache.hadoop.hbase.procedure2.store.NoopProcedureStore;
 import org.apache.hadoop.hbase.procedure2.util.StringUtils;
 import org.apache.hadoop.hbase.util.AbstractHBaseTool;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -39,6 +42,8 @@ import org.apache.hadoop.hbase.util.Bytes;
  * framework components.
  * Inserts table and region operations in the scheduler, then polls them and exercises their locks
  * Number of tables, regions and operations can be set using cli args.
+ * With -executor the operations are submitted to a {@link ProcedureExecutor} running on the
+ * scheduler instead, to also measure the cost of the executor workers around it.
  */
 public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBaseTool {
   protected static final HBaseTestingUtility UTIL = new HBaseTestingUtility();
@@ -61,12 +66,19 @@ public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBase
       "Type of operations to run. Value can be table/region/both. In case of 'both', "
           + "proportion of table:region ops is 1:regions_per_table. Default: "
           + DEFAULT_OPS_TYPE);
+  public static final Option EXECUTOR_OPTION = new Option("executor", false,
+      "Run the operations through a ProcedureExecutor instead of polling the scheduler.");
+  public static final Option CHILD_OPTION = new Option("child", false,
+      "Run the region operations as child procedures, like the assigns of a split. "
+          + "Not used with -executor.");
 
   private int numTables = DEFAULT_NUM_TABLES;
   private int regionsPerTable = DEFAULT_REGIONS_PER_TABLE;
   private int numOps = DEFAULT_NUM_OPERATIONS;
   private int numThreads = DEFAULT_NUM_THREADS;
   private String opsType = DEFAULT_OPS_TYPE;
+  private boolean useExecutor = false;
+  private boolean child = false;
 
   private MasterProcedureScheduler procedureScheduler;
   // List of table/region procedures to schedule.
@@ -76,11 +88,17 @@ public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBase
   // abstract manner by worker threads.
   private interface ProcedureFactory {
     Procedure newProcedure(long procId);
+
+    /**
+     * @return a new procedure to submit to the executor, which assigns its id.
+     */
+    Procedure newExecutorProcedure();
   }
 
   private class RegionProcedure extends TestMasterProcedureScheduler.TestRegionProcedure {
     RegionProcedure(long procId, HRegionInfo hri) {
-      super(procId, hri.getTable(), TableOperationType.REGION_UNASSIGN, hri);
+      super(child ? 0 : Procedure.NO_PROC_ID, procId, hri.getTable(),
+          TableOperationType.REGION_UNASSIGN, hri);
     }
 
     @Override
@@ -105,6 +123,10 @@ public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBase
     public Procedure newProcedure(long procId) {
       return new RegionProcedure(procId, hri);
     }
+
+    public Procedure newExecutorProcedure() {
+      return new ExecutorRegionProcedure(hri);
+    }
   }
 
   private class TableProcedure extends TestMasterProcedureScheduler.TestTableProcedure {
@@ -135,6 +157,65 @@ public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBase
     public Procedure newProcedure(long procId) {
       return new TableProcedure(procId, tableName);
     }
+
+    public Procedure newExecutorProcedure() {
+      return new ExecutorTableProcedure(tableName);
+    }
+  }
+
+  private class ExecutorTableProcedure extends NoopProcedure<Void>
+      implements TableProcedureInterface {
+    private final TableName tableName;
+
+    ExecutorTableProcedure(TableName tableName) {
+      this.tableName = tableName;
+    }
+
+    @Override
+    public TableName getTableName() {
+      return tableName;
+    }
+
+    @Override
+    public TableOperationType getTableOperationType() {
+      return TableOperationType.EDIT;
+    }
+
+    @Override
+    protected LockState acquireLock(Void env) {
+      return procedureScheduler.waitTableExclusiveLock(this, getTableName())?
+        LockState.LOCK_EVENT_WAIT: LockState.LOCK_ACQUIRED;
+    }
+
+    @Override
+    protected void releaseLock(Void env) {
+      procedureScheduler.wakeTableExclusiveLock(this, getTableName());
+    }
+  }
+
+  private class ExecutorRegionProcedure extends ExecutorTableProcedure {
+    private final HRegionInfo hri;
+
+    ExecutorRegionProcedure(HRegionInfo hri) {
+      super(hri.getTable());
+      this.hri = hri;
+    }
+
+    @Override
+    public TableOperationType getTableOperationType() {
+      return TableOperationType.REGION_UNASSIGN;
+    }
+
+    @Override
+    protected LockState acquireLock(Void env) {
+      return procedureScheduler.waitRegions(this, getTableName(), hri)?
+        LockState.LOCK_EVENT_WAIT: LockState.LOCK_ACQUIRED;
+    }
+
+    @Override
+    protected void releaseLock(Void env) {
+      procedureScheduler.wakeRegions(this, getTableName(), hri);
+    }
   }
 
   private void setupOperations() throws Exception {
@@ -174,6 +255,8 @@ public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBase
     addOption(NUM_OPERATIONS_OPTION);
     addOption(NUM_THREADS_OPTION);
     addOption(OPS_TYPE_OPTION);
+    addOption(EXECUTOR_OPTION);
+    addOption(CHILD_OPTION);
   }
 
   @Override
@@ -185,6 +268,8 @@ public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBase
         DEFAULT_NUM_OPERATIONS);
     numThreads = getOptionAsInt(cmd, NUM_THREADS_OPTION.getOpt(), DEFAULT_NUM_THREADS);
     opsType = cmd.getOptionValue(OPS_TYPE_OPTION.getOpt(), DEFAULT_OPS_TYPE);
+    useExecutor = cmd.hasOption(EXECUTOR_OPTION.getOpt());
+    child = cmd.hasOption(CHILD_OPTION.getOpt());
   }
 
   /*******************
@@ -235,6 +320,66 @@ public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBase
     }
   }
 
+  private class SubmitProcsWorker extends Thread {
+    private final ProcedureExecutor<Void> executor;
+
+    SubmitProcsWorker(ProcedureExecutor<Void> executor) {
+      this.executor = executor;
+    }
+
+    public void run() {
+      final Random rand = new Random(System.currentTimeMillis());
+      while (procIds.incrementAndGet() <= numOps) {
+        executor.submitProcedure(ops[rand.nextInt(ops.length)].newExecutorProcedure());
+      }
+    }
+  }
+
+  /**
+   * Submits the operations to an executor with numThreads workers and waits for all of them to
+   * complete.
+   * @return time taken to complete all the operations, in milliseconds.
+   */
+  private long runExecutor() throws Exception {
+    final ProcedureExecutor<Void> executor = new ProcedureExecutor<>(UTIL.getConfiguration(),
+        null, new NoopProcedureStore(), procedureScheduler);
+    executor.registerListener(new ProcedureExecutor.ProcedureExecutorListener() {
+      @Override
+      public void procedureLoaded(long procId) {
+      }
+
+      @Override
+      public void procedureAdded(long procId) {
+      }
+
+      @Override
+      public void procedureFinished(long procId) {
+        long count = completed.incrementAndGet();
+        if (count % 100000 == 0) {
+          System.out.println("Completed " + count + " procedures.");
+        }
+      }
+    });
+    executor.getStore().start(numThreads);
+    executor.start(numThreads, true);
+    try {
+      final long startTime = System.currentTimeMillis();
+      final Thread[] threads = new Thread[numThreads];
+      for (int i = 0; i < numThreads; ++i) {
+        threads[i] = new SubmitProcsWorker(executor);
+      }
+      runThreads(threads);
+      while (completed.get() < numOps) {
+        Thread.sleep(10);
+      }
+      return System.currentTimeMillis() - startTime;
+    } finally {
+      executor.stop();
+      executor.join();
+      executor.getStore().stop(false);
+    }
+  }
+
   /**
    * Starts the threads and waits for them to finish.
    * @return time taken by threads to complete, in milliseconds.
@@ -253,8 +398,30 @@ public class MasterProcedureSchedulerPerformanceEvaluation extends AbstractHBase
   @Override
   protected int doWork() throws Exception {
     procedureScheduler = new MasterProcedureScheduler(UTIL.getConfiguration());
-    procedureScheduler.start();
     setupOperations();
+    if (useExecutor) {
+      final long executorTime = runExecutor();
+      final float executorTimeSec = executorTime / 1000.0f;
+      System.out.println("******************************************");
+      System.out.println("Time - executor    : " + StringUtils.humanTimeDiff(executorTime));
+      System.out.println("Ops/sec - executor : " + StringUtils.humanSize(numOps / executorTimeSec));
+      System.out.println("Num Operations     : " + numOps);
+      System.out.println("Completed          : " + completed.get());
+      System.out.println("Num Tables         : " + numTables);
+      System.out.println("Regions per table  : " + regionsPerTable);
+      System.out.println("Operations type    : " + opsType);
+      System.out.println("Threads            : " + numThreads);
+      System.out.println("******************************************");
+      System.out.println("Raw format for scripts");
+      System.out.println(String.format("RESULT [%s=%s, %s=%s, %s=%s, %s=%s, %s=%s, "
+              + "time_executor_ms=%s]",
+          NUM_OPERATIONS_OPTION.getOpt(), numOps, OPS_TYPE_OPTION.getOpt(), opsType,
+          NUM_TABLES_OPTION.getOpt(), numTables, REGIONS_PER_TABLE_OPTION.getOpt(),
+          regionsPerTable, NUM_THREADS_OPTION.getOpt(), numThreads, executorTime));
+      return 0;
+    }
+
+    procedureScheduler.start();
 
     final Thread[] threads = new Thread[numThreads];
     for (int i = 0; i < numThreads; ++i) {
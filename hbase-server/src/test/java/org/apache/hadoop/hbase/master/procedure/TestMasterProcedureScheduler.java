@@ -33,6 +33,7 @@ import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.master.locking.LockProcedure;
 import org.apache.hadoop.hbase.procedure2.Procedure;
+import org.apache.hadoop.hbase.procedure2.ProcedureDeque;
 import org.apache.hadoop.hbase.procedure2.ProcedureEvent;
 import org.apache.hadoop.hbase.procedure2.LockType;
 import org.apache.hadoop.hbase.procedure2.LockedResource;
@@ -455,6 +456,55 @@ public class TestMasterProcedureScheduler {
     queue.wakeRegions(procC, tableName, regionC);
   }
 
+  /**
+   * A procedure that fails to lock all of its regions may be woken up by the owner of the busy
+   * region, and run by another worker, as soon as it waits. The regions it locked before must not
+   * be released from under that run.
+   */
+  @Test
+  public void testRegionLocksWakeUpRacingWait() throws Exception {
+    final TableName tableName = TableName.valueOf(name.getMethodName());
+    final HRegionInfo regionA = new HRegionInfo(tableName, Bytes.toBytes("a"), Bytes.toBytes("b"));
+    final HRegionInfo regionB = new HRegionInfo(tableName, Bytes.toBytes("b"), Bytes.toBytes("c"));
+    final TestRegionProcedure ownerProc = new TestRegionProcedure(1, tableName,
+        TableProcedureInterface.TableOperationType.REGION_UNASSIGN, regionB);
+    final TestRegionProcedure mergeProc = new TestRegionProcedure(2, tableName,
+        TableProcedureInterface.TableOperationType.REGION_MERGE, regionA, regionB);
+
+    queue.stop();
+    queue = new MasterProcedureScheduler(conf) {
+      private boolean raced = false;
+
+      @Override
+      protected void waitProcedure(ProcedureDeque waitQueue, Procedure proc) {
+        super.waitProcedure(waitQueue, proc);
+        if (raced) {
+          return;
+        }
+        raced = true;
+        // the owner of regionB releases it, and another worker runs the merge right away
+        wakeRegions(ownerProc, tableName, regionB);
+        assertEquals(mergeProc, poll());
+        assertEquals(false, waitRegions(mergeProc, tableName, regionA, regionB));
+      }
+    };
+    queue.start();
+
+    assertEquals(false, queue.waitRegions(ownerProc, tableName, regionB));
+    assertEquals(true, queue.waitRegions(mergeProc, tableName, regionA, regionB));
+
+    // the merge run by the other worker holds both regions
+    for (HRegionInfo region : new HRegionInfo[] { regionA, regionB }) {
+      LockedResource resource =
+          queue.getLockResource(LockedResourceType.REGION, region.getEncodedName());
+      assertNotNull(region.getEncodedName(), resource);
+      assertEquals(mergeProc, resource.getExclusiveLockOwnerProcedure());
+    }
+    queue.wakeRegions(mergeProc, tableName, regionA, regionB);
+    assertEquals(null, queue.getLockResource(LockedResourceType.REGION, regionA.getEncodedName()));
+    assertEquals(null, queue.getLockResource(LockedResourceType.REGION, regionB.getEncodedName()));
+  }
+
   @Test
   public void testVerifySubProcRegionLocks() throws Exception {
     final TableName tableName = TableName.valueOf(name.getMethodName());
@@ -705,6 +755,44 @@ public class TestMasterProcedureScheduler {
     queue.wakeTableExclusiveLock(parentProc, tableName);
   }
 
+  @Test
+  public void testSystemTablesFirst() throws Exception {
+    final TableName tableName = TableName.valueOf(name.getMethodName());
+    final ServerName serverName = ServerName.valueOf("server1,1234,0");
+    final Configuration systemFirstConf = new Configuration(conf);
+    systemFirstConf.setBoolean(MasterProcedureScheduler.SYSTEM_TABLES_FIRST_KEY, true);
+    final MasterProcedureScheduler systemFirstQueue =
+        new MasterProcedureScheduler(systemFirstConf);
+    systemFirstQueue.start();
+    try {
+      for (MasterProcedureScheduler sched: Arrays.asList(queue, systemFirstQueue)) {
+        sched.addBack(new TestTableProcedure(1, tableName,
+          TableProcedureInterface.TableOperationType.EDIT));
+        sched.addBack(new TestServerProcedure(2, serverName));
+        sched.addBack(new TestTableProcedure(3, TableName.NAMESPACE_TABLE_NAME,
+          TableProcedureInterface.TableOperationType.EDIT));
+        sched.addBack(new TestTableProcedure(4, TableName.META_TABLE_NAME,
+          TableProcedureInterface.TableOperationType.EDIT));
+      }
+
+      // by default the server procedures come first, the tables share the same run-queue
+      assertEquals(2, queue.poll().getProcId());
+      assertEquals(1, queue.poll().getProcId());
+      assertEquals(3, queue.poll().getProcId());
+      assertEquals(4, queue.poll().getProcId());
+
+      // the system tables come before the server and the user table procedures
+      assertEquals(3, systemFirstQueue.poll().getProcId());
+      assertEquals(4, systemFirstQueue.poll().getProcId());
+      assertEquals(2, systemFirstQueue.poll().getProcId());
+      assertEquals(1, systemFirstQueue.poll().getProcId());
+      assertEquals(0, systemFirstQueue.size());
+    } finally {
+      systemFirstQueue.stop();
+      systemFirstQueue.clear();
+    }
+  }
+
   @Test
   public void testYieldWithXLockHeld() throws Exception {
     final TableName tableName = TableName.valueOf(name.getMethodName());
@@ -870,6 +958,35 @@ public class TestMasterProcedureScheduler {
     }
   }
 
+  public static class TestServerProcedure extends TestProcedure
+      implements ServerProcedureInterface {
+    private final ServerName serverName;
+
+    public TestServerProcedure() {
+      throw new UnsupportedOperationException("recovery should not be triggered here");
+    }
+
+    public TestServerProcedure(long procId, ServerName serverName) {
+      super(procId);
+      this.serverName = serverName;
+    }
+
+    @Override
+    public ServerName getServerName() {
+      return serverName;
+    }
+
+    @Override
+    public boolean hasMetaTableRegion() {
+      return false;
+    }
+
+    @Override
+    public ServerOperationType getServerOperationType() {
+      return ServerOperationType.CRASH_HANDLER;
+    }
+  }
+
   public static class TestNamespaceProcedure extends TestProcedure
       implements TableProcedureInterface {
     private final TableOperationType opType;
@@ -310,6 +310,26 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 10;
   }
 
+  @Override
+  public long getIndexCacheHitCount() {
+    return 300;
+  }
+
+  @Override
+  public long getIndexCacheMissCount() {
+    return 30;
+  }
+
+  @Override
+  public double getIndexCacheHitRatio() {
+    return 90;
+  }
+
+  @Override
+  public long getIndexCacheEvictedCount() {
+    return 3;
+  }
+
   @Override
   public long getUpdatesBlockedTime() {
     return 419;
@@ -100,6 +100,11 @@ public class MetricsRegionWrapperStub implements MetricsRegionWrapper {
     return 2;
   }
 
+  @Override
+  public double getWriteAmplification() {
+    return 1.5;
+  }
+
   @Override
   public long getWriteRequestCount() {
     return 106;
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestBatchGet {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 300;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    htd.addFamily(new HColumnDescriptor(FAMILY).setBlocksize(1024)
+        .setBloomFilterType(BloomType.ROW));
+    HRegionInfo info = new HRegionInfo(htd.getTableName(), null, null, false);
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, TEST_UTIL.getConfiguration(),
+      htd);
+    // Even rows end up in the first file, every third row in the second one and the rest in
+    // the memstore, so the batch has to merge rows from all of them.
+    for (int mod : new int[] { 2, 3, 1 }) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        if (i % mod == 0) {
+          Put put = new Put(row(i));
+          put.setDurability(Durability.SKIP_WAL);
+          put.addColumn(FAMILY, QUALIFIER, Bytes.toBytes("value-" + mod + "-" + i));
+          region.put(put);
+        }
+      }
+      if (mod != 1) {
+        region.flush(true);
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBaseTestingUtility.closeRegionAndWAL(region);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%05d", i));
+  }
+
+  private List<List<Cell>> batchGet(List<Get> gets, long maxResultSize) throws IOException {
+    for (Get get : gets) {
+      region.prepareGet(get);
+    }
+    List<List<Cell>> results = new ArrayList<>();
+    region.batchGet(gets, results, maxResultSize).close();
+    return results;
+  }
+
+  @Test
+  public void testMatchesSingleGets() throws IOException {
+    List<Get> gets = new ArrayList<>();
+    // Unsorted, with duplicates and with rows that do not exist.
+    for (int i = NUM_ROWS + 10; i >= 0; i -= 7) {
+      gets.add(new Get(row(i)));
+      if (i % 5 == 0) {
+        gets.add(new Get(row(i)));
+      }
+    }
+    gets.add(new Get(Bytes.toBytes("a-before-all-rows")));
+    gets.add(new Get(Bytes.toBytes("z-after-all-rows")));
+
+    List<List<Cell>> results = batchGet(gets, Long.MAX_VALUE);
+    assertEquals(gets.size(), results.size());
+    for (int i = 0; i < gets.size(); i++) {
+      List<Cell> expected = region.get(new Get(gets.get(i).getRow()), false);
+      List<Cell> actual = results.get(i);
+      assertNotNull(actual);
+      assertEquals(Bytes.toStringBinary(gets.get(i).getRow()), expected.size(), actual.size());
+      for (int j = 0; j < expected.size(); j++) {
+        assertTrue(CellUtil.equals(expected.get(j), actual.get(j)));
+        assertTrue(CellUtil.matchingValue(expected.get(j), actual.get(j)));
+      }
+    }
+  }
+
+  @Test
+  public void testStopsAtMaxResultSize() throws IOException {
+    List<Get> gets = new ArrayList<>();
+    for (int i = 0; i < NUM_ROWS; i++) {
+      gets.add(new Get(row(i)));
+    }
+    List<List<Cell>> results = batchGet(gets, 1);
+    assertEquals(gets.size(), results.size());
+    assertEquals(1, results.get(0).size());
+    for (int i = 1; i < gets.size(); i++) {
+      assertNull(results.get(i));
+    }
+  }
+}
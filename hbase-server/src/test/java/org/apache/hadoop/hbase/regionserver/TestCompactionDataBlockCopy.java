@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.regionserver.compactions.DefaultCompactor;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Checks that minor compactions copying the data blocks of files that do not overlap the other
+ * files write the same cells as compactions merging all cells.
+ */
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestCompactionDataBlockCopy {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int ROWS_PER_FILE = 300;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @After
+  public void tearDown() throws IOException {
+    if (region != null) {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+
+  private void createRegion(Compression.Algorithm compression, DataBlockEncoding encoding)
+      throws IOException {
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    // Small blocks, so that every file has many of them.
+    htd.addFamily(new HColumnDescriptor(FAMILY).setBlocksize(1024).setMaxVersions(10)
+        .setCompressionType(compression).setDataBlockEncoding(encoding)
+        .setBloomFilterType(BloomType.ROW));
+    HRegionInfo info = new HRegionInfo(htd.getTableName(), null, null, false);
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, TEST_UTIL.getConfiguration(), htd);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%05d", i));
+  }
+
+  /**
+   * Writes rows to the given range in a file of its own, deleting every fifth of the rows the
+   * file overwrites.
+   */
+  private void flushRows(int start, int end, boolean overwrite) throws IOException {
+    for (int i = start; i < end; i++) {
+      if (overwrite && i % 5 == 0) {
+        Delete delete = new Delete(row(i));
+        delete.setDurability(Durability.SKIP_WAL);
+        region.delete(delete);
+      } else {
+        Put put = new Put(row(i));
+        put.setDurability(Durability.SKIP_WAL);
+        put.addColumn(FAMILY, QUALIFIER, Bytes.toBytes("value-" + i + "-" + overwrite));
+        region.put(put);
+      }
+    }
+    region.flush(true);
+  }
+
+  private HStoreFile compact(List<StoreFile> files, boolean copyDataBlocks) throws IOException {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(DefaultCompactor.COPY_DATA_BLOCKS_KEY, copyDataBlocks);
+    HStore store = region.getStore(FAMILY);
+    List<Path> paths = new DefaultCompactor(conf, store).compactForTesting(files, false);
+    assertEquals(1, paths.size());
+    HStoreFile file = new HStoreFile(store.getFileSystem(), paths.get(0), conf,
+        new CacheConfig(conf), BloomType.ROW, true);
+    file.initReader();
+    return file;
+  }
+
+  private static List<Cell> readAll(StoreFile file) throws IOException {
+    List<Cell> cells = new ArrayList<>();
+    HFileScanner scanner = file.getReader().getScanner(false, false);
+    if (scanner.seekTo()) {
+      do {
+        cells.add(scanner.getCell());
+      } while (scanner.next());
+    }
+    return cells;
+  }
+
+  private void checkCopiedCompaction(Compression.Algorithm compression,
+      DataBlockEncoding encoding) throws IOException {
+    createRegion(compression, encoding);
+    flushRows(0, ROWS_PER_FILE, false);
+    flushRows(ROWS_PER_FILE, 2 * ROWS_PER_FILE, false);
+    flushRows(2 * ROWS_PER_FILE, 3 * ROWS_PER_FILE, false);
+    flushRows(2 * ROWS_PER_FILE, 3 * ROWS_PER_FILE, true);
+    HStore store = region.getStore(FAMILY);
+    List<StoreFile> files = new ArrayList<>(store.getStorefiles());
+    assertEquals(4, files.size());
+
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(DefaultCompactor.COPY_DATA_BLOCKS_KEY, true);
+    List<StoreFile> filesToCopy =
+        new DefaultCompactor(conf, store).getFilesToCopy(new CompactionRequest(files));
+    // Only the two files that do not overlap any other file.
+    assertEquals(2, filesToCopy.size());
+    StoreFileWriter writer = store.createWriterInTmp(1, compression, true, true, false, false);
+    for (StoreFile file : filesToCopy) {
+      assertTrue(writer.canCopyDataBlocks(file.getReader()));
+    }
+    writer.close();
+
+    HStoreFile merged = compact(files, false);
+    HStoreFile copied = compact(files, true);
+    List<Cell> expected = readAll(merged);
+    List<Cell> actual = readAll(copied);
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertTrue(CellUtil.equals(expected.get(i), actual.get(i)));
+      assertTrue(CellUtil.matchingValue(expected.get(i), actual.get(i)));
+      assertEquals(expected.get(i).getSequenceId(), actual.get(i).getSequenceId());
+    }
+    assertEquals(merged.getReader().getEntries(), copied.getReader().getEntries());
+    assertEquals(merged.getReader().getFilterEntries(), copied.getReader().getFilterEntries());
+    assertEquals(merged.getMaxMemstoreTS(), copied.getMaxMemstoreTS());
+    assertTrue(CellUtil.equals(merged.getFirstKey(), copied.getFirstKey()));
+    assertTrue(CellUtil.equals(merged.getLastKey(), copied.getLastKey()));
+
+    // Every cell can be found through the block index.
+    StoreFileScanner scanner = copied.getPreadScanner(false, Long.MAX_VALUE, 0, false);
+    for (Cell cell : expected) {
+      assertTrue(scanner.seek(cell));
+      assertTrue(CellUtil.equals(cell, scanner.peek()));
+    }
+    scanner.close();
+    merged.closeReader(true);
+    copied.closeReader(true);
+  }
+
+  @Test
+  public void testCopyCompressedDataBlocks() throws IOException {
+    checkCopiedCompaction(Compression.Algorithm.GZ, DataBlockEncoding.NONE);
+  }
+
+  @Test
+  public void testCopyEncodedDataBlocks() throws IOException {
+    checkCopiedCompaction(Compression.Algorithm.NONE, DataBlockEncoding.FAST_DIFF);
+  }
+}
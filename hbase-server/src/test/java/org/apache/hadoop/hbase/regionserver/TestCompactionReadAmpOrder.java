@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+/**
+ * Tests the read amplification aware order of queued compactions.
+ */
+@Category({RegionServerTests.class, SmallTests.class})
+public class TestCompactionReadAmpOrder {
+  private static final long MB = 1024 * 1024;
+
+  private static CompactionRequest createRequest(int numFiles, long fileSize) {
+    List<StoreFile> files = new ArrayList<>();
+    for (int i = 0; i < numFiles; i++) {
+      StoreFile file = Mockito.mock(StoreFile.class);
+      StoreFileReader reader = Mockito.mock(StoreFileReader.class);
+      Mockito.when(reader.length()).thenReturn(fileSize);
+      Mockito.when(file.getReader()).thenReturn(reader);
+      files.add(file);
+    }
+    return new CompactionRequest(files);
+  }
+
+  @Test
+  public void testReadAmpReductionPerByte() {
+    assertEquals(0, createRequest(1, 10 * MB).getReadAmpReductionPerByte(), 0);
+    assertEquals(0, CompactionRequest.getReadAmpReductionPerByte(0, 0), 0);
+    assertEquals(3.0 / (40 * MB), createRequest(4, 10 * MB).getReadAmpReductionPerByte(), 1e-15);
+    // Many small files cut more read amplification per byte than a few large ones.
+    assertTrue(createRequest(10, MB).getReadAmpReductionPerByte()
+        > createRequest(3, 100 * MB).getReadAmpReductionPerByte());
+  }
+
+  @Test
+  public void testOrder() {
+    double manySmallFiles = createRequest(10, MB).getReadAmpReductionPerByte();
+    double fewLargeFiles = createRequest(3, 100 * MB).getReadAmpReductionPerByte();
+    // Not urgent, ordered by read amplification reduction per byte, whatever the priority.
+    assertTrue(CompactSplit.compareReadAmpReduction(5, manySmallFiles, 3, fewLargeFiles) < 0);
+    assertTrue(CompactSplit.compareReadAmpReduction(3, fewLargeFiles, 5, manySmallFiles) > 0);
+    assertEquals(0, CompactSplit.compareReadAmpReduction(3, fewLargeFiles, 5, fewLargeFiles));
+    // Blocked stores and user requests go first, in priority order.
+    assertTrue(CompactSplit.compareReadAmpReduction(0, fewLargeFiles, 5, manySmallFiles) < 0);
+    assertTrue(CompactSplit.compareReadAmpReduction(Store.PRIORITY_USER, fewLargeFiles, 5,
+      manySmallFiles) < 0);
+    assertTrue(CompactSplit.compareReadAmpReduction(-2, fewLargeFiles, Store.PRIORITY_USER,
+      manySmallFiles) < 0);
+  }
+}
@@ -151,7 +151,17 @@ public class TestCompoundBloomFilter {
 
   @Test
   public void testCompoundBloomFilter() throws IOException {
+    testCompoundBloomFilter(false);
+  }
+
+  @Test
+  public void testBlockedCompoundBloomFilter() throws IOException {
+    testCompoundBloomFilter(true);
+  }
+
+  private void testCompoundBloomFilter(boolean blocked) throws IOException {
     conf.setBoolean(BloomFilterFactory.IO_STOREFILE_BLOOM_ENABLED, true);
+    conf.setBoolean(BloomFilterFactory.IO_STOREFILE_BLOOM_BLOCKED, blocked);
     for (int t = 0; t < NUM_TESTS; ++t) {
       conf.setFloat(BloomFilterFactory.IO_STOREFILE_BLOOM_ERROR_RATE,
           (float) TARGET_ERROR_RATES[t]);
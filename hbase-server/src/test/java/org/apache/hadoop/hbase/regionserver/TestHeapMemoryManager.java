@@ -548,6 +548,39 @@ public class TestHeapMemoryManager {
     assertHeapSpace(0.05f, memStoreFlusher.memstoreSize);// Memstore
   }
 
+  @Test
+  public void testIndexBlockCacheKeepsItsSize() throws Exception {
+    BlockCacheStub blockCache = new BlockCacheStub((long) (maxHeapSize * 0.4));
+    MemstoreFlusherStub memStoreFlusher = new MemstoreFlusherStub((long) (maxHeapSize * 0.4));
+    Configuration conf = HBaseConfiguration.create();
+    conf.setFloat(HeapMemoryManager.MEMSTORE_SIZE_MAX_RANGE_KEY, 0.78f);
+    conf.setFloat(HeapMemoryManager.MEMSTORE_SIZE_MIN_RANGE_KEY, 0.05f);
+    conf.setFloat(HeapMemoryManager.BLOCK_CACHE_SIZE_MAX_RANGE_KEY, 0.75f);
+    conf.setFloat(HeapMemoryManager.BLOCK_CACHE_SIZE_MIN_RANGE_KEY, 0.02f);
+    conf.setLong(HeapMemoryManager.HBASE_RS_HEAP_MEMORY_TUNER_PERIOD, 1000);
+    conf.setInt(DefaultHeapMemoryTuner.NUM_PERIODS_TO_IGNORE, 0);
+    conf.setClass(HeapMemoryManager.HBASE_RS_HEAP_MEMORY_TUNER_CLASS, CustomHeapMemoryTuner.class,
+        HeapMemoryTuner.class);
+    // The minimum block cache size must leave room for the L1 next to the index block cache.
+    try {
+      new HeapMemoryManager(blockCache, (long) (maxHeapSize * 0.03), memStoreFlusher,
+          new RegionServerStub(conf), new RegionServerAccountingStub(conf));
+      fail();
+    } catch (RuntimeException e) {
+    }
+    long indexCacheSize = (long) (maxHeapSize * 0.01);
+    HeapMemoryManager heapMemoryManager = new HeapMemoryManager(blockCache, indexCacheSize,
+        memStoreFlusher, new RegionServerStub(conf), new RegionServerAccountingStub(conf));
+    final ChoreService choreService = new ChoreService("TEST_SERVER_NAME");
+    heapMemoryManager.start(choreService);
+    CustomHeapMemoryTuner.memstoreSize = 0.78f;
+    CustomHeapMemoryTuner.blockCacheSize = 0.02f;
+    waitForTune(memStoreFlusher, memStoreFlusher.memstoreSize);
+    assertHeapSpace(0.78f, memStoreFlusher.memstoreSize);
+    // The L1 gets the tuned block cache size minus the index block cache
+    assertEquals((long) (maxHeapSize * 0.02f) - indexCacheSize, blockCache.maxSize);
+  }
+
   @Test
   public void testWhenSizeGivenByHeapTunerGoesOutsideRange() throws Exception {
     BlockCacheStub blockCache = new BlockCacheStub((long) (maxHeapSize * 0.4));
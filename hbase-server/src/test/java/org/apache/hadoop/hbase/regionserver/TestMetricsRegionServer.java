@@ -107,6 +107,10 @@ public class TestMetricsRegionServer {
     HELPER.assertGauge("l2CacheMissCount", 200, serverSource);
     HELPER.assertGauge("l2CacheHitRatio", 90, serverSource);
     HELPER.assertGauge("l2CacheMissRatio", 10, serverSource);
+    HELPER.assertGauge("indexCacheHitCount", 300, serverSource);
+    HELPER.assertGauge("indexCacheMissCount", 30, serverSource);
+    HELPER.assertGauge("indexCacheHitRatio", 90, serverSource);
+    HELPER.assertGauge("indexCacheEvictedCount", 3, serverSource);
     HELPER.assertCounter("updatesBlockedTime", 419, serverSource);
   }
 
@@ -228,6 +232,20 @@ public class TestMetricsRegionServer {
     HELPER.assertCounter("majorCompactedoutputBytes", 500, serverSource);
   }
 
+  @Test
+  public void testThroughputControl() {
+    rsm.updateFlushThroughput(1024, 10);
+    HELPER.assertCounter("flushThroughput_num_ops", 1, serverSource);
+    HELPER.assertCounter("flushThrottleTime_num_ops", 1, serverSource);
+    HELPER.assertCounter("compactionThroughput_num_ops", 0, serverSource);
+
+    rsm.updateCompactionThroughput(2048, 0);
+    rsm.updateCompactionThroughput(4096, 20);
+    HELPER.assertCounter("compactionThroughput_num_ops", 2, serverSource);
+    HELPER.assertCounter("compactionThrottleTime_num_ops", 2, serverSource);
+    HELPER.assertCounter("flushThroughput_num_ops", 1, serverSource);
+  }
+
   @Test
   public void testPauseMonitor() {
     Configuration conf = new Configuration();
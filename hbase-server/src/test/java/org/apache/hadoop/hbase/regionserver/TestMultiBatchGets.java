@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CompatibilityFactory;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.coprocessor.RegionObserver;
+import org.apache.hadoop.hbase.test.MetricsAssertHelper;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Checks that the gets of a multi request served as one batch, see
+ * {@link RSRpcServices#BATCH_GET_MIN_SIZE_NAME}, run their coprocessor hooks once, even when
+ * some of them fail, and are each counted in the get metrics.
+ */
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestMultiBatchGets {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final TableName TABLE_NAME = TableName.valueOf("TestMultiBatchGets");
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final byte[] FAIL_PRE_GET_ROW = Bytes.toBytes("row-fail-pre");
+  private static final byte[] FAIL_POST_GET_ROW = Bytes.toBytes("row-fail-post");
+  private static final int NUM_ROWS = 10;
+
+  private static final MetricsAssertHelper METRICS_HELPER =
+      CompatibilityFactory.getInstance(MetricsAssertHelper.class);
+
+  private static final AtomicInteger PRE_GETS = new AtomicInteger();
+  private static final AtomicInteger POST_GETS = new AtomicInteger();
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TEST_UTIL.getConfiguration().setInt(RSRpcServices.BATCH_GET_MIN_SIZE_NAME, 2);
+    TEST_UTIL.getConfiguration().setInt(HConstants.HBASE_CLIENT_RETRIES_NUMBER, 1);
+    TEST_UTIL.startMiniCluster(1);
+    HTableDescriptor htd = new HTableDescriptor(TABLE_NAME);
+    htd.addFamily(new HColumnDescriptor(FAMILY));
+    htd.addCoprocessor(CountingObserver.class.getName());
+    TEST_UTIL.getAdmin().createTable(htd);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%05d", i));
+  }
+
+  @Test
+  public void testHooksRunOnceWithFailures() throws Exception {
+    try (Table table = TEST_UTIL.getConnection().getTable(TABLE_NAME)) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        table.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER, row(i)));
+      }
+      List<Get> gets = new ArrayList<>();
+      for (int i = 0; i < NUM_ROWS; i++) {
+        gets.add(new Get(row(i)));
+      }
+      gets.add(new Get(FAIL_PRE_GET_ROW));
+      gets.add(new Get(FAIL_POST_GET_ROW));
+      PRE_GETS.set(0);
+      POST_GETS.set(0);
+
+      Object[] results = new Object[gets.size()];
+      try {
+        table.batch(gets, results);
+        fail("Expected the failing gets to fail");
+      } catch (RetriesExhaustedWithDetailsException e) {
+        assertEquals(2, e.getNumExceptions());
+      }
+      for (int i = 0; i < NUM_ROWS; i++) {
+        assertArrayEquals(row(i), ((Result) results[i]).getValue(FAMILY, QUALIFIER));
+      }
+      assertTrue(results[NUM_ROWS] instanceof DoNotRetryIOException);
+      assertTrue(results[NUM_ROWS + 1] instanceof DoNotRetryIOException);
+      // The get failing in preGet does not reach postGet
+      assertEquals(gets.size(), PRE_GETS.get());
+      assertEquals(gets.size() - 1, POST_GETS.get());
+    }
+  }
+
+  @Test
+  public void testEveryGetCounted() throws Exception {
+    try (Table table = TEST_UTIL.getConnection().getTable(TABLE_NAME)) {
+      List<Get> gets = new ArrayList<>();
+      for (int i = 0; i < NUM_ROWS; i++) {
+        table.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER, row(i)));
+        gets.add(new Get(row(i)));
+      }
+      MetricsRegionServerSource serverSource = TEST_UTIL.getRSForFirstRegionInTable(TABLE_NAME)
+          .getRegionServerMetrics().getMetricsSource();
+      long getCount = METRICS_HELPER.getCounter("Get_num_ops", serverSource);
+      Result[] results = table.get(gets);
+      assertEquals(NUM_ROWS, results.length);
+      METRICS_HELPER.assertCounter("Get_num_ops", getCount + NUM_ROWS, serverSource);
+    }
+  }
+
+  public static class CountingObserver implements RegionObserver {
+    @Override
+    public void preGetOp(ObserverContext<RegionCoprocessorEnvironment> c, Get get,
+        List<Cell> result) throws IOException {
+      PRE_GETS.incrementAndGet();
+      if (Bytes.equals(get.getRow(), FAIL_PRE_GET_ROW)) {
+        throw new DoNotRetryIOException("Failing preGet of " + Bytes.toString(get.getRow()));
+      }
+    }
+
+    @Override
+    public void postGetOp(ObserverContext<RegionCoprocessorEnvironment> c, Get get,
+        List<Cell> result) throws IOException {
+      POST_GETS.incrementAndGet();
+      if (Bytes.equals(get.getRow(), FAIL_POST_GET_ROW)) {
+        throw new DoNotRetryIOException("Failing postGet of " + Bytes.toString(get.getRow()));
+      }
+    }
+  }
+}
@@ -51,6 +51,7 @@ import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -149,6 +150,8 @@ public class TestMultiColumnScanner {
         new HColumnDescriptor(FAMILY)
             .setCompressionType(comprAlgo)
             .setBloomFilterType(bloomType)
+            .setConfiguration(BloomFilterUtil.PREFIX_LENGTH_KEY, "3")
+            .setConfiguration(BloomFilterUtil.DELIMITER_KEY, "w")
             .setMaxVersions(MAX_VERSIONS)
             .setDataBlockEncoding(dataBlockEncoding)
     );
@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.BloomFilterFactory;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Tests the ROWPREFIX_FIXED_LENGTH and ROWPREFIX_DELIMITED Bloom filters with gets and with
+ * scans inside a single row prefix.
+ */
+@Category({RegionServerTests.class, SmallTests.class})
+public class TestRowPrefixBloomFilter {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final int NUM_TENANTS = 200;
+  private static final int ROWS_PER_TENANT = 10;
+  private static final float ERROR_RATE = 0.01f;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private Configuration conf;
+  private FileSystem fs;
+  private StoreFileReader reader;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setFloat(BloomFilterFactory.IO_STOREFILE_BLOOM_ERROR_RATE, ERROR_RATE);
+    conf.setBoolean(BloomFilterFactory.IO_STOREFILE_BLOOM_ENABLED, true);
+    fs = FileSystem.getLocal(conf);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (reader != null) {
+      reader.close(true);
+    }
+  }
+
+  /**
+   * Writes the rows of all even tenants and opens the file.
+   */
+  private void writeStoreFile(BloomType bloomType, String rowFormat) throws IOException {
+    Path path = new Path(TEST_UTIL.getDataTestDir(), name.getMethodName());
+    HFileContext meta = new HFileContextBuilder().withBlockSize(4096).build();
+    CacheConfig cacheConf = new CacheConfig(conf);
+    StoreFileWriter writer = new StoreFileWriter.Builder(conf, cacheConf, fs)
+        .withFilePath(path)
+        .withBloomType(bloomType)
+        .withMaxKeyCount(NUM_TENANTS * ROWS_PER_TENANT)
+        .withFileContext(meta)
+        .build();
+    List<byte[]> rows = new ArrayList<>();
+    for (int tenant = 0; tenant < NUM_TENANTS; tenant += 2) {
+      for (int i = 0; i < ROWS_PER_TENANT; i++) {
+        rows.add(Bytes.toBytes(String.format(rowFormat, tenant, i)));
+      }
+    }
+    rows.sort(Bytes.BYTES_COMPARATOR);
+    for (byte[] row : rows) {
+      writer.append(new KeyValue(row, Bytes.toBytes("f"), Bytes.toBytes("q"), row));
+    }
+    writer.close();
+    reader = new StoreFileReader(fs, path, cacheConf, true, new AtomicInteger(0), true, conf);
+    reader.loadFileInfo();
+    reader.loadBloomfilter();
+    assertEquals(bloomType, reader.getBloomFilterType());
+  }
+
+  /**
+   * Checks scans inside the row prefix of each tenant.
+   * @return the number of false positives
+   */
+  private int checkPrefixScans(String prefixFormat, String rowFormat) {
+    int falsePositives = 0;
+    for (int tenant = 0; tenant < NUM_TENANTS; tenant++) {
+      byte[] prefix = Bytes.toBytes(String.format(prefixFormat, tenant));
+      byte[] firstRow = Bytes.toBytes(String.format(rowFormat, tenant, 0));
+      byte[] lastRow = Bytes.toBytes(String.format(rowFormat, tenant, ROWS_PER_TENANT - 1));
+      Scan[] scans = new Scan[] {
+        new Scan().setRowPrefixFilter(prefix),
+        new Scan().withStartRow(firstRow).withStopRow(lastRow, true),
+        new Scan().withStartRow(lastRow).withStopRow(prefix).setReversed(true),
+        new Scan().withStartRow(firstRow, true).withStopRow(firstRow, true) };
+      for (Scan scan : scans) {
+        boolean passes = reader.passesBloomFilter(scan, null);
+        if (tenant % 2 == 0) {
+          assertTrue("False negative for " + scan, passes);
+        } else if (passes) {
+          falsePositives++;
+        }
+      }
+    }
+    return falsePositives;
+  }
+
+  private void checkOtherScans(String prefixFormat, String rowFormat) {
+    for (int tenant = 1; tenant < NUM_TENANTS; tenant += 2) {
+      byte[] prefix = Bytes.toBytes(String.format(prefixFormat, tenant));
+      byte[] firstRow = Bytes.toBytes(String.format(rowFormat, tenant, 0));
+      // The first row after all rows with the prefix.
+      byte[] afterPrefix = Bytes.copy(prefix);
+      afterPrefix[afterPrefix.length - 1]++;
+      // Scans that leave the prefix cannot use the Bloom filter.
+      assertTrue(reader.passesBloomFilter(new Scan().withStartRow(firstRow), null));
+      assertTrue(reader.passesBloomFilter(
+        new Scan().withStartRow(firstRow).withStopRow(afterPrefix, true), null));
+      assertTrue(reader.passesBloomFilter(
+        new Scan().withStartRow(firstRow).setReversed(true), null));
+      assertTrue(reader.passesBloomFilter(
+        new Scan().withStartRow(Bytes.copy(prefix, 0, prefix.length - 1)).withStopRow(firstRow),
+        null));
+    }
+  }
+
+  @Test
+  public void testFixedLength() throws IOException {
+    conf.setInt(BloomFilterUtil.PREFIX_LENGTH_KEY, 5);
+    String prefixFormat = "%04d-";
+    String rowFormat = "%04d-%04d";
+    writeStoreFile(BloomType.ROWPREFIX_FIXED_LENGTH, rowFormat);
+    int falsePositives = checkPrefixScans(prefixFormat, rowFormat);
+    assertTrue("Too many false positives: " + falsePositives,
+      falsePositives <= 2 * 4 * NUM_TENANTS / 2 * ERROR_RATE);
+    checkOtherScans(prefixFormat, rowFormat);
+  }
+
+  @Test
+  public void testDelimited() throws IOException {
+    conf.set(BloomFilterUtil.DELIMITER_KEY, "#");
+    // The prefixes differ in length, and rows of other tenants sort between them.
+    String prefixFormat = "tenant%d#";
+    String rowFormat = "tenant%d#%04d";
+    writeStoreFile(BloomType.ROWPREFIX_DELIMITED, rowFormat);
+    int falsePositives = checkPrefixScans(prefixFormat, rowFormat);
+    assertTrue("Too many false positives: " + falsePositives,
+      falsePositives <= 2 * 4 * NUM_TENANTS / 2 * ERROR_RATE);
+    checkOtherScans(prefixFormat, rowFormat);
+  }
+
+  @Test
+  public void testMissingParam() throws IOException {
+    try {
+      writeStoreFile(BloomType.ROWPREFIX_FIXED_LENGTH, "%04d-%04d");
+      fail("Expected the prefix length to be required");
+    } catch (IOException e) {
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+    conf.set(BloomFilterUtil.PREFIX_LENGTH_KEY, "0");
+    try {
+      BloomFilterUtil.getBloomFilterParam(BloomType.ROWPREFIX_FIXED_LENGTH, conf);
+      fail("Expected the prefix length to be positive");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -49,6 +49,7 @@ import org.apache.hadoop.hbase.io.hfile.HFilePrettyPrinter;
 import org.apache.hadoop.hbase.regionserver.HRegion.RegionScannerImpl;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Before;
 import org.junit.Test;
@@ -107,6 +108,8 @@ public class TestScanWithBloomError {
         new HColumnDescriptor(FAMILY)
             .setCompressionType(Compression.Algorithm.GZ)
             .setBloomFilterType(bloomType)
+            .setConfiguration(BloomFilterUtil.PREFIX_LENGTH_KEY, "3")
+            .setConfiguration(BloomFilterUtil.DELIMITER_KEY, "w")
             .setMaxVersions(TestMultiColumnScanner.MAX_VERSIONS));
     createStoreFile(new int[] {1, 2, 6});
     createStoreFile(new int[] {1, 2, 3, 7});
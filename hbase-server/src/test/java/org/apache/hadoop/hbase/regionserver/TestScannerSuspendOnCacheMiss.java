@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.ScannerContext.LimitScope;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Checks that scans suspended on a block cache miss pick up where they stopped.
+ */
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestScannerSuspendOnCacheMiss {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[][] QUALIFIERS = { Bytes.toBytes("q1"), Bytes.toBytes("q2") };
+  private static final int NUM_ROWS = 200;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    // Small blocks, so that rows span blocks and there are many block boundaries to cross.
+    htd.addFamily(new HColumnDescriptor(FAMILY).setBlocksize(512));
+    HRegionInfo info = new HRegionInfo(htd.getTableName(), null, null, false);
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, TEST_UTIL.getConfiguration(),
+      htd);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Put put = new Put(Bytes.toBytes(String.format("row-%05d", i)));
+      put.setDurability(Durability.SKIP_WAL);
+      for (byte[] qualifier : QUALIFIERS) {
+        put.addColumn(FAMILY, qualifier, Bytes.toBytes("value-" + i + "-" + Bytes.toString(
+          qualifier) + "-padding-to-make-the-cell-a-little-larger"));
+      }
+      region.put(put);
+    }
+    // Blocks are not cached on write, so the scans below read them from the file.
+    region.flush(true);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBaseTestingUtility.closeRegionAndWAL(region);
+  }
+
+  private List<Cell> scanAll(Scan scan) throws IOException {
+    List<Cell> cells = new ArrayList<>();
+    try (RegionScanner scanner = region.getScanner(scan)) {
+      boolean moreRows;
+      do {
+        moreRows = scanner.next(cells);
+      } while (moreRows);
+    }
+    return cells;
+  }
+
+  /**
+   * Scans the way a scan call does, with one scanner context per call.
+   * @return the number of calls that were suspended
+   */
+  private int scanInCalls(boolean suspendOnCacheMiss, List<Cell> cells) throws IOException {
+    int suspendedCalls = 0;
+    try (RegionScanner scanner = region.getScanner(new Scan())) {
+      boolean moreRows = true;
+      while (moreRows) {
+        ScannerContext scannerContext = ScannerContext.newBuilder(true)
+            .setTimeLimit(LimitScope.BETWEEN_CELLS, Long.MAX_VALUE)
+            .setSuspendOnCacheMiss(suspendOnCacheMiss)
+            .build();
+        do {
+          List<Cell> values = new ArrayList<>();
+          moreRows = scanner.nextRaw(values, scannerContext);
+          cells.addAll(values);
+        } while (moreRows && !scannerContext.checkTimeLimit(LimitScope.BETWEEN_ROWS));
+        if (scannerContext.isSuspended()) {
+          suspendedCalls++;
+        }
+      }
+    }
+    return suspendedCalls;
+  }
+
+  private static void assertSameCells(List<Cell> expected, List<Cell> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertTrue(CellUtil.equals(expected.get(i), actual.get(i)));
+      assertTrue(CellUtil.matchingValue(expected.get(i), actual.get(i)));
+    }
+  }
+
+  @Test
+  public void testSuspendedScanResumes() throws IOException {
+    // Does not fill the block cache.
+    List<Cell> expected = scanAll(new Scan().setCacheBlocks(false));
+    assertEquals(NUM_ROWS * QUALIFIERS.length, expected.size());
+
+    List<Cell> actual = new ArrayList<>();
+    int suspendedCalls = scanInCalls(true, actual);
+    assertTrue("Expected the scan to be suspended more than once, was " + suspendedCalls,
+      suspendedCalls > 1);
+    assertSameCells(expected, actual);
+  }
+
+  @Test
+  public void testNotSuspendedWhenDisabled() throws IOException {
+    List<Cell> expected = scanAll(new Scan().setCacheBlocks(false));
+    List<Cell> actual = new ArrayList<>();
+    assertEquals(0, scanInCalls(false, actual));
+    assertSameCells(expected, actual);
+  }
+
+  @Test
+  public void testNotSuspendedWhenCached() throws IOException {
+    // Fills the block cache.
+    List<Cell> expected = scanAll(new Scan());
+    List<Cell> actual = new ArrayList<>();
+    assertEquals(0, scanInCalls(true, actual));
+    assertSameCells(expected, actual);
+  }
+}
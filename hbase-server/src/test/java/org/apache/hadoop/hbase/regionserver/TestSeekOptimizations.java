@@ -47,6 +47,7 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.After;
 import org.junit.Before;
@@ -148,6 +149,8 @@ public class TestSeekOptimizations {
         new HColumnDescriptor(FAMILY)
             .setCompressionType(comprAlgo)
             .setBloomFilterType(bloomType)
+            .setConfiguration(BloomFilterUtil.PREFIX_LENGTH_KEY, "3")
+            .setConfiguration(BloomFilterUtil.DELIMITER_KEY, "w")
             .setMaxVersions(3)
     );
 
@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionProgress;
+import org.apache.hadoop.hbase.regionserver.compactions.DefaultCompactor;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Checks that compactions split into key range subcompactions keep the same cells as
+ * compactions done in one go.
+ */
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestSubcompactions {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 1000;
+  private static final int NUM_FLUSHES = 3;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @After
+  public void tearDown() throws IOException {
+    if (region != null) {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+
+  private void createRegion(int maxSubcompactions) throws IOException {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(DefaultCompactor.MAX_SUBCOMPACTIONS_KEY, maxSubcompactions);
+    conf.setLong(DefaultCompactor.MIN_SUBCOMPACTION_SIZE_KEY, 1);
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    // Small blocks, so that the files have many root-level index keys to split at.
+    htd.addFamily(new HColumnDescriptor(FAMILY).setBlocksize(1024).setMaxVersions(2));
+    HRegionInfo info = new HRegionInfo(htd.getTableName(), null, null, false);
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, conf, htd);
+  }
+
+  /**
+   * Writes versions of all rows, and deletes some of them, in several flushes.
+   */
+  private void loadRegion() throws IOException {
+    for (int flush = 0; flush < NUM_FLUSHES; flush++) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        byte[] row = Bytes.toBytes(String.format("row-%05d", i));
+        if (flush > 0 && i % (5 + flush) == 0) {
+          Delete delete = new Delete(row);
+          delete.setDurability(Durability.SKIP_WAL);
+          region.delete(delete);
+        } else {
+          Put put = new Put(row);
+          put.setDurability(Durability.SKIP_WAL);
+          put.addColumn(FAMILY, QUALIFIER, Bytes.toBytes("value-" + i + "-" + flush));
+          region.put(put);
+        }
+      }
+      region.flush(true);
+    }
+  }
+
+  private List<Cell> scanAll(boolean raw) throws IOException {
+    List<Cell> cells = new ArrayList<>();
+    try (RegionScanner scanner = region.getScanner(new Scan().setRaw(raw).readAllVersions())) {
+      boolean moreRows;
+      do {
+        moreRows = scanner.next(cells);
+      } while (moreRows);
+    }
+    return cells;
+  }
+
+  private static void assertSameCells(List<Cell> expected, List<Cell> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertTrue(CellUtil.equals(expected.get(i), actual.get(i)));
+      assertTrue(CellUtil.matchingValue(expected.get(i), actual.get(i)));
+    }
+  }
+
+  /**
+   * Checks that a major compaction keeps exactly the cells a scan sees, and drops the deleted
+   * cells, the delete markers and the versions beyond the maximum. Also checks that its progress
+   * counts every cell written.
+   */
+  private void checkMajorCompaction() throws IOException {
+    loadRegion();
+    List<Cell> expected = scanAll(false);
+    region.compact(true);
+    assertSameCells(expected, scanAll(true));
+    CompactionProgress progress = region.getStore(FAMILY).getCompactionProgress();
+    assertEquals(expected.size(), progress.getCurrentCompactedKvs());
+    assertEquals(expected.size(), progress.getTotalCompactingKvs());
+  }
+
+  @Test
+  public void testSerialCompaction() throws IOException {
+    createRegion(1);
+    checkMajorCompaction();
+    assertEquals(1, region.getStore(FAMILY).getStorefilesCount());
+    assertFalse(region.getStore(FAMILY).getStorefiles().iterator().next()
+        .excludeFromMinorCompaction());
+  }
+
+  @Test
+  public void testSubcompactions() throws IOException {
+    createRegion(4);
+    checkMajorCompaction();
+
+    List<StoreFile> files = new ArrayList<>(region.getStore(FAMILY).getStorefiles());
+    assertEquals(4, files.size());
+    files.sort((f1, f2) -> CellComparator.COMPARATOR.compareRows(f1.getFirstKey(),
+      f2.getFirstKey()));
+    for (int i = 0; i < files.size(); i++) {
+      StoreFile file = files.get(i);
+      assertTrue(file.excludeFromMinorCompaction());
+      assertTrue(file.isMajorCompactionResult());
+      if (i > 0) {
+        // The files hold disjoint key ranges.
+        assertTrue(CellComparator.COMPARATOR.compareRows(files.get(i - 1).getLastKey(),
+          file.getFirstKey()) < 0);
+      }
+    }
+    // The files are not picked again right away as a set of files of about the same size.
+    assertFalse(region.getStore(FAMILY).requestCompaction().isPresent());
+  }
+
+  @Test
+  public void testMinorCompactionOfAllFilesNotSplit() throws IOException {
+    createRegion(4);
+    loadRegion();
+    region.compact(false);
+    assertEquals(1, region.getStore(FAMILY).getStorefilesCount());
+    assertFalse(region.getStore(FAMILY).getStorefiles().iterator().next()
+        .excludeFromMinorCompaction());
+  }
+}
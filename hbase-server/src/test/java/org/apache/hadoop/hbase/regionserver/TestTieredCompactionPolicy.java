@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.regionserver.compactions.TieredCompactionPolicy;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({RegionServerTests.class, SmallTests.class})
+public class TestTieredCompactionPolicy extends TestCompactionPolicy {
+
+  @Override
+  protected void config() {
+    super.config();
+    conf.set(DefaultStoreEngine.DEFAULT_COMPACTION_POLICY_CLASS_KEY,
+      TieredCompactionPolicy.class.getName());
+    conf.setInt(TieredCompactionPolicy.MAX_SIZE_AMPLIFICATION_PERCENT_KEY, 100);
+    conf.setInt(TieredCompactionPolicy.SIZE_RATIO_PERCENT_KEY, 10);
+    conf.setInt(TieredCompactionPolicy.MAX_SORTED_RUNS_KEY, 4);
+  }
+
+  @Test
+  public void testSpaceAmplification() throws IOException {
+    // The newer files add up to more than the oldest one.
+    compactEquals(sfCreate(100, 50, 40, 30), 100, 50, 40, 30);
+    // At most the maximum number of files, the newest ones.
+    compactEquals(sfCreate(100, 50, 40, 30, 20, 10), 50, 40, 30, 20, 10);
+  }
+
+  @Test
+  public void testSizeRatio() throws IOException {
+    // Only files of about the same accumulated size are merged.
+    compactEquals(sfCreate(1000, 100, 20, 10, 10), 20, 10, 10);
+    compactEquals(sfCreate(1000, 100, 30, 15, 14), 30, 15, 14);
+    // Older files that are smaller than the selection are merged into it.
+    compactEquals(sfCreate(1000, 40, 20, 10, 10, 500), 40, 20, 10, 10, 500);
+    // A newest file too small to be merged with the files before it is left out.
+    compactEquals(sfCreate(1000, 100, 100, 100, 10), 100, 100, 100);
+    // Not enough files within the ratio.
+    compactEquals(sfCreate(1000, 200, 50, 10));
+  }
+
+  @Test
+  public void testSortedRunCount() throws IOException {
+    // Too many sorted runs, even though no window is within the ratio.
+    compactEquals(sfCreate(2000, 1000, 300, 100, 30, 10), 100, 30, 10);
+    // At the target count nothing is compacted.
+    compactEquals(sfCreate(2000, 300, 100, 30));
+  }
+
+  @Test
+  public void testMajorCompaction() throws IOException {
+    compactEquals(sfCreate(1000, 100, 30, 10), true, 1000, 100, 30, 10);
+  }
+}
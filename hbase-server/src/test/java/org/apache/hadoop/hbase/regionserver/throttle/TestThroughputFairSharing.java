@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.throttle;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestThroughputFairSharing {
+
+  private static final double DELTA = 0.001;
+
+  /**
+   * @return a name in the format of {@link ThroughputControlUtil#getNameForThrottling}
+   */
+  private static String name(String table, String family, int counter) {
+    return table + ",,1.0123456789abcdef0123456789abcdef.#" + family
+        + "#compaction#" + counter;
+  }
+
+  private static PressureAwareCompactionThroughputController createController(
+      Configuration conf) {
+    PressureAwareCompactionThroughputController controller =
+        new PressureAwareCompactionThroughputController();
+    controller.setConf(conf);
+    controller.setMaxThroughput(1200);
+    return controller;
+  }
+
+  @Test
+  public void testNames() {
+    String name = name("ns:t1", "f#1", 1);
+    assertEquals("ns:t1", ThroughputControlUtil.getTableForThrottling(name));
+    assertEquals("ns:t1,,1.0123456789abcdef0123456789abcdef.#f#1",
+      ThroughputControlUtil.getStoreForThrottling(name));
+    assertEquals("compaction", ThroughputControlUtil.getTableForThrottling("compaction"));
+    assertEquals("compaction", ThroughputControlUtil.getStoreForThrottling("compaction"));
+  }
+
+  @Test
+  public void testEvenSharing() {
+    PressureAwareCompactionThroughputController controller =
+        createController(HBaseConfiguration.create());
+    for (int i = 0; i < 3; i++) {
+      controller.start(name("t1", "f", i));
+    }
+    controller.start(name("t2", "f", 3));
+    for (int i = 0; i < 4; i++) {
+      assertEquals(300, controller.getMaxThroughput(name(i < 3 ? "t1" : "t2", "f", i)), DELTA);
+    }
+  }
+
+  @Test
+  public void testWeightedSharing() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setBoolean(PressureAwareThroughputController.FAIR_SHARING_KEY, true);
+    conf.set(PressureAwareThroughputController.TABLE_WEIGHTS_KEY, "t1=2, @ns=0.5, ns:t4=1");
+    PressureAwareCompactionThroughputController controller = createController(conf);
+    assertEquals(2, controller.getWeight("t1"), DELTA);
+    assertEquals(1, controller.getWeight("t2"), DELTA);
+    assertEquals(0.5, controller.getWeight("ns:t3"), DELTA);
+    assertEquals(1, controller.getWeight("ns:t4"), DELTA);
+
+    // Two stores of t1, the first with two compactions, and one store each of t2 and ns:t3.
+    controller.start(name("t1", "a", 1));
+    controller.start(name("t1", "a", 2));
+    controller.start(name("t1", "b", 3));
+    controller.start(name("t2", "a", 4));
+    controller.start(name("ns:t3", "a", 5));
+    // The weights add up to 3.5, so t1 gets 4/7 of the limit and t2 2/7.
+    assertEquals(1200.0 * 4 / 7 / 2 / 2, controller.getMaxThroughput(name("t1", "a", 1)), DELTA);
+    assertEquals(1200.0 * 4 / 7 / 2 / 2, controller.getMaxThroughput(name("t1", "a", 2)), DELTA);
+    assertEquals(1200.0 * 4 / 7 / 2, controller.getMaxThroughput(name("t1", "b", 3)), DELTA);
+    assertEquals(1200.0 * 2 / 7, controller.getMaxThroughput(name("t2", "a", 4)), DELTA);
+    assertEquals(1200.0 / 7, controller.getMaxThroughput(name("ns:t3", "a", 5)), DELTA);
+
+    // Once t1 is done the other tables share its part.
+    controller.finish(name("t1", "a", 1));
+    controller.finish(name("t1", "a", 2));
+    controller.finish(name("t1", "b", 3));
+    assertEquals(800, controller.getMaxThroughput(name("t2", "a", 4)), DELTA);
+    assertEquals(400, controller.getMaxThroughput(name("ns:t3", "a", 5)), DELTA);
+
+    // A new limit is shared the same way.
+    controller.setMaxThroughput(600);
+    assertEquals(400, controller.getMaxThroughput(name("t2", "a", 4)), DELTA);
+    assertEquals(200, controller.getMaxThroughput(name("ns:t3", "a", 5)), DELTA);
+  }
+}
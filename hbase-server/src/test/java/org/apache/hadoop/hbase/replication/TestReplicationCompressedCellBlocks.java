@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.CellScanner;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.Waiter;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.CoprocessorHost;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionServerCoprocessorEnvironment;
+import org.apache.hadoop.hbase.coprocessor.RegionServerObserver;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.ipc.RpcCall;
+import org.apache.hadoop.hbase.ipc.RpcServer;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.WALEntry;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.ReplicationTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Replicates edits with the cell blocks sent to the peer compressed.
+ */
+@Category({ReplicationTests.class, MediumTests.class})
+public class TestReplicationCompressedCellBlocks extends TestReplicationBase {
+  private static final int VALUE_LENGTH = 1024;
+
+  // The cell block bytes and the cells the sink received
+  private static final AtomicLong CELL_BLOCK_BYTES = new AtomicLong();
+  private static final AtomicLong CELLS = new AtomicLong();
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    conf1.set(HConstants.REPLICATION_COMPRESSION_CONF_KEY, Compression.Algorithm.GZ.getName());
+    // Loaded on the sink cluster too, as its configuration is copied from conf1
+    conf1.set(CoprocessorHost.REGIONSERVER_COPROCESSOR_CONF_KEY,
+      CellBlockSizeObserver.class.getName());
+    TestReplicationBase.setUpBeforeClass();
+  }
+
+  @Test(timeout = 300000)
+  public void testReplicateCompressedCellBlocks() throws Exception {
+    final byte[] qualifier = Bytes.toBytes("q");
+    List<Put> puts = new ArrayList<>(NB_ROWS_IN_BATCH);
+    for (int i = 0; i < NB_ROWS_IN_BATCH; i++) {
+      Put put = new Put(Bytes.toBytes("row" + i));
+      put.addColumn(famName, qualifier, value(i));
+      puts.add(put);
+    }
+    CELL_BLOCK_BYTES.set(0);
+    CELLS.set(0);
+    htable1.put(puts);
+
+    Waiter.waitFor(conf1, 60000, () -> {
+      int count = 0;
+      try (ResultScanner scanner = htable2.getScanner(new Scan())) {
+        while (scanner.next() != null) {
+          count++;
+        }
+      }
+      return count == NB_ROWS_IN_BATCH;
+    });
+    for (int i = 0; i < NB_ROWS_IN_BATCH; i += 10) {
+      Result result = htable2.get(new Get(Bytes.toBytes("row" + i)));
+      assertArrayEquals(value(i), result.getValue(famName, qualifier));
+    }
+
+    // Each cell holds a value of VALUE_LENGTH bytes, so the cell blocks can only be smaller than
+    // the values they carry if they were compressed on the wire.
+    assertTrue("expected the sink to receive the replicated cells, got " + CELLS.get(),
+      CELLS.get() >= NB_ROWS_IN_BATCH);
+    assertTrue("expected compressed cell blocks, got " + CELL_BLOCK_BYTES.get() + " bytes for "
+        + CELLS.get() + " cells", CELL_BLOCK_BYTES.get() < CELLS.get() * VALUE_LENGTH / 2);
+  }
+
+  private static byte[] value(int i) {
+    byte[] value = new byte[VALUE_LENGTH];
+    Arrays.fill(value, (byte) ('a' + i % 26));
+    return value;
+  }
+
+  /**
+   * Records the size of the cell blocks of the replicated edits, as read off the wire.
+   */
+  public static class CellBlockSizeObserver implements RegionServerObserver {
+    @Override
+    public void preReplicateLogEntries(ObserverContext<RegionServerCoprocessorEnvironment> ctx,
+        List<WALEntry> entries, CellScanner cells) throws IOException {
+      RpcCall call = RpcServer.getCurrentCall();
+      if (call == null || !call.getHeader().hasCellBlockMeta()) {
+        return;
+      }
+      CELL_BLOCK_BYTES.addAndGet(call.getHeader().getCellBlockMeta().getLength());
+      for (WALEntry entry : entries) {
+        CELLS.addAndGet(entry.getAssociatedCellCount());
+      }
+    }
+  }
+}
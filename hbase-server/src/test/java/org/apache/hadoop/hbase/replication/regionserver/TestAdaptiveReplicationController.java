@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.testclassification.ReplicationTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ReplicationTests.class, SmallTests.class})
+public class TestAdaptiveReplicationController {
+
+  @Test
+  public void testGrowAndShrinkWithLag() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setLong("replication.source.size.capacity", 16 * 1024);
+    conf.setLong(AdaptiveReplicationController.MIN_SIZE_CAPACITY_KEY, 1024);
+    conf.setInt(ReplicationSourceShipper.MAX_IN_FLIGHT_BATCHES_KEY, 3);
+    conf.setLong(AdaptiveReplicationController.HIGH_LAG_KEY, 10000);
+    conf.setLong(AdaptiveReplicationController.LOW_LAG_KEY, 1000);
+    MetricsSource metrics = new MetricsSource("testGrowAndShrinkWithLag");
+    AdaptiveReplicationController controller = new AdaptiveReplicationController(conf, metrics);
+    assertEquals(16 * 1024, controller.getSizeCapacity());
+    assertEquals(3, controller.getInFlightBatchesLimit());
+
+    // Caught up, shrink down to the smallest batches shipped one at a time.
+    controller.update(0);
+    assertEquals(8 * 1024, controller.getSizeCapacity());
+    assertEquals(2, controller.getInFlightBatchesLimit());
+    for (int i = 0; i < 10; i++) {
+      controller.update(500);
+    }
+    assertEquals(1024, controller.getSizeCapacity());
+    assertEquals(1, controller.getInFlightBatchesLimit());
+    assertEquals(1024, metrics.getBatchSizeCapacity());
+    assertEquals(1, metrics.getInFlightBatchesLimit());
+
+    // Between the thresholds nothing changes.
+    controller.update(5000);
+    assertEquals(1024, controller.getSizeCapacity());
+    assertEquals(1, controller.getInFlightBatchesLimit());
+
+    // Falling behind, grow back up to the configured maximums.
+    controller.update(10000);
+    assertEquals(2 * 1024, controller.getSizeCapacity());
+    assertEquals(2, controller.getInFlightBatchesLimit());
+    for (int i = 0; i < 10; i++) {
+      controller.update(60000);
+    }
+    assertEquals(16 * 1024, controller.getSizeCapacity());
+    assertEquals(3, controller.getInFlightBatchesLimit());
+    assertEquals(16 * 1024, metrics.getBatchSizeCapacity());
+    assertEquals(3, metrics.getInFlightBatchesLimit());
+    metrics.clear();
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.ReplicationTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.junit.BeforeClass;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Runs the sink tests against tables with several regions, applying the edits of the regions
+ * concurrently.
+ */
+@Category({ReplicationTests.class, MediumTests.class})
+public class TestReplicationSinkParallelApply extends TestReplicationSink {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TEST_UTIL.getConfiguration().set("hbase.replication.source.fs.conf.provider",
+      TestSourceFSConfigurationProvider.class.getCanonicalName());
+    TEST_UTIL.getConfiguration().setInt(ReplicationSink.APPLY_THREADS_KEY, 4);
+
+    TEST_UTIL.startMiniCluster(3);
+    SINK =
+      new ReplicationSink(new Configuration(TEST_UTIL.getConfiguration()), STOPPABLE);
+    // The tests write the rows 0 to 9.
+    byte[][] splitKeys = new byte[][] { Bytes.toBytes(2), Bytes.toBytes(4), Bytes.toBytes(7) };
+    table1 = TEST_UTIL.createTable(TABLE_NAME1, new byte[][] { FAM_NAME1 }, splitKeys);
+    table2 = TEST_UTIL.createTable(TABLE_NAME2, new byte[][] { FAM_NAME2 }, splitKeys);
+    Path rootDir = FSUtils.getRootDir(TEST_UTIL.getConfiguration());
+    baseNamespaceDir = new Path(rootDir, new Path(HConstants.BASE_NAMESPACE_DIR)).toString();
+    hfileArchiveDir = new Path(rootDir, new Path(HConstants.HFILE_ARCHIVE_DIRECTORY)).toString();
+    replicationClusterId = "12345";
+  }
+}
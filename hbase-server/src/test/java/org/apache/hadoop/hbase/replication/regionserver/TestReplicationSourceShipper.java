@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.Waiter;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.replication.ReplicationEndpoint;
+import org.apache.hadoop.hbase.replication.regionserver.ReplicationSourceWALReader.WALEntryBatch;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.ReplicationTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.wal.WAL.Entry;
+import org.apache.hadoop.hbase.wal.WALEdit;
+import org.apache.hadoop.hbase.wal.WALKey;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Checks that a shipper with several batches in flight only advances the log position past
+ * batches the peer acknowledged in order, and never ships two batches of a region at once.
+ */
+@Category({ ReplicationTests.class, MediumTests.class })
+public class TestReplicationSourceShipper {
+
+  private static final Path WAL = new Path("/wal.1");
+  private static final TableName TABLE = TableName.valueOf("test");
+
+  private final Configuration conf = HBaseConfiguration.create();
+  private final BlockingQueue<WALEntryBatch> batches = new LinkedBlockingQueue<>();
+  // The batches the endpoint was asked to replicate, by position, and the latches releasing them
+  private final Map<Long, CountDownLatch> shipped = new ConcurrentHashMap<>();
+  private final List<Long> loggedPositions = new ArrayList<>();
+
+  private static WALEntryBatch batch(String region, long position) {
+    WALEntryBatch batch = new WALEntryBatch(1, WAL);
+    byte[] row = Bytes.toBytes("row");
+    WALEdit edit = new WALEdit();
+    edit.add(new KeyValue(row, row, row, position, row));
+    batch.addEntry(new Entry(new WALKey(Bytes.toBytes(region), TABLE, position), edit));
+    batch.setLastWalPosition(position);
+    return batch;
+  }
+
+  private ReplicationSourceShipper createShipper(MetricsSource metrics) throws Exception {
+    ReplicationEndpoint endpoint = mock(ReplicationEndpoint.class);
+    doAnswer(invocation -> {
+      ReplicationEndpoint.ReplicateContext context =
+          (ReplicationEndpoint.ReplicateContext) invocation.getArguments()[0];
+      CountDownLatch latch = new CountDownLatch(1);
+      shipped.put(context.getEntries().get(0).getKey().getWriteTime(), latch);
+      latch.await();
+      return true;
+    }).when(endpoint).replicate(any(ReplicationEndpoint.ReplicateContext.class));
+
+    ReplicationSourceManager manager = mock(ReplicationSourceManager.class);
+    // The shipper writes the serial replication positions to meta after every batch.
+    Connection connection = mock(Connection.class);
+    when(connection.getTable(any(TableName.class))).thenReturn(mock(Table.class));
+    when(manager.getConnection()).thenReturn(connection);
+    doAnswer(invocation -> {
+      synchronized (loggedPositions) {
+        loggedPositions.add((Long) invocation.getArguments()[2]);
+      }
+      return null;
+    }).when(manager).logPositionAndCleanOldLogs(any(Path.class), anyString(), anyLong(),
+      anyBoolean(), anyBoolean());
+
+    ReplicationSourceInterface source = mock(ReplicationSourceInterface.class);
+    when(source.isSourceActive()).thenReturn(true);
+    when(source.isPeerEnabled()).thenReturn(true);
+    when(source.getReplicationEndpoint()).thenReturn(endpoint);
+    when(source.getSourceManager()).thenReturn(manager);
+    when(source.getSourceMetrics()).thenReturn(metrics);
+    when(source.getPeerId()).thenReturn("1");
+    when(source.getPeerClusterZnode()).thenReturn("1");
+
+    ReplicationSourceWALReader reader = mock(ReplicationSourceWALReader.class);
+    when(reader.take()).thenAnswer(invocation -> batches.take());
+    when(reader.poll(anyLong())).thenAnswer(
+      invocation -> batches.poll((Long) invocation.getArguments()[0], TimeUnit.MILLISECONDS));
+
+    ReplicationSourceShipper shipper =
+        new ReplicationSourceShipper(conf, "group", new PriorityBlockingQueue<>(), source);
+    shipper.setWALReader(reader);
+    return shipper;
+  }
+
+  private List<Long> getLoggedPositions() {
+    synchronized (loggedPositions) {
+      return new ArrayList<>(loggedPositions);
+    }
+  }
+
+  @Test
+  public void testInFlightBatches() throws Exception {
+    conf.setInt(ReplicationSourceShipper.MAX_IN_FLIGHT_BATCHES_KEY, 3);
+    conf.setLong("replication.source.sleepforretries", 10);
+    MetricsSource metrics = new MetricsSource("testInFlightBatches");
+    ReplicationSourceShipper shipper = createShipper(metrics);
+    batches.add(batch("a", 100));
+    batches.add(batch("b", 200));
+    batches.add(batch("a", 300));
+    batches.add(batch("c", 400));
+    shipper.start();
+    try {
+      // The third batch waits for the first one, which has edits of the same region.
+      Waiter.waitFor(conf, 10000, () -> shipped.size() == 2);
+      assertTrue(shipped.containsKey(100L));
+      assertTrue(shipped.containsKey(200L));
+      assertEquals(2, metrics.getInFlightBatches());
+
+      // The log position does not move past the first batch before it is acknowledged.
+      shipped.get(200L).countDown();
+      Thread.sleep(200);
+      assertTrue(getLoggedPositions().isEmpty());
+      assertFalse(shipped.containsKey(300L));
+
+      shipped.get(100L).countDown();
+      Waiter.waitFor(conf, 10000, () -> getLoggedPositions().size() == 2);
+      assertEquals(Arrays.asList(100L, 200L), getLoggedPositions());
+      Waiter.waitFor(conf, 10000, () -> shipped.size() == 4);
+
+      shipped.get(400L).countDown();
+      Thread.sleep(200);
+      assertEquals(2, getLoggedPositions().size());
+      shipped.get(300L).countDown();
+      Waiter.waitFor(conf, 10000, () -> getLoggedPositions().size() == 4);
+      assertEquals(Arrays.asList(100L, 200L, 300L, 400L), getLoggedPositions());
+      assertEquals(0, metrics.getInFlightBatches());
+    } finally {
+      shipper.stopWorker();
+      shipper.interrupt();
+      shipper.join();
+      for (CountDownLatch latch : shipped.values()) {
+        latch.countDown();
+      }
+    }
+  }
+}
@@ -164,6 +164,59 @@ public class TestBloomFilterChunk extends TestCase {
     // test: foldFactor > log(max/actual)
   }
 
+  public void testBlockedBloom() throws Exception {
+    float err = (float) 0.01;
+    BloomFilterChunk b = new BloomFilterChunk(100 * 1000, err, Hash.MURMUR_HASH, 3, true);
+    b.allocBloom();
+    assertEquals(0, b.getByteSize() % (BloomFilterUtil.BLOCKED_BLOOM_BLOCK_BYTES << 3));
+    // Size it the way a chunk is sized, so that it holds as many keys as keep the error rate.
+    b.maxKeys = (int) BloomFilterUtil.computeBlockedMaxKeys(b.getByteSize() * 8, err,
+      b.getHashCount());
+    int numKeys = b.maxKeys / 10;
+    for (int i = 0; i < numKeys; ++i) {
+      byte[] ib = Bytes.toBytes(i);
+      b.add(ib, 0, ib.length);
+    }
+    long origSize = b.getByteSize();
+    b.compactBloom();
+    assertEquals(origSize >> 3, b.getByteSize());
+
+    int falsePositives = 0;
+    for (int i = 0; i < numKeys * 11; ++i) {
+      byte[] bytes = Bytes.toBytes(i);
+      if (BloomFilterUtil.contains(bytes, 0, bytes.length, new MultiByteBuff(b.bloom), 0,
+          (int) b.byteSize, b.hash, b.hashCount, true)) {
+        if (i >= numKeys) {
+          falsePositives++;
+        }
+      } else {
+        assertFalse(i < numKeys);
+      }
+    }
+    System.out.println("False Positive = " + falsePositives);
+    assertTrue(falsePositives <= numKeys * 10 * err * 1.5);
+  }
+
+  public void testBlockedSizing() {
+    long bitSize = 8 * 128 * 1024; // 128 KB
+    double errorRate = 0.01;
+    int hashCount = BloomFilterUtil.optimalFunctionCount(
+      (int) BloomFilterUtil.idealMaxKeys(bitSize, errorRate), bitSize);
+    long maxKeys = BloomFilterUtil.computeMaxKeys(bitSize, errorRate, hashCount);
+    long blockedMaxKeys = BloomFilterUtil.computeBlockedMaxKeys(bitSize, errorRate, hashCount);
+    // Blocks that get more keys than others cost some space.
+    assertTrue(blockedMaxKeys < maxKeys);
+    assertTrue(blockedMaxKeys > maxKeys * 0.8);
+    assertTrue(BloomFilterUtil.blockedErrorRate(blockedMaxKeys, bitSize, hashCount) <= errorRate);
+    assertTrue(BloomFilterUtil.blockedErrorRate(maxKeys, bitSize, hashCount) > errorRate);
+  }
+
+  public void testBlockedFoldableByteSize() {
+    assertEquals(64, BloomFilterUtil.computeBlockedFoldableByteSize(100, 7));
+    assertEquals(1024, BloomFilterUtil.computeBlockedFoldableByteSize(8 * 1000, 7));
+    assertEquals(128 * 1024, BloomFilterUtil.computeBlockedFoldableByteSize(8 * 128 * 1024, 7));
+  }
+
   public void testSizing() {
     int bitSize = 8 * 128 * 1024; // 128 KB
     double errorRate = 0.025; // target false positive rate